@@ -23,9 +23,12 @@ public class AppConfig {
     private List<Service> services;
     private List<GrpcService> grpcServices;
     private List<User> users;
+    private CredentialCache credentialCache = new CredentialCache();
     private CorsFilter corsFilter = new CorsFilter();
     private JwtAuthSource jwtAuthSource;
     private Logging logging;
+    private Metrics metrics = new Metrics();
+    private AdmissionControl admissionControl;
 
     public boolean hasCorsFilter() {
         return corsFilter != null;
@@ -36,6 +39,42 @@ public class AppConfig {
     public boolean hasEnableInMemoryStorage() {
         return storage != null && storage.inMemory != null && storage.inMemory.enabled;
     }
+    public boolean hasEnableDiskStorage() {
+        return storage != null && storage.disk != null && storage.disk.enabled;
+    }
+    public boolean hasEnableMetrics() {
+        return metrics != null && metrics.enabled;
+    }
+    public boolean hasAdmissionControl() {
+        return admissionControl != null && admissionControl.enabled;
+    }
+    @Getter
+    @Setter
+    @ToString
+    public static class AdmissionControl {
+        private boolean enabled = false;
+        private int maxConcurrentRequests = Constants.DEFAULT_ADMISSION_MAX_CONCURRENT_REQUESTS;
+        private long targetQueueDelay = Constants.DEFAULT_ADMISSION_TARGET_QUEUE_DELAY; // ms
+        private long interval = Constants.DEFAULT_ADMISSION_INTERVAL; // ms
+        private int retryAfter = Constants.DEFAULT_ADMISSION_RETRY_AFTER; // seconds
+    }
+    @Getter
+    @Setter
+    @ToString
+    public static class Metrics {
+        private boolean enabled = true;
+        private long snapshotInterval = 10000; // ms covered by the "recent" latency percentiles
+        private Timings timings = new Timings();
+
+        @Getter
+        @Setter
+        @ToString
+        public static class Timings {
+            private boolean enabled = false;
+            private double sampleRate = 0.01; // fraction of requests whose stages are timed
+            private boolean serverTimingHeader = false;
+        }
+    }
     @Getter
     @Setter
     @ToString
@@ -61,6 +100,20 @@ public class AppConfig {
         private Root root;
         private List<Appender> appenders;
         private List<Logger> loggers;
+        private AccessLogConfig accessLog = new AccessLogConfig();
+    }
+    @Getter
+    @Setter
+    @ToString
+    public static class AccessLogConfig {
+        private String format = "default"; // default, combined or json
+        private String output = "console"; // console or file
+        private String file = "logs/access.log";
+        private long maxFileSize = 100 * 1024 * 1024; // bytes before the file is rotated
+        private int maxFiles = 5; // rotated files kept next to the active one
+        private int bufferSize = 8192; // records buffered between request threads and the writer
+        private String overflowPolicy = "drop"; // drop or block when the buffer is full
+        private int batchSize = 256; // records written between flushes
     }
     @Getter
     @Setter
@@ -103,6 +156,8 @@ public class AppConfig {
         private long ttl = -1;
         private String uuid;
         private List<Match> matches = new ArrayList<>(); // Added rules list
+        private String priority = Constants.PRIORITY_NORMAL; // critical, high, normal or low, for admission control
+        private Timeout timeout; // defaultTimeout and the HTTP client defaults when unset
 
         public boolean hasMiddleware() {
             return middleware != null;
@@ -123,6 +178,16 @@ public class AppConfig {
         }
     }
 
+    @Getter
+    @Setter
+    @ToString
+    public static class Timeout {
+        private long connect = 0; // ms to establish an upstream connection, 0 for the client default
+        private long idle = 0; // ms without upstream bytes, 0 for the client default
+        private long total = 0; // ms for the whole upstream exchange, 0 for defaultTimeout
+        private boolean propagate = true; // send the time left to the upstream as X-JetProxy-Timeout-Ms
+    }
+
     @Getter
     @Setter
     @ToString
@@ -143,7 +208,9 @@ public class AppConfig {
         private CircuitBreaker circuitBreaker;
         private RateLimiter rateLimiter;
         private Bulkhead bulkhead;
+        private AdaptiveConcurrency adaptiveConcurrency;
         private Retry retry;
+        private Hedging hedging;
         private Mirroring mirroring;
         private Idempotency idempotency;
 
@@ -168,11 +235,19 @@ public class AppConfig {
         }
 
         public boolean hasBulkHead() {
-            return bulkhead != null && rateLimiter.enabled;
+            return bulkhead != null && bulkhead.enabled;
+        }
+
+        public boolean hasAdaptiveConcurrency() {
+            return adaptiveConcurrency != null && adaptiveConcurrency.enabled;
         }
 
         public boolean hasRetry() {
-            return retry != null;
+            return retry != null && retry.enabled;
+        }
+
+        public boolean hasHedging() {
+            return hedging != null && hedging.enabled;
         }
 
         public boolean hasHeaders() {
@@ -214,6 +289,24 @@ public class AppConfig {
         private String service;
         private String requestHeaders;
         private String responseHeaders;
+        private long timeout = Constants.DEFAULT_FORWARD_AUTH_TIMEOUT;       // ms for one check, including the connect
+        private long cacheTtl = 0;                                           // ms a decision is reused, 0 disables the cache
+        private int cacheSize = Constants.DEFAULT_FORWARD_AUTH_CACHE_SIZE;   // decisions held at most
+        private List<String> cacheKeyHeaders = new ArrayList<>();            // forwarded headers a decision depends on, empty means all
+        private SpeculativeDispatch speculative;                            // send GET/HEAD upstream while the check runs
+
+        public boolean hasSpeculativeDispatch() {
+            return speculative != null && speculative.isEnabled();
+        }
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class SpeculativeDispatch {
+        private boolean enabled = false;
+        private double budgetPercent = Constants.DEFAULT_SPECULATIVE_BUDGET_PERCENT;
+        private int budgetMinDispatches = Constants.DEFAULT_SPECULATIVE_BUDGET_MIN_DISPATCHES;
     }
 
     @Getter
@@ -235,6 +328,13 @@ public class AppConfig {
         private int waitDurationInOpenState = Constants.DEFAULT_WAIT_DURATION_OPEN_STATE;
         private int permittedNumberOfCallsInHalfOpenState = Constants.DEFAULT_PERMITTED_CALLS_HALF_OPEN;
         private int minimumNumberOfCalls = Constants.DEFAULT_MINIMUM_CALLS;
+        private String slidingWindowType = Constants.CIRCUIT_BREAKER_WINDOW_COUNT; // count or time
+        private int slidingWindowSize = Constants.DEFAULT_SLIDING_WINDOW_SIZE; // calls, or seconds for a time window
+        private String scope = Constants.CIRCUIT_BREAKER_SCOPE_ROUTE; // route or endpoint
+
+        public boolean isPerEndpoint() {
+            return Constants.CIRCUIT_BREAKER_SCOPE_ENDPOINT.equalsIgnoreCase(scope);
+        }
 
         public int getRetryAfterSeconds() {
             return (int) Math.ceil(waitDurationInOpenState / 1000.0); // Convert ms to seconds
@@ -249,22 +349,66 @@ public class AppConfig {
         private int limitForPeriod = Constants.DEFAULT_RATE_LIMIT_FOR_PERIOD;
         private Duration timeoutDuration = Constants.DEFAULT_RATE_LIMIT_TIMEOUT;
         private int maxBurstCapacity = Constants.DEFAULT_RATE_LIMIT_MAX_BURST_CAPACITY;
+        private String keyBy; // ip, header:<name>, query:<name> or jwt:<claim>; one bucket for the route when unset
+        private int maxKeys = Constants.DEFAULT_RATE_LIMIT_MAX_KEYS;
+        private boolean distributed = false; // Share the route's limit across nodes through Redis
+        private int leaseSize = Constants.DEFAULT_RATE_LIMIT_LEASE_SIZE;
+
+        public boolean isKeyed() {
+            return keyBy != null && !keyBy.isBlank();
+        }
     }
 
     @Getter
     @Setter
     public static class Retry {
         private boolean enabled = false;
-        private int maxAttempts = 5;
-        private int waitDuration = 1000;
+        private int maxAttempts = Constants.DEFAULT_RETRY_MAX_ATTEMPTS; // retries after the first attempt
+        private long waitDuration = Constants.DEFAULT_RETRY_WAIT_DURATION; // base backoff in ms
+        private long maxWaitDuration = Constants.DEFAULT_RETRY_MAX_WAIT_DURATION;
+        private List<Integer> retryOnStatus = Constants.DEFAULT_RETRY_ON_STATUS;
+        private List<String> methods = Constants.DEFAULT_RETRY_METHODS;
+        private double budgetPercent = Constants.DEFAULT_RETRY_BUDGET_PERCENT;
+        private int budgetMinRetries = Constants.DEFAULT_RETRY_BUDGET_MIN_RETRIES;
+    }
+
+    @Getter
+    @Setter
+    public static class Hedging {
+        private boolean enabled = false;
+        private long delay = 0; // ms before the hedge is sent; 0 uses the observed percentile
+        private double percentile = Constants.DEFAULT_HEDGING_PERCENTILE;
+        private long minDelay = Constants.DEFAULT_HEDGING_MIN_DELAY; // floor of the observed delay, in ms
+        private List<String> methods = Constants.DEFAULT_HEDGING_METHODS;
+        private double budgetPercent = Constants.DEFAULT_HEDGING_BUDGET_PERCENT;
+        private int budgetMinHedges = Constants.DEFAULT_HEDGING_BUDGET_MIN_HEDGES;
+    }
+
+    @Getter
+    @Setter
+    public static class AdaptiveConcurrency {
+        private boolean enabled = false;
+        private String algorithm = Constants.CONCURRENCY_LIMIT_ALGORITHM_GRADIENT; // gradient or aimd
+        private int initialLimit = Constants.DEFAULT_CONCURRENCY_INITIAL_LIMIT;
+        private int minLimit = Constants.DEFAULT_CONCURRENCY_MIN_LIMIT;
+        private int maxLimit = Constants.DEFAULT_CONCURRENCY_MAX_LIMIT;
+        private double backoffRatio = Constants.DEFAULT_CONCURRENCY_BACKOFF_RATIO; // aimd only
+        private double tolerance = Constants.DEFAULT_CONCURRENCY_TOLERANCE; // gradient only
+        private double smoothing = Constants.DEFAULT_CONCURRENCY_SMOOTHING; // gradient only
     }
 
     @Getter
     @Setter
     public static class Bulkhead {
         private boolean enabled = false;
-        private int maxConcurrentCalls = 10; // Default: 10 concurrent calls
-        private long maxWaitDuration = 500; // Default: 500 ms
+        private int maxConcurrentCalls = Constants.DEFAULT_BULKHEAD_MAX_CONCURRENT_CALLS; // Default: 10 concurrent calls
+        private long maxWaitDuration = Constants.DEFAULT_BULKHEAD_MAX_WAIT_DURATION; // Default: 500 ms
+        private int maxWaitingCalls = Constants.DEFAULT_BULKHEAD_MAX_WAITING_CALLS; // calls waiting for a permit
+        private String scope = Constants.BULKHEAD_SCOPE_ROUTE; // route or service
+
+        public boolean isPerService() {
+            return Constants.BULKHEAD_SCOPE_SERVICE.equalsIgnoreCase(scope);
+        }
     }
 
     @Getter
@@ -312,6 +456,7 @@ public class AppConfig {
     public static class Storage {
         private RedisConfig redis;
         private InMemoryConfig inMemory;
+        private DiskConfig disk;
 
         @Getter
         @Setter
@@ -324,6 +469,36 @@ public class AppConfig {
             private int maxTotal = 128;
             private int maxIdle = 64;
             private int minIdle = 16;
+            private int batchMaxSize = 128; // Commands sent per pipeline round trip
+            private long batchFlushInterval = 200; // µs a command waits for others to join its batch
+            private int batchQueueSize = 65536;
+            private int timeout = 2000; // ms, connect and socket timeout of pooled connections
+            private long commandTimeout = 250; // ms a request waits for Redis before falling back
+            private int fallbackSize = 1000; // Entries of the local cache used while Redis is unhealthy
+            private long fallbackMaxMemory = 10; // MB
+            private long metricsFlushInterval = 5000; // ms between flushes of locally aggregated metrics
+            private AppConfig.CircuitBreaker circuitBreaker = defaultCircuitBreaker();
+            private NearCacheConfig nearCache = new NearCacheConfig();
+
+            private static AppConfig.CircuitBreaker defaultCircuitBreaker() {
+                AppConfig.CircuitBreaker circuitBreaker = new AppConfig.CircuitBreaker();
+                circuitBreaker.setEnabled(true);
+                circuitBreaker.setSlowCallDuration(100);
+                circuitBreaker.setMinimumNumberOfCalls(20);
+                circuitBreaker.setWaitDurationInOpenState(5000);
+                circuitBreaker.setPermittedNumberOfCallsInHalfOpenState(5);
+                return circuitBreaker;
+            }
+        }
+
+        @Getter
+        @Setter
+        @ToString
+        public static class NearCacheConfig {
+            private boolean enabled = false;
+            private long maxMemory = 10; // MB
+            private int size = 1000;
+            private long ttl = 5000; // ms, upper bound of how long a local copy may live
         }
 
         @Getter
@@ -333,6 +508,18 @@ public class AppConfig {
             private boolean enabled = false;
             private long maxMemory = 50;
             private int size = 10000;
+            private int metricsRetention = 60; // minutes of per-route request counts kept in memory
+            private int metricsMaxRoutes = 1000; // routes tracked before the rest are counted together
+        }
+
+        @Getter
+        @Setter
+        @ToString
+        public static class DiskConfig {
+            private boolean enabled = false;
+            private String path = "./data/cache";
+            private long maxSize = 512; // MB
+            private int segmentSize = 64; // MB
         }
 
         public boolean hasRedisServer() {
@@ -346,13 +533,26 @@ public class AppConfig {
     public static class User {
         private String username;
         private String password;
+        private String passwordHash;    // PBKDF2:<iterations>:<salt>:<hash>, instead of password
         private String role;
 
         public String getUuid() {
             return Base64.getUrlEncoder()
                     .withoutPadding()
-                    .encodeToString(("User" + username + password).getBytes());
+                    .encodeToString(("User" + username + (passwordHash != null ? passwordHash : password)).getBytes());
         }
+
+        public boolean hasPasswordHash() {
+            return passwordHash != null && !passwordHash.isEmpty();
+        }
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class CredentialCache {
+        private long ttl = Constants.DEFAULT_CREDENTIAL_CACHE_TTL; // ms a verified Basic credential is trusted, even if its user was removed meanwhile, 0 disables
+        private int size = Constants.DEFAULT_CREDENTIAL_CACHE_SIZE; // verified credentials held at most
     }
 
     @Getter
@@ -371,8 +571,10 @@ public class AppConfig {
         private String secretKey;                 // Secret key for HS256 (symmetric key)
         private String jwksUri;                   // JWKS URI for RS256 (asymmetric keys)
         private String jwksType = "x509";         //  # Specify type: x509 or jwk
-        private long jwksTtl = -1;                 //  Cache Response
+        private long jwksTtl = -1;                 //  ms between JWKS refreshes when the endpoint sends no max-age
         private Map<String, Object> claimValidations = new HashMap<>(); // Optional claims to validate (e.g., iss, aud)
         private Map<String, String> forwardClaims = new HashMap<>();   // Claims to forward as headers (e.g., sub -> X-User-Id)
+        private long verifiedCacheTtl = Constants.DEFAULT_JWT_VERIFIED_CACHE_TTL; // ms a verified token is trusted, 0 disables
+        private int verifiedCacheSize = Constants.DEFAULT_JWT_VERIFIED_CACHE_SIZE; // verified tokens held at most
     }
 }
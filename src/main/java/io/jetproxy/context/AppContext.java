@@ -8,9 +8,13 @@ import io.jetproxy.middleware.cache.Cache;
 import io.jetproxy.middleware.cache.CacheFactory;
 import io.jetproxy.middleware.cache.RedisPoolManager;
 import io.jetproxy.middleware.grpc.GrpcChannelManager;
+import io.jetproxy.middleware.log.AsyncAccessLogger;
 import io.jetproxy.middleware.log.LogbackConfigurator;
+import io.jetproxy.middleware.metric.MetricsListener;
+import io.jetproxy.middleware.metric.MetricsListenerFactory;
 import io.jetproxy.service.AppShutdownListener;
 import io.jetproxy.service.HealthCheckServlet;
+import io.jetproxy.service.MetricsServlet;
 import io.jetproxy.service.appConfig.service.AppConfigService;
 import io.jetproxy.service.appConfig.servlet.AppConfigServlet;
 import io.jetproxy.service.appConfig.servlet.LogStreamServlet;
@@ -37,7 +41,9 @@ public class AppContext {
     private static volatile AppContext instance;
     private final AppConfig config;
     private final Cache cache;
+    private final MetricsListener metricsListener;
     private final boolean debugMode;
+    private final AsyncAccessLogger accessLogger;
     private final Gson gson;
     private final ServletContextHandler contextHandler;
     private final ProxyConfigurationManager proxyConfigurationManager;
@@ -53,7 +59,9 @@ public class AppContext {
         GrpcChannelManager.configureGrpcChannel(this.config.getGrpcServices());
 
         this.cache = CacheFactory.createCache(this.config);
+        this.metricsListener = MetricsListenerFactory.createMetricsListener(this.config, this.cache);
         this.debugMode = this.config.isAccessLog();
+        this.accessLogger = this.debugMode ? AsyncAccessLogger.create(this.config.getLogging()) : null;
         this.gson = GsonFactory.createGson();
         this.contextHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
         this.proxyConfigurationManager = new ProxyConfigurationManager(this.config, this.contextHandler);
@@ -81,6 +89,9 @@ public class AppContext {
         this.contextHandler.addServlet(configServletHolder, "/_jetproxy/admin/*");
         this.contextHandler.addServlet(HealthCheckServlet.class, "/_jetproxy/healthcheck");
         this.contextHandler.addServlet(LogStreamServlet.class, "/_jetproxy/logs/stream");
+        if (this.config.hasEnableMetrics()) {
+            this.contextHandler.addServlet(MetricsServlet.class, "/_jetproxy/metrics");
+        }
         addAdminSecurityHandler(this.contextHandler);
         this.proxyConfigurationManager.setupProxiesAndAdminApi(server, this.contextHandler);
         startRedisSubscription();
@@ -93,7 +104,7 @@ public class AppContext {
         adminSecurityHandler.addConstraintMapping(basicAuthProvider
                 .createConstraintMapping(adminPath,"administrator"));
         ;
-        adminSecurityHandler.setAuthenticator(new CustomBasicAuthenticator());
+        adminSecurityHandler.setAuthenticator(new CustomBasicAuthenticator(config.getCredentialCache()));
         context.setSecurityHandler(adminSecurityHandler);
     }
     public Map<String, AppConfig.Service> getServiceMap() {
@@ -1,6 +1,10 @@
 package io.jetproxy.context;
 
 import io.jetproxy.exception.JetProxyValidationException;
+import io.jetproxy.middleware.admission.AdmissionController;
+import io.jetproxy.middleware.auth.Pbkdf2Credential;
+import io.jetproxy.middleware.resilience.ratelimiter.RateLimitKeyResolver;
+import io.jetproxy.util.Constants;
 import io.jetproxy.util.FatalValidationHints;
 import org.eclipse.jetty.util.StringUtil;
 
@@ -33,6 +37,14 @@ public class ConfigValidator {
         boolean hasHttpServices = config.getServices() != null && !config.getServices().isEmpty();
 
         ConfigValidator.validateProxies(config.getProxies(), config.getServices(), config.getGrpcServices());
+        if (!config.hasEnableRedisStorage() && config.getProxies() != null) {
+            for (AppConfig.Proxy proxy : config.getProxies()) {
+                if (proxy.hasMiddleware() && proxy.getMiddleware().hasRateLimiter()
+                        && proxy.getMiddleware().getRateLimiter().isDistributed()) {
+                    FatalValidationHints.rateLimiterDistributedWithoutRedis(proxy.getPath());
+                }
+            }
+        }
 
         if (hasHttpServices) {
             ConfigValidator.validateServices(config.getServices());
@@ -40,6 +52,19 @@ public class ConfigValidator {
             ConfigValidator.validateGrpServices(config.getGrpcServices());
         }
 
+        if (config.hasAdmissionControl()) {
+            AppConfig.AdmissionControl admission = config.getAdmissionControl();
+            if (admission.getMaxConcurrentRequests() <= 0) {
+                FatalValidationHints.admissionControlInvalidMaxConcurrentRequests();
+            }
+            if (admission.getTargetQueueDelay() <= 0 || admission.getInterval() <= 0) {
+                FatalValidationHints.admissionControlInvalidQueueDelay();
+            }
+            if (admission.getRetryAfter() < 0) {
+                FatalValidationHints.admissionControlInvalidRetryAfter();
+            }
+        }
+
         if (!config.hasCorsFilter()) {
             FatalValidationHints.missingCorsFilter();
         } else {
@@ -61,9 +86,16 @@ public class ConfigValidator {
                     FatalValidationHints.missingUsername();
                 }
                 // Validate password
-                if (StringUtil.isEmpty(user.getPassword())) {
+                if (StringUtil.isEmpty(user.getPassword()) && !user.hasPasswordHash()) {
                     FatalValidationHints.missingPassword(userRef);
                 }
+                if (user.hasPasswordHash()) {
+                    try {
+                        Pbkdf2Credential.parse(user.getPasswordHash());
+                    } catch (IllegalArgumentException e) {
+                        FatalValidationHints.invalidPasswordHash(userRef, e.getMessage());
+                    }
+                }
                 // Validate role
                 if (StringUtil.isEmpty(user.getRole())) {
                     FatalValidationHints.missingRole(userRef);
@@ -190,6 +222,15 @@ public class ConfigValidator {
             if (!proxy.getPath().startsWith("/")) {
                 FatalValidationHints.proxyPathMustStartWithSlash(proxy.getPath());
             }
+            try {
+                AdmissionController.Priority.from(proxy.getPriority());
+            } catch (JetProxyValidationException e) {
+                FatalValidationHints.proxyInvalidPriority(proxy.getPath(), proxy.getPriority());
+            }
+            AppConfig.Timeout timeout = proxy.getTimeout();
+            if (timeout != null && (timeout.getConnect() < 0 || timeout.getIdle() < 0 || timeout.getTotal() < 0)) {
+                FatalValidationHints.proxyInvalidTimeout(proxy.getPath());
+            }
             validateMatches(proxy, registeredServiceNames);
             validateMiddleware(proxy, registeredServiceNames);
         }
@@ -247,6 +288,14 @@ public class ConfigValidator {
             if (forwardAuth.getResponseHeaders() == null || forwardAuth.getResponseHeaders().isEmpty()) {
                 FatalValidationHints.forwardAuthResponseHeadersMissing();
             }
+            if (forwardAuth.getTimeout() < 0 || forwardAuth.getCacheTtl() < 0 || forwardAuth.getCacheSize() < 0) {
+                FatalValidationHints.forwardAuthInvalidTimeoutOrCache();
+            }
+            if (forwardAuth.hasSpeculativeDispatch()
+                    && (forwardAuth.getSpeculative().getBudgetPercent() < 0
+                    || forwardAuth.getSpeculative().getBudgetMinDispatches() < 0)) {
+                FatalValidationHints.forwardAuthInvalidSpeculativeBudget();
+            }
         }
         AppConfig.RateLimiter rateLimiter = middleware.getRateLimiter();
         if (rateLimiter != null && rateLimiter.isEnabled()) {
@@ -259,6 +308,22 @@ public class ConfigValidator {
             if (rateLimiter.getMaxBurstCapacity() <= 0) {
                 FatalValidationHints.rateLimiterInvalidBurstCapacity();
             }
+            if (rateLimiter.isKeyed()) {
+                try {
+                    RateLimitKeyResolver.from(rateLimiter.getKeyBy());
+                } catch (JetProxyValidationException e) {
+                    FatalValidationHints.rateLimiterInvalidKeyBy();
+                }
+                if (rateLimiter.getMaxKeys() <= 0) {
+                    FatalValidationHints.rateLimiterInvalidMaxKeys();
+                }
+                if (rateLimiter.isDistributed()) {
+                    FatalValidationHints.rateLimiterDistributedKeyed();
+                }
+            }
+            if (rateLimiter.getLeaseSize() < 0) {
+                FatalValidationHints.rateLimiterInvalidLeaseSize();
+            }
         }
         AppConfig.CircuitBreaker circuitBreaker = middleware.getCircuitBreaker();
         if (circuitBreaker != null && circuitBreaker.isEnabled()) {
@@ -283,9 +348,80 @@ public class ConfigValidator {
             if (circuitBreaker.getMinimumNumberOfCalls() <= 0) {
                 FatalValidationHints.circuitBreakerInvalidMinimumCalls();
             }
+            if (circuitBreaker.getSlidingWindowSize() <= 0) {
+                FatalValidationHints.circuitBreakerInvalidSlidingWindowSize();
+            }
+            if (!Constants.CIRCUIT_BREAKER_SCOPE_ROUTE.equalsIgnoreCase(circuitBreaker.getScope())
+                    && !circuitBreaker.isPerEndpoint()) {
+                FatalValidationHints.circuitBreakerInvalidScope();
+            }
         }
 
 
+        AppConfig.Bulkhead bulkhead = middleware.getBulkhead();
+        if (bulkhead != null && bulkhead.isEnabled()) {
+            if (bulkhead.getMaxConcurrentCalls() <= 0) {
+                FatalValidationHints.bulkheadInvalidMaxConcurrentCalls();
+            }
+            if (bulkhead.getMaxWaitDuration() < 0 || bulkhead.getMaxWaitingCalls() < 0) {
+                FatalValidationHints.bulkheadInvalidWait();
+            }
+            if (!Constants.BULKHEAD_SCOPE_ROUTE.equalsIgnoreCase(bulkhead.getScope()) && !bulkhead.isPerService()) {
+                FatalValidationHints.bulkheadInvalidScope();
+            }
+        }
+
+        AppConfig.AdaptiveConcurrency adaptiveConcurrency = middleware.getAdaptiveConcurrency();
+        if (adaptiveConcurrency != null && adaptiveConcurrency.isEnabled()) {
+            if (adaptiveConcurrency.getMinLimit() <= 0 || adaptiveConcurrency.getMaxLimit() < adaptiveConcurrency.getMinLimit()) {
+                FatalValidationHints.adaptiveConcurrencyInvalidLimits();
+            }
+            String algorithm = adaptiveConcurrency.getAlgorithm();
+            if (!Constants.CONCURRENCY_LIMIT_ALGORITHM_GRADIENT.equalsIgnoreCase(algorithm)
+                    && !Constants.CONCURRENCY_LIMIT_ALGORITHM_AIMD.equalsIgnoreCase(algorithm)) {
+                FatalValidationHints.adaptiveConcurrencyInvalidAlgorithm();
+            }
+        }
+
+        AppConfig.Retry retry = middleware.getRetry();
+        if (retry != null && retry.isEnabled()) {
+            if (retry.getMaxAttempts() < 0 || retry.getWaitDuration() < 0 || retry.getMaxWaitDuration() < 0) {
+                FatalValidationHints.retryInvalidAttempts();
+            }
+            if (retry.getBudgetPercent() < 0 || retry.getBudgetMinRetries() < 0) {
+                FatalValidationHints.retryInvalidBudget();
+            }
+        }
+
+        AppConfig.Hedging hedging = middleware.getHedging();
+        if (hedging != null && hedging.isEnabled()) {
+            if (hedging.getDelay() < 0 || hedging.getMinDelay() < 0
+                    || hedging.getPercentile() <= 0 || hedging.getPercentile() > 100) {
+                FatalValidationHints.hedgingInvalidDelay();
+            }
+            if (hedging.getBudgetPercent() < 0 || hedging.getBudgetMinHedges() < 0) {
+                FatalValidationHints.hedgingInvalidBudget();
+            }
+        }
+
+        // A method both hedged and retried would only ever be hedged
+        if (retry != null && retry.isEnabled() && hedging != null && hedging.isEnabled()) {
+            Set<String> retried = retry.getMethods().stream().map(String::toUpperCase).collect(Collectors.toSet());
+            List<String> both = hedging.getMethods().stream()
+                    .map(String::toUpperCase)
+                    .filter(retried::contains)
+                    .toList();
+            if (!both.isEmpty()) {
+                FatalValidationHints.hedgingWithRetry(String.join(", ", both));
+            }
+        }
+
+        // Retries and hedges wait for the check, which would make speculation pointless
+        if (forwardAuth != null && forwardAuth.hasSpeculativeDispatch()
+                && ((retry != null && retry.isEnabled()) || (hedging != null && hedging.isEnabled()))) {
+            FatalValidationHints.forwardAuthSpeculativeWithRetryOrHedging();
+        }
+
         AppConfig.Headers header = middleware.getHeader();
         if (header != null) {
             if (header.getRequestHeaders() == null || header.getRequestHeaders().isEmpty()) {
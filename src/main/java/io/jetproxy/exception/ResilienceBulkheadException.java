@@ -0,0 +1,11 @@
+package io.jetproxy.exception;
+
+public class ResilienceBulkheadException extends JetProxyException {
+    public ResilienceBulkheadException(String message) {
+        super(message);
+    }
+
+    public ResilienceBulkheadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package io.jetproxy.exception;
+
+public class ResilienceConcurrencyLimitException extends JetProxyException {
+    public ResilienceConcurrencyLimitException(String message) {
+        super(message);
+    }
+
+    public ResilienceConcurrencyLimitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
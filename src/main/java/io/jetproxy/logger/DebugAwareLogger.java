@@ -10,7 +10,6 @@ import org.eclipse.jetty.server.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.jetproxy.context.AppContext;
-import org.slf4j.MDC;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -46,24 +45,6 @@ public class DebugAwareLogger {
         }
     }
 
-    public void logRequest(Request request, Response response) {
-        if (!debugMode) return;
-
-        String logMessage = formatLogMessage(
-                request,
-                response,
-                null, // Target URL is not applicable for general requests
-                response.getStatus(),
-                System.currentTimeMillis() - request.getTimeStamp(),
-                response.getHeader("X-JetProxy-Cache") != null ? "true" : "false",
-                "Request processed"
-        );
-
-        logger.info(logMessage);
-        LogStreamServlet.broadcast(logMessage);
-        MDC.clear();
-    }
-
     @Deprecated
     public void logAuth(Request request, String targetUrl, int responseCode, long startTime, String status) {
         if (!debugMode) return;
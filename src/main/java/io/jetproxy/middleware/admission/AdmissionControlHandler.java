@@ -0,0 +1,160 @@
+package io.jetproxy.middleware.admission;
+
+import io.jetproxy.context.AppConfig;
+import io.jetproxy.middleware.metric.MetricsRegistry;
+import io.jetproxy.util.Constants;
+import io.jetproxy.util.RequestUtils;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-wide overload protection in front of every other handler.
+ * <p>
+ * Each request is checked by the {@link AdmissionController} with the priority of the route it is
+ * sent to and the time it spent between Jetty reading it and this handler. Shed requests get a 503
+ * with {@code Retry-After} before authentication or proxying spend any work on them. Admitted
+ * requests hold their slot until their response completes, including asynchronous proxying.
+ * The admin API and health check are never shed.
+ */
+public class AdmissionControlHandler extends HandlerWrapper {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlHandler.class);
+    private static final String ADMIN_PATH_PREFIX = "/_jetproxy/";
+    private static final String SHED_METRIC = "jetproxy_admission_shed";
+
+    private final AdmissionController controller;
+    private final String contextPath;
+    private final int retryAfterSeconds;
+    private final ConcurrentHashMap<String, AdmissionController.Priority> routePriorities = new ConcurrentHashMap<>();
+
+    public AdmissionControlHandler(AppConfig config) {
+        AppConfig.AdmissionControl admission = config.getAdmissionControl();
+        this.controller = new AdmissionController(admission.getMaxConcurrentRequests(),
+                admission.getTargetQueueDelay(), admission.getInterval());
+        this.retryAfterSeconds = admission.getRetryAfter();
+        String rootPath = config.getRootPath();
+        this.contextPath = rootPath == null || "/".equals(rootPath) ? "" : rootPath;
+        if (config.getProxies() != null) {
+            config.getProxies().forEach(this::registerRoute);
+        }
+
+        MetricsRegistry registry = MetricsRegistry.get();
+        registry.registerGauge("jetproxy_admission_in_flight", "Requests admitted and not yet completed",
+                "gauge", controller::getInFlight);
+        registry.registerGauge("jetproxy_admission_queue_delay_ms", "Minimum queueing delay over the last admission interval",
+                "gauge", controller::getStandingQueueDelay);
+        logger.info("Admission control enabled with maxConcurrentRequests={}, targetQueueDelay={}ms",
+                admission.getMaxConcurrentRequests(), admission.getTargetQueueDelay());
+    }
+
+    /**
+     * Registers or updates the priority class of a route.
+     */
+    public void registerRoute(AppConfig.Proxy proxy) {
+        routePriorities.put(proxy.getPath(), AdmissionController.Priority.from(proxy.getPriority()));
+    }
+
+    public void removeRoute(String path) {
+        routePriorities.remove(path);
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException, ServletException {
+        String path = stripContextPath(target);
+        if (baseRequest.getDispatcherType() != DispatcherType.REQUEST || path.startsWith(ADMIN_PATH_PREFIX)) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+
+        AdmissionController.Priority priority = priorityOf(path);
+        long timeStamp = baseRequest.getTimeStamp();
+        long queueDelay = timeStamp > 0 ? System.currentTimeMillis() - timeStamp : 0;
+        AdmissionController.Decision decision = controller.tryAdmit(priority, queueDelay);
+        if (!decision.isAdmitted()) {
+            String reason = decision == AdmissionController.Decision.SHED_QUEUE_DELAY ? "queue-delay" : "concurrency";
+            MetricsRegistry.get().counter(SHED_METRIC, "Requests shed by admission control", "priority", "reason")
+                    .labels(priority.label(), reason).increment();
+            RequestUtils.sendErrorServiceUnavailableResponse(response, retryAfterSeconds,
+                    "Server overloaded", Constants.TYPE_ADMISSION_CONTROL);
+            baseRequest.setHandled(true);
+            return;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                controller.release();
+            }
+        };
+        try {
+            super.handle(target, baseRequest, request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Finds the route of a path by its longest matching prefix, one path segment at a time.
+     */
+    AdmissionController.Priority priorityOf(String path) {
+        String candidate = path;
+        while (!candidate.isEmpty()) {
+            AdmissionController.Priority priority = routePriorities.get(candidate);
+            if (priority != null) {
+                return priority;
+            }
+            int slash = candidate.lastIndexOf('/');
+            if (slash <= 0) {
+                break;
+            }
+            candidate = candidate.substring(0, slash);
+        }
+        return routePriorities.getOrDefault("/", AdmissionController.Priority.NORMAL);
+    }
+
+    private String stripContextPath(String target) {
+        if (target == null) {
+            return "";
+        }
+        if (!contextPath.isEmpty() && target.startsWith(contextPath)) {
+            return target.substring(contextPath.length());
+        }
+        return target;
+    }
+}
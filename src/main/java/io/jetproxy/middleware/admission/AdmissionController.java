@@ -0,0 +1,144 @@
+package io.jetproxy.middleware.admission;
+
+import io.jetproxy.exception.JetProxyValidationException;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether the server admits a request, based on how long requests wait before they are
+ * handled and on how many are in flight.
+ * <p>
+ * Queueing delay is tracked the way CoDel does: the minimum delay over each {@code interval} is the
+ * delay of the standing queue. Short spikes do not raise it, since a single request handled right
+ * away resets the minimum, while a queue that never drains does. Requests are shed once that
+ * standing delay exceeds {@code targetQueueDelay} scaled by their priority, and once the requests
+ * in flight exceed the share of {@code maxConcurrentRequests} of their priority. Lower priorities
+ * are shed first, {@link Priority#CRITICAL} routes only when the server is at its hard limit.
+ */
+public class AdmissionController {
+
+    /**
+     * Priority class of a route. The concurrency share is the fraction of the in-flight limit its
+     * requests may use, the delay factor how many times the target queue delay they tolerate.
+     */
+    public enum Priority {
+        CRITICAL(1.0, Double.POSITIVE_INFINITY),
+        HIGH(0.95, 4),
+        NORMAL(0.8, 2),
+        LOW(0.5, 1);
+
+        private final double concurrencyShare;
+        private final double queueDelayFactor;
+
+        Priority(double concurrencyShare, double queueDelayFactor) {
+            this.concurrencyShare = concurrencyShare;
+            this.queueDelayFactor = queueDelayFactor;
+        }
+
+        public static Priority from(String value) {
+            if (value == null || value.isBlank()) {
+                return NORMAL;
+            }
+            try {
+                return Priority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new JetProxyValidationException("Invalid priority: " + value);
+            }
+        }
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Decision {
+        ADMIT, SHED_CONCURRENCY, SHED_QUEUE_DELAY;
+
+        public boolean isAdmitted() {
+            return this == ADMIT;
+        }
+    }
+
+    private final int maxConcurrentRequests;
+    private final long targetQueueDelayMillis;
+    private final long intervalMillis;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong intervalStart;
+    private final AtomicLong intervalMinDelay = new AtomicLong(Long.MAX_VALUE);
+    private volatile long standingQueueDelay;
+
+    /**
+     * @param maxConcurrentRequests  requests in flight at which even critical routes are shed
+     * @param targetQueueDelayMillis standing queue delay above which normal routes start to be shed
+     * @param intervalMillis         window over which the minimum queue delay is taken
+     */
+    public AdmissionController(int maxConcurrentRequests, long targetQueueDelayMillis, long intervalMillis) {
+        this(maxConcurrentRequests, targetQueueDelayMillis, intervalMillis, System::currentTimeMillis);
+    }
+
+    AdmissionController(int maxConcurrentRequests, long targetQueueDelayMillis, long intervalMillis, LongSupplier clock) {
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.targetQueueDelayMillis = Math.max(1, targetQueueDelayMillis);
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.clock = clock;
+        this.intervalStart = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Decides on a request. An admitted request holds an in-flight slot until {@link #release()}.
+     *
+     * @param priority         the priority class of the request's route
+     * @param queueDelayMillis how long the request waited before reaching the proxy
+     * @return the decision
+     */
+    public Decision tryAdmit(Priority priority, long queueDelayMillis) {
+        recordQueueDelay(Math.max(0, queueDelayMillis));
+
+        if (standingQueueDelay > targetQueueDelayMillis * priority.queueDelayFactor) {
+            return Decision.SHED_QUEUE_DELAY;
+        }
+
+        int limit = Math.max(1, (int) (maxConcurrentRequests * priority.concurrencyShare));
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return Decision.SHED_CONCURRENCY;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return Decision.ADMIT;
+    }
+
+    /**
+     * Frees the in-flight slot of an admitted request.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void recordQueueDelay(long delayMillis) {
+        long now = clock.getAsLong();
+        long start = intervalStart.get();
+        if (now - start >= intervalMillis && intervalStart.compareAndSet(start, now)) {
+            long min = intervalMinDelay.getAndSet(Long.MAX_VALUE);
+            // No request in the whole interval means nothing was queued
+            standingQueueDelay = min == Long.MAX_VALUE || now - start >= 2 * intervalMillis ? 0 : min;
+        }
+        intervalMinDelay.accumulateAndGet(delayMillis, Math::min);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the minimum queue delay of the last complete interval.
+     */
+    public long getStandingQueueDelay() {
+        return standingQueueDelay;
+    }
+}
@@ -22,9 +22,11 @@ public class BasicAuthProvider implements AuthProvider {
         if (users != null) {
             for (AppConfig.User user : users) {
                 String username = user.getUsername();
-                String password = user.getPassword();
+                Credential credential = user.hasPasswordHash()
+                        ? Pbkdf2Credential.parse(user.getPasswordHash())
+                        : Credential.getCredential(user.getPassword());
                 String role = user.getRole();
-                userStore.addUser(username, Credential.getCredential(password), new String[]{role});
+                userStore.addUser(username, credential, new String[]{role});
             }
         }
         loginService.setUserStore(userStore);
@@ -1,5 +1,6 @@
 package io.jetproxy.middleware.auth;
 
+import io.jetproxy.context.AppConfig;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,8 +22,15 @@ import org.eclipse.jetty.util.UrlEncoded;
 
 public class CustomBasicAuthenticator extends LoginAuthenticator {
     private Charset _charset;
+    private final VerifiedCredentialCache verifiedCredentials;
 
     public CustomBasicAuthenticator() {
+        this(new AppConfig.CredentialCache());
+    }
+
+    public CustomBasicAuthenticator(AppConfig.CredentialCache credentialCache) {
+        AppConfig.CredentialCache settings = credentialCache != null ? credentialCache : new AppConfig.CredentialCache();
+        this.verifiedCredentials = new VerifiedCredentialCache(settings.getSize(), settings.getTtl());
     }
 
     public Charset getCharset() {
@@ -57,6 +65,12 @@ public class CustomBasicAuthenticator extends LoginAuthenticator {
                 return new DeferredAuthentication(this);
             } else {
                 if (credentials != null) {
+                    // Skips decoding and the password hash for a header that was already accepted
+                    UserIdentity verified = verifiedCredentials.get(credentials);
+                    if (verified != null) {
+                        return new UserAuthentication(this.getAuthMethod(), verified);
+                    }
+                    String header = credentials;
                     int space = credentials.indexOf(32);
                     if (space > 0) {
                         String method = credentials.substring(0, space);
@@ -74,6 +88,7 @@ public class CustomBasicAuthenticator extends LoginAuthenticator {
                                 String password = credentials.substring(i + 1);
                                 UserIdentity user = this.login(username, password, request);
                                 if (user != null) {
+                                    verifiedCredentials.put(header, user);
                                     return new UserAuthentication(this.getAuthMethod(), user);
                                 }
                             }
@@ -103,7 +118,15 @@ public class CustomBasicAuthenticator extends LoginAuthenticator {
     public boolean secureResponse(ServletRequest req, ServletResponse res, boolean mandatory, Authentication.User validatedUser) throws ServerAuthException {
         return true;
     }
+    @Override
+    public void setConfiguration(AuthConfiguration configuration) {
+        super.setConfiguration(configuration);
+        // Credentials were verified against the users of the previous login service
+        verifiedCredentials.clear();
+    }
+
     public void setLoginService(LoginService loginService) {
         this._loginService = loginService;
+        verifiedCredentials.clear();
     }
 }
\ No newline at end of file
@@ -1,11 +1,15 @@
 package io.jetproxy.middleware.auth;
 
-import io.jetproxy.context.AppContext;
-import io.jetproxy.middleware.cache.CacheFactory;
+import io.jetproxy.middleware.metric.MetricsRegistry;
+import io.jetproxy.util.Constants;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.security.Authenticator;
 import org.eclipse.jetty.security.ServerAuthException;
 import org.eclipse.jetty.security.UserAuthentication;
@@ -17,24 +21,38 @@ import io.jetproxy.context.ConfigLoader;
 import io.jetproxy.logger.DebugAwareLogger;
 import io.jetproxy.middleware.rule.header.HeaderAction;
 import io.jetproxy.middleware.rule.header.HeaderActionFactory;
+import io.jetproxy.middleware.rule.header.RemoveHeader;
 
 import javax.security.auth.Subject;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.security.Principal;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class ForwardAuthAuthenticator implements Authenticator {
     private static final DebugAwareLogger logger = DebugAwareLogger.getLogger(ForwardAuthAuthenticator.class);
+    // One pooled, keep-alive client serves the auth checks of every route
+    private static volatile HttpClient sharedClient;
     private final String path;
     private final List<HeaderAction> requestHeaderActions;
     private final List<HeaderAction> responseHeaderActions; // Actions to handle headers
     private final AppConfig.Service service;
     private final String requestMethod;
+    private final long timeout;
+    private final List<String> cacheKeyHeaders;
+    private final ForwardAuthDecisionCache decisions;
+    private final SpeculativeDispatch speculation;
 
     public ForwardAuthAuthenticator(AppConfig.Middleware appMiddleware) {
+        this(appMiddleware, null);
+    }
+
+    public ForwardAuthAuthenticator(AppConfig.Middleware appMiddleware, String route) {
         assert appMiddleware.getForwardAuth() != null;
 
         String serviceName = appMiddleware.getForwardAuth().getService();
@@ -46,6 +64,32 @@ public class ForwardAuthAuthenticator implements Authenticator {
         this.requestHeaderActions = HeaderActionFactory.createActions(authRequestHeaderRules);
         this.responseHeaderActions = HeaderActionFactory.createActions(authResponseHeaderRules);
         this.requestMethod = this.service.getMethods().getFirst();
+
+        AppConfig.ForwardAuth forwardAuth = appMiddleware.getForwardAuth();
+        this.timeout = forwardAuth.getTimeout() > 0 ? forwardAuth.getTimeout() : Constants.DEFAULT_FORWARD_AUTH_TIMEOUT;
+        this.cacheKeyHeaders = forwardAuth.getCacheKeyHeaders();
+        this.decisions = new ForwardAuthDecisionCache(forwardAuth.getCacheSize(), forwardAuth.getCacheTtl());
+        // Headers the check returns for the upstream would send every speculative request twice
+        boolean forwardsResponseHeaders = !responseHeaderActions.stream().allMatch(RemoveHeader.class::isInstance);
+        if (forwardAuth.hasSpeculativeDispatch() && forwardsResponseHeaders) {
+            logger.warn("Speculative dispatch disabled for route {}: responseHeaders forward headers to the upstream", route);
+        }
+        this.speculation = forwardAuth.hasSpeculativeDispatch() && !forwardsResponseHeaders
+                ? new SpeculativeDispatch(forwardAuth.getSpeculative().getBudgetPercent(), forwardAuth.getSpeculative().getBudgetMinDispatches())
+                : null;
+        if (speculation != null && route != null) {
+            MetricsRegistry registry = MetricsRegistry.get();
+            registry.registerGauge("jetproxy_speculative_requests_total", "Requests sent upstream before their ForwardAuth check completed",
+                    "counter", speculation::getDispatchedCount, "route", route);
+            registry.registerGauge("jetproxy_speculative_outcomes_total", "Speculative requests by ForwardAuth decision",
+                    "counter", speculation::getAllowedCount, "route", route, "outcome", "allowed");
+            registry.registerGauge("jetproxy_speculative_outcomes_total", "Speculative requests by ForwardAuth decision",
+                    "counter", speculation::getDeniedCount, "route", route, "outcome", "denied");
+            registry.registerGauge("jetproxy_speculative_outcomes_total", "Speculative requests by ForwardAuth decision",
+                    "counter", speculation::getResentCount, "route", route, "outcome", "resent");
+            registry.registerGauge("jetproxy_speculative_budget_exhausted_total", "Requests checked first because too many speculative requests were wasted",
+                    "counter", speculation::getBudgetExhaustedCount, "route", route);
+        }
     }
 
     @Override
@@ -69,22 +113,30 @@ public class ForwardAuthAuthenticator implements Authenticator {
         String authUrl = service.getUrl() + path;
         String responseStatus = "";
         Map<String, String> forwardHeaders;
-        Map<String, String> forwardResponseHeaders;
-
-        HttpURLConnection connection;
-        int responseCode = HttpURLConnection.HTTP_INTERNAL_ERROR; // Default in case of an exception
+        ForwardAuthDecisionCache.Decision decision;
 
         try {
 
             forwardHeaders = getRequestForwardHeaders(request);
-            connection = performForwardAuthRequest(authUrl, forwardHeaders);
-            forwardResponseHeaders = getResponseForwardHeaders(connection);
-            responseCode = connection.getResponseCode();
+            String key = ForwardAuthDecisionCache.key(forwardHeaders, cacheKeyHeaders);
+            if (speculation != null && speculation.tryBegin(request.getMethod())) {
+                CompletableFuture<ForwardAuthDecisionCache.Decision> pending =
+                        decisions.resolveAsync(key, () -> checkForwardAuthAsync(authUrl, forwardHeaders));
+                if (!pending.isDone()) {
+                    // The proxy sends the request upstream meanwhile and holds its response until the check completes
+                    SpeculativeAuth.begin(request, pending, speculation);
+                    return new UserAuthentication(getAuthMethod(), new MockUserIdentity());
+                }
+                speculation.onCheckedFirst();
+                decision = ForwardAuthDecisionCache.await(pending);
+            } else {
+                decision = decisions.resolve(key, () -> checkForwardAuth(authUrl, forwardHeaders));
+            }
 
-            for (Map.Entry<String, String> entry : forwardResponseHeaders.entrySet()) {
+            for (Map.Entry<String, String> entry : decision.headers().entrySet()) {
                 request.setAttribute(entry.getKey(), entry.getValue());
             }
-            if (responseCode == HttpURLConnection.HTTP_OK) {
+            if (decision.isAllowed()) {
                 return new UserAuthentication(getAuthMethod(), new MockUserIdentity());
             } else {
                 responseStatus = "Unauthorized";
@@ -92,7 +144,7 @@ public class ForwardAuthAuthenticator implements Authenticator {
                 return Authentication.UNAUTHENTICATED;
             }
         } catch (IOException e) {
-            logger.error("ForwardAuth failed: {} code: {}", authUrl, responseCode);
+            logger.error("ForwardAuth failed: {} {}", authUrl, e.getMessage());
             try {
                 responseStatus = "Service Unavailable";
                 response.sendError(HttpURLConnection.HTTP_UNAVAILABLE, responseStatus);
@@ -118,15 +170,42 @@ public class ForwardAuthAuthenticator implements Authenticator {
 
         return headersToForward;
     }
-    private Map<String, String> getResponseForwardHeaders(HttpURLConnection responseAuthConnection) {
-        Map<String, String> headersRequest = responseAuthConnection.getHeaderFields()
-                .entrySet()
-                .stream()
-                .filter(entry -> entry.getKey() != null) // Exclude null header names
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> String.join(",", entry.getValue()) // Join multiple values with a comma
-                ));
+    private ForwardAuthDecisionCache.Decision checkForwardAuth(String authUrl, Map<String, String> headers) throws IOException {
+        ContentResponse authResponse = performForwardAuthRequest(authUrl, headers);
+        return new ForwardAuthDecisionCache.Decision(authResponse.getStatus(), getResponseForwardHeaders(authResponse.getHeaders()));
+    }
+
+    /**
+     * Sends the check without waiting for it, the response body of the auth service is discarded.
+     */
+    protected CompletableFuture<ForwardAuthDecisionCache.Decision> checkForwardAuthAsync(String authUrl, Map<String, String> headers) {
+        CompletableFuture<ForwardAuthDecisionCache.Decision> decision = new CompletableFuture<>();
+        try {
+            getSharedClient().newRequest(authUrl)
+                    .method(this.requestMethod)
+                    .timeout(timeout, TimeUnit.MILLISECONDS)
+                    .headers(fields -> headers.forEach(fields::put))
+                    .send(result -> {
+                        if (result.isFailed()) {
+                            decision.completeExceptionally(
+                                    new IOException("ForwardAuth request to " + authUrl + " failed", result.getFailure()));
+                        } else {
+                            decision.complete(new ForwardAuthDecisionCache.Decision(result.getResponse().getStatus(),
+                                    getResponseForwardHeaders(result.getResponse().getHeaders())));
+                        }
+                    });
+        } catch (IOException e) {
+            decision.completeExceptionally(e);
+        }
+        return decision;
+    }
+
+    private Map<String, String> getResponseForwardHeaders(HttpFields authResponseHeaders) {
+        Map<String, String> headersRequest = new HashMap<>();
+        for (HttpField field : authResponseHeaders) {
+            // Join multiple values with a comma
+            headersRequest.merge(field.getName(), field.getValue(), (first, next) -> first + "," + next);
+        }
 
         Map<String, String> headersToForward = new HashMap<>();
         responseHeaderActions.forEach(action -> action.execute(headersRequest, headersToForward));
@@ -135,19 +214,43 @@ public class ForwardAuthAuthenticator implements Authenticator {
     }
 
 
-    protected HttpURLConnection performForwardAuthRequest(String authUrl, Map<String, String> headers) throws IOException {
-        URL url = new URL(authUrl);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod(this.requestMethod);
-        connection.setDoOutput(true);
-
-        // Set headers
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            connection.setRequestProperty(entry.getKey(), entry.getValue());
+    protected ContentResponse performForwardAuthRequest(String authUrl, Map<String, String> headers) throws IOException {
+        try {
+            return getSharedClient().newRequest(authUrl)
+                    .method(this.requestMethod)
+                    .timeout(timeout, TimeUnit.MILLISECONDS)
+                    .headers(fields -> headers.forEach(fields::put))
+                    .send();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling " + authUrl);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new IOException("ForwardAuth request to " + authUrl + " failed", e);
         }
+    }
 
-        connection.connect();
-        return connection;
+    private static HttpClient getSharedClient() throws IOException {
+        HttpClient client = sharedClient;
+        if (client != null) {
+            return client;
+        }
+        synchronized (ForwardAuthAuthenticator.class) {
+            if (sharedClient == null) {
+                client = new HttpClient();
+                client.setName("jetproxy-forward-auth");
+                client.setConnectTimeout(Constants.DEFAULT_FORWARD_AUTH_CONNECT_TIMEOUT);
+                client.setIdleTimeout(Constants.DEFAULT_FORWARD_AUTH_IDLE_TIMEOUT);
+                // The final response of a redirected check decides, as with the former per-check connection
+                client.setFollowRedirects(true);
+                try {
+                    client.start();
+                } catch (Exception e) {
+                    throw new IOException("Failed to start the ForwardAuth client", e);
+                }
+                sharedClient = client;
+            }
+            return sharedClient;
+        }
     }
 
     // Inner class to represent a mock authenticated user
@@ -0,0 +1,204 @@
+package io.jetproxy.middleware.auth;
+
+import io.jetproxy.middleware.cache.BoundedTtlMap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Allow and deny decisions of a ForwardAuth service, keyed by the headers they depend on.
+ * <p>
+ * Concurrent checks with the same key share one call to the auth service. When a TTL is set,
+ * successful ({@code 2xx}) and denied ({@code 401} and {@code 403}) decisions are reused until it
+ * passes, together with the response headers to copy. Other statuses, such as {@code 429} or
+ * {@code 408}, and failures of the auth service are never cached.
+ */
+public class ForwardAuthDecisionCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final BoundedTtlMap<Decision> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<Decision>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder checks = new LongAdder();
+
+    /**
+     * Status of the auth service and the response headers forwarded to the upstream.
+     */
+    public record Decision(int status, Map<String, String> headers) {
+        public boolean isAllowed() {
+            return status >= 200 && status < 300;
+        }
+
+        boolean isCacheable() {
+            return isAllowed() || status == 401 || status == 403;
+        }
+    }
+
+    /**
+     * One call to the auth service.
+     */
+    @FunctionalInterface
+    public interface Check {
+        Decision run() throws IOException;
+    }
+
+    /**
+     * One call to the auth service that completes without blocking the caller.
+     */
+    @FunctionalInterface
+    public interface AsyncCheck {
+        CompletableFuture<Decision> start();
+    }
+
+    /**
+     * @param maxEntries decisions held at most
+     * @param ttlMillis  how long a decision is reused, 0 only shares concurrent checks
+     */
+    public ForwardAuthDecisionCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    ForwardAuthDecisionCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.clock = clock;
+        this.entries = new BoundedTtlMap<>(this.maxEntries, clock);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && ttlMillis > 0;
+    }
+
+    /**
+     * Returns the cached decision for the key, or joins the check in flight for it, or runs the check.
+     */
+    public Decision resolve(String key, Check check) throws IOException {
+        return await(resolveAsync(key, () -> {
+            try {
+                return CompletableFuture.completedFuture(check.run());
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }));
+    }
+
+    /**
+     * Like {@link #resolve(String, Check)}, the returned future is already complete for a cached
+     * decision.
+     */
+    public CompletableFuture<Decision> resolveAsync(String key, AsyncCheck check) {
+        Decision cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Decision> leader = new CompletableFuture<>();
+        CompletableFuture<Decision> running = inFlight.putIfAbsent(key, leader);
+        if (running != null) {
+            shared.increment();
+            return running;
+        }
+        checks.increment();
+        CompletableFuture<Decision> call;
+        try {
+            call = check.start();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((decision, failure) -> {
+            if (failure == null && decision.isCacheable()) {
+                put(key, decision);
+            }
+            inFlight.remove(key, leader);
+            if (failure instanceof CompletionException && failure.getCause() != null) {
+                leader.completeExceptionally(failure.getCause());
+            } else if (failure != null) {
+                leader.completeExceptionally(failure);
+            } else {
+                leader.complete(decision);
+            }
+        });
+        return leader;
+    }
+
+    private Decision get(String key) {
+        return isEnabled() ? entries.get(key) : null;
+    }
+
+    private void put(String key, Decision decision) {
+        if (isEnabled()) {
+            entries.put(key, decision, clock.getAsLong() + ttlMillis);
+        }
+    }
+
+    static Decision await(CompletableFuture<Decision> check) throws IOException {
+        try {
+            return check.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the ForwardAuth check");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Hashes the forwarded headers a decision depends on, all of them when {@code keyHeaders} is empty.
+     * Header names are compared without case.
+     */
+    static String key(Map<String, String> forwardHeaders, Collection<String> keyHeaders) {
+        TreeMap<String, String> sorted = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        sorted.putAll(forwardHeaders);
+        if (keyHeaders != null && !keyHeaders.isEmpty()) {
+            TreeSet<String> wanted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            wanted.addAll(keyHeaders);
+            sorted.keySet().removeIf(name -> !wanted.contains(name));
+        }
+        StringBuilder canonical = new StringBuilder();
+        sorted.forEach((name, value) -> canonical.append(name.toLowerCase()).append(':').append(value).append('\n'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    public long getCheckCount() {
+        return checks.sum();
+    }
+}
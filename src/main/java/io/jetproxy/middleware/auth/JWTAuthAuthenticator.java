@@ -2,6 +2,8 @@ package io.jetproxy.middleware.auth;
 
 import io.jetproxy.context.AppContext;
 import io.jetproxy.middleware.auth.jwk.validator.JwtValidator;
+import io.jetproxy.middleware.auth.jwk.validator.VerifiedTokenCache;
+import io.jetproxy.middleware.metric.MetricsRegistry;
 import io.jsonwebtoken.*;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
@@ -29,8 +31,13 @@ public class JWTAuthAuthenticator implements Authenticator {
     private final Key secretKey;
     @Getter
     private JwtValidator jwtValidator;
+    private final VerifiedTokenCache verifiedTokens;
 
     public JWTAuthAuthenticator() {
+        this(null);
+    }
+
+    public JWTAuthAuthenticator(String route) {
         this.jwtAuthSource = AppContext.get().getConfig().getJwtAuthSource();
 
         // Initialize the secret key if configured
@@ -50,6 +57,16 @@ public class JWTAuthAuthenticator implements Authenticator {
                 );
 
             }
+        this.verifiedTokens = new VerifiedTokenCache(jwtAuthSource.getVerifiedCacheSize(), jwtAuthSource.getVerifiedCacheTtl());
+        if (verifiedTokens.isEnabled() && route != null) {
+            MetricsRegistry registry = MetricsRegistry.get();
+            registry.registerGauge("jetproxy_jwt_verified_tokens", "Verified JWTs held in the cache",
+                    "gauge", verifiedTokens::size, "route", route);
+            registry.registerGauge("jetproxy_jwt_verifications_total", "JWTs accepted, from the cache or by verifying the signature",
+                    "counter", verifiedTokens::getHitCount, "route", route, "result", "cached");
+            registry.registerGauge("jetproxy_jwt_verifications_total", "JWTs accepted, from the cache or by verifying the signature",
+                    "counter", verifiedTokens::getMissCount, "route", route, "result", "verified");
+        }
     }
 
     @Override
@@ -76,13 +93,22 @@ public class JWTAuthAuthenticator implements Authenticator {
                 return Authentication.UNAUTHENTICATED;
             }
 
-            Claims claims = validateToken(token);
-            // Optional: Validate claims
-            if (!validateClaims(claims)) {
-                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Claim validation failed");
-                return Authentication.UNAUTHENTICATED;
+            // A token seen before skips the signature verification, until it expires
+            VerifiedTokenCache.Entry verified = verifiedTokens.get(token);
+            Claims claims;
+            if (verified != null) {
+                claims = verified.getClaims();
+                request.setAttribute(REQUEST_ATTRIBUTE_JETPROXY_JWT_CLAIMS, verified.getClaimsJson());
+            } else {
+                claims = validateToken(token);
+                // Optional: Validate claims
+                if (!validateClaims(claims)) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Claim validation failed");
+                    return Authentication.UNAUTHENTICATED;
+                }
+                String claimsJson = forwardClaimsToHeader(claims, request);
+                verifiedTokens.put(token, claims, claimsJson);
             }
-            forwardClaimsToHeader(claims, request);
             // Return an authenticated user
             return new UserAuthentication(getAuthMethod(), new JWTUserIdentity(claims));
 
@@ -147,9 +173,10 @@ public class JWTAuthAuthenticator implements Authenticator {
         }
         return true;
     }
-    private void forwardClaimsToHeader(Claims claims, HttpServletRequest response) {
+    private String forwardClaimsToHeader(Claims claims, HttpServletRequest response) {
         String claimsJson = AppContext.get().getGson().toJson(claims); // Convert claims to JSON string
         response.setAttribute(REQUEST_ATTRIBUTE_JETPROXY_JWT_CLAIMS, claimsJson);
+        return claimsJson;
     }
 
     private static class JWTUserIdentity implements UserIdentity {
@@ -1,5 +1,6 @@
 package io.jetproxy.middleware.auth;
 
+import io.jetproxy.middleware.metric.RequestTimings;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
@@ -47,6 +48,16 @@ public class MultiLayerAuthenticator implements Authenticator {
 
     @Override
     public Authentication validateRequest(ServletRequest request, ServletResponse response, boolean mandatory) throws ServerAuthException {
+        RequestTimings.begin(request);
+        RequestTimings.mark(request, RequestTimings.Mark.AUTH_START);
+        try {
+            return validateRequestWithAuthenticators(request, response, mandatory);
+        } finally {
+            RequestTimings.mark(request, RequestTimings.Mark.AUTH_END);
+        }
+    }
+
+    private Authentication validateRequestWithAuthenticators(ServletRequest request, ServletResponse response, boolean mandatory) throws ServerAuthException {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
         String path = httpRequest.getPathInfo();
@@ -0,0 +1,114 @@
+package io.jetproxy.middleware.auth;
+
+import io.jetproxy.util.Constants;
+import org.eclipse.jetty.util.security.Credential;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Password stored as a salted PBKDF2-HMAC-SHA256 hash, in the form
+ * {@code PBKDF2:<iterations>:<base64 salt>:<base64 hash>}.
+ * <p>
+ * Checking a password costs as many HMAC rounds as the hash was created with, by design, so routes
+ * that check it on every request should keep {@code credentialCache} enabled.
+ */
+public class Pbkdf2Credential extends Credential {
+    public static final String PREFIX = "PBKDF2:";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+
+    private final int iterations;
+    private final byte[] salt;
+    private final byte[] hash;
+
+    private Pbkdf2Credential(int iterations, byte[] salt, byte[] hash) {
+        this.iterations = iterations;
+        this.salt = salt;
+        this.hash = hash;
+    }
+
+    public static boolean isPbkdf2(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Parses a stored hash.
+     *
+     * @throws IllegalArgumentException if it is not in the {@code PBKDF2:<iterations>:<salt>:<hash>} form
+     */
+    public static Pbkdf2Credential parse(String stored) {
+        if (!isPbkdf2(stored)) {
+            throw new IllegalArgumentException("Password hash must start with " + PREFIX);
+        }
+        String[] parts = stored.substring(PREFIX.length()).split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Password hash must be " + PREFIX + "<iterations>:<salt>:<hash>");
+        }
+        int iterations = Integer.parseInt(parts[0]);
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Password hash iterations must be positive");
+        }
+        byte[] salt = Base64.getDecoder().decode(parts[1]);
+        byte[] hash = Base64.getDecoder().decode(parts[2]);
+        if (salt.length == 0 || hash.length == 0) {
+            throw new IllegalArgumentException("Password hash has an empty salt or hash");
+        }
+        return new Pbkdf2Credential(iterations, salt, hash);
+    }
+
+    /**
+     * Hashes a password with a random salt and {@link Constants#DEFAULT_PBKDF2_ITERATIONS}, in the
+     * form {@link #parse(String)} reads.
+     */
+    public static String hash(String password) {
+        return hash(password, Constants.DEFAULT_PBKDF2_ITERATIONS);
+    }
+
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + ":" + encoder.encodeToString(salt) + ":"
+                + encoder.encodeToString(derive(password.toCharArray(), salt, iterations, HASH_LENGTH));
+    }
+
+    @Override
+    public boolean check(Object credentials) {
+        if (credentials instanceof char[] password) {
+            return MessageDigest.isEqual(hash, derive(password, salt, iterations, hash.length));
+        }
+        if (credentials instanceof String password) {
+            return check(password.toCharArray());
+        }
+        return false;
+    }
+
+    private static byte[] derive(char[] password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Prints the hash of a password for the {@code passwordHash} of a user.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: Pbkdf2Credential <password> [iterations]");
+            System.exit(1);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : Constants.DEFAULT_PBKDF2_ITERATIONS;
+        System.out.println(hash(args[0], iterations));
+    }
+}
@@ -0,0 +1,113 @@
+package io.jetproxy.middleware.auth;
+
+import io.jetproxy.util.Constants;
+import jakarta.servlet.ServletRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * ForwardAuth check of a request that was let through before the check completed, so that the
+ * proxy can send the request upstream in the meantime. Whoever forwards anything to the client
+ * first waits for the decision: the upstream response is held back until the check allows it and
+ * discarded when it denies it.
+ */
+public class SpeculativeAuth {
+    private final CompletableFuture<ForwardAuthDecisionCache.Decision> decision;
+    private final SpeculativeDispatch dispatch;
+    private final AtomicBoolean handled = new AtomicBoolean(); // Sent upstream or checked first
+
+    private SpeculativeAuth(CompletableFuture<ForwardAuthDecisionCache.Decision> decision, SpeculativeDispatch dispatch) {
+        this.decision = decision;
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * Lets the request through while its check runs, the decision is awaited by the proxy.
+     */
+    public static void begin(ServletRequest request, CompletableFuture<ForwardAuthDecisionCache.Decision> decision,
+                             SpeculativeDispatch dispatch) {
+        request.setAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_SPECULATIVE_AUTH, new SpeculativeAuth(decision, dispatch));
+    }
+
+    /**
+     * Returns the check of the request that has not been settled yet, or {@code null}.
+     */
+    public static SpeculativeAuth get(ServletRequest request) {
+        return request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_SPECULATIVE_AUTH) instanceof SpeculativeAuth auth
+                ? auth
+                : null;
+    }
+
+    /**
+     * Marks the check of the request as settled, the request is handled as if it was checked first.
+     * The headers the check returned are set as request attributes, as the authenticator does, and
+     * the decision is kept for {@link #decisionHeaders}.
+     */
+    public static void settle(ServletRequest request, ForwardAuthDecisionCache.Decision decision) {
+        request.removeAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_SPECULATIVE_AUTH);
+        if (decision != null) {
+            request.setAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_FORWARD_AUTH_DECISION, decision);
+            for (Map.Entry<String, String> entry : decision.headers().entrySet()) {
+                request.setAttribute(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the headers of the check that allowed a speculative request, empty if there was none.
+     * The headers of the client request do not contain them, so every attempt sent upstream needs
+     * them added.
+     */
+    public static Map<String, String> decisionHeaders(ServletRequest request) {
+        return request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_FORWARD_AUTH_DECISION) instanceof ForwardAuthDecisionCache.Decision decision
+                ? decision.headers()
+                : Map.of();
+    }
+
+    /**
+     * Records that the request is sent upstream before its check completes.
+     */
+    public void onDispatched() {
+        if (handled.compareAndSet(false, true)) {
+            dispatch.onDispatched();
+        }
+    }
+
+    /**
+     * Records that the request waits for its check before anything is sent upstream, which gives
+     * its share of the budget back. Does nothing once the request was sent.
+     */
+    public void onCheckedFirst() {
+        if (handled.compareAndSet(false, true)) {
+            dispatch.onCheckedFirst();
+        }
+    }
+
+    public boolean isDecided() {
+        return decision.isDone();
+    }
+
+    /**
+     * Blocks until the check completes.
+     *
+     * @throws IOException if the auth service could not be reached
+     */
+    public ForwardAuthDecisionCache.Decision await() throws IOException {
+        return ForwardAuthDecisionCache.await(decision);
+    }
+
+    /**
+     * Runs the action once the check completes, on the thread that completes it.
+     */
+    public void whenDecided(BiConsumer<ForwardAuthDecisionCache.Decision, Throwable> action) {
+        decision.whenComplete(action);
+    }
+
+    public SpeculativeDispatch getDispatch() {
+        return dispatch;
+    }
+}
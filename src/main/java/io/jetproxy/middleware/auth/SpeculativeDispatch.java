@@ -0,0 +1,106 @@
+package io.jetproxy.middleware.auth;
+
+import io.jetproxy.middleware.resilience.retry.RetryBudget;
+import io.jetproxy.util.Constants;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Policy of a route that sends safe requests upstream while its ForwardAuth check is still running.
+ * <p>
+ * A speculative request is wasted when the check denies it, or when the check returns headers the
+ * upstream must see and the request is sent again with them. Wasted requests are drawn from a
+ * {@link RetryBudget}, so a route whose requests are mostly denied, e.g. under a credential
+ * stuffing attack, falls back to checking first instead of multiplying the load on the upstream.
+ * Every speculative request reserves one wasted request up front and gives it back once it turns
+ * out not to be wasted, so concurrent requests cannot overdraw the budget.
+ */
+public class SpeculativeDispatch {
+    private final RetryBudget budget;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder resent = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param budgetPercent       wasted speculative requests allowed per 100 requests of the route
+     * @param budgetMinDispatches wasted speculative requests always allowed at low traffic
+     */
+    public SpeculativeDispatch(double budgetPercent, int budgetMinDispatches) {
+        this.budget = new RetryBudget(budgetPercent, budgetMinDispatches);
+    }
+
+    /**
+     * Records a request of the route and decides whether it may be sent upstream before its check
+     * completes. A request that may is charged to the budget until {@link #onAllowed()} or
+     * {@link #onCheckedFirst()} gives it back.
+     */
+    public boolean tryBegin(String method) {
+        if (!Constants.DEFAULT_SPECULATIVE_METHODS.contains(method)) {
+            return false;
+        }
+        budget.onRequest();
+        if (!budget.tryAcquire()) {
+            budgetExhausted.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The request waited for its check before anything was sent upstream, so nothing was wasted.
+     */
+    public void onCheckedFirst() {
+        budget.release();
+    }
+
+    /**
+     * A request was sent upstream before its check completed.
+     */
+    public void onDispatched() {
+        dispatched.increment();
+    }
+
+    /**
+     * The check allowed the request and its speculative response went to the client.
+     */
+    public void onAllowed() {
+        allowed.increment();
+        budget.release();
+    }
+
+    /**
+     * The check denied the request or failed, its speculative response was discarded.
+     */
+    public void onDenied() {
+        denied.increment();
+    }
+
+    /**
+     * The check returned headers for the upstream, so the request was sent again with them.
+     */
+    public void onResent() {
+        resent.increment();
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getDeniedCount() {
+        return denied.sum();
+    }
+
+    public long getResentCount() {
+        return resent.sum();
+    }
+
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+}
@@ -0,0 +1,112 @@
+package io.jetproxy.middleware.auth;
+
+import io.jetproxy.middleware.cache.BoundedTtlMap;
+import org.eclipse.jetty.server.UserIdentity;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of Basic credentials that were already verified against the login service.
+ * <p>
+ * Clients send the same {@code Authorization} header with every request, and checking a hashed
+ * password against it costs milliseconds of CPU. Entries are keyed by an HMAC-SHA256 of the header
+ * under a random per-instance key: passwords are low entropy, so a plain digest kept in the heap
+ * could be brute forced offline. Only successful verifications are cached, for the configured TTL.
+ * A cached credential is not checked against the login service again, so a removed user or a
+ * changed password stays accepted until its entry expires or the cache is {@link #clear() cleared}.
+ */
+public class VerifiedCredentialCache {
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecretKeySpec macKey;
+    private final BoundedTtlMap<UserIdentity> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries credentials held at most, 0 disables the cache
+     * @param ttlMillis  how long a credential is trusted without checking it again, 0 disables the cache
+     */
+    public VerifiedCredentialCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    VerifiedCredentialCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.clock = clock;
+        this.entries = new BoundedTtlMap<>(this.maxEntries, clock);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.macKey = new SecretKeySpec(key, MAC_ALGORITHM);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && ttlMillis > 0;
+    }
+
+    /**
+     * Returns the user a credential was verified for, or {@code null} if it has to be checked.
+     */
+    public UserIdentity get(String credentials) {
+        if (!isEnabled()) {
+            return null;
+        }
+        UserIdentity user = entries.get(key(credentials));
+        if (user != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return user;
+    }
+
+    /**
+     * Records a credential the login service accepted.
+     */
+    public void put(String credentials, UserIdentity user) {
+        if (!isEnabled()) {
+            return;
+        }
+        entries.put(key(credentials), user, clock.getAsLong() + ttlMillis);
+    }
+
+    /**
+     * Forgets every verified credential, e.g. when the users they were checked against changed.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    String key(String credentials) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            return HexFormat.of().formatHex(mac.doFinal(credentials.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
@@ -1,54 +1,198 @@
 package io.jetproxy.middleware.auth.jwk.source;
-import io.jetproxy.context.AppContext;
 import io.jetproxy.middleware.auth.jwk.JwkSource;
-import io.jetproxy.middleware.cache.Cache;
-import io.jetproxy.middleware.cache.CacheFactory;
+import io.jetproxy.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 import static io.jetproxy.util.RequestUtils.parseMaxAge;
 
+/**
+ * Holds the keys of a JWKS endpoint as an immutable, parsed key ring.
+ * <p>
+ * A lookup is a map read. The ring is fetched on first use and then refreshed in the background
+ * before it expires, after the endpoint's {@code Cache-Control: max-age}, or {@code jwksTtl} when
+ * the endpoint sends none. An unknown {@code kid} refetches the ring, at most once per
+ * {@link Constants#DEFAULT_JWKS_MIN_REFETCH_INTERVAL}, and concurrent lookups share that one fetch.
+ * A ring that cannot be refreshed keeps serving its keys until the endpoint answers again, and a
+ * failed fetch, the first one included, is retried after that same interval.
+ */
 public class BaseJwkSource implements JwkSource {
+    private static final Logger logger = LoggerFactory.getLogger(BaseJwkSource.class);
+
+    private static final ScheduledExecutorService REFRESH_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jetproxy-jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     protected final String jwksUri;
-    protected Cache cache;
     protected long cacheTtl = 300;
+    private final long minRefetchIntervalMillis;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<CompletableFuture<KeyRing>> inFlight = new AtomicReference<>();
+    private final AtomicLong nextKidMissFetchAt = new AtomicLong();
+    private final AtomicLong fetchCount = new AtomicLong();
+    private volatile KeyRing keyRing;
+    private ScheduledFuture<?> refreshTask;
+
+    /**
+     * Keys of one JWKS response and the time they should be refreshed by.
+     */
+    private record KeyRing(Map<String, RSAPublicKey> keys, long expiresAt) {
+    }
+
+    /**
+     * Raw JWKS response, with the {@code Cache-Control} header sent along with it.
+     */
+    protected record JwksResponse(String body, String cacheControl) {
+    }
 
     protected BaseJwkSource(String jwksUri, long cacheTtl) {
+        this(jwksUri, cacheTtl, Constants.DEFAULT_JWKS_MIN_REFETCH_INTERVAL, System::currentTimeMillis, REFRESH_SCHEDULER);
+    }
+
+    BaseJwkSource(String jwksUri, long cacheTtl, long minRefetchIntervalMillis,
+                  LongSupplier clock, ScheduledExecutorService scheduler) {
         this.jwksUri = jwksUri;
-        this.cache = AppContext.get().getCache();
         this.cacheTtl = cacheTtl;
+        this.minRefetchIntervalMillis = minRefetchIntervalMillis;
+        this.clock = clock;
+        this.scheduler = scheduler;
     }
 
     @Override
     public RSAPublicKey getPublicKey(String kid) throws Exception {
-        String jwksResponse = this.cache.get(String.format(CacheFactory.HTTP_JWT_AUTH_SOURCE_CACHE_KEY, AppContext.get().getInstanceId(), kid));
-        if (jwksResponse != null) {
-            return parseJwks(jwksResponse).get(kid);
+        if (kid == null) {
+            throw new IllegalArgumentException("No matching key found for kid: null");
         }
-        RSAPublicKey publicKey = refreshKeys(kid).get(kid);
+        KeyRing current = keyRing;
+        if (current != null) {
+            RSAPublicKey publicKey = current.keys().get(kid);
+            if (publicKey != null) {
+                return publicKey;
+            }
+        }
+        // Either no ring was loaded yet, or the issuer may have rotated its keys since the last fetch
+        CompletableFuture<KeyRing> fetch = inFlight.get();
+        if (fetch == null) {
+            if (!tryReserveKidMissFetch()) {
+                throw new IllegalArgumentException("No matching key found for kid: " + kid);
+            }
+            fetch = refresh();
+        }
+        RSAPublicKey publicKey = await(fetch).keys().get(kid);
         if (publicKey == null) {
             throw new IllegalArgumentException("No matching key found for kid: " + kid);
         }
-
         return publicKey;
     }
 
     @Override
     public Map<String, RSAPublicKey> refreshKeys(String kid) throws Exception {
-        String jwksResponse = fetchJwks();
-        this.cache.put(String.format(
-                CacheFactory.HTTP_JWT_AUTH_SOURCE_CACHE_KEY, AppContext.get().getInstanceId(), kid),
-                jwksResponse, cacheTtl);
-        return parseJwks(jwksResponse);
+        return await(refresh()).keys();
+    }
+
+    /**
+     * Unknown kids are attacker controlled, so they may trigger a fetch only once per interval.
+     */
+    private boolean tryReserveKidMissFetch() {
+        long now = clock.getAsLong();
+        long allowedAt = nextKidMissFetchAt.get();
+        return now - allowedAt >= 0 && nextKidMissFetchAt.compareAndSet(allowedAt, now + minRefetchIntervalMillis);
+    }
+
+    /**
+     * Fetches the key ring, or joins the fetch already in flight.
+     */
+    private CompletableFuture<KeyRing> refresh() {
+        CompletableFuture<KeyRing> fetch = new CompletableFuture<>();
+        CompletableFuture<KeyRing> running = inFlight.compareAndExchange(null, fetch);
+        if (running != null) {
+            return running;
+        }
+        try {
+            KeyRing loaded = load();
+            keyRing = loaded;
+            fetch.complete(loaded);
+            scheduleRefresh(loaded.expiresAt());
+        } catch (Exception e) {
+            fetch.completeExceptionally(e);
+            if (keyRing != null) {
+                logger.warn("Failed to refresh JWKS from {}, keeping the current keys: {}", jwksUri, e.getMessage());
+            } else {
+                logger.warn("Failed to fetch JWKS from {}, retrying: {}", jwksUri, e.getMessage());
+            }
+            scheduleRefresh(clock.getAsLong() + minRefetchIntervalMillis);
+        } finally {
+            inFlight.set(null);
+        }
+        return fetch;
+    }
+
+    private KeyRing load() throws Exception {
+        fetchCount.incrementAndGet();
+        JwksResponse response = fetchJwks();
+        Map<String, RSAPublicKey> keys = Map.copyOf(parseJwks(response.body()));
+        return new KeyRing(keys, clock.getAsLong() + lifetimeMillis(response.cacheControl()));
+    }
+
+    /**
+     * The endpoint's max-age wins over {@code jwksTtl}, and neither may refresh faster than a kid miss can.
+     */
+    long lifetimeMillis(String cacheControl) {
+        long lifetime;
+        int maxAge = parseMaxAge(cacheControl);
+        if (maxAge >= 0) {
+            lifetime = TimeUnit.SECONDS.toMillis(maxAge);
+        } else if (cacheTtl > 0) {
+            lifetime = cacheTtl;
+        } else {
+            lifetime = Constants.DEFAULT_JWKS_REFRESH_INTERVAL;
+        }
+        return Math.max(lifetime, minRefetchIntervalMillis);
+    }
+
+    private synchronized void scheduleRefresh(long expiresAt) {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        // Refresh at 80% of the lifetime, so lookups never wait for the endpoint
+        long delay = Math.max(0, (expiresAt - clock.getAsLong()) * 4 / 5);
+        refreshTask = scheduler.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static KeyRing await(CompletableFuture<KeyRing> fetch) throws Exception {
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    long getFetchCount() {
+        return fetchCount.get();
     }
 
-    protected String fetchJwks() throws Exception {
+    protected JwksResponse fetchJwks() throws Exception {
         HttpURLConnection connection = null;
         try {
             URL url = new URL(jwksUri);
@@ -62,7 +206,7 @@ public class BaseJwkSource implements JwkSource {
             }
 
             try (var reader = new java.io.BufferedReader(new java.io.InputStreamReader(connection.getInputStream()))) {
-                return reader.lines().collect(Collectors.joining());
+                return new JwksResponse(reader.lines().collect(Collectors.joining()), connection.getHeaderField("Cache-Control"));
             }
         } finally {
             if (connection != null) {
@@ -82,4 +226,4 @@ public class BaseJwkSource implements JwkSource {
         throw new UnsupportedOperationException("The method parseJwks is not implemented yet. Please override this method in a subclass.");
     }
 
-}
\ No newline at end of file
+}
@@ -1,45 +1,75 @@
 package io.jetproxy.middleware.auth.jwk.validator;
 
-import com.nimbusds.jose.JWSObject;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import io.jetproxy.middleware.auth.jwk.JwkSource;
 import io.jetproxy.middleware.auth.jwk.JwkSourceFactory;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.interfaces.RSAPublicKey;
-import java.text.ParseException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BaseJwtValidator {
     private final JwkSource jwkSource;
+    // Parsers are immutable and thread-safe, one is built per key instead of per request
+    private final Map<String, KeyedParser> publicKeyParsers = new ConcurrentHashMap<>();
+    private volatile KeyedParser signingKeyParser;
+
+    private record KeyedParser(Key key, JwtParser parser) {
+    }
 
     public BaseJwtValidator(String providerType, String jwksUri, Long cacheTtl) {
         this.jwkSource = JwkSourceFactory.createJwkSource(providerType, jwksUri, cacheTtl);
     }
     public Claims validateTokenWithSigningKey(Key secretKey, String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
+        KeyedParser current = signingKeyParser;
+        if (current == null || current.key() != secretKey) {
+            current = new KeyedParser(secretKey, Jwts.parserBuilder().setSigningKey(secretKey).build());
+            signingKeyParser = current;
+        }
+        return current.parser()
                 .parseClaimsJws(token)
                 .getBody();
     }
     public Claims validateTokenWithPublicKey(String token) throws Exception {
         String kid = extractKidFromJwt(token);
         RSAPublicKey publicKey = jwkSource.getPublicKey(kid);
-        return Jwts.parserBuilder()
-                .setSigningKey(publicKey)
-                .build()
+        KeyedParser current = publicKeyParsers.get(kid);
+        if (current == null || !current.key().equals(publicKey)) {
+            // First token signed with this key, or the key behind the kid was rotated
+            current = new KeyedParser(publicKey, Jwts.parserBuilder().setSigningKey(publicKey).build());
+            publicKeyParsers.put(kid, current);
+        }
+        return current.parser()
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    private String extractKidFromJwt(String token) {
-        JWSObject jwsObject = null;
+    /**
+     * Reads the {@code kid} from the JOSE header, the first segment of the token, without decoding
+     * the payload or the signature.
+     */
+    static String extractKidFromJwt(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            throw new MalformedJwtException("JWT header is missing");
+        }
         try {
-            jwsObject = JWSObject.parse(token);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
+            byte[] header = Base64.getUrlDecoder().decode(token.substring(0, dot));
+            JsonElement kid = JsonParser.parseString(new String(header, StandardCharsets.UTF_8))
+                    .getAsJsonObject()
+                    .get("kid");
+            return kid == null || kid.isJsonNull() ? null : kid.getAsString();
+        } catch (IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            throw new MalformedJwtException("JWT header is invalid", e);
         }
-        return jwsObject.getHeader().getKeyID();
     }
 }
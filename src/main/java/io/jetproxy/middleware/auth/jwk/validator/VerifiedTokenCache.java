@@ -0,0 +1,121 @@
+package io.jetproxy.middleware.auth.jwk.validator;
+
+import io.jetproxy.middleware.cache.BoundedTtlMap;
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of JWTs whose signature and claims were already verified.
+ * <p>
+ * Clients send the same bearer token with every request until it expires, so verifying its
+ * signature once is enough. Entries are keyed by the SHA-256 of the raw token, which keeps the
+ * tokens themselves out of the heap, and live until the token's {@code exp} or the configured TTL,
+ * whichever comes first.
+ */
+public class VerifiedTokenCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final BoundedTtlMap<Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Verified claims of a token, with their JSON form forwarded to the upstream.
+     */
+    public static final class Entry {
+        private final Claims claims;
+        private final String claimsJson;
+
+        private Entry(Claims claims, String claimsJson) {
+            this.claims = claims;
+            this.claimsJson = claimsJson;
+        }
+
+        public Claims getClaims() {
+            return claims;
+        }
+
+        public String getClaimsJson() {
+            return claimsJson;
+        }
+    }
+
+    /**
+     * @param maxEntries tokens held at most, 0 disables the cache
+     * @param ttlMillis  how long a token is trusted without verifying it again, 0 disables the cache
+     */
+    public VerifiedTokenCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    VerifiedTokenCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.clock = clock;
+        this.entries = new BoundedTtlMap<>(this.maxEntries, clock);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && ttlMillis > 0;
+    }
+
+    /**
+     * Returns the verified claims of a token, or {@code null} if the token has to be verified.
+     */
+    public Entry get(String token) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Entry entry = entries.get(hash(token));
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Records a token whose signature and claims were verified.
+     */
+    public void put(String token, Claims claims, String claimsJson) {
+        if (!isEnabled()) {
+            return;
+        }
+        long expiresAt = clock.getAsLong() + ttlMillis;
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        entries.put(hash(token), new Entry(claims, claimsJson), expiresAt);
+    }
+
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,85 @@
+package io.jetproxy.middleware.cache;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrent map of values that expire at a given time, holding a bounded number of them.
+ * <p>
+ * Meant for small caches of verification results, where losing an entry only costs doing the
+ * work again: a lookup is a map read, and there is no recency tracking. A put into a full map
+ * drops expired entries, at most once per second, and then arbitrary ones until there is room.
+ *
+ * @param <V> type of the values
+ */
+public class BoundedTtlMap<V> {
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    /**
+     * @param maxEntries values held at most
+     * @param clock      milliseconds the expiry times are compared against
+     */
+    public BoundedTtlMap(int maxEntries, LongSupplier clock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the value of the key, or {@code null} if it is absent or expired.
+     */
+    public V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - clock.getAsLong() > 0) {
+            return entry.value();
+        }
+        entries.remove(key, entry);
+        return null;
+    }
+
+    /**
+     * Stores the value until {@code expiresAt}, a value that already expired is not stored.
+     */
+    public void put(String key, V value, long expiresAt) {
+        long now = clock.getAsLong();
+        if (maxEntries == 0 || expiresAt - now <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom(now);
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    private void makeRoom(long now) {
+        long sweepAt = nextSweep.get();
+        if (now - sweepAt >= 0 && nextSweep.compareAndSet(sweepAt, now + SWEEP_INTERVAL_MILLIS)) {
+            entries.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+        }
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
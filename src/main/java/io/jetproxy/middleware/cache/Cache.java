@@ -6,5 +6,6 @@ import java.util.function.Supplier;
 public interface Cache {
     String get(String key);
     void put(String key, String value, long ttl);
+    void remove(String key);
     String getAsideStrategy(String key, long ttl, Supplier<String> fetchFunction);
 }
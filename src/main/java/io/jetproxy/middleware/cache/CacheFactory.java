@@ -4,13 +4,13 @@ import io.jetproxy.context.AppConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
 import java.util.Optional;
 
 public class CacheFactory {
     private static final Logger logger = LoggerFactory.getLogger(CacheFactory.class);
 
     public static final String HTTP_REQUEST_CACHE_KEY = "http_request::%s:%s:%s";
-    public static final String HTTP_JWT_AUTH_SOURCE_CACHE_KEY = "http_jwt_auth_source::%s::%s";
     public static final String HTTP_IDEMPOTENCY_KEY = "idempotency:%s:%s:%s"; // method:path:key
 
 
@@ -27,18 +27,43 @@ public class CacheFactory {
             return initializeRedisCache(config);
         }
 
+        if (config.hasEnableInMemoryStorage() && config.hasEnableDiskStorage()) {
+            return new TieredCache(createInMemoryCache(config), createDiskCache(config),
+                    LRUCacheWithTTL.CacheEntry.NO_EXPIRED, config.getUuid());
+        }
+
         if (config.hasEnableInMemoryStorage()) {
             return createInMemoryCache(config);
         }
 
+        if (config.hasEnableDiskStorage()) {
+            return createDiskCache(config);
+        }
+
         logger.info("No specific storage configuration found, using default in-memory cache.");
         return createDefaultInMemoryCache();
     }
 
     private static Cache initializeRedisCache(AppConfig config) {
-        logger.info("Initializing Redis cache with configuration: {}", config.getStorage().getRedis());
-        RedisPoolManager.initializePool(config.getStorage().getRedis());
-        return new RedisCache();
+        AppConfig.Storage.RedisConfig redisConfig = config.getStorage().getRedis();
+        logger.info("Initializing Redis cache with configuration: {}", redisConfig);
+        RedisPoolManager.initializePool(redisConfig);
+        Cache redisCache = new RedisCache(new LRUCacheWithTTL(
+                redisConfig.getFallbackSize(), redisConfig.getFallbackMaxMemory() * 1024 * 1024));
+
+        AppConfig.Storage.NearCacheConfig nearCache = redisConfig.getNearCache();
+        if (nearCache == null || !nearCache.isEnabled()) {
+            return redisCache;
+        }
+        logger.info("Initializing near-cache in front of Redis with size={}, maxMemory={}MB, ttl={}ms",
+                nearCache.getSize(), nearCache.getMaxMemory(), nearCache.getTtl());
+        TieredCache tieredCache = new TieredCache(
+                new LRUCacheWithTTL(nearCache.getSize(), nearCache.getMaxMemory() * 1024 * 1024),
+                redisCache,
+                nearCache.getTtl(),
+                config.getUuid());
+        tieredCache.enableInvalidation();
+        return tieredCache;
     }
 
     private static Cache createInMemoryCache(AppConfig config) {
@@ -53,6 +78,15 @@ public class CacheFactory {
         return new LRUCacheWithTTL(size, maxMemory);
     }
 
+    private static Cache createDiskCache(AppConfig config) {
+        AppConfig.Storage.DiskConfig diskConfig = config.getStorage().getDisk();
+        logger.info("Initializing Disk Cache at {} with maxSize={}MB and segmentSize={}MB",
+                diskConfig.getPath(), diskConfig.getMaxSize(), diskConfig.getSegmentSize());
+        return new DiskCache(Path.of(diskConfig.getPath()),
+                diskConfig.getMaxSize() * 1024 * 1024,
+                diskConfig.getSegmentSize() * 1024 * 1024);
+    }
+
     private static Cache createDefaultInMemoryCache() {
         logger.warn("Falling back to default in-memory cache with size={} and maxMemory={} bytes", DEFAULT_SIZE, DEFAULT_MAX_MEMORY);
         return new LRUCacheWithTTL(DEFAULT_SIZE, DEFAULT_MAX_MEMORY);
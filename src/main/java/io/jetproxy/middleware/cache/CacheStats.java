@@ -0,0 +1,41 @@
+package io.jetproxy.middleware.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit/miss counters for a single cache tier.
+ */
+public class CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the hit ratio between 0 and 1, or 0 when the tier has not been queried yet.
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRatio=%.3f", getHits(), getMisses(), getHitRatio());
+    }
+}
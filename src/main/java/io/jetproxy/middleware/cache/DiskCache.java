@@ -0,0 +1,406 @@
+package io.jetproxy.middleware.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache backed by append-only, memory-mapped segment files.
+ * <p>
+ * Every put/remove appends a record to the active segment; an in-memory index maps each key to
+ * the location of its latest record, so reads are a single map lookup plus a copy out of the
+ * mapped file. When the configured number of segments is exceeded the oldest segment is
+ * reclaimed: expired and superseded records are dropped, and live records are copied forward
+ * only if they make up a small part of the segment and leave room for the record being written
+ * (otherwise they are evicted).
+ * <p>
+ * On startup the segments are scanned sequentially to rebuild the index, so a restarted node
+ * starts with a warm cache. Records carry a CRC, which lets the scan stop cleanly at a torn write.
+ *
+ * Record layout: {@code magic(4) crc(4) expireAt(8) keyLength(4) valueLength(4) key value}
+ */
+public class DiskCache implements Cache, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DiskCache.class);
+
+    private static final int RECORD_MAGIC = 0x4A504331; // "JPC1"
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    private static final int CRC_OFFSET = 4;
+    private static final int CHECKED_OFFSET = 8; // CRC covers everything after magic and crc
+    private static final int TOMBSTONE = -1;
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+    private static final double COMPACTION_LIVE_RATIO = 0.5;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Segment active;
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+
+        Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+    }
+
+    private record Location(Segment segment, int offset, int recordSize, int valueOffset, int valueLength, long expireAt) {
+        boolean isExpired(long now) {
+            return expireAt <= now;
+        }
+    }
+
+    /**
+     * Opens (or creates) a disk cache in the given directory and rebuilds its index.
+     *
+     * @param directory   directory holding the segment files
+     * @param maxDiskSize maximum total size of all segments in bytes
+     * @param segmentSize size of a single segment file in bytes
+     */
+    public DiskCache(Path directory, long maxDiskSize, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(2, maxDiskSize / segmentSize);
+        try {
+            Files.createDirectories(directory);
+            long start = System.nanoTime();
+            recover();
+            logger.info("Disk cache opened at {} with {} segments and {} entries in {} ms",
+                    directory, segments.size(), index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open disk cache at " + directory, e);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        if (location.isExpired(System.currentTimeMillis())) {
+            index.remove(key, location); // Space is reclaimed when the segment is compacted
+            return null;
+        }
+        byte[] value = new byte[location.valueLength()];
+        location.segment().buffer.get(location.valueOffset(), value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the remaining time-to-live of a key in milliseconds,
+     * {@link LRUCacheWithTTL.CacheEntry#NO_EXPIRED} when it never expires, or 0 when absent.
+     */
+    public long getRemainingTtl(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return 0;
+        }
+        if (location.expireAt() == NEVER_EXPIRES) {
+            return LRUCacheWithTTL.CacheEntry.NO_EXPIRED;
+        }
+        return Math.max(0, location.expireAt() - System.currentTimeMillis());
+    }
+
+    @Override
+    public void put(String key, String value, long ttl) {
+        if (value == null) {
+            return;
+        }
+        long expireAt = ttl == LRUCacheWithTTL.CacheEntry.NO_EXPIRED ? NEVER_EXPIRES : System.currentTimeMillis() + ttl;
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        if (HEADER_SIZE + keyBytes.length + valueBytes.length > segmentSize) {
+            logger.debug("Entry {} is larger than a segment, not stored on disk", key);
+            return;
+        }
+        writeLock.lock();
+        try {
+            // A record that does not fit is not stored, and an older one must not be served instead
+            replace(key, append(keyBytes, valueBytes, valueBytes.length, expireAt));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        writeLock.lock();
+        try {
+            if (!index.containsKey(key)) {
+                return;
+            }
+            append(key.getBytes(StandardCharsets.UTF_8), new byte[0], TOMBSTONE, NEVER_EXPIRES);
+            replace(key, null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String getAsideStrategy(String key, long ttl, Supplier<String> fetchFunction) {
+        String cacheData = get(key);
+        if (cacheData != null) {
+            return cacheData;
+        }
+        String fetchedData = fetchFunction.get();
+        if (fetchedData != null) {
+            put(key, fetchedData, ttl);
+        }
+        return fetchedData;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close disk cache segments: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void replace(String key, Location location) {
+        if (location == null) {
+            index.remove(key);
+        } else {
+            index.put(key, location);
+        }
+    }
+
+    /**
+     * Writes a record to the active segment.
+     *
+     * @return its location, or null if it does not fit even in a fresh segment
+     */
+    private Location append(byte[] key, byte[] value, int valueLength, long expireAt) {
+        int recordSize = HEADER_SIZE + key.length + value.length;
+        if (active.remaining() < recordSize) {
+            roll(recordSize);
+        }
+        if (active.remaining() < recordSize) {
+            logger.debug("Record of {} bytes does not fit in a disk cache segment, not stored", recordSize);
+            return null;
+        }
+        Segment segment = active;
+        int offset = segment.writePosition;
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putLong(offset + 8, expireAt);
+        buffer.putInt(offset + 16, key.length);
+        buffer.putInt(offset + 20, valueLength);
+        buffer.put(offset + HEADER_SIZE, key);
+        buffer.put(offset + HEADER_SIZE + key.length, value);
+        buffer.putInt(offset + CRC_OFFSET, checksum(buffer, offset, recordSize));
+        // Magic goes last so a torn write is never mistaken for a valid record
+        buffer.putInt(offset, RECORD_MAGIC);
+        segment.writePosition += recordSize;
+        return new Location(segment, offset, recordSize, offset + HEADER_SIZE + key.length, value.length, expireAt);
+    }
+
+    /**
+     * Starts a new active segment, copying the survivors of a reclaimed one only as long as
+     * {@code reserved} bytes stay free for the record that did not fit.
+     */
+    private void roll(int reserved) {
+        List<Map.Entry<String, Location>> survivors = new ArrayList<>();
+        Segment reclaimed = null;
+        if (segments.size() >= maxSegments) {
+            reclaimed = segments.pollFirstEntry().getValue();
+            survivors = reclaim(reclaimed);
+        }
+        try {
+            long nextId = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            active = openSegment(nextId, segmentSize);
+            segments.put(nextId, active);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create disk cache segment", e);
+        }
+        for (Map.Entry<String, Location> survivor : survivors) {
+            copyForward(survivor.getKey(), survivor.getValue(), reserved);
+        }
+        if (reclaimed != null) {
+            deleteSegment(reclaimed);
+        }
+    }
+
+    /**
+     * Drops expired entries of a segment from the index and returns the live entries worth
+     * copying forward. When most of the segment is still live, its entries are evicted instead.
+     */
+    private List<Map.Entry<String, Location>> reclaim(Segment segment) {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Location>> live = new ArrayList<>();
+        long liveBytes = 0;
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (location.segment() != segment) {
+                continue;
+            }
+            if (location.isExpired(now)) {
+                index.remove(entry.getKey(), location);
+                continue;
+            }
+            live.add(Map.entry(entry.getKey(), location));
+            liveBytes += location.recordSize();
+        }
+        if (liveBytes > segment.buffer.capacity() * COMPACTION_LIVE_RATIO) {
+            logger.debug("Evicting {} entries from disk cache segment {}", live.size(), segment.id);
+            for (Map.Entry<String, Location> entry : live) {
+                index.remove(entry.getKey(), entry.getValue());
+            }
+            return List.of();
+        }
+        logger.debug("Compacting {} entries from disk cache segment {}", live.size(), segment.id);
+        return live;
+    }
+
+    private void copyForward(String key, Location from, int reserved) {
+        if (active.remaining() - reserved < from.recordSize()) {
+            index.remove(key, from);
+            return;
+        }
+        Segment segment = active;
+        int offset = segment.writePosition;
+        ByteBuffer source = from.segment().buffer.slice(from.offset(), from.recordSize());
+        segment.buffer.put(offset, source, 0, from.recordSize());
+        segment.writePosition += from.recordSize();
+        Location moved = new Location(segment, offset, from.recordSize(),
+                offset + (from.valueOffset() - from.offset()), from.valueLength(), from.expireAt());
+        index.replace(key, from, moved);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> segmentId(path) > 0).sorted((a, b) -> Long.compare(segmentId(a), segmentId(b))).toList();
+        }
+        long now = System.currentTimeMillis();
+        for (Path file : files) {
+            long id = segmentId(file);
+            Segment segment = openSegment(id, (int) Math.max(segmentSize, Files.size(file)));
+            segments.put(id, segment);
+            scan(segment, now);
+        }
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            index.values().removeIf(location -> location.segment() == oldest);
+            deleteSegment(oldest);
+        }
+        if (segments.isEmpty()) {
+            active = openSegment(1, segmentSize);
+            segments.put(1L, active);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    private void scan(Segment segment, long now) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (buffer.capacity() - position >= HEADER_SIZE && buffer.getInt(position) == RECORD_MAGIC) {
+            int keyLength = buffer.getInt(position + 16);
+            int valueLength = buffer.getInt(position + 20);
+            int storedValueLength = valueLength == TOMBSTONE ? 0 : valueLength;
+            if (keyLength < 0 || storedValueLength < 0) {
+                break;
+            }
+            long recordSize = (long) HEADER_SIZE + keyLength + storedValueLength;
+            if (recordSize > buffer.capacity() - position
+                    || checksum(buffer, position, (int) recordSize) != buffer.getInt(position + CRC_OFFSET)) {
+                logger.warn("Disk cache segment {} is truncated at offset {}", segment.id, position);
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            buffer.get(position + HEADER_SIZE, keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            long expireAt = buffer.getLong(position + 8);
+            if (valueLength == TOMBSTONE || expireAt <= now) {
+                replace(key, null);
+            } else {
+                replace(key, new Location(segment, position, (int) recordSize,
+                        position + HEADER_SIZE + keyLength, valueLength, expireAt));
+            }
+            position += (int) recordSize;
+        }
+        segment.writePosition = position;
+    }
+
+    private Segment openSegment(long id, int size) throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(id, path, channel, buffer);
+    }
+
+    private void deleteSegment(Segment segment) {
+        try {
+            // Readers may still hold a location in this segment; the mapping stays valid until GC
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete disk cache segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int recordSize) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + CHECKED_OFFSET, recordSize - CHECKED_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
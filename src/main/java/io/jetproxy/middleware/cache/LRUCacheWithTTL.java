@@ -3,18 +3,39 @@ package io.jetproxy.middleware.cache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
-public class LRUCacheWithTTL implements Cache {
+public class LRUCacheWithTTL implements Cache, Closeable {
     public static Logger logger = LoggerFactory.getLogger(LRUCacheWithTTL.class);
 
+    private static final long EXPIRY_TICK_MILLIS = 100;
+    private static final int EXPIRY_WHEEL_SIZE = 512;
+    private static final int EXPIRY_BATCH_SIZE = 64; // Entries reclaimed per lock acquisition
+    private static final ScheduledExecutorService EXPIRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jetproxy-cache-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final long maxHeapMemory; // Maximum heap memory in bytes
     private final LinkedHashMap<String, CacheEntry> cache;
     private final ReentrantLock lock = new ReentrantLock();
     private long currentMemoryUsage; // Track current memory usage
+    private final TimingWheel<Map.Entry<String, CacheEntry>> expiryWheel;
+    private final ExpirySweep expirySweep;
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder expirationLagMillis = new LongAdder();
 
     // Cache entry with value and timestamp
     public static class CacheEntry {
@@ -22,6 +43,7 @@ public class LRUCacheWithTTL implements Cache {
         String value;
         long timestamp;
         long ttl;
+        TimingWheel.Timer<Map.Entry<String, CacheEntry>> expiryTimer; // Cancelled when the entry leaves the cache
 
         CacheEntry(String value, long ttl) {
             this.value = value;
@@ -36,6 +58,10 @@ public class LRUCacheWithTTL implements Cache {
             return (System.currentTimeMillis() - timestamp) > ttl;
         }
 
+        long getExpireAt() {
+            return timestamp + ttl;
+        }
+
         long getSize() {
             return (value != null ? value.length() * Character.BYTES : 0) + Long.BYTES * 2; // size of String, timestamp, and ttl
         }
@@ -46,10 +72,47 @@ public class LRUCacheWithTTL implements Cache {
         this.cache = new LinkedHashMap<>(maxSize, 0.75f, true) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
-                return size() > maxSize || eldest.getValue().isExpired();
+                boolean remove = size() > maxSize || eldest.getValue().isExpired();
+                if (remove) {
+                    release(eldest.getValue());
+                }
+                return remove;
             }
         };
         this.currentMemoryUsage = 0; // Initialize memory usage
+        this.expiryWheel = new TimingWheel<>(EXPIRY_TICK_MILLIS, EXPIRY_WHEEL_SIZE, System.currentTimeMillis());
+        this.expirySweep = new ExpirySweep(this);
+    }
+
+    /**
+     * Runs the expiry of one cache on the shared scheduler. It only holds the cache weakly, so a
+     * cache that is dropped without {@link #close()} is still collected, and its sweep then stops.
+     */
+    private static final class ExpirySweep implements Runnable {
+        private final WeakReference<LRUCacheWithTTL> cache;
+        private final ScheduledFuture<?> task;
+
+        ExpirySweep(LRUCacheWithTTL cache) {
+            this.cache = new WeakReference<>(cache);
+            this.task = EXPIRY_SCHEDULER.scheduleAtFixedRate(this, EXPIRY_TICK_MILLIS, EXPIRY_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            LRUCacheWithTTL current = cache.get();
+            if (current == null) {
+                cancel();
+            } else {
+                current.expireEntries();
+            }
+        }
+
+        void cancel() {
+            // The first run may come before the constructor assigned the task, it then runs once more
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
     }
 
     public String get(String key) {
@@ -58,7 +121,7 @@ public class LRUCacheWithTTL implements Cache {
             CacheEntry entry = cache.get(key);
             if (entry == null || entry.isExpired()) {
                 if (entry != null) {
-                    currentMemoryUsage -= entry.getSize();
+                    release(entry);
                 }
                 cache.remove(key); // Remove expired entry
                 return null;
@@ -70,9 +133,9 @@ public class LRUCacheWithTTL implements Cache {
     }
     @Override
     public void put(String key, String value, long ttl) {
+        CacheEntry newEntry = new CacheEntry(value, ttl);
         lock.lock();
         try {
-            CacheEntry newEntry = new CacheEntry(value, ttl);
             long newEntrySize = newEntry.getSize();
 
             // Check memory usage before adding the new entry
@@ -81,13 +144,91 @@ public class LRUCacheWithTTL implements Cache {
                 cleanup(newEntrySize); // Clean up to free memory if limit exceeded
             }
             logger.debug("new key {} {} {}", key, value, ttl);
-            cache.put(key, newEntry);
+            if (ttl != CacheEntry.NO_EXPIRED) {
+                newEntry.expiryTimer = expiryWheel.schedule(Map.entry(key, newEntry), newEntry.getExpireAt());
+            }
+            CacheEntry previous = cache.put(key, newEntry);
+            if (previous != null) {
+                release(previous);
+            }
             currentMemoryUsage += newEntrySize;
         } finally {
             lock.unlock();
         }
     }
 
+    @Override
+    public void remove(String key) {
+        lock.lock();
+        try {
+            CacheEntry entry = cache.remove(key);
+            if (entry != null) {
+                release(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * Average delay in milliseconds between an entry's expiry time and its removal by the sweeper.
+     */
+    public double getAverageExpirationLagMillis() {
+        long count = expiredCount.sum();
+        return count == 0 ? 0.0 : (double) expirationLagMillis.sum() / count;
+    }
+
+    @Override
+    public void close() {
+        expirySweep.cancel();
+    }
+
+    /**
+     * Reclaims entries whose deadline passed on the expiry wheel. Runs on the sweeper thread and
+     * only takes the cache lock for small batches, so request threads are never blocked by a scan.
+     */
+    private void expireEntries() {
+        try {
+            long now = System.currentTimeMillis();
+            List<TimingWheel.Timer<Map.Entry<String, CacheEntry>>> timers = expiryWheel.advance(now);
+            for (int from = 0; from < timers.size(); from += EXPIRY_BATCH_SIZE) {
+                int to = Math.min(from + EXPIRY_BATCH_SIZE, timers.size());
+                lock.lock();
+                try {
+                    for (int i = from; i < to; i++) {
+                        Map.Entry<String, CacheEntry> expired = timers.get(i).item();
+                        if (expired == null) {
+                            continue; // Cancelled after the wheel reported it
+                        }
+                        // Only remove the exact entry that was scheduled, a newer put may have replaced it
+                        if (cache.remove(expired.getKey(), expired.getValue())) {
+                            currentMemoryUsage -= expired.getValue().getSize();
+                            expiredCount.increment();
+                            expirationLagMillis.add(Math.max(0, now - expired.getValue().getExpireAt()));
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Cache expiry sweep failed: {}", e.getMessage());
+        }
+    }
+
     private boolean isMemoryExceeded(long additionalSize) {
         return (currentMemoryUsage + additionalSize) > maxHeapMemory;
     }
@@ -98,7 +239,18 @@ public class LRUCacheWithTTL implements Cache {
             String eldestKey = cache.entrySet().iterator().next().getKey();
             logger.debug("Removing entry {} due to memory cleanup", eldestKey);
             CacheEntry eldestEntry = cache.remove(eldestKey);
-            currentMemoryUsage -= eldestEntry.getSize();
+            release(eldestEntry);
+        }
+    }
+
+    /**
+     * Accounts for an entry that left the cache. Its expiry timer is cancelled, so the wheel does
+     * not keep the value alive until the TTL passes.
+     */
+    private void release(CacheEntry entry) {
+        currentMemoryUsage -= entry.getSize();
+        if (entry.expiryTimer != null) {
+            entry.expiryTimer.cancel();
         }
     }
     @Override
@@ -1,55 +1,64 @@
 package io.jetproxy.middleware.cache;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.function.Supplier;
 
 public class RedisCache implements Cache {
-    private final JedisPool jedisPool;
+    private static final Logger logger = LoggerFactory.getLogger(RedisCache.class);
+    private final RedisCommandBatcher batcher;
+    private final RedisGuard guard;
+    // In-process copy of recent writes, served while Redis is slow or unavailable
+    private final Cache fallback;
 
-    public RedisCache() {
-        this.jedisPool = RedisPoolManager.getPool();
+    public RedisCache(Cache fallback) {
+        this.batcher = RedisPoolManager.getBatcher();
+        this.guard = RedisPoolManager.getGuard();
+        this.fallback = fallback;
     }
 
     @Override
     public String get(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            return jedis.get(String.valueOf(key));
-        }
+        return guard.call(() -> batcher.get(key), () -> fallback.get(key));
     }
 
     @Override
     public void put(String key, String value, long ttl) {
+        fallback.put(key, value, ttl);
         if (ttl < 1000) {
             return;
         }
-        try (Jedis jedis = jedisPool.getResource()) {
-            jedis.setex(String.valueOf(key), ttl / 1000, value);
+        // Writes are fire-and-forget, the request thread does not wait for the round trip
+        guard.submit(() -> batcher.setex(key, ttl / 1000, value));
+    }
+
+    @Override
+    public void remove(String key) {
+        fallback.remove(key);
+        if (!guard.submit(() -> batcher.del(key))) {
+            logger.warn("Redis is unavailable, cache key {} was only removed locally", key);
         }
     }
 
     @Override
     public String getAsideStrategy(String key, long ttl, Supplier<String> fetchFunction) {
-        try (Jedis jedis = jedisPool.getResource()) {
-            // Attempt to get the value from Redis
-            String cacheData = jedis.get(key);
+        // Attempt to get the value from Redis
+        String cacheData = get(key);
 
-            if (cacheData != null) {
-                // Return the cached value if it exists
-                return cacheData;
-            }
-
-            // Fetch the data using the provided fetch function
-            String fetchedData = fetchFunction.get();
+        if (cacheData != null) {
+            // Return the cached value if it exists
+            return cacheData;
+        }
 
-            if (fetchedData != null) {
-                // Store the fetched data in Redis with the specified TTL
-                jedis.setex(key, (int) (ttl / 1000), fetchedData);
-            }
+        // Fetch the data using the provided fetch function; no connection is held meanwhile
+        String fetchedData = fetchFunction.get();
 
-            return fetchedData;
+        if (fetchedData != null) {
+            // Store the fetched data in Redis with the specified TTL
+            put(key, fetchedData, ttl);
         }
-    }
 
-
-}
\ No newline at end of file
+        return fetchedData;
+    }
+}
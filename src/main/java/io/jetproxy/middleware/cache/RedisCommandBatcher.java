@@ -0,0 +1,220 @@
+package io.jetproxy.middleware.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces Redis commands issued by concurrent requests into pipelines.
+ * <p>
+ * Callers enqueue a command and get a {@link CompletableFuture} back. A single flusher thread
+ * collects commands until {@code maxBatchSize} is reached or {@code flushInterval} has passed
+ * since the first one, then sends them over one pooled connection. Commands are pipelined in the
+ * order they were issued. Consecutive GETs become a single MGET (duplicate keys are fetched once),
+ * but never across another command, so a GET always sees the writes issued before it.
+ * The connection is returned to the pool right after the round trip, so it is never held while a
+ * caller does other work.
+ * <p>
+ * Only one pipeline is in flight at a time, so throughput is bounded by {@code maxBatchSize}
+ * commands per Redis round trip. Commands beyond that wait in the queue, up to
+ * {@code maxQueueSize}, and are rejected after.
+ */
+public class RedisCommandBatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RedisCommandBatcher.class);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private sealed interface Command permits GetCommand, PipelinedCommand {
+        CompletableFuture<?> future();
+    }
+
+    private record GetCommand(String key, CompletableFuture<String> future) implements Command {
+    }
+
+    private record PipelinedCommand<T>(Function<Pipeline, Response<T>> operation,
+                                       CompletableFuture<T> future) implements Command {
+        Response<T> queue(Pipeline pipeline) {
+            return operation.apply(pipeline);
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Response<?> response) {
+            try {
+                future.complete((T) response.get());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final JedisPool jedisPool;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<Command> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * @param jedisPool           pool the pipelines are sent on
+     * @param maxBatchSize        maximum number of commands per round trip
+     * @param flushIntervalMicros maximum time a command waits for others to join its batch
+     * @param maxQueueSize        maximum number of pending commands before new ones are rejected
+     */
+    public RedisCommandBatcher(JedisPool jedisPool, int maxBatchSize, long flushIntervalMicros, int maxQueueSize) {
+        this.jedisPool = jedisPool;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalNanos = TimeUnit.MICROSECONDS.toNanos(flushIntervalMicros);
+        this.queue = new LinkedBlockingQueue<>(maxQueueSize);
+        this.flusher = new Thread(this::run, "jetproxy-redis-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public CompletableFuture<String> get(String key) {
+        return enqueue(new GetCommand(key, new CompletableFuture<>()));
+    }
+
+    public CompletableFuture<String> setex(String key, long seconds, String value) {
+        return submit(pipeline -> pipeline.setex(key, seconds, value));
+    }
+
+    public CompletableFuture<Long> del(String key) {
+        return submit(pipeline -> pipeline.del(key));
+    }
+
+    public CompletableFuture<Long> hincrBy(String key, String field, long value) {
+        return submit(pipeline -> pipeline.hincrBy(key, field, value));
+    }
+
+    public CompletableFuture<Long> publish(String channel, String message) {
+        return submit(pipeline -> pipeline.publish(channel, message));
+    }
+
+    /**
+     * Queues an arbitrary pipelined command, e.g. {@code pipeline -> pipeline.expire(key, 60)}.
+     */
+    public <T> CompletableFuture<T> submit(Function<Pipeline, Response<T>> operation) {
+        return enqueue(new PipelinedCommand<>(operation, new CompletableFuture<>()));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        List<Command> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(command -> command.future().completeExceptionally(new RejectedExecutionException("Redis batcher closed")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> enqueue(Command command) {
+        CompletableFuture<T> future = (CompletableFuture<T>) command.future();
+        if (!running || !queue.offer(command)) {
+            future.completeExceptionally(new RejectedExecutionException("Redis command queue is full"));
+        }
+        return future;
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Command first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Command next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in Redis batcher: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Command> batch) {
+        List<Runnable> completions = new ArrayList<>();
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, List<CompletableFuture<String>>> gets = new LinkedHashMap<>();
+            for (Command command : batch) {
+                if (command instanceof GetCommand get) {
+                    gets.computeIfAbsent(get.key(), key -> new ArrayList<>()).add(get.future());
+                    continue;
+                }
+                // Any other command may write a key read before it, so reads are never moved past it
+                queueGets(pipeline, gets, completions);
+                gets = new LinkedHashMap<>();
+                PipelinedCommand<?> pipelined = (PipelinedCommand<?>) command;
+                Response<?> response = pipelined.queue(pipeline);
+                completions.add(() -> pipelined.complete(response));
+            }
+            queueGets(pipeline, gets, completions);
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.warn("Redis pipeline of {} commands failed: {}", batch.size(), e.getMessage());
+            batch.forEach(command -> command.future().completeExceptionally(e));
+            return;
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    private static void queueGets(Pipeline pipeline, Map<String, List<CompletableFuture<String>>> gets,
+                                  List<Runnable> completions) {
+        if (gets.isEmpty()) {
+            return;
+        }
+        Response<List<String>> mget = pipeline.mget(gets.keySet().toArray(new String[0]));
+        completions.add(() -> completeGets(gets, mget));
+    }
+
+    private static void completeGets(Map<String, List<CompletableFuture<String>>> gets, Response<List<String>> mget) {
+        List<String> values;
+        try {
+            values = mget.get();
+        } catch (Exception e) {
+            gets.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(e)));
+            return;
+        }
+        int i = 0;
+        for (List<CompletableFuture<String>> futures : gets.values()) {
+            String value = values.get(i++);
+            futures.forEach(future -> future.complete(value));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.jetproxy.middleware.cache;
+
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Isolates request handling from Redis latency and outages.
+ * <p>
+ * Every call is bounded by {@code commandTimeout} and its outcome is recorded in a dedicated
+ * {@link CircuitBreaker}. While the breaker is open, callers get their fallback immediately
+ * without touching Redis; the breaker's half-open probing restores Redis usage automatically.
+ */
+public class RedisGuard {
+    private static final Logger logger = LoggerFactory.getLogger(RedisGuard.class);
+
+    private final CircuitBreaker circuitBreaker;
+    private final long commandTimeoutMillis;
+
+    /**
+     * @param circuitBreaker       breaker guarding Redis, or {@code null} to only apply timeouts
+     * @param commandTimeoutMillis maximum time a caller waits for a Redis reply
+     */
+    public RedisGuard(CircuitBreaker circuitBreaker, long commandTimeoutMillis) {
+        this.circuitBreaker = circuitBreaker;
+        this.commandTimeoutMillis = commandTimeoutMillis;
+    }
+
+    /**
+     * Runs a Redis command and waits for its result, returning the fallback value if Redis is
+     * unhealthy, fails, or does not answer within the command timeout.
+     */
+    public <T> T call(Supplier<CompletableFuture<T>> command, Supplier<T> fallback) {
+        if (!allowRequest()) {
+            return fallback.get();
+        }
+        long start = System.nanoTime();
+        try {
+            T result = command.get().get(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+            onSuccess(start);
+            return result;
+        } catch (TimeoutException | ExecutionException e) {
+            onError(start, e);
+            return fallback.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback.get();
+        }
+    }
+
+    /**
+     * Fires a Redis command without waiting for it. The command is dropped while Redis is unhealthy.
+     *
+     * @return false if the command was dropped
+     */
+    public <T> boolean submit(Supplier<CompletableFuture<T>> command) {
+        if (!allowRequest()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        command.get()
+                .orTimeout(commandTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        onSuccess(start);
+                    } else {
+                        onError(start, error);
+                    }
+                });
+        return true;
+    }
+
+    public boolean isHealthy() {
+        return circuitBreaker == null || !CircuitBreaker.State.OPEN.name().equals(circuitBreaker.getState());
+    }
+
+    public String getState() {
+        return circuitBreaker == null ? CircuitBreaker.State.CLOSED.name() : circuitBreaker.getState();
+    }
+
+    private boolean allowRequest() {
+        return circuitBreaker == null || circuitBreaker.allowRequest();
+    }
+
+    private void onSuccess(long start) {
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void onError(long start, Throwable error) {
+        logger.debug("Redis command failed: {}", error.toString());
+        if (circuitBreaker != null) {
+            String before = circuitBreaker.getState();
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!before.equals(circuitBreaker.getState())) {
+                logger.warn("Redis circuit breaker is now {}, using local fallback", circuitBreaker.getState());
+            }
+        }
+    }
+}
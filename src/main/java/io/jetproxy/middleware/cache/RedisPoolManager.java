@@ -4,12 +4,19 @@ import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.jetproxy.context.AppConfig;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreakerConfig;
 import redis.clients.jedis.*;
 
+import java.time.Duration;
+
 public class RedisPoolManager {
     public static String CHANNEL_CONFIG_CHANGE = "jetproxy_config_change";
+    public static String CHANNEL_CACHE_INVALIDATION = "jetproxy_cache_invalidation";
     private static final Logger logger = LoggerFactory.getLogger(RedisPoolManager.class);
     private static JedisPool jedisPool = null;
+    private static RedisCommandBatcher batcher = null;
+    private static RedisGuard guard = null;
     private RedisPoolManager() {}
 
     // Method to initialize the Redis pool with configuration
@@ -22,9 +29,14 @@ public class RedisPoolManager {
                     poolConfig.setMaxTotal(config.getMaxTotal());
                     poolConfig.setMaxIdle(config.getMaxIdle());
                     poolConfig.setMinIdle(config.getMinIdle());
+                    // Never wait forever for a connection, an exhausted pool must fail fast
+                    poolConfig.setMaxWait(Duration.ofMillis(config.getTimeout()));
 
                     // Initialize the Redis pool with the config and Redis server address
-                    jedisPool = new JedisPool(poolConfig, config.getHost(), config.getPort());
+                    jedisPool = new JedisPool(poolConfig, config.getHost(), config.getPort(), config.getTimeout());
+                    batcher = new RedisCommandBatcher(jedisPool,
+                            config.getBatchMaxSize(), config.getBatchFlushInterval(), config.getBatchQueueSize());
+                    guard = new RedisGuard(createCircuitBreaker(config.getCircuitBreaker()), config.getCommandTimeout());
                     logger.info("Redis connection pool initialized.");
                 }
             }
@@ -40,8 +52,46 @@ public class RedisPoolManager {
         return jedisPool;
     }
 
+    // Method to get the shared command batcher, used for request-path reads and writes
+    public static RedisCommandBatcher getBatcher() {
+        if (batcher == null) {
+            logger.error("Redis pool not initialized. Call initializePool first.");
+            throw new IllegalStateException("Redis pool not initialized. Call initializePool first.");
+        }
+        return batcher;
+    }
+
+    // Method to get the guard applying timeouts and the circuit breaker to Redis calls
+    public static RedisGuard getGuard() {
+        if (guard == null) {
+            logger.error("Redis pool not initialized. Call initializePool first.");
+            throw new IllegalStateException("Redis pool not initialized. Call initializePool first.");
+        }
+        return guard;
+    }
+
+    private static CircuitBreaker createCircuitBreaker(AppConfig.CircuitBreaker cbConfig) {
+        if (cbConfig == null || !cbConfig.isEnabled()) {
+            return null;
+        }
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(cbConfig.getFailureThreshold())
+                .slowCallRateThreshold(cbConfig.getSlowCallThreshold())
+                .slowCallDurationThreshold(Duration.ofMillis(cbConfig.getSlowCallDuration()))
+                .waitDurationInOpenState(Duration.ofMillis(cbConfig.getWaitDurationInOpenState()))
+                .permittedNumberOfCallsInHalfOpenState(cbConfig.getPermittedNumberOfCallsInHalfOpenState())
+                .minimumNumberOfCalls(cbConfig.getMinimumNumberOfCalls())
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.from(cbConfig.getSlidingWindowType()))
+                .slidingWindowSize(cbConfig.getSlidingWindowSize())
+                .build();
+        return new CircuitBreaker("redis", config);
+    }
+
     // Method to close the Redis pool
     public static void closePool() {
+        if (batcher != null) {
+            batcher.close();
+        }
         if (jedisPool != null && !jedisPool.isClosed()) {
             logger.info("Redis connection pool closed");
             jedisPool.close();
@@ -51,7 +101,7 @@ public class RedisPoolManager {
     public static void publish(String channel, String message) {
         try (Jedis jedis = getPool().getResource()) {
             jedis.publish(channel, message);
-            logger.info("Published message to channel {}: {}", channel, message);
+            logger.debug("Published message to channel {}: {}", channel, message);
         } catch (Exception e) {
             logger.error("Failed to publish message to channel {}: {}", channel, e.getMessage(), e);
         }
@@ -0,0 +1,161 @@
+package io.jetproxy.middleware.cache;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPubSub;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache: a small local L1 in front of a larger L2 (Redis or {@link DiskCache}).
+ * <p>
+ * Reads are served from L1 when possible and fall through to L2 on a miss, promoting the
+ * value into L1 for at most {@code l1Ttl} milliseconds ({@code NO_EXPIRED} means no cap). Writes go to both tiers. When
+ * invalidation is enabled, every write/remove is broadcast on
+ * {@link RedisPoolManager#CHANNEL_CACHE_INVALIDATION} so other nodes drop their local copy.
+ * Messages are pipelined and dropped while Redis is unhealthy, like the other Redis writes; the
+ * short L1 TTL bounds staleness if a message is ever lost.
+ */
+public class TieredCache implements Cache, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TieredCache.class);
+    private static final char INVALIDATION_SEPARATOR = '|';
+
+    @Getter
+    private final Cache l1;
+    @Getter
+    private final Cache l2;
+    private final long l1Ttl;
+    private final String nodeId;
+    @Getter
+    private final CacheStats l1Stats = new CacheStats();
+    @Getter
+    private final CacheStats l2Stats = new CacheStats();
+    private volatile RedisGuard guard;
+    private volatile RedisCommandBatcher batcher;
+    private volatile boolean invalidationEnabled = false;
+
+    public TieredCache(Cache l1, Cache l2, long l1Ttl, String nodeId) {
+        this.l1 = l1;
+        this.l2 = l2;
+        this.l1Ttl = l1Ttl;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Subscribes to the invalidation channel and starts publishing local writes to it.
+     */
+    public void enableInvalidation() {
+        guard = RedisPoolManager.getGuard();
+        batcher = RedisPoolManager.getBatcher();
+        RedisPoolManager.subscribe(RedisPoolManager.CHANNEL_CACHE_INVALIDATION, new JedisPubSub() {
+            @Override
+            public void onMessage(String channel, String message) {
+                onInvalidation(message);
+            }
+        });
+        invalidationEnabled = true;
+        logger.info("Near-cache invalidation enabled for node {}", nodeId);
+    }
+
+    @Override
+    public String get(String key) {
+        String value = l1.get(key);
+        if (value != null) {
+            l1Stats.recordHit();
+            return value;
+        }
+        l1Stats.recordMiss();
+
+        value = l2.get(key);
+        if (value == null) {
+            l2Stats.recordMiss();
+            return null;
+        }
+        l2Stats.recordHit();
+        l1.put(key, value, promotionTtl(key));
+        return value;
+    }
+
+    @Override
+    public void put(String key, String value, long ttl) {
+        l2.put(key, value, ttl);
+        l1.put(key, value, localTtl(ttl));
+        publishInvalidation(key);
+    }
+
+    @Override
+    public void remove(String key) {
+        l1.remove(key);
+        l2.remove(key);
+        publishInvalidation(key);
+    }
+
+    @Override
+    public String getAsideStrategy(String key, long ttl, Supplier<String> fetchFunction) {
+        String cacheData = get(key);
+        if (cacheData != null) {
+            return cacheData;
+        }
+        // Fetch outside of any tier so no connection is held while the supplier runs
+        String fetchedData = fetchFunction.get();
+        if (fetchedData != null) {
+            put(key, fetchedData, ttl);
+        }
+        return fetchedData;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (l1 instanceof Closeable closeable) {
+                closeable.close();
+            }
+        } finally {
+            if (l2 instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Handles an invalidation message of the form {@code <nodeId>|<key>}.
+     */
+    public void onInvalidation(String message) {
+        int separator = message.indexOf(INVALIDATION_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+        if (nodeId.equals(message.substring(0, separator))) {
+            return; // Our own write, local copy is already fresh
+        }
+        l1.remove(message.substring(separator + 1));
+    }
+
+    private long localTtl(long ttl) {
+        if (l1Ttl == LRUCacheWithTTL.CacheEntry.NO_EXPIRED) {
+            return ttl;
+        }
+        if (ttl == LRUCacheWithTTL.CacheEntry.NO_EXPIRED) {
+            return l1Ttl;
+        }
+        return Math.min(ttl, l1Ttl);
+    }
+
+    private long promotionTtl(String key) {
+        // A disk tier knows the remaining lifetime; Redis does not, so fall back to the L1 cap
+        if (l2 instanceof DiskCache diskCache) {
+            return localTtl(diskCache.getRemainingTtl(key));
+        }
+        return l1Ttl;
+    }
+
+    private void publishInvalidation(String key) {
+        if (invalidationEnabled) {
+            String message = nodeId + INVALIDATION_SEPARATOR + key;
+            guard.submit(() -> batcher.publish(RedisPoolManager.CHANNEL_CACHE_INVALIDATION, message));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package io.jetproxy.middleware.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Two-level hashed timing wheel used to expire cache entries in amortized O(1).
+ * <p>
+ * The inner wheel has {@code wheelSize} slots of {@code tickMillis}; the outer wheel has the
+ * same number of slots, each spanning a full revolution of the inner wheel. Timers further out
+ * than the outer span stay in the outer wheel and are revisited once per outer revolution.
+ * {@link #schedule} and {@link Timer#cancel} may be called from any thread; {@link #advance} must
+ * only be called from a single sweeper thread.
+ *
+ * @param <T> the item attached to a timer
+ */
+public class TimingWheel<T> {
+
+    /**
+     * A scheduled item. Cancelling a timer drops its reference to the item right away, the timer
+     * itself leaves the wheel the next time its slot is visited.
+     */
+    public static final class Timer<T> {
+        private volatile T item;
+        private final long deadline;
+
+        private Timer(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Returns the item, or {@code null} once the timer was cancelled.
+         */
+        public T item() {
+            return item;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        public void cancel() {
+            item = null;
+        }
+
+        public boolean isCancelled() {
+            return item == null;
+        }
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int mask;
+    private final List<Queue<Timer<T>>> inner;
+    private final List<Queue<Timer<T>>> outer;
+    private volatile long processedTick;
+
+    /**
+     * @param tickMillis resolution of the wheel in milliseconds
+     * @param wheelSize  number of slots per level, rounded up to a power of two
+     * @param now        current time in milliseconds
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long now) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.mask = this.wheelSize - 1;
+        this.inner = newLevel(this.wheelSize);
+        this.outer = newLevel(this.wheelSize);
+        this.processedTick = now / tickMillis;
+    }
+
+    /**
+     * Schedules an item to be returned by {@link #advance} once {@code deadline} has passed.
+     *
+     * @return the timer, to cancel it if the item is no longer of interest
+     */
+    public Timer<T> schedule(T item, long deadline) {
+        Timer<T> timer = new Timer<>(Objects.requireNonNull(item), deadline);
+        place(timer);
+        return timer;
+    }
+
+    /**
+     * Advances the wheel up to {@code now} and returns every timer whose deadline has passed and
+     * that was not cancelled.
+     */
+    public List<Timer<T>> advance(long now) {
+        List<Timer<T>> expired = new ArrayList<>();
+        long targetTick = now / tickMillis;
+        while (processedTick < targetTick) {
+            long tick = processedTick + 1;
+            if ((tick & mask) == 0) {
+                cascade(tick / wheelSize);
+            }
+            processedTick = tick;
+            drain(inner.get((int) (tick & mask)), tick, expired);
+        }
+        return expired;
+    }
+
+    private void place(Timer<T> timer) {
+        long current = processedTick;
+        long tick = Math.max(deadlineTick(timer), current + 1);
+        if (tick - current <= wheelSize) {
+            inner.get((int) (tick & mask)).add(timer);
+        } else {
+            outer.get((int) ((tick / wheelSize) & mask)).add(timer);
+        }
+    }
+
+    private void cascade(long outerTick) {
+        Queue<Timer<T>> bucket = outer.get((int) (outerTick & mask));
+        // Only take what is there now, re-placed timers must not be visited again in this pass
+        for (int remaining = bucket.size(); remaining > 0; remaining--) {
+            Timer<T> timer = bucket.poll();
+            if (timer == null) {
+                break;
+            }
+            if (!timer.isCancelled()) {
+                place(timer);
+            }
+        }
+    }
+
+    private void drain(Queue<Timer<T>> bucket, long tick, List<Timer<T>> expired) {
+        for (int remaining = bucket.size(); remaining > 0; remaining--) {
+            Timer<T> timer = bucket.poll();
+            if (timer == null) {
+                break;
+            }
+            if (timer.isCancelled()) {
+                continue;
+            }
+            if (deadlineTick(timer) <= tick) {
+                expired.add(timer);
+            } else {
+                place(timer);
+            }
+        }
+    }
+
+    private long deadlineTick(Timer<T> timer) {
+        // Round up so a timer is never reported before its deadline
+        return Math.floorDiv(timer.deadline() + tickMillis - 1, tickMillis);
+    }
+
+    private static <T> List<Queue<Timer<T>>> newLevel(int size) {
+        List<Queue<Timer<T>>> level = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            level.add(new ConcurrentLinkedQueue<>());
+        }
+        return level;
+    }
+}
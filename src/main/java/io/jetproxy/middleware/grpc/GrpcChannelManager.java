@@ -123,10 +123,12 @@ public class GrpcChannelManager {
      * @param fullMethodName The full gRPC method name (e.g., myservice.UserService/CreateUser).
      * @param grpcRequest The gRPC request DynamicMessage.
      * @param channel The gRPC ManagedChannel.
+     * @param timeoutMillis The call deadline in milliseconds, or 0 for none.
      * @return The DynamicMessage response.
      * @throws Exception if invocation fails.
      */
-    public DynamicMessage invokeGrpcMethod(String fullMethodName, DynamicMessage grpcRequest, ManagedChannel channel, Map<String, String> metadataMap) throws Exception {
+    public DynamicMessage invokeGrpcMethod(String fullMethodName, DynamicMessage grpcRequest, ManagedChannel channel,
+                                           Map<String, String> metadataMap, long timeoutMillis) throws Exception {
 
         String[] parts = fullMethodName.split("/");
         if (parts.length != 2) {
@@ -182,6 +184,10 @@ public class GrpcChannelManager {
         // Use the custom CallCredentials to pass metadata
         io.grpc.CallOptions callOptions = io.grpc.CallOptions.DEFAULT.withCallCredentials(
                 new GrpcMetadataCredentials(metadata));
+        if (timeoutMillis > 0) {
+            // The upstream sees the deadline as grpc-timeout and stops working once it passes
+            callOptions = callOptions.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
 
         // Invoke the method with metadata
         try {
@@ -3,6 +3,7 @@ package io.jetproxy.middleware.handler;
 import io.jetproxy.context.AppContext;
 import io.jetproxy.middleware.cache.CacheFactory;
 import io.jetproxy.middleware.cache.ResponseCacheEntry;
+import io.jetproxy.middleware.metric.MetricsRegistry;
 import io.jetproxy.util.Constants;
 import io.jetproxy.util.RequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -51,6 +52,7 @@ public class HttpCacheHandler implements MiddlewareHandler {
         String cacheKey = String.format(CacheFactory.HTTP_REQUEST_CACHE_KEY, method, path, "");
 
         String responseBody = ctx.getCache().get(cacheKey);
+        MetricsRegistry.get().recordCacheLookup(RequestUtils.getRoute(request), "http", responseBody != null);
         if (responseBody == null) {
             return null;
         }
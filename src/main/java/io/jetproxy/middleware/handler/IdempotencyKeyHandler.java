@@ -4,6 +4,7 @@ import io.jetproxy.context.AppConfig;
 import io.jetproxy.context.AppContext;
 import io.jetproxy.middleware.cache.CacheFactory;
 import io.jetproxy.middleware.cache.ResponseCacheEntry;
+import io.jetproxy.middleware.metric.MetricsRegistry;
 import io.jetproxy.util.Constants;
 import io.jetproxy.util.RequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -46,6 +47,7 @@ public class IdempotencyKeyHandler implements MiddlewareHandler {
         String cacheKey = String.format(CacheFactory.HTTP_IDEMPOTENCY_KEY, method, path, idempotencyKey);
 
         String cachedJson = ctx.getCache().get(cacheKey);
+        MetricsRegistry.get().recordCacheLookup(RequestUtils.getRoute(request), "idempotency", cachedJson != null);
         if (cachedJson != null) {
             ResponseCacheEntry cached = ctx.getGson().fromJson(cachedJson, ResponseCacheEntry.class);
             try {
@@ -1,17 +1,61 @@
 package io.jetproxy.middleware.log;
 
-import io.jetproxy.context.AppContext;
-import io.opentelemetry.api.trace.Span;
-import io.opentelemetry.api.trace.SpanContext;
+import io.jetproxy.middleware.metric.RequestTimings;
+import io.jetproxy.util.Constants;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Response;
-import io.jetproxy.logger.DebugAwareLogger;
+import org.slf4j.MDC;
 
+/**
+ * Jetty request log that hands each completed request to the {@link AsyncAccessLogger}. Only the
+ * values needed for the log line are copied here; formatting and writing happen on the writer thread.
+ */
 public class AccessLog implements RequestLog {
-    private static final DebugAwareLogger logger = DebugAwareLogger.getLogger(AccessLog.class);
+    private final AsyncAccessLogger accessLogger;
+
+    /**
+     * @param accessLogger the pipeline to publish to, or {@code null} when access logging is disabled
+     */
+    public AccessLog(AsyncAccessLogger accessLogger) {
+        this.accessLogger = accessLogger;
+    }
+
     @Override
     public void log(Request request, Response response) {
-        logger.logRequest(request, response);
+        long sequence = accessLogger != null ? accessLogger.claim() : -1;
+        if (sequence >= 0) {
+            try {
+                capture(accessLogger.record(sequence), request, response);
+            } finally {
+                accessLogger.publish(sequence);
+            }
+        }
+        MDC.clear();
+    }
+
+    private static void capture(AccessLogRecord record, Request request, Response response) {
+        long now = System.currentTimeMillis();
+        record.timestampMillis = now;
+        record.remoteAddr = request.getRemoteAddr();
+        record.user = request.getRemoteUser();
+        record.method = request.getMethod();
+        record.uri = request.getRequestURI();
+        record.query = request.getQueryString();
+        record.protocol = request.getProtocol();
+        record.status = response.getStatus();
+        record.bytes = response.getHttpChannel().getBytesWritten();
+        record.referrer = request.getHeader("Referer");
+        record.userAgent = request.getHeader("User-Agent");
+        record.durationMillis = now - request.getTimeStamp();
+        record.cached = response.getHeader("X-JetProxy-Cache") != null;
+        record.route = attribute(request, Constants.REQUEST_ATTRIBUTE_JETPROXY_ROUTE);
+        record.mirroring = attribute(request, Constants.REQUEST_ATTRIBUTE_JETPROXY_MIRRORING);
+        record.traceId = attribute(request, Constants.REQUEST_ATTRIBUTE_JETPROXY_TRACE_ID);
+        record.timings = RequestTimings.get(request);
+    }
+
+    private static String attribute(Request request, String name) {
+        return request.getAttribute(name) instanceof String value ? value : null;
     }
 }
@@ -0,0 +1,183 @@
+package io.jetproxy.middleware.log;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Layouts of an access log line. Formatting appends to a reused builder and only runs on the writer
+ * thread, so none of it is on the request path.
+ */
+public enum AccessLogFormat {
+    /**
+     * The JetProxy layout: Common Log Format fields followed by duration, cache, mirroring and trace id.
+     */
+    DEFAULT {
+        @Override
+        void format(AccessLogRecord record, Timestamps timestamps, StringBuilder out) {
+            out.append(record.remoteAddr).append(" - ").append(record.user != null ? record.user : "")
+                    .append(" [").append(timestamps.clf(record.timestampMillis)).append("] ")
+                    .append(record.method).append(' ').append(record.uri);
+            if (record.query != null) {
+                out.append('?').append(record.query);
+            }
+            out.append(' ').append(record.protocol).append(' ').append(record.status).append(' ').append(record.bytes)
+                    .append(' ').append(orDash(record.referrer)).append(' ').append(orDash(record.userAgent))
+                    .append(" [").append(record.durationMillis).append("ms] Cache: [").append(record.cached)
+                    .append("] MirroringRequest: [").append(orDash(record.mirroring))
+                    .append("] Status: [Request processed] TraceId: [").append(orDash(record.traceId)).append(']');
+            if (record.timings != null) {
+                out.append(" Timings: [").append(record.timings.toLogString()).append(']');
+            }
+        }
+    },
+    /**
+     * Apache/NCSA Combined Log Format, understood by most log tooling.
+     */
+    COMBINED {
+        @Override
+        void format(AccessLogRecord record, Timestamps timestamps, StringBuilder out) {
+            out.append(record.remoteAddr).append(" - ").append(orDash(record.user))
+                    .append(" [").append(timestamps.clf(record.timestampMillis)).append("] \"")
+                    .append(record.method).append(' ').append(record.uri);
+            if (record.query != null) {
+                out.append('?').append(record.query);
+            }
+            out.append(' ').append(record.protocol).append("\" ").append(record.status).append(' ');
+            if (record.bytes > 0) {
+                out.append(record.bytes);
+            } else {
+                out.append('-');
+            }
+            out.append(" \"").append(orDash(record.referrer)).append("\" \"").append(orDash(record.userAgent)).append('"');
+        }
+    },
+    /**
+     * One JSON object per line.
+     */
+    JSON {
+        @Override
+        void format(AccessLogRecord record, Timestamps timestamps, StringBuilder out) {
+            out.append("{\"time\":\"");
+            timestamps.appendIso(record.timestampMillis, out);
+            out.append('"');
+            appendField(out, "remoteAddr", record.remoteAddr);
+            appendField(out, "user", record.user);
+            appendField(out, "method", record.method);
+            appendField(out, "path", record.uri);
+            appendField(out, "query", record.query);
+            appendField(out, "protocol", record.protocol);
+            out.append(",\"status\":").append(record.status)
+                    .append(",\"bytes\":").append(record.bytes)
+                    .append(",\"durationMs\":").append(record.durationMillis);
+            appendField(out, "referer", record.referrer);
+            appendField(out, "userAgent", record.userAgent);
+            appendField(out, "route", record.route);
+            out.append(",\"cache\":").append(record.cached);
+            appendField(out, "mirroring", record.mirroring);
+            appendField(out, "traceId", record.traceId);
+            if (record.timings != null) {
+                appendField(out, "timings", record.timings.toLogString());
+            }
+            out.append('}');
+        }
+    };
+
+    abstract void format(AccessLogRecord record, Timestamps timestamps, StringBuilder out);
+
+    /**
+     * Resolves a configured format name, case-insensitively, falling back to {@link #DEFAULT}.
+     */
+    public static AccessLogFormat from(String name) {
+        if (name == null) {
+            return DEFAULT;
+        }
+        for (AccessLogFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        return DEFAULT;
+    }
+
+    private static String orDash(String value) {
+        return value == null || value.isEmpty() ? "-" : value;
+    }
+
+    private static void appendField(StringBuilder out, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Clock strings cached per second; log lines within the same second reuse the formatted value.
+     * Confined to the writer thread.
+     */
+    static final class Timestamps {
+        private static final DateTimeFormatter CLF = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+        private static final DateTimeFormatter ISO_SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+        private static final DateTimeFormatter OFFSET = DateTimeFormatter.ofPattern("XXX");
+
+        private final ZoneId zone;
+        private long second = Long.MIN_VALUE;
+        private String clf;
+        private String isoSeconds;
+        private String offset;
+
+        Timestamps(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        String clf(long millis) {
+            update(millis);
+            return clf;
+        }
+
+        void appendIso(long millis, StringBuilder out) {
+            update(millis);
+            int fraction = (int) Math.floorMod(millis, 1000L);
+            out.append(isoSeconds).append('.');
+            if (fraction < 100) {
+                out.append('0');
+            }
+            if (fraction < 10) {
+                out.append('0');
+            }
+            out.append(fraction).append(offset);
+        }
+
+        private void update(long millis) {
+            long currentSecond = Math.floorDiv(millis, 1000L);
+            if (currentSecond == second) {
+                return;
+            }
+            ZonedDateTime time = Instant.ofEpochSecond(currentSecond).atZone(zone);
+            clf = CLF.format(time);
+            isoSeconds = ISO_SECONDS.format(time);
+            offset = OFFSET.format(time);
+            second = currentSecond;
+        }
+    }
+}
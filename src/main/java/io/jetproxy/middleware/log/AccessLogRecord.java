@@ -0,0 +1,42 @@
+package io.jetproxy.middleware.log;
+
+import io.jetproxy.middleware.metric.RequestTimings;
+
+/**
+ * One access log entry. Instances are preallocated by the ring buffer and reused: a request thread
+ * copies the values it needs out of the request, the writer thread formats them and clears the slot.
+ */
+final class AccessLogRecord {
+    long timestampMillis;
+    String remoteAddr;
+    String user;
+    String method;
+    String uri;
+    String query;
+    String protocol;
+    int status;
+    long bytes;
+    String referrer;
+    String userAgent;
+    long durationMillis;
+    String route;
+    boolean cached;
+    String mirroring;
+    String traceId;
+    RequestTimings timings;
+
+    void clear() {
+        remoteAddr = null;
+        user = null;
+        method = null;
+        uri = null;
+        query = null;
+        protocol = null;
+        referrer = null;
+        userAgent = null;
+        route = null;
+        mirroring = null;
+        traceId = null;
+        timings = null;
+    }
+}
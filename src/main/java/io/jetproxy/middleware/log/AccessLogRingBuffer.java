@@ -0,0 +1,95 @@
+package io.jetproxy.middleware.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated {@link AccessLogRecord}s.
+ * <p>
+ * Every slot carries a sequence number. A producer owns position {@code p} once it moves the tail
+ * past it, fills the record and publishes it by setting the slot sequence to {@code p + 1}; the
+ * consumer reads published slots in order and hands them back by setting the sequence to
+ * {@code p + capacity}. Claiming never blocks: when the slot at the tail is still in use the ring is
+ * full and {@link #tryClaim()} returns -1.
+ */
+final class AccessLogRingBuffer {
+    private final AccessLogRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AccessLogRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(1, requestedCapacity - 1)) << 1;
+        this.records = new AccessLogRecord[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            records[i] = new AccessLogRecord();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Claims the next slot, or returns -1 if the ring is full.
+     */
+    long tryClaim() {
+        while (true) {
+            long position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (sequence < position) {
+                return -1;
+            }
+            // Another producer claimed this position first, retry with the new tail
+        }
+    }
+
+    AccessLogRecord get(long position) {
+        return records[(int) position & mask];
+    }
+
+    void publish(long position) {
+        sequences.lazySet((int) position & mask, position + 1);
+    }
+
+    /**
+     * Passes up to {@code max} published records, in claim order, to {@code consumer}. Must only be
+     * called from the consumer thread.
+     */
+    int drain(Consumer<AccessLogRecord> consumer, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            try {
+                consumer.accept(records[slot]);
+            } finally {
+                records[slot].clear();
+                sequences.lazySet(slot, position + records.length);
+                position++;
+                head = position;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return records.length;
+    }
+
+    /**
+     * Returns the number of claimed slots not yet consumed.
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
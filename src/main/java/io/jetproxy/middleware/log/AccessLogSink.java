@@ -0,0 +1,119 @@
+package io.jetproxy.middleware.log;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Destination of formatted access log lines. Only used from the writer thread, so implementations
+ * buffer freely and write through on {@link #flush()}.
+ */
+public interface AccessLogSink extends Closeable {
+
+    void write(CharSequence line) throws IOException;
+
+    void flush() throws IOException;
+
+    /**
+     * Writes to standard output, bypassing the synchronized {@link System#out} stream.
+     */
+    class Console implements AccessLogSink {
+        private final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 64 * 1024);
+
+        @Override
+        public void write(CharSequence line) throws IOException {
+            writer.append(line).append('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Standard output stays open for the rest of the process
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes to a file and rolls it over once it reaches {@code maxFileSize}: {@code access.log}
+     * becomes {@code access.log.1}, the previous {@code .1} becomes {@code .2}, and so on up to
+     * {@code maxFiles}. The size is tracked in characters, which equals bytes for ASCII lines.
+     */
+    class RollingFile implements AccessLogSink {
+        private final Path file;
+        private final long maxFileSize;
+        private final int maxFiles;
+        private Writer writer;
+        private long size;
+
+        public RollingFile(Path file, long maxFileSize, int maxFiles) throws IOException {
+            this.file = file;
+            this.maxFileSize = maxFileSize;
+            this.maxFiles = Math.max(0, maxFiles);
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            open();
+        }
+
+        @Override
+        public void write(CharSequence line) throws IOException {
+            if (maxFileSize > 0 && size > 0 && size + line.length() + 1 > maxFileSize) {
+                rotate();
+            }
+            writer.append(line).append('\n');
+            size += line.length() + 1;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
+        private void open() throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 64 * 1024);
+            size = Files.size(file);
+        }
+
+        private void rotate() throws IOException {
+            writer.close();
+            if (maxFiles == 0) {
+                Files.delete(file);
+            } else {
+                Files.deleteIfExists(rotated(maxFiles));
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    Path source = rotated(i);
+                    if (Files.exists(source)) {
+                        Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            open();
+        }
+
+        private Path rotated(int index) {
+            return file.resolveSibling(file.getFileName() + "." + index);
+        }
+    }
+}
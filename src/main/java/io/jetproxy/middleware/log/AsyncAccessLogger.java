@@ -0,0 +1,237 @@
+package io.jetproxy.middleware.log;
+
+import io.jetproxy.context.AppConfig;
+import io.jetproxy.middleware.metric.MetricsRegistry;
+import io.jetproxy.service.appConfig.servlet.LogStreamServlet;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log pipeline that keeps formatting and I/O off request threads.
+ * <p>
+ * Request threads claim a preallocated record in a lock-free ring, copy the request values into it
+ * and publish it. A single writer thread drains the ring in batches, formats each record with a
+ * per-second cached clock, writes it to the sink and forwards it to live log stream clients, then
+ * flushes once the ring is empty. When the ring is full the record is either dropped or the request
+ * thread waits for a free slot, depending on the {@link OverflowPolicy}; both outcomes are counted.
+ */
+@Slf4j
+public class AsyncAccessLogger implements Closeable {
+    public static final String RECORDS = "jetproxy_access_log_records_total";
+    public static final String BLOCKED = "jetproxy_access_log_blocked_total";
+    public static final String QUEUE_SIZE = "jetproxy_access_log_queue_size";
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    public enum OverflowPolicy {
+        /** Discard the record and let the request complete immediately. */
+        DROP,
+        /** Make the request thread wait until the writer frees a slot. */
+        BLOCK;
+
+        public static OverflowPolicy from(String name) {
+            return "block".equalsIgnoreCase(name == null ? null : name.trim()) ? BLOCK : DROP;
+        }
+    }
+
+    private final AccessLogRingBuffer ring;
+    private final AccessLogFormat format;
+    private final AccessLogSink sink;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final AccessLogFormat.Timestamps timestamps;
+    private final StringBuilder line = new StringBuilder(512);
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long written;
+    private boolean unflushed;
+    private volatile boolean running = true;
+    private Thread writer;
+
+    AsyncAccessLogger(int bufferSize, AccessLogFormat format, AccessLogSink sink,
+                      OverflowPolicy overflowPolicy, int batchSize, ZoneId zone) {
+        this.ring = new AccessLogRingBuffer(bufferSize);
+        this.format = format;
+        this.sink = sink;
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = Math.max(1, batchSize);
+        this.timestamps = new AccessLogFormat.Timestamps(zone);
+    }
+
+    /**
+     * Creates and starts the logger described by {@code logging.accessLog}, registering its counters
+     * with the metrics registry. A missing section uses the defaults: console output in the default
+     * format.
+     */
+    public static AsyncAccessLogger create(AppConfig.Logging logging) {
+        AppConfig.AccessLogConfig config = logging != null && logging.getAccessLog() != null
+                ? logging.getAccessLog() : new AppConfig.AccessLogConfig();
+        AccessLogSink sink = new AccessLogSink.Console();
+        if ("file".equalsIgnoreCase(config.getOutput())) {
+            try {
+                sink = new AccessLogSink.RollingFile(Path.of(config.getFile()), config.getMaxFileSize(), config.getMaxFiles());
+            } catch (IOException e) {
+                log.error("Cannot open access log file {}, writing to the console instead: {}", config.getFile(), e.getMessage());
+            }
+        }
+        AsyncAccessLogger accessLogger = new AsyncAccessLogger(config.getBufferSize(), AccessLogFormat.from(config.getFormat()),
+                sink, OverflowPolicy.from(config.getOverflowPolicy()), config.getBatchSize(), ZoneId.systemDefault());
+        accessLogger.registerMetrics(MetricsRegistry.get());
+        accessLogger.start();
+        return accessLogger;
+    }
+
+    synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::runWriter, "jetproxy-access-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void registerMetrics(MetricsRegistry registry) {
+        String help = "Access log records by outcome";
+        registry.registerGauge(RECORDS, help, "counter", () -> written, "result", "written");
+        registry.registerGauge(RECORDS, help, "counter", dropped::sum, "result", "dropped");
+        registry.registerGauge(RECORDS, help, "counter", failed::sum, "result", "failed");
+        registry.registerGauge(BLOCKED, "Access log records that waited for buffer space", "counter", blocked::sum);
+        registry.registerGauge(QUEUE_SIZE, "Access log records waiting for the writer", "gauge", ring::size);
+    }
+
+    /**
+     * Claims a record for the calling request thread. Returns -1 when the record is dropped; otherwise
+     * the caller fills {@link #record(long)} and must call {@link #publish(long)}.
+     */
+    long claim() {
+        long sequence = ring.tryClaim();
+        if (sequence >= 0) {
+            return sequence;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP || !running) {
+            dropped.increment();
+            return -1;
+        }
+        blocked.increment();
+        while ((sequence = ring.tryClaim()) < 0) {
+            if (!running) {
+                dropped.increment();
+                return -1;
+            }
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
+        return sequence;
+    }
+
+    AccessLogRecord record(long sequence) {
+        return ring.get(sequence);
+    }
+
+    void publish(long sequence) {
+        ring.publish(sequence);
+    }
+
+    /**
+     * Writes up to one batch of published records. Called by the writer thread, or directly by tests
+     * on a logger that was never started.
+     */
+    int drain() {
+        return ring.drain(this::write, batchSize);
+    }
+
+    private void write(AccessLogRecord record) {
+        line.setLength(0);
+        try {
+            format.format(record, timestamps, line);
+            sink.write(line);
+            written++;
+            unflushed = true;
+        } catch (Exception e) {
+            failed.increment();
+            log.debug("Failed to write access log record: {}", e.getMessage());
+            return;
+        }
+        if (LogStreamServlet.hasClients()) {
+            LogStreamServlet.broadcast(record.route, record.status, record.durationMillis, line);
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            if (drain() == 0) {
+                flushSink();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        while (drain() > 0) {
+            // Write what was published before shutdown
+        }
+        flushSink();
+    }
+
+    private void flushSink() {
+        if (!unflushed) {
+            return;
+        }
+        unflushed = false;
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            log.debug("Failed to flush access log: {}", e.getMessage());
+        }
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public int getQueueSize() {
+        return ring.size();
+    }
+
+    /**
+     * Stops accepting records, writes what is already buffered and closes the sink.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Thread current;
+        synchronized (this) {
+            current = writer;
+        }
+        if (current != null) {
+            try {
+                current.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            while (drain() > 0) {
+                // Not started: drain on the caller
+            }
+            flushSink();
+        }
+        sink.close();
+    }
+}
@@ -1,11 +1,12 @@
 package io.jetproxy.middleware.metric;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 
-public class CompositeMetricsListener implements MetricsListener {
+public class CompositeMetricsListener implements MetricsListener, Closeable {
 
     private final List<MetricsListener> listeners;
 
@@ -14,10 +15,19 @@ public class CompositeMetricsListener implements MetricsListener {
     }
 
     @Override
-    public void captureMetricProxyResponse(HttpServletRequest request, HttpServletResponse response) {
+    public void captureMetricProxyResponse(HttpServletRequest request, int statusCode) {
         for (MetricsListener listener : listeners) {
-            listener.captureMetricProxyResponse(request, response);
+            listener.captureMetricProxyResponse(request, statusCode);
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public void close() throws IOException {
+        for (MetricsListener listener : listeners) {
+            if (listener instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+}
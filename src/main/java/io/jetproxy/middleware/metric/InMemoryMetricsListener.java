@@ -1,67 +1,164 @@
 package io.jetproxy.middleware.metric;
 
+import io.jetproxy.util.RequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.Map;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
 
+/**
+ * Bounded in-memory time series of request counts per route.
+ * <p>
+ * Each route owns a ring of per-minute buckets covering the retention window; a slot is reused
+ * once its minute falls out of the window, so memory per route is fixed. Series are keyed by the
+ * configured route, not the request URI, and once {@code maxRoutes} series exist, any further
+ * route is counted in the {@link #OVERFLOW_ROUTE} series. Status codes are kept per class
+ * (1xx..5xx) to keep buckets fixed-size.
+ */
 @Slf4j
 public class InMemoryMetricsListener implements MetricsListener {
-    private final ConcurrentHashMap<String, ConcurrentHashMap<LocalDateTime, MetricData>> metrics = new ConcurrentHashMap<>();
+    public static final String OVERFLOW_ROUTE = "__overflow__";
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
-    @Data
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+    private final int retentionMinutes;
+    private final int maxRoutes;
+    private final LongSupplier clock;
+
+    public InMemoryMetricsListener(int retentionMinutes, int maxRoutes) {
+        this(retentionMinutes, maxRoutes, System::currentTimeMillis);
+    }
+
+    InMemoryMetricsListener(int retentionMinutes, int maxRoutes, LongSupplier clock) {
+        this.retentionMinutes = Math.max(1, retentionMinutes);
+        this.maxRoutes = Math.max(1, maxRoutes);
+        this.clock = clock;
+    }
+
+    /**
+     * Counts of one route during one minute.
+     */
     public static class MetricData {
-        private final ConcurrentHashMap<Integer, AtomicInteger> statusCodeCounters = new ConcurrentHashMap<>();
-        private final AtomicInteger hitCount = new AtomicInteger();
+        private final LocalDateTime minute;
+        private final long[] statusClassCounts;
 
-        public void increment(int statusCode) {
-            statusCodeCounters.computeIfAbsent(statusCode, code -> new AtomicInteger()).incrementAndGet();
-            hitCount.incrementAndGet();
+        MetricData(LocalDateTime minute, long[] statusClassCounts) {
+            this.minute = minute;
+            this.statusClassCounts = statusClassCounts;
         }
 
-        public int getStatusCodeCount(int statusCode) {
-            return statusCodeCounters.getOrDefault(statusCode, new AtomicInteger(0)).get();
+        public LocalDateTime getMinute() {
+            return minute;
         }
 
-        public int getTotal() {
-            return statusCodeCounters.values().stream().mapToInt(AtomicInteger::get).sum();
+        /**
+         * Returns the count of the status class of {@code statusCode}, e.g. 404 returns all 4xx.
+         */
+        public long getStatusClassCount(int statusCode) {
+            return statusClassCounts[statusClass(statusCode)];
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long count : statusClassCounts) {
+                total += count;
+            }
+            return total;
         }
     }
 
-    @Override
-    public void captureMetricProxyResponse(HttpServletRequest request, HttpServletResponse response) {
-        String path = request.getRequestURI();
-        String queryParams = request.getQueryString();
-        String fullPath = queryParams == null ? path : path + "?" + queryParams;
-        int statusCode = response.getStatus();
+    private record Bucket(long minute, AtomicLongArray statusClassCounts) {
+    }
 
-        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+    private static class Series {
+        private final AtomicReferenceArray<Bucket> buckets;
 
-        // Record metrics for the current date and hour
-        metrics.computeIfAbsent(fullPath, k -> new ConcurrentHashMap<>())
-                .computeIfAbsent(currentHour, k -> new MetricData())
-                .increment(statusCode);
+        Series(int retentionMinutes) {
+            this.buckets = new AtomicReferenceArray<>(retentionMinutes);
+        }
 
-        log.debug("Captured response for {} at {} -> Status: {}, Total Count: {}",
-                fullPath, currentHour, statusCode, metrics.get(fullPath).get(currentHour).getTotal());
+        void increment(long minute, int statusClass) {
+            int slot = (int) (minute % buckets.length());
+            Bucket bucket = buckets.get(slot);
+            while (bucket == null || bucket.minute() != minute) {
+                if (bucket != null && bucket.minute() > minute) {
+                    return; // The clock went backwards past this slot, drop rather than corrupt newer data
+                }
+                Bucket fresh = new Bucket(minute, new AtomicLongArray(6));
+                if (buckets.compareAndSet(slot, bucket, fresh)) {
+                    bucket = fresh;
+                } else {
+                    bucket = buckets.get(slot);
+                }
+            }
+            bucket.statusClassCounts().incrementAndGet(statusClass);
+        }
     }
 
-    public Map<LocalDateTime, MetricData> getMetricsForPathLast24Hours(String path) {
-        Map<LocalDateTime, MetricData> pathMetrics = metrics.get(path);
-        if (pathMetrics == null) {
-            return Map.of();
+    @Override
+    public void captureMetricProxyResponse(HttpServletRequest request, int statusCode) {
+        long minute = clock.getAsLong() / MINUTE_MILLIS;
+        seriesFor(RequestUtils.getRoute(request)).increment(minute, statusClass(statusCode));
+    }
+
+    /**
+     * Returns the per-minute counts of a route within {@code window}, oldest first. Minutes without
+     * traffic are omitted.
+     */
+    public List<MetricData> getMetrics(String route, Duration window) {
+        Series routeSeries = series.get(route);
+        if (routeSeries == null) {
+            return List.of();
         }
+        long currentMinute = clock.getAsLong() / MINUTE_MILLIS;
+        long minutes = Math.min(retentionMinutes, Math.max(1, window.toMinutes()));
+        List<MetricData> result = new ArrayList<>();
+        for (int slot = 0; slot < routeSeries.buckets.length(); slot++) {
+            Bucket bucket = routeSeries.buckets.get(slot);
+            if (bucket == null || bucket.minute() <= currentMinute - minutes || bucket.minute() > currentMinute) {
+                continue;
+            }
+            long[] counts = new long[bucket.statusClassCounts().length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = bucket.statusClassCounts().get(i);
+            }
+            LocalDateTime minute = LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket.minute() * MINUTE_MILLIS), ZoneId.systemDefault());
+            result.add(new MetricData(minute, counts));
+        }
+        result.sort(Comparator.comparing(MetricData::getMinute));
+        return result;
+    }
 
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(24);
+    public Set<String> getRoutes() {
+        return series.keySet();
+    }
+
+    private Series seriesFor(String route) {
+        Series existing = series.get(route);
+        if (existing != null) {
+            return existing;
+        }
+        if (series.size() >= maxRoutes) {
+            log.debug("Metric series limit of {} reached, counting {} as {}", maxRoutes, route, OVERFLOW_ROUTE);
+            route = OVERFLOW_ROUTE;
+        }
+        return series.computeIfAbsent(route, r -> new Series(retentionMinutes));
+    }
 
-        return pathMetrics.entrySet().stream()
-                .filter(entry -> entry.getKey().isAfter(cutoffTime))
-                .collect(ConcurrentHashMap::new, (map, entry) -> map.put(entry.getKey(), entry.getValue()), ConcurrentHashMap::putAll);
+    private static int statusClass(int statusCode) {
+        int statusClass = statusCode / 100;
+        return statusClass >= 1 && statusClass <= 5 ? statusClass : 0;
     }
 }
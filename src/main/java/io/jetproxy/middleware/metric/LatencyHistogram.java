@@ -0,0 +1,162 @@
+package io.jetproxy.middleware.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the spirit of HdrHistogram.
+ * <p>
+ * Values are recorded in microseconds. Every power of two is split into 16 linear sub-buckets, so
+ * any recorded value is reported with at most ~6% relative error, from 1µs up to more than an hour,
+ * in a fixed 480 slots. Recording is a single atomic increment on one of a few stripes (picked by
+ * thread) so concurrent request threads rarely touch the same cache line; reading sums the stripes.
+ * <p>
+ * Besides the cumulative view used for Prometheus histograms, {@link #rotateInterval()} captures the
+ * counts recorded since the previous rotation, which is what percentiles of recent traffic are
+ * computed from.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 32;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final int STRIPES = Math.min(4, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors())));
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder sumMicros = new LongAdder();
+    private long[] lastIntervalCounts = new long[BUCKET_COUNT];
+    private long lastIntervalSum;
+    private volatile Snapshot recent = new Snapshot(new long[BUCKET_COUNT], 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        long micros = Math.max(0, unit.toMicros(duration));
+        int stripe = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        stripes[stripe].incrementAndGet(bucketIndex(micros));
+        sumMicros.add(micros);
+    }
+
+    /**
+     * Returns everything recorded since the histogram was created.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts, sumMicros.sum());
+    }
+
+    /**
+     * Captures the values recorded since the previous rotation and makes them available through
+     * {@link #getRecent()}. Called periodically off the request path.
+     */
+    public synchronized Snapshot rotateInterval() {
+        Snapshot total = snapshot();
+        long[] interval = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            interval[i] = total.counts[i] - lastIntervalCounts[i];
+        }
+        Snapshot snapshot = new Snapshot(interval, total.sumMicros - lastIntervalSum);
+        lastIntervalCounts = total.counts;
+        lastIntervalSum = total.sumMicros;
+        recent = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Returns the values recorded during the last completed interval.
+     */
+    public Snapshot getRecent() {
+        return recent;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the highest value, in microseconds, that falls into the given bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1L) << shift) - 1;
+    }
+
+    /**
+     * Immutable view of bucket counts.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long sumMicros;
+        private final long count;
+
+        Snapshot(long[] counts, long sumMicros) {
+            this.counts = counts;
+            this.sumMicros = sumMicros;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumMicros() {
+            return sumMicros;
+        }
+
+        /**
+         * Returns the number of values at or below {@code micros}, counted by bucket upper bound.
+         */
+        public long getCountAtOrBelow(long micros) {
+            long total = 0;
+            for (int i = 0; i < counts.length && bucketUpperBound(i) <= micros; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+
+        /**
+         * Returns the value in microseconds below which {@code percentile} percent of the recorded
+         * values fall, or 0 if nothing was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(counts.length - 1);
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package io.jetproxy.middleware.metric;
 
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 
 public interface MetricsListener {
+    /**
+     * Records the outcome of a proxied request. Called on the response path, so implementations
+     * must not block.
+     *
+     * @param request    the client request, carrying the matched route as an attribute
+     * @param statusCode the status code returned to the client
+     */
     void captureMetricProxyResponse(
-            HttpServletRequest request, HttpServletResponse response);
+            HttpServletRequest request, int statusCode);
 
 }
@@ -1,5 +1,13 @@
 package io.jetproxy.middleware.metric;
 
+import io.jetproxy.middleware.cache.Cache;
+import io.jetproxy.middleware.cache.CacheStats;
+import io.jetproxy.middleware.cache.DiskCache;
+import io.jetproxy.middleware.cache.LRUCacheWithTTL;
+import io.jetproxy.middleware.cache.RedisGuard;
+import io.jetproxy.middleware.cache.RedisPoolManager;
+import io.jetproxy.middleware.cache.TieredCache;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.jetproxy.context.AppConfig;
@@ -7,26 +15,76 @@ import io.jetproxy.context.AppConfig;
 import java.util.ArrayList;
 import java.util.List;
 
-@Deprecated
 public class MetricsListenerFactory {
     private static final Logger logger = LoggerFactory.getLogger(MetricsListenerFactory.class);
 
-    public static MetricsListener createMetricsListener(AppConfig config) {
+    public static MetricsListener createMetricsListener(AppConfig config, Cache cache) {
         List<MetricsListener> listeners = new ArrayList<>();
-        AppConfig.Storage.InMemoryConfig inMemoryConfig = config.getStorage().getInMemory();
-        AppConfig.Storage.RedisConfig redisConfig = config.getStorage().getRedis();
 
-        if (inMemoryConfig.isEnabled()) {
-            listeners.add(new InMemoryMetricsListener());
-            logger.info("Metric In Memory Config Enabled");
+        if (config.hasEnableMetrics()) {
+            MetricsRegistry registry = MetricsRegistry.get();
+            registry.start(config.getMetrics().getSnapshotInterval());
+            AppConfig.Metrics.Timings timings = config.getMetrics().getTimings();
+            if (timings != null) {
+                RequestTimings.configure(timings.isEnabled(), timings.getSampleRate(), timings.isServerTimingHeader());
+            }
+            registerCacheGauges(registry, cache, "cache");
+            if (config.hasEnableRedisStorage()) {
+                registerRedisGauges(registry);
+            }
+            listeners.add(new PrometheusMetricsListener(registry));
+            logger.info("Metric Prometheus endpoint Enabled");
         }
 
-        if (redisConfig.isEnabled()) {
-            // TODO redis implement
-            listeners.add(new RedisMetricsListener());
-            logger.info("Metric Redis Config Enabled");
+        if (config.hasEnableInMemoryStorage()) {
+            AppConfig.Storage.InMemoryConfig inMemoryConfig = config.getStorage().getInMemory();
+            listeners.add(new InMemoryMetricsListener(inMemoryConfig.getMetricsRetention(), inMemoryConfig.getMetricsMaxRoutes()));
+            logger.info("Metric In Memory Config Enabled, keeping {} minutes for up to {} routes",
+                    inMemoryConfig.getMetricsRetention(), inMemoryConfig.getMetricsMaxRoutes());
+        }
+
+        if (config.hasEnableRedisStorage()) {
+            AppConfig.Storage.RedisConfig redisConfig = config.getStorage().getRedis();
+            listeners.add(new RedisMetricsListener(redisConfig.getMetricsFlushInterval()));
+            logger.info("Metric Redis Config Enabled, flushing every {} ms", redisConfig.getMetricsFlushInterval());
         }
 
         return new CompositeMetricsListener(listeners);
     }
-}
\ No newline at end of file
+
+    private static void registerCacheGauges(MetricsRegistry registry, Cache cache, String tier) {
+        if (cache instanceof TieredCache tieredCache) {
+            registerTierStats(registry, tieredCache.getL1Stats(), "l1");
+            registerTierStats(registry, tieredCache.getL2Stats(), "l2");
+            registerCacheGauges(registry, tieredCache.getL1(), "l1");
+            registerCacheGauges(registry, tieredCache.getL2(), "l2");
+        } else if (cache instanceof LRUCacheWithTTL lruCache) {
+            registry.registerGauge("jetproxy_cache_entries", "Entries held by a cache tier", "gauge",
+                    lruCache::size, "tier", tier);
+            registry.registerGauge("jetproxy_cache_expired_total", "Entries removed by background expiry", "counter",
+                    lruCache::getExpiredCount, "tier", tier);
+            registry.registerGauge("jetproxy_cache_expiration_lag_seconds", "Average delay between an entry's expiry and its removal", "gauge",
+                    () -> lruCache.getAverageExpirationLagMillis() / 1000.0, "tier", tier);
+        } else if (cache instanceof DiskCache diskCache) {
+            registry.registerGauge("jetproxy_cache_entries", "Entries held by a cache tier", "gauge",
+                    diskCache::size, "tier", tier);
+        }
+    }
+
+    private static void registerTierStats(MetricsRegistry registry, CacheStats stats, String tier) {
+        registry.registerGauge("jetproxy_cache_tier_requests_total", "Lookups served by each tier of a tiered cache", "counter",
+                stats::getHits, "tier", tier, "result", "hit");
+        registry.registerGauge("jetproxy_cache_tier_requests_total", "Lookups served by each tier of a tiered cache", "counter",
+                stats::getMisses, "tier", tier, "result", "miss");
+    }
+
+    private static void registerRedisGauges(MetricsRegistry registry) {
+        RedisGuard guard = RedisPoolManager.getGuard();
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            registry.registerGauge("jetproxy_redis_circuit_breaker_state", "1 for the current state of the Redis circuit breaker", "gauge",
+                    () -> state.name().equals(guard.getState()) ? 1 : 0, "state", state.name());
+        }
+        registry.registerGauge("jetproxy_redis_batcher_queue_size", "Redis commands waiting to be pipelined", "gauge",
+                () -> RedisPoolManager.getBatcher().getQueueSize());
+    }
+}
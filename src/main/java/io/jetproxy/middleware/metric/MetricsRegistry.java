@@ -0,0 +1,292 @@
+package io.jetproxy.middleware.metric;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * In-process metrics of the proxy, exposed in the Prometheus text format.
+ * <p>
+ * The request path only increments striped counters and histogram buckets; everything else
+ * (summing stripes, interval snapshots, formatting) happens when metrics are scraped or on the
+ * snapshot thread.
+ */
+@Slf4j
+public class MetricsRegistry {
+    public static final String REQUESTS = "jetproxy_http_requests";
+    public static final String REQUEST_DURATION = "jetproxy_http_request_duration_seconds";
+    public static final String REQUEST_DURATION_RECENT = "jetproxy_http_request_duration_recent_seconds";
+    public static final String REQUEST_STAGE_DURATION = "jetproxy_http_request_stage_duration_seconds";
+    public static final String CACHE_LOOKUPS = "jetproxy_cache_lookups";
+    public static final String RESILIENCE_REJECTIONS = "jetproxy_resilience_rejections";
+
+    private static final double[] BUCKETS_SECONDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    private static final double[] RECENT_QUANTILES = {0.5, 0.9, 0.95, 0.99};
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, RequestMetrics>> requests = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CounterFamily> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, GaugeFamily> gauges = new ConcurrentHashMap<>();
+    private final EnumMap<RequestTimings.Stage, LatencyHistogram> stageLatencies = new EnumMap<>(RequestTimings.Stage.class);
+    private ScheduledExecutorService snapshotExecutor;
+
+    public MetricsRegistry() {
+        for (RequestTimings.Stage stage : RequestTimings.Stage.values()) {
+            stageLatencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the metrics of a (route, service) pair. Both are bounded by the configuration, so the
+     * number of series is too.
+     */
+    public RequestMetrics requestMetrics(String route, String service) {
+        return requests.computeIfAbsent(route, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(service, s -> new RequestMetrics(route, s));
+    }
+
+    /**
+     * Returns the histogram of one request stage, fed by sampled {@link RequestTimings}.
+     */
+    public LatencyHistogram stageLatency(RequestTimings.Stage stage) {
+        return stageLatencies.get(stage);
+    }
+
+    public void recordCacheLookup(String route, String cache, boolean hit) {
+        counter(CACHE_LOOKUPS, "Cache lookups by result", "route", "cache", "result")
+                .labels(route, cache, hit ? "hit" : "miss").increment();
+    }
+
+    public void recordResilienceRejection(String route, String type) {
+        counter(RESILIENCE_REJECTIONS, "Requests rejected by a resilience middleware", "route", "type")
+                .labels(route, type).increment();
+    }
+
+    /**
+     * Returns the counter family with the given name, creating it on first use. The {@code _total}
+     * suffix is added when rendering.
+     */
+    public CounterFamily counter(String name, String help, String... labelNames) {
+        return counters.computeIfAbsent(name, n -> new CounterFamily(n, help, labelNames));
+    }
+
+    /**
+     * Registers a value read at scrape time, e.g. a queue size or a state owned by another component.
+     *
+     * @param type   Prometheus type, {@code gauge} or {@code counter} for monotonic values
+     * @param labels alternating label names and values
+     */
+    public void registerGauge(String name, String help, String type, DoubleSupplier supplier, String... labels) {
+        gauges.computeIfAbsent(name, n -> new GaugeFamily(n, help, type))
+                .samples.add(new GaugeSample(labels, supplier));
+    }
+
+    /**
+     * Starts rotating the interval snapshots of all histograms.
+     */
+    public synchronized void start(long snapshotIntervalMillis) {
+        if (snapshotExecutor != null || snapshotIntervalMillis <= 0) {
+            return;
+        }
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jetproxy-metrics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleAtFixedRate(this::rotateSnapshots, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void rotateSnapshots() {
+        try {
+            forEachRequestMetrics(metrics -> metrics.getLatency().rotateInterval());
+            stageLatencies.values().forEach(LatencyHistogram::rotateInterval);
+        } catch (Exception e) {
+            log.warn("Failed to rotate metric snapshots: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format, or OpenMetrics when requested.
+     */
+    public void writeTo(Writer writer, boolean openMetrics) throws IOException {
+        List<RequestMetrics> all = new ArrayList<>();
+        forEachRequestMetrics(all::add);
+
+        writeHeader(writer, REQUESTS, "Requests handled by the proxy", "counter");
+        for (RequestMetrics metrics : all) {
+            long[] statusCounts = metrics.getStatusCounts();
+            for (int status = 0; status < statusCounts.length; status++) {
+                if (statusCounts[status] > 0) {
+                    writeSample(writer, REQUESTS + "_total", statusCounts[status],
+                            "route", metrics.getRoute(), "service", metrics.getService(), "code", String.valueOf(status));
+                }
+            }
+        }
+
+        writeHeader(writer, REQUEST_DURATION, "Time from receiving a request until its response is complete", "histogram");
+        for (RequestMetrics metrics : all) {
+            writeHistogram(writer, REQUEST_DURATION, metrics.getLatency().snapshot(),
+                    "route", metrics.getRoute(), "service", metrics.getService());
+        }
+
+        writeHeader(writer, REQUEST_DURATION_RECENT, "Latency percentiles over the last snapshot interval", "gauge");
+        for (RequestMetrics metrics : all) {
+            LatencyHistogram.Snapshot recent = metrics.getLatency().getRecent();
+            for (double quantile : RECENT_QUANTILES) {
+                writeSample(writer, REQUEST_DURATION_RECENT, recent.getValueAtPercentile(quantile * 100) / 1_000_000.0,
+                        "route", metrics.getRoute(), "service", metrics.getService(), "quantile", formatDouble(quantile));
+            }
+        }
+
+        writeHeader(writer, REQUEST_STAGE_DURATION, "Time spent in each stage of sampled requests", "histogram");
+        for (Map.Entry<RequestTimings.Stage, LatencyHistogram> entry : stageLatencies.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            writeHistogram(writer, REQUEST_STAGE_DURATION, snapshot, "stage", entry.getKey().getLabel());
+        }
+
+        for (CounterFamily family : counters.values()) {
+            writeHeader(writer, family.name, family.help, "counter");
+            for (Map.Entry<List<String>, LongAdder> entry : family.values.entrySet()) {
+                writeSample(writer, family.name + "_total", entry.getValue().sum(), interleave(family.labelNames, entry.getKey()));
+            }
+        }
+
+        for (GaugeFamily family : gauges.values()) {
+            boolean counter = "counter".equals(family.type);
+            writeHeader(writer, counter ? stripTotal(family.name) : family.name, family.help, family.type);
+            for (GaugeSample sample : family.samples) {
+                try {
+                    writeSample(writer, family.name, sample.supplier.getAsDouble(), sample.labels);
+                } catch (Exception e) {
+                    log.debug("Failed to read metric {}: {}", family.name, e.getMessage());
+                }
+            }
+        }
+
+        if (openMetrics) {
+            writer.write("# EOF\n");
+        }
+    }
+
+    private void forEachRequestMetrics(Consumer<RequestMetrics> consumer) {
+        requests.values().forEach(byService -> byService.values().forEach(consumer));
+    }
+
+    private static void writeHeader(Writer writer, String name, String help, String type) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static void writeHistogram(Writer writer, String name, LatencyHistogram.Snapshot snapshot, String... labels) throws IOException {
+        String[] bucketLabels = Arrays.copyOf(labels, labels.length + 2);
+        bucketLabels[labels.length] = "le";
+        for (double le : BUCKETS_SECONDS) {
+            bucketLabels[labels.length + 1] = formatDouble(le);
+            writeSample(writer, name + "_bucket", snapshot.getCountAtOrBelow((long) (le * 1_000_000)), bucketLabels);
+        }
+        bucketLabels[labels.length + 1] = "+Inf";
+        writeSample(writer, name + "_bucket", snapshot.getCount(), bucketLabels);
+        writeSample(writer, name + "_sum", snapshot.getSumMicros() / 1_000_000.0, labels);
+        writeSample(writer, name + "_count", snapshot.getCount(), labels);
+    }
+
+    private static void writeSample(Writer writer, String name, double value, String... labels) throws IOException {
+        StringBuilder line = new StringBuilder(name);
+        if (labels.length > 0) {
+            line.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            line.append('}');
+        }
+        line.append(' ').append(formatDouble(value)).append('\n');
+        writer.write(line.toString());
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String stripTotal(String name) {
+        return name.endsWith("_total") ? name.substring(0, name.length() - "_total".length()) : name;
+    }
+
+    private static String[] interleave(String[] names, List<String> values) {
+        String[] labels = new String[names.length * 2];
+        for (int i = 0; i < names.length; i++) {
+            labels[i * 2] = names[i];
+            labels[i * 2 + 1] = i < values.size() ? values.get(i) : "";
+        }
+        return labels;
+    }
+
+    /**
+     * Counters sharing a name and label names.
+     */
+    public static class CounterFamily {
+        private final String name;
+        private final String help;
+        private final String[] labelNames;
+        private final ConcurrentHashMap<List<String>, LongAdder> values = new ConcurrentHashMap<>();
+
+        CounterFamily(String name, String help, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames;
+        }
+
+        public LongAdder labels(String... labelValues) {
+            return values.computeIfAbsent(Arrays.asList(labelValues), key -> new LongAdder());
+        }
+    }
+
+    private static class GaugeFamily {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final List<GaugeSample> samples = new CopyOnWriteArrayList<>();
+
+        GaugeFamily(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private record GaugeSample(String[] labels, DoubleSupplier supplier) {
+    }
+}
@@ -0,0 +1,24 @@
+package io.jetproxy.middleware.metric;
+
+import io.jetproxy.util.Constants;
+import io.jetproxy.util.RequestUtils;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Feeds proxied requests into the {@link MetricsRegistry} exposed at {@code /_jetproxy/metrics}.
+ */
+public class PrometheusMetricsListener implements MetricsListener {
+    private final MetricsRegistry registry;
+
+    public PrometheusMetricsListener(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void captureMetricProxyResponse(HttpServletRequest request, int statusCode) {
+        Object receivedAt = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_RECEIVED_AT);
+        long duration = receivedAt instanceof Long start ? System.nanoTime() - start : -1;
+        registry.requestMetrics(RequestUtils.getRoute(request), RequestUtils.getServiceName(request))
+                .record(statusCode, duration);
+    }
+}
@@ -1,53 +1,158 @@
 package io.jetproxy.middleware.metric;
 
+import io.jetproxy.middleware.cache.RedisCommandBatcher;
+import io.jetproxy.middleware.cache.RedisGuard;
 import io.jetproxy.middleware.cache.RedisPoolManager;
+import io.jetproxy.util.RequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 
-import java.time.LocalDateTime;
+import java.io.Closeable;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Aggregates per-route hit and status counters locally and flushes them to Redis periodically.
+ * <p>
+ * Requests only increment striped {@link LongAdder}s keyed by (route, hour bucket, field). Every
+ * {@code flushInterval} the accumulated deltas are sent as {@code HINCRBY} commands, which the
+ * {@link RedisCommandBatcher} pipelines together, so Redis sees one small batch per node per interval
+ * instead of two commands per request. Since deltas are added, counters of all nodes still sum up
+ * under the same {@code metrics:{route}:{yyyy-MM-dd-HH}} hashes.
+ */
 @Slf4j
-public class RedisMetricsListener implements MetricsListener {
-    private final JedisPool jedisPool;
+public class RedisMetricsListener implements MetricsListener, Closeable {
     private static final DateTimeFormatter DATE_HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
+    private static final String FIELD_HIT_COUNT = "hitCount";
+    private static final String FIELD_STATUS_PREFIX = "status:";
 
-    public RedisMetricsListener() {
-        this.jedisPool = RedisPoolManager.getPool();
+    private record CounterKey(String redisKey, String field, long hourStart) {
     }
 
-    @Override
-    public void captureMetricProxyResponse(HttpServletRequest request, HttpServletResponse response) {
-        String path = request.getRequestURI();
-        String queryParams = request.getQueryString();
-        String fullPath = queryParams == null ? path : path + "?" + queryParams;
-        int statusCode = response.getStatus();
-
-        // Generate Redis key with path and current hour timestamp
-        String currentHourKey = DATE_HOUR_FORMATTER.format(LocalDateTime.now());
-        String redisKey = "metrics:" + fullPath + ":" + currentHourKey;
-
-        // Store metrics in Redis
-        try (Jedis jedis = jedisPool.getResource()) {
-            // Increment the hit count and status code count in Redis
-            jedis.hincrBy(redisKey, "hitCount", 1);
-            jedis.hincrBy(redisKey, "status:" + statusCode, 1);
-
-            // log.info("Captured response for {} -> Status: {}, Redis Key: {}", fullPath, statusCode, redisKey);
+    private record HourBucket(String key, long start, long end) {
+    }
+
+    private final RedisCommandBatcher batcher;
+    private final RedisGuard guard;
+    private final ConcurrentHashMap<CounterKey, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private volatile HourBucket currentHour;
+
+    public RedisMetricsListener(long flushIntervalMillis) {
+        this(RedisPoolManager.getBatcher(), RedisPoolManager.getGuard(), flushIntervalMillis);
+    }
+
+    public RedisMetricsListener(RedisCommandBatcher batcher, RedisGuard guard, long flushIntervalMillis) {
+        this.batcher = batcher;
+        this.guard = guard;
+        this.currentHour = hourBucket(System.currentTimeMillis());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jetproxy-metrics-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMillis > 0) {
+            this.flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
         }
     }
 
-    // Retrieve metrics for a specific path over the last 24 hours
-    public void getMetricsForPathLast24Hours(String path) {
-        LocalDateTime now = LocalDateTime.now();
-        try (Jedis jedis = jedisPool.getResource()) {
-            for (int i = 0; i < 24; i++) {
-                String hourlyKey = "metrics:" + path + ":" + DATE_HOUR_FORMATTER.format(now.minusHours(i));
-                // log.info("Metrics for {}: {}", hourlyKey, jedis.hgetAll(hourlyKey));
+    @Override
+    public void captureMetricProxyResponse(HttpServletRequest request, int statusCode) {
+        HourBucket hour = currentHour(System.currentTimeMillis());
+        String redisKey = "metrics:" + RequestUtils.getRoute(request) + ":" + hour.key();
+        increment(new CounterKey(redisKey, FIELD_HIT_COUNT, hour.start()));
+        increment(new CounterKey(redisKey, FIELD_STATUS_PREFIX + statusCode, hour.start()));
+    }
+
+    /**
+     * Sends the deltas accumulated since the previous flush. While Redis is unhealthy, or when a
+     * command fails, the deltas are kept locally and sent with a later flush.
+     *
+     * @return the number of counters sent to Redis
+     */
+    public int flush() {
+        long previousHourStart = currentHour(System.currentTimeMillis()).start() - TimeUnit.HOURS.toMillis(1);
+        int sent = 0;
+        for (Map.Entry<CounterKey, LongAdder> entry : counters.entrySet()) {
+            CounterKey key = entry.getKey();
+            LongAdder adder = entry.getValue();
+            long delta = adder.sumThenReset();
+            if (delta == 0) {
+                // Buckets older than the previous hour no longer receive increments
+                if (key.hourStart() < previousHourStart) {
+                    counters.remove(key, adder);
+                }
+                continue;
+            }
+            if (guard.submit(() -> batcher.hincrBy(key.redisKey(), key.field(), delta)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            restore(key, delta);
+                        }
+                    }))) {
+                sent++;
+            } else {
+                restore(key, delta);
             }
         }
+        return sent;
+    }
+
+    /**
+     * @return the sum of all increments not yet sent to Redis
+     */
+    public long getPendingCount() {
+        return counters.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        flushSafely();
+    }
+
+    private void increment(CounterKey key) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    // The counter may have been dropped as idle meanwhile, so the delta goes through the map
+    private void restore(CounterKey key, long delta) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    private void flushSafely() {
+        try {
+            int sent = flush();
+            log.debug("Flushed {} metric counters to Redis", sent);
+        } catch (Exception e) {
+            log.warn("Failed to flush metrics to Redis: {}", e.getMessage());
+        }
+    }
+
+    private HourBucket currentHour(long now) {
+        HourBucket hour = currentHour;
+        if (now >= hour.end() || now < hour.start()) {
+            hour = hourBucket(now);
+            currentHour = hour;
+        }
+        return hour;
+    }
+
+    private static HourBucket hourBucket(long now) {
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.HOURS);
+        return new HourBucket(
+                DATE_HOUR_FORMATTER.format(start),
+                start.toInstant().toEpochMilli(),
+                start.plusHours(1).toInstant().toEpochMilli());
     }
 }
@@ -0,0 +1,76 @@
+package io.jetproxy.middleware.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters and latency of one (route, service) pair.
+ */
+public class RequestMetrics {
+    private static final int MAX_STATUS = 600;
+
+    private final String route;
+    private final String service;
+    private final AtomicReferenceArray<LongAdder> statusCounters = new AtomicReferenceArray<>(MAX_STATUS);
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    RequestMetrics(String route, String service) {
+        this.route = route;
+        this.service = service;
+    }
+
+    /**
+     * @param statusCode status returned to the client
+     * @param durationNanos time spent handling the request, or a negative value if unknown
+     */
+    public void record(int statusCode, long durationNanos) {
+        statusCounter(statusCode).increment();
+        if (durationNanos >= 0) {
+            latency.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the request count of a status code; unknown codes are counted as 0.
+     */
+    public long getCount(int statusCode) {
+        LongAdder counter = statusCounters.get(index(statusCode));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    long[] getStatusCounts() {
+        long[] counts = new long[MAX_STATUS];
+        for (int i = 0; i < MAX_STATUS; i++) {
+            LongAdder counter = statusCounters.get(i);
+            counts[i] = counter == null ? 0 : counter.sum();
+        }
+        return counts;
+    }
+
+    private LongAdder statusCounter(int statusCode) {
+        int index = index(statusCode);
+        LongAdder counter = statusCounters.get(index);
+        if (counter == null) {
+            statusCounters.compareAndSet(index, null, new LongAdder());
+            counter = statusCounters.get(index);
+        }
+        return counter;
+    }
+
+    private static int index(int statusCode) {
+        return statusCode > 0 && statusCode < MAX_STATUS ? statusCode : 0;
+    }
+}
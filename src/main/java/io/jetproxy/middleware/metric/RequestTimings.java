@@ -0,0 +1,161 @@
+package io.jetproxy.middleware.metric;
+
+import io.jetproxy.util.Constants;
+import jakarta.servlet.ServletRequest;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timestamps of the stages a sampled request goes through, from authentication to the last byte
+ * of the response.
+ * <p>
+ * Each sampled request carries one instance as an internal request attribute; recording a mark is a
+ * {@link System#nanoTime()} stored into a preallocated slot. Unsampled requests carry a shared
+ * placeholder, so the cost for them is one attribute lookup per mark. Stage durations are derived
+ * from pairs of marks once the request completes and are aggregated into per-stage histograms.
+ */
+public final class RequestTimings {
+
+    public enum Mark {
+        AUTH_START, AUTH_END, SERVICE_START, MIDDLEWARE_END, RESILIENCE_END, HEADERS_END,
+        UPSTREAM_START, UPSTREAM_CONNECTED, UPSTREAM_HEADERS, UPSTREAM_END
+    }
+
+    public enum Stage {
+        AUTH("auth", Mark.AUTH_START, Mark.AUTH_END),
+        MIDDLEWARE("middleware", Mark.SERVICE_START, Mark.MIDDLEWARE_END),
+        RESILIENCE("resilience", Mark.MIDDLEWARE_END, Mark.RESILIENCE_END),
+        HEADERS("headers", Mark.RESILIENCE_END, Mark.HEADERS_END),
+        UPSTREAM_CONNECT("upstream-connect", Mark.UPSTREAM_START, Mark.UPSTREAM_CONNECTED),
+        UPSTREAM_TTFB("upstream-ttfb", Mark.UPSTREAM_CONNECTED, Mark.UPSTREAM_HEADERS),
+        RESPONSE("response", Mark.UPSTREAM_HEADERS, Mark.UPSTREAM_END);
+
+        private final String label;
+        private final Mark from;
+        private final Mark to;
+
+        Stage(String label, Mark from, Mark to) {
+            this.label = label;
+            this.from = from;
+            this.to = to;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final RequestTimings UNSAMPLED = new RequestTimings();
+    private static volatile boolean enabled = false;
+    private static volatile double sampleRate = 0;
+    private static volatile boolean serverTimingHeader = false;
+
+    private final long[] marks = new long[Mark.values().length];
+    private boolean recorded;
+
+    private RequestTimings() {
+    }
+
+    /**
+     * @param enabled            whether any request is timed
+     * @param sampleRate         fraction of requests timed, between 0 and 1
+     * @param serverTimingHeader whether timed requests get a {@code Server-Timing} response header
+     */
+    public static void configure(boolean enabled, double sampleRate, boolean serverTimingHeader) {
+        RequestTimings.enabled = enabled && sampleRate > 0;
+        RequestTimings.sampleRate = sampleRate;
+        RequestTimings.serverTimingHeader = serverTimingHeader;
+    }
+
+    public static boolean isServerTimingHeaderEnabled() {
+        return serverTimingHeader;
+    }
+
+    /**
+     * Decides once per request whether it is sampled. Later calls return the same decision.
+     */
+    public static void begin(ServletRequest request) {
+        if (!enabled || request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_TIMINGS) != null) {
+            return;
+        }
+        boolean sampled = sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        request.setAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_TIMINGS, sampled ? new RequestTimings() : UNSAMPLED);
+    }
+
+    public static void mark(ServletRequest request, Mark mark) {
+        if (!enabled) {
+            return;
+        }
+        RequestTimings timings = get(request);
+        if (timings != null) {
+            timings.marks[mark.ordinal()] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns the timings of a sampled request, or {@code null}.
+     */
+    public static RequestTimings get(ServletRequest request) {
+        Object timings = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_TIMINGS);
+        return timings instanceof RequestTimings sampled && sampled != UNSAMPLED ? sampled : null;
+    }
+
+    /**
+     * Adds the stage durations of a sampled request to the registry. Only the first call per request counts.
+     */
+    public static void finish(ServletRequest request, MetricsRegistry registry) {
+        RequestTimings timings = enabled ? get(request) : null;
+        if (timings == null || timings.recorded) {
+            return;
+        }
+        timings.recorded = true;
+        for (Stage stage : Stage.values()) {
+            long nanos = timings.getNanos(stage);
+            if (nanos >= 0) {
+                registry.stageLatency(stage).record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Returns the duration of a stage, or -1 if the request did not go through it.
+     */
+    public long getNanos(Stage stage) {
+        long start = marks[stage.from.ordinal()];
+        long end = marks[stage.to.ordinal()];
+        return start == 0 || end == 0 || end < start ? -1 : end - start;
+    }
+
+    /**
+     * Formats the stages completed so far as a {@code Server-Timing} header value, e.g.
+     * {@code auth;dur=0.412, middleware;dur=0.051}.
+     */
+    public String toServerTiming() {
+        return format(";dur=", ", ", "");
+    }
+
+    /**
+     * Formats the stages for the access log, e.g. {@code auth=0.412ms middleware=0.051ms}.
+     */
+    public String toLogString() {
+        return format("=", " ", "ms");
+    }
+
+    private String format(String separator, String delimiter, String unit) {
+        StringBuilder builder = new StringBuilder(128);
+        for (Stage stage : Stage.values()) {
+            long nanos = getNanos(stage);
+            if (nanos < 0) {
+                continue;
+            }
+            if (!builder.isEmpty()) {
+                builder.append(delimiter);
+            }
+            builder.append(stage.label).append(separator)
+                    .append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0)).append(unit);
+        }
+        return builder.toString();
+    }
+}
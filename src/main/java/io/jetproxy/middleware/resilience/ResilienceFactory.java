@@ -2,20 +2,40 @@ package io.jetproxy.middleware.resilience;
 
 import io.jetproxy.context.AppConfig;
 import io.jetproxy.logger.DebugAwareLogger;
+import io.jetproxy.middleware.cache.RedisPoolManager;
+import io.jetproxy.middleware.metric.MetricsRegistry;
+import io.jetproxy.middleware.resilience.hedge.Hedging;
+import io.jetproxy.middleware.resilience.hedge.HedgingConfig;
 import io.jetproxy.middleware.resilience.retry.Retry;
 import io.jetproxy.middleware.resilience.retry.RetryConfig;
+import io.jetproxy.middleware.resilience.bulkhead.Bulkhead;
+import io.jetproxy.middleware.resilience.bulkhead.BulkheadConfig;
+import io.jetproxy.middleware.resilience.bulkhead.BulkheadRegistry;
 import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
 import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreakerConfig;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreakerRegistry;
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiter;
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiterConfig;
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiterRegistry;
+import io.jetproxy.middleware.resilience.ratelimiter.DistributedRateLimiter;
+import io.jetproxy.middleware.resilience.ratelimiter.KeyedRateLimiter;
+import io.jetproxy.middleware.resilience.ratelimiter.RateLimitKeyResolver;
 import io.jetproxy.middleware.resilience.ratelimiter.RateLimiter;
 import io.jetproxy.middleware.resilience.ratelimiter.RateLimiterConfig;
 
 import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Factory for creating resilience components (Circuit Breaker, Retry, RateLimiter, Bulkhead).
+ * Factory for creating resilience components (Circuit Breaker, Retry, Hedging, RateLimiter, Bulkhead,
+ * adaptive concurrency limit).
  */
 public class ResilienceFactory {
     private static final DebugAwareLogger logger = DebugAwareLogger.getLogger(ResilienceFactory.class);
+    // Bulkheads scoped to a service are shared by every route sending to it
+    private static final ConcurrentHashMap<String, Bulkhead> serviceBulkheads = new ConcurrentHashMap<>();
+    // Adaptive concurrency limits are always per service and shared by every route sending to it
+    private static final ConcurrentHashMap<String, ConcurrencyLimiter> serviceConcurrencyLimiters = new ConcurrentHashMap<>();
 
     /**
      * Creates a CircuitBreaker instance.
@@ -25,16 +45,38 @@ public class ResilienceFactory {
      * @return the CircuitBreaker instance
      */
     public static CircuitBreaker createCircuitBreaker(String name, AppConfig.CircuitBreaker cbConfig) {
-        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+        return new CircuitBreaker(name, createCircuitBreakerConfig(cbConfig));
+    }
+
+    /**
+     * Creates the registry holding the circuit breakers of one route, one per route or per upstream
+     * endpoint depending on the configured scope.
+     *
+     * @param name     the name prefix of the CircuitBreakers
+     * @param cbConfig the CircuitBreaker configuration from AppConfig
+     * @return the CircuitBreakerRegistry instance
+     */
+    public static CircuitBreakerRegistry createCircuitBreakerRegistry(String name, AppConfig.CircuitBreaker cbConfig) {
+        return new CircuitBreakerRegistry(name, createCircuitBreakerConfig(cbConfig));
+    }
+
+    /**
+     * Maps the CircuitBreaker section of AppConfig to a CircuitBreakerConfig.
+     *
+     * @param cbConfig the CircuitBreaker configuration from AppConfig
+     * @return the CircuitBreakerConfig instance
+     */
+    public static CircuitBreakerConfig createCircuitBreakerConfig(AppConfig.CircuitBreaker cbConfig) {
+        return CircuitBreakerConfig.custom()
                 .failureRateThreshold(cbConfig.getFailureThreshold())
                 .slowCallRateThreshold(cbConfig.getSlowCallThreshold())
                 .slowCallDurationThreshold(Duration.ofMillis(cbConfig.getSlowCallDuration()))
                 .waitDurationInOpenState(Duration.ofMillis(cbConfig.getWaitDurationInOpenState()))
                 .permittedNumberOfCallsInHalfOpenState(cbConfig.getPermittedNumberOfCallsInHalfOpenState())
                 .minimumNumberOfCalls(cbConfig.getMinimumNumberOfCalls())
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.from(cbConfig.getSlidingWindowType()))
+                .slidingWindowSize(cbConfig.getSlidingWindowSize())
                 .build();
-
-        return new CircuitBreaker(name, config);
     }
 
     /**
@@ -48,11 +90,35 @@ public class ResilienceFactory {
         RetryConfig config = RetryConfig.custom()
                 .maxAttempts(retryConfig.getMaxAttempts())
                 .waitDuration(Duration.ofMillis(retryConfig.getWaitDuration()))
+                .maxWaitDuration(Duration.ofMillis(retryConfig.getMaxWaitDuration()))
+                .retryOnStatus(retryConfig.getRetryOnStatus())
+                .methods(retryConfig.getMethods())
+                .budgetPercent(retryConfig.getBudgetPercent())
+                .budgetMinRetries(retryConfig.getBudgetMinRetries())
                 .build();
 
         return new Retry(name, config);
     }
 
+    /**
+     * Creates a Hedging instance.
+     *
+     * @param name          the name of the Hedging
+     * @param hedgingConfig the Hedging configuration from AppConfig
+     * @return the Hedging instance
+     */
+    public static Hedging createHedging(String name, AppConfig.Hedging hedgingConfig) {
+        HedgingConfig config = HedgingConfig.custom()
+                .delay(Duration.ofMillis(hedgingConfig.getDelay()))
+                .percentile(hedgingConfig.getPercentile())
+                .minDelay(Duration.ofMillis(hedgingConfig.getMinDelay()))
+                .methods(hedgingConfig.getMethods())
+                .budgetPercent(hedgingConfig.getBudgetPercent())
+                .budgetMinHedges(hedgingConfig.getBudgetMinHedges())
+                .build();
+        return new Hedging(name, config);
+    }
+
     /**
      * Creates a RateLimiter instance.
      *
@@ -70,6 +136,80 @@ public class ResilienceFactory {
         return new RateLimiter(config);
     }
 
+    /**
+     * Creates a RateLimiter whose bucket is shared through Redis by every node serving the route.
+     *
+     * @param route    the path of the route, which names the bucket in Redis
+     * @param rlConfig the RateLimiter configuration from AppConfig
+     * @return the DistributedRateLimiter instance
+     */
+    public static DistributedRateLimiter createDistributedRateLimiter(String route, AppConfig.RateLimiter rlConfig) {
+        RateLimiterConfig config = RateLimiterConfig.custom()
+                .limitRefreshPeriod(Duration.ofMillis(rlConfig.getLimitRefreshPeriod()))
+                .limitForPeriod(rlConfig.getLimitForPeriod())
+                .maxBurstCapacity(rlConfig.getMaxBurstCapacity())
+                .leaseSize(rlConfig.getLeaseSize())
+                .build();
+
+        return new DistributedRateLimiter("ratelimit:" + route, config,
+                RedisPoolManager.getBatcher(), RedisPoolManager.getGuard());
+    }
+
+    /**
+     * Creates a RateLimiter keeping one bucket per client key, as configured by {@code keyBy}.
+     *
+     * @param rlConfig the RateLimiter configuration from AppConfig
+     * @return the KeyedRateLimiter instance
+     */
+    public static KeyedRateLimiter createKeyedRateLimiter(AppConfig.RateLimiter rlConfig) {
+        RateLimiterConfig config = RateLimiterConfig.custom()
+                .limitRefreshPeriod(Duration.ofMillis(rlConfig.getLimitRefreshPeriod()))
+                .limitForPeriod(rlConfig.getLimitForPeriod())
+                .maxBurstCapacity(rlConfig.getMaxBurstCapacity())
+                .maxKeys(rlConfig.getMaxKeys())
+                .build();
+
+        return new KeyedRateLimiter(config, RateLimitKeyResolver.from(rlConfig.getKeyBy()));
+    }
+
+    /**
+     * Creates the registry holding the bulkheads of one route: a single bulkhead for the route, or
+     * the bulkheads shared per upstream service depending on the configured scope.
+     *
+     * @param bhConfig the Bulkhead configuration from AppConfig
+     * @return the BulkheadRegistry instance
+     */
+    public static BulkheadRegistry createBulkheadRegistry(AppConfig.Bulkhead bhConfig) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(bhConfig.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ofMillis(bhConfig.getMaxWaitDuration()))
+                .maxWaitingCalls(bhConfig.getMaxWaitingCalls())
+                .build();
+        if (bhConfig.isPerService()) {
+            return new BulkheadRegistry("service", config, serviceBulkheads);
+        }
+        return new BulkheadRegistry("route", config);
+    }
+
+    /**
+     * Creates the registry of adaptive concurrency limiters, one per upstream service.
+     *
+     * @param acConfig the AdaptiveConcurrency configuration from AppConfig
+     * @return the ConcurrencyLimiterRegistry instance
+     */
+    public static ConcurrencyLimiterRegistry createConcurrencyLimiterRegistry(AppConfig.AdaptiveConcurrency acConfig) {
+        ConcurrencyLimiterConfig config = ConcurrencyLimiterConfig.custom()
+                .algorithm(ConcurrencyLimiterConfig.Algorithm.from(acConfig.getAlgorithm()))
+                .initialLimit(acConfig.getInitialLimit())
+                .minLimit(acConfig.getMinLimit())
+                .maxLimit(acConfig.getMaxLimit())
+                .backoffRatio(acConfig.getBackoffRatio())
+                .tolerance(acConfig.getTolerance())
+                .smoothing(acConfig.getSmoothing())
+                .build();
+        return new ConcurrencyLimiterRegistry(config, serviceConcurrencyLimiters);
+    }
+
     /**
      * Creates a composite resilience configuration with all components.
      *
@@ -82,18 +222,75 @@ public class ResilienceFactory {
         }
         AppConfig.Middleware middleware = proxy.getMiddleware();
 
-        CircuitBreaker circuitBreaker = middleware.hasCircuitBreaker()
-                ? createCircuitBreaker("resilience::circuitbreaker::" + proxy.getUuid(), middleware.getCircuitBreaker())
+        CircuitBreakerRegistry circuitBreakers = middleware.hasCircuitBreaker()
+                ? createCircuitBreakerRegistry("resilience::circuitbreaker::" + proxy.getUuid(), middleware.getCircuitBreaker())
                 : null;
+        boolean circuitBreakerPerEndpoint = middleware.hasCircuitBreaker() && middleware.getCircuitBreaker().isPerEndpoint();
 
         Retry retry = middleware.hasRetry()
                 ? createRetry("resilience::retry::" + proxy.getUuid(), middleware.getRetry())
                 : null;
+        if (retry != null) {
+            MetricsRegistry registry = MetricsRegistry.get();
+            registry.registerGauge("jetproxy_retries_total", "Upstream requests sent again by the retry middleware",
+                    "counter", retry::getRetriedCount, "route", proxy.getPath());
+            registry.registerGauge("jetproxy_retry_budget_exhausted_total", "Retries skipped because the route's retry budget was spent",
+                    "counter", retry::getBudgetExhaustedCount, "route", proxy.getPath());
+        }
+
+        Hedging hedging = middleware.hasHedging()
+                ? createHedging("resilience::hedging::" + proxy.getUuid(), middleware.getHedging())
+                : null;
+        if (hedging != null) {
+            MetricsRegistry registry = MetricsRegistry.get();
+            registry.registerGauge("jetproxy_hedges_total", "Upstream requests sent a second time by the hedging middleware",
+                    "counter", hedging::getHedgedCount, "route", proxy.getPath());
+            registry.registerGauge("jetproxy_hedge_wins_total", "Hedges whose response was forwarded instead of the original's",
+                    "counter", hedging::getWonCount, "route", proxy.getPath());
+            registry.registerGauge("jetproxy_hedge_budget_exhausted_total", "Hedges skipped because the route's hedging budget was spent",
+                    "counter", hedging::getBudgetExhaustedCount, "route", proxy.getPath());
+            registry.registerGauge("jetproxy_hedge_extra_load_ratio", "Share of the route's requests sent twice",
+                    "gauge", hedging::getExtraLoad, "route", proxy.getPath());
+            registry.registerGauge("jetproxy_hedge_delay_ms", "Time the route waits for the upstream before hedging, -1 until observed",
+                    "gauge", hedging::getDelayMillis, "route", proxy.getPath());
+        }
+
+        boolean keyedRateLimit = middleware.hasRateLimiter() && middleware.getRateLimiter().isKeyed();
+        RateLimiter rateLimiter = null;
+        if (middleware.hasRateLimiter() && !keyedRateLimit) {
+            if (middleware.getRateLimiter().isDistributed()) {
+                DistributedRateLimiter distributed = createDistributedRateLimiter(proxy.getPath(), middleware.getRateLimiter());
+                MetricsRegistry registry = MetricsRegistry.get();
+                registry.registerGauge("jetproxy_rate_limit_leased_tokens", "Tokens leased from Redis not yet spent by this node",
+                        "gauge", distributed::getLeasedTokens, "route", proxy.getPath());
+                registry.registerGauge("jetproxy_rate_limit_fallback_total", "Requests limited locally because Redis was unavailable",
+                        "counter", distributed::getFallbackCount, "route", proxy.getPath());
+                rateLimiter = distributed;
+            } else {
+                rateLimiter = createRateLimiter("resilience::ratelimiter::" + proxy.getUuid(), middleware.getRateLimiter());
+            }
+        }
+        KeyedRateLimiter keyedRateLimiter = keyedRateLimit
+                ? createKeyedRateLimiter(middleware.getRateLimiter())
+                : null;
+        if (keyedRateLimiter != null) {
+            MetricsRegistry registry = MetricsRegistry.get();
+            registry.registerGauge("jetproxy_rate_limit_keys", "Client keys holding a rate limit bucket",
+                    "gauge", keyedRateLimiter::size, "route", proxy.getPath());
+            registry.registerGauge("jetproxy_rate_limit_overflow_total", "Requests of new client keys limited on the shared overflow bucket",
+                    "counter", keyedRateLimiter::getOverflowCount, "route", proxy.getPath());
+        }
+
+        BulkheadRegistry bulkheads = middleware.hasBulkHead()
+                ? createBulkheadRegistry(middleware.getBulkhead())
+                : null;
+        boolean bulkheadPerService = middleware.hasBulkHead() && middleware.getBulkhead().isPerService();
 
-        RateLimiter rateLimiter = middleware.hasRateLimiter()
-                ? createRateLimiter("resilience::ratelimiter::" + proxy.getUuid(), middleware.getRateLimiter())
+        ConcurrencyLimiterRegistry concurrencyLimiters = middleware.hasAdaptiveConcurrency()
+                ? createConcurrencyLimiterRegistry(middleware.getAdaptiveConcurrency())
                 : null;
 
-        return new ResilienceUtil(circuitBreaker, retry, rateLimiter);
+        return new ResilienceUtil(circuitBreakers, circuitBreakerPerEndpoint, retry, hedging, rateLimiter, keyedRateLimiter,
+                bulkheads, bulkheadPerService, concurrencyLimiters);
     }
 }
@@ -1,109 +1,227 @@
 package io.jetproxy.middleware.resilience;
 
+import io.jetproxy.exception.ResilienceBulkheadException;
 import io.jetproxy.exception.ResilienceCircuitBreakerException;
+import io.jetproxy.exception.ResilienceConcurrencyLimitException;
 import io.jetproxy.exception.ResilienceRateLimitException;
-import io.jetproxy.exception.ResilienceRetryException;
 import io.jetproxy.logger.DebugAwareLogger;
+import io.jetproxy.middleware.resilience.bulkhead.Bulkhead;
+import io.jetproxy.middleware.resilience.bulkhead.BulkheadRegistry;
+import io.jetproxy.middleware.resilience.hedge.Hedging;
 import io.jetproxy.middleware.resilience.retry.Retry;
 import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreakerRegistry;
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiter;
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiterRegistry;
+import io.jetproxy.middleware.resilience.ratelimiter.KeyedRateLimiter;
 import io.jetproxy.middleware.resilience.ratelimiter.RateLimiter;
+import io.jetproxy.util.Constants;
+import io.jetproxy.util.RequestUtils;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.http.HttpServletRequest;
 
 import java.util.concurrent.TimeUnit;
 
 /**
  * A utility class to manage and execute operations with resilience mechanisms
- * like Retry, CircuitBreaker, and RateLimiter.
+ * like Retry, Hedging, CircuitBreaker, RateLimiter, Bulkhead and adaptive concurrency limits.
  */
 public class ResilienceUtil {
 
     private static final DebugAwareLogger logger = DebugAwareLogger.getLogger(ResilienceUtil.class);
+    private static final String ROUTE_KEY = "route";
 
-    private final CircuitBreaker circuitBreaker;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final boolean circuitBreakerPerEndpoint;
     private final Retry retry;
+    private final Hedging hedging;
     private final RateLimiter rateLimiter;
+    private final KeyedRateLimiter keyedRateLimiter;
+    private final BulkheadRegistry bulkheads;
+    private final boolean bulkheadPerService;
+    private final ConcurrencyLimiterRegistry concurrencyLimiters;
 
     ResilienceUtil() {
-        this.circuitBreaker = null;
-        this.retry =  null;
-        this.rateLimiter = null;
+        this(null, false, null, null, null, null, null, false, null);
     }
     /**
      * Constructs a ResilienceUtil with the given resilience components.
      *
-     * @param circuitBreaker the CircuitBreaker instance
-     * @param retry          the Retry instance
-     * @param rateLimiter    the RateLimiter instance
+     * @param circuitBreakers           the CircuitBreakers of the route, or null
+     * @param circuitBreakerPerEndpoint whether each upstream endpoint has its own CircuitBreaker
+     * @param retry                     the Retry instance
+     * @param hedging                   the Hedging policy of the route, or null
+     * @param rateLimiter               the RateLimiter instance
+     * @param keyedRateLimiter          the RateLimiter keeping a bucket per client key, or null
+     * @param bulkheads                 the Bulkheads of the route, or null
+     * @param bulkheadPerService        whether Bulkheads are per upstream service instead of per route
+     * @param concurrencyLimiters       the adaptive concurrency limiters per upstream service, or null
      */
-    public ResilienceUtil(CircuitBreaker circuitBreaker, Retry retry, RateLimiter rateLimiter) {
-        this.circuitBreaker = circuitBreaker;
+    public ResilienceUtil(CircuitBreakerRegistry circuitBreakers, boolean circuitBreakerPerEndpoint,
+                          Retry retry, Hedging hedging, RateLimiter rateLimiter, KeyedRateLimiter keyedRateLimiter,
+                          BulkheadRegistry bulkheads, boolean bulkheadPerService,
+                          ConcurrencyLimiterRegistry concurrencyLimiters) {
+        this.circuitBreakers = circuitBreakers;
+        this.circuitBreakerPerEndpoint = circuitBreakerPerEndpoint;
         this.retry = retry;
+        this.hedging = hedging;
         this.rateLimiter = rateLimiter;
+        this.keyedRateLimiter = keyedRateLimiter;
+        this.bulkheads = bulkheads;
+        this.bulkheadPerService = bulkheadPerService;
+        this.concurrencyLimiters = concurrencyLimiters;
     }
 
     /**
-     * Executes a runnable operation with resilience protections.
+     * Executes a runnable operation with resilience protections, using the route's CircuitBreaker.
      *
      * @param runnable the operation to execute
      */
     public void execute(Runnable runnable) {
+        execute(null, runnable);
+    }
+
+    /**
+     * Executes a runnable operation with resilience protections.
+     *
+     * @param request  the client request, used to pick the CircuitBreaker and Bulkhead of its upstream
+     * @param runnable the operation to execute
+     */
+    public void execute(HttpServletRequest request, Runnable runnable) {
         Runnable resilientRunnable = runnable;
+        CircuitBreaker circuitBreaker = circuitBreakerFor(request);
 
         // Apply RateLimiter logic
         if (rateLimiter != null && !rateLimiter.tryConsume()) {
             throw new ResilienceRateLimitException("Rate limit exceeded");
         }
+        if (keyedRateLimiter != null && request != null && !keyedRateLimiter.tryConsume(request)) {
+            throw new ResilienceRateLimitException("Rate limit exceeded");
+        }
 
-        // Apply Retry logic
+        // Every request earns the route a share of its retry and hedging budgets, retries and hedges
+        // themselves are sent per request by the proxy handler
         if (retry != null) {
-            Runnable originalRunnable = resilientRunnable;
-            resilientRunnable = () -> {
-                while (retry.allowRequest()) {
-                    try {
-                        originalRunnable.run();
-                        break;
-                    } catch (Exception ex) {
-                        if (!retry.allowRequest()) {
-                            throw new ResilienceRetryException("Retry attempts exceeded", ex);
-                        }
-                    }
-                }
-            };
+            retry.onRequest();
+        }
+        if (hedging != null) {
+            hedging.onRequest();
         }
 
-        // Apply CircuitBreaker logic
-        if (circuitBreaker != null) {
-            if (circuitBreaker.allowRequest()) {
-                Runnable finalRunnable = resilientRunnable;
-                resilientRunnable = () -> {
-                    try {
-                        finalRunnable.run();
-                    } catch (Exception ex) {
-                        circuitBreaker.onError(0, TimeUnit.MILLISECONDS); // Assume 0 duration if unknown
-                        throw new ResilienceCircuitBreakerException("Circuit Breaker Exception", ex);
-                    }
-                };
-            } else {
-                throw new ResilienceCircuitBreakerException("Circuit Breaker Open");
+        // Bulkhead and concurrency permits are taken before asking the CircuitBreaker, so that a
+        // rejection does not use up a half-open trial call. They are held until the proxied exchange
+        // completes
+        Bulkhead.Permit permit = null;
+        ConcurrencyLimiter.Permit concurrencyPermit = null;
+        try {
+            // Apply Bulkhead logic
+            Bulkhead bulkhead = bulkheadFor(request);
+            if (bulkhead != null) {
+                permit = bulkhead.tryAcquire();
+                if (permit == null) {
+                    throw new ResilienceBulkheadException("Bulkhead full");
+                }
+            }
+
+            // Apply adaptive concurrency limit, fed back in handleHttpResponse
+            ConcurrencyLimiter concurrencyLimiter = concurrencyLimiterFor(request);
+            if (concurrencyLimiter != null) {
+                concurrencyPermit = concurrencyLimiter.tryAcquire();
+                if (concurrencyPermit == null) {
+                    throw new ResilienceConcurrencyLimitException("Concurrency limit exceeded");
+                }
+                request.setAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_CONCURRENCY_PERMIT, concurrencyPermit);
             }
+
+            // Apply CircuitBreaker logic
+            if (circuitBreaker != null) {
+                if (circuitBreaker.allowRequest()) {
+                    Runnable finalRunnable = resilientRunnable;
+                    resilientRunnable = () -> {
+                        long start = System.nanoTime();
+                        try {
+                            finalRunnable.run();
+                        } catch (Exception ex) {
+                            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            throw new ResilienceCircuitBreakerException("Circuit Breaker Exception", ex);
+                        }
+                    };
+                } else {
+                    throw new ResilienceCircuitBreakerException("Circuit Breaker Open");
+                }
+            }
+        } catch (RuntimeException ex) {
+            release(permit, concurrencyPermit);
+            throw ex;
         }
 
         // Execute the final resilient runnable
         try {
             resilientRunnable.run();
+            releaseOnCompletion(request, permit, concurrencyPermit);
         } catch (RuntimeException ex) {
+            release(permit, concurrencyPermit);
             ex.printStackTrace();
             // Wrap exceptions to ensure proper propagation
             throw ex;
         } catch (Exception ex) {
+            release(permit, concurrencyPermit);
             // Re-wrap non-runtime exceptions
             throw new RuntimeException(ex);
         }
     }
 
+    private static void release(Bulkhead.Permit permit, ConcurrencyLimiter.Permit concurrencyPermit) {
+        if (permit != null) {
+            permit.release();
+        }
+        if (concurrencyPermit != null) {
+            concurrencyPermit.release();
+        }
+    }
+
+    /**
+     * Releases the permits once the request completes: right away for a synchronous request, or when
+     * its async context completes, errors or times out for a proxied one, so a pending retry or hedge
+     * still holds them. Permits ignore all but the first release.
+     */
+    private static void releaseOnCompletion(HttpServletRequest request, Bulkhead.Permit permit,
+                                            ConcurrencyLimiter.Permit concurrencyPermit) {
+        if (permit == null && concurrencyPermit == null) {
+            return;
+        }
+        if (request == null || !request.isAsyncStarted()) {
+            release(permit, concurrencyPermit);
+            return;
+        }
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                release(permit, concurrencyPermit);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                release(permit, concurrencyPermit);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                release(permit, concurrencyPermit);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                event.getAsyncContext().addListener(this);
+            }
+        });
+    }
+
 
     /**
-     * Handles the response logic for resilience mechanisms.
+     * Handles the response logic for resilience mechanisms. Called for every upstream attempt,
+     * including the ones that are retried.
      *
      * @param clientRequest the client request
      * @param responseStatus the HTTP response status
@@ -113,39 +231,105 @@ public class ResilienceUtil {
         Long startTime = (Long) clientRequest.getAttribute("startTime");
         long duration = (startTime != null) ? System.nanoTime() - startTime : 0;
 
-        // CircuitBreaker logic
+        // CircuitBreaker logic, only server errors and transport failures count against the upstream
+        CircuitBreaker circuitBreaker = circuitBreakerFor(clientRequest);
         if (circuitBreaker != null) {
-            if (exception != null || responseStatus < 200 || responseStatus >= 300) {
+            if (exception != null || responseStatus >= 500) {
                 circuitBreaker.onError(duration, TimeUnit.NANOSECONDS); // Mark as error
             } else {
                 circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS); // Mark as success
             }
         }
 
-        // Retry logic
-        if (retry != null) {
-            if (exception != null || responseStatus < 200 || responseStatus >= 300) {
-                retry.onError(duration, TimeUnit.NANOSECONDS); // Mark as error
-            } else {
-                retry.onSuccess(duration, TimeUnit.NANOSECONDS); // Mark as success
-            }
+        // Adaptive concurrency limit, every attempt adjusts it, the slot is freed when the exchange completes
+        Object concurrencyPermit = clientRequest.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_CONCURRENCY_PERMIT);
+        if (concurrencyPermit instanceof ConcurrencyLimiter.Permit permit) {
+            permit.sample(duration, exception != null || isOverloadStatus(responseStatus));
         }
 
-        if (rateLimiter != null) {
+        // RateLimiter: No specific response handling needed since it applies before execution
+    }
 
-        }
+    /**
+     * Statuses with which an upstream or a gateway in front of it signals that it is overloaded.
+     */
+    private static boolean isOverloadStatus(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
 
-        // RateLimiter: No specific response handling needed since it applies before execution
+    /**
+     * Returns the retry policy of the route.
+     *
+     * @return the Retry instance, or null if retries are disabled
+     */
+    public Retry getRetry() {
+        return retry;
+    }
+
+    /**
+     * Returns the hedging policy of the route.
+     *
+     * @return the Hedging instance, or null if hedging is disabled
+     */
+    public Hedging getHedging() {
+        return hedging;
     }
 
     /**
      * Checks if the CircuitBreaker is open.
      *
+     * @param request the client request
      * @return true if CircuitBreaker is open, false otherwise
      */
-    public boolean isCircuitBreakerNotAllowRequest() {
+    public boolean isCircuitBreakerNotAllowRequest(HttpServletRequest request) {
+        CircuitBreaker circuitBreaker = circuitBreakerFor(request);
         return circuitBreaker != null && !circuitBreaker.allowRequest();
     }
 
+    /**
+     * Returns the CircuitBreaker guarding the request: the route's, or the one of the upstream
+     * service the request is sent to when breakers are per endpoint.
+     *
+     * @param request the client request, may be null
+     * @return the CircuitBreaker, or null if none is configured
+     */
+    CircuitBreaker circuitBreakerFor(HttpServletRequest request) {
+        if (circuitBreakers == null) {
+            return null;
+        }
+        String key = circuitBreakerPerEndpoint && request != null ? RequestUtils.getServiceName(request) : ROUTE_KEY;
+        return circuitBreakers.circuitBreaker(key);
+    }
+
+    /**
+     * Returns the adaptive concurrency limiter of the upstream service the request is sent to.
+     *
+     * @param request the client request, may be null
+     * @return the ConcurrencyLimiter, or null if none is configured or there is no request
+     */
+    ConcurrencyLimiter concurrencyLimiterFor(HttpServletRequest request) {
+        if (concurrencyLimiters == null || request == null) {
+            return null;
+        }
+        return concurrencyLimiters.limiter(RequestUtils.getServiceName(request));
+    }
+
+    /**
+     * Returns the Bulkhead limiting the request: the route's, or the one of the upstream service the
+     * request is sent to when bulkheads are per service.
+     *
+     * @param request the client request, may be null
+     * @return the Bulkhead, or null if none is configured
+     */
+    Bulkhead bulkheadFor(HttpServletRequest request) {
+        if (bulkheads == null) {
+            return null;
+        }
+        if (request == null) {
+            return bulkheads.bulkhead(ROUTE_KEY);
+        }
+        return bulkheads.bulkhead(bulkheadPerService ? RequestUtils.getServiceName(request) : RequestUtils.getRoute(request));
+    }
+
 
 }
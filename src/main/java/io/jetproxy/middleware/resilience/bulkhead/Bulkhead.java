@@ -0,0 +1,96 @@
+package io.jetproxy.middleware.resilience.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent calls to an upstream, so that one slow backend holds at most
+ * {@code maxConcurrentCalls} requests instead of every server thread.
+ * <p>
+ * A call that finds no free permit waits up to {@code maxWaitDuration}, but only while fewer than
+ * {@code maxWaitingCalls} calls are already waiting; otherwise it is rejected immediately. Waiting
+ * is therefore bounded both in time and in the number of threads it can hold.
+ */
+public class Bulkhead {
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final long maxWaitNanos;
+    private final int maxWaitingCalls;
+    private final Semaphore permits;
+    private final AtomicInteger waitingCalls = new AtomicInteger();
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    public Bulkhead(String name, BulkheadConfig config) {
+        this.name = name;
+        this.maxConcurrentCalls = config.getMaxConcurrentCalls();
+        this.maxWaitNanos = config.getMaxWaitDuration().toNanos();
+        this.maxWaitingCalls = config.getMaxWaitingCalls();
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * Acquires a permit, waiting a bounded time for one.
+     *
+     * @return the permit, or null if the call is rejected
+     */
+    public Permit tryAcquire() {
+        if (permits.tryAcquire()) {
+            return new Permit();
+        }
+        if (maxWaitNanos > 0 && waitingCalls.incrementAndGet() <= maxWaitingCalls) {
+            try {
+                if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                    return new Permit();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waitingCalls.decrementAndGet();
+            }
+        } else if (maxWaitNanos > 0) {
+            waitingCalls.decrementAndGet();
+        }
+        rejectedCalls.increment();
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getConcurrentCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    public int getWaitingCalls() {
+        return waitingCalls.get();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.sum();
+    }
+
+    /**
+     * A permit held by one call. Releasing it more than once has no effect, so every completion
+     * path of a request may release it.
+     */
+    public class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
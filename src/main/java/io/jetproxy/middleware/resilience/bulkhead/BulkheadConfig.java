@@ -0,0 +1,60 @@
+package io.jetproxy.middleware.resilience.bulkhead;
+
+import io.jetproxy.exception.JetProxyValidationException;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Configuration class for the Bulkhead mechanism.
+ */
+@Getter
+public class BulkheadConfig {
+    private final int maxConcurrentCalls;
+    private final Duration maxWaitDuration;
+    private final int maxWaitingCalls;
+
+    private BulkheadConfig(Builder builder) {
+        this.maxConcurrentCalls = builder.maxConcurrentCalls;
+        this.maxWaitDuration = builder.maxWaitDuration;
+        this.maxWaitingCalls = builder.maxWaitingCalls;
+    }
+
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int maxConcurrentCalls = 10;
+        private Duration maxWaitDuration = Duration.ofMillis(500);
+        private int maxWaitingCalls = 10;
+
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls <= 0) {
+                throw new JetProxyValidationException("maxConcurrentCalls must be greater than 0");
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        public Builder maxWaitDuration(Duration maxWaitDuration) {
+            if (maxWaitDuration.isNegative()) {
+                throw new JetProxyValidationException("maxWaitDuration must be non-negative");
+            }
+            this.maxWaitDuration = maxWaitDuration;
+            return this;
+        }
+
+        public Builder maxWaitingCalls(int maxWaitingCalls) {
+            if (maxWaitingCalls < 0) {
+                throw new JetProxyValidationException("maxWaitingCalls must be non-negative");
+            }
+            this.maxWaitingCalls = maxWaitingCalls;
+            return this;
+        }
+
+        public BulkheadConfig build() {
+            return new BulkheadConfig(this);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.jetproxy.middleware.resilience.bulkhead;
+
+import io.jetproxy.middleware.metric.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulkheads created on first use per key. A route uses a registry of its own with a single key, or
+ * a registry backed by the map shared by all routes with one key per upstream service, so that the
+ * routes sending to one service share its concurrency limit. In the shared case the first route
+ * reaching a service sizes its bulkhead.
+ */
+public class BulkheadRegistry {
+    private final String name;
+    private final BulkheadConfig config;
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads;
+
+    public BulkheadRegistry(String name, BulkheadConfig config) {
+        this(name, config, new ConcurrentHashMap<>());
+    }
+
+    public BulkheadRegistry(String name, BulkheadConfig config, ConcurrentHashMap<String, Bulkhead> bulkheads) {
+        this.name = name;
+        this.config = config;
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * Returns the bulkhead of {@code key}. Keys must come from a bounded set, e.g. configured services.
+     */
+    public Bulkhead bulkhead(String key) {
+        Bulkhead bulkhead = bulkheads.get(key);
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        return bulkheads.computeIfAbsent(key, this::create);
+    }
+
+    public Collection<Bulkhead> getBulkheads() {
+        return bulkheads.values();
+    }
+
+    private Bulkhead create(String key) {
+        Bulkhead bulkhead = new Bulkhead(name + ":" + key, config);
+        MetricsRegistry registry = MetricsRegistry.get();
+        registry.registerGauge("jetproxy_bulkhead_concurrent_calls", "Calls currently holding a bulkhead permit",
+                "gauge", bulkhead::getConcurrentCalls, "bulkhead", bulkhead.getName());
+        registry.registerGauge("jetproxy_bulkhead_waiting_calls", "Calls waiting for a bulkhead permit",
+                "gauge", bulkhead::getWaitingCalls, "bulkhead", bulkhead.getName());
+        registry.registerGauge("jetproxy_bulkhead_max_concurrent_calls", "Bulkhead permits",
+                "gauge", bulkhead::getMaxConcurrentCalls, "bulkhead", bulkhead.getName());
+        return bulkhead;
+    }
+}
@@ -2,9 +2,10 @@ package io.jetproxy.middleware.resilience.circuitbreaker;
 
 import io.jetproxy.middleware.resilience.ResilienceInterface;
 
-import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * A highly concurrent, non-blocking Circuit Breaker implementation
@@ -27,24 +28,30 @@ import java.util.concurrent.atomic.AtomicLong;
  *           +------------------------------------+   +--------+
  *                        (recovered)                 |  OPEN  |
  *                                                    +--------+
+ *
+ * Failure and slow call rates are computed over a {@link SlidingWindow} of recent calls, either the
+ * last N calls or the last N seconds, so the breaker reacts to current traffic rather than to
+ * everything since the last transition. Recording a call is lock-free; only state transitions,
+ * which are rare, are serialized.
  */
 public class CircuitBreaker implements ResilienceInterface {
     public enum State { CLOSED, OPEN, HALF_OPEN }
 
     private final double failureRateThreshold;
     private final double slowCallRateThreshold;
-    private final Duration slowCallDurationThreshold;
-    private final Duration waitDurationInOpenState;
+    private final long slowCallDurationNanos;
+    private final long waitDurationInOpenStateMillis;
     private final int permittedNumberOfCallsInHalfOpenState;
     private final int minimumNumberOfCalls;
+    private final Supplier<SlidingWindow> windowFactory;
+    private final LongSupplier clock;
+    private final String name;
 
     private volatile State state = State.CLOSED; // The current state of the Circuit Breaker
-    private final AtomicLong successCalls = new AtomicLong(0); // Counter for successful calls
-    private final AtomicLong failureCalls = new AtomicLong(0); // Counter for failed calls
-    private final AtomicLong slowCalls = new AtomicLong(0); // Counter for slow calls
-    private final AtomicLong halfOpenCalls = new AtomicLong(0); // Counter for calls in HALF_OPEN state
-    private final AtomicLong lastStateChangeTime = new AtomicLong(0); // Tracks the last state change time
-    private final String name;
+    private volatile SlidingWindow window; // Calls recorded while CLOSED
+    private volatile long openedAt; // When the breaker last opened, in clock millis
+    private final AtomicLong halfOpenCalls = new AtomicLong(0); // Calls admitted in HALF_OPEN state
+    private final AtomicLong halfOpenSuccesses = new AtomicLong(0); // Successful calls in HALF_OPEN state
 
     /**
      * Constructor to initialize the Circuit Breaker with a configuration.
@@ -52,13 +59,28 @@ public class CircuitBreaker implements ResilienceInterface {
      * @param config Configuration for thresholds and limits.
      */
     public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this(name, config, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, CircuitBreakerConfig config, LongSupplier clock) {
         this.failureRateThreshold = config.getFailureRateThreshold();
         this.slowCallRateThreshold = config.getSlowCallRateThreshold();
-        this.slowCallDurationThreshold = config.getSlowCallDurationThreshold();
-        this.waitDurationInOpenState = config.getWaitDurationInOpenState();
+        this.slowCallDurationNanos = config.getSlowCallDurationThreshold().toNanos();
+        this.waitDurationInOpenStateMillis = config.getWaitDurationInOpenState().toMillis();
         this.permittedNumberOfCallsInHalfOpenState = config.getPermittedNumberOfCallsInHalfOpenState();
-        this.minimumNumberOfCalls = config.getMinimumNumberOfCalls();
+        this.clock = clock;
         this.name = name;
+
+        int windowSize = Math.max(1, config.getSlidingWindowSize());
+        if (config.getSlidingWindowType() == CircuitBreakerConfig.SlidingWindowType.TIME_BASED) {
+            this.windowFactory = () -> new TimeBasedSlidingWindow(windowSize, clock);
+            this.minimumNumberOfCalls = Math.max(1, config.getMinimumNumberOfCalls());
+        } else {
+            this.windowFactory = () -> new CountBasedSlidingWindow(windowSize);
+            // A count-based window never holds more calls than its size
+            this.minimumNumberOfCalls = Math.max(1, Math.min(config.getMinimumNumberOfCalls(), windowSize));
+        }
+        this.window = windowFactory.get();
     }
 
     /**
@@ -68,28 +90,17 @@ public class CircuitBreaker implements ResilienceInterface {
      */
     @Override
     public boolean allowRequest() {
-        long now = System.currentTimeMillis();
-
-        if (state == State.OPEN) {
-            // Check if the wait duration has elapsed
-            if (now - lastStateChangeTime.get() >= waitDurationInOpenState.toMillis()) {
-                if (lastStateChangeTime.compareAndSet(lastStateChangeTime.get(), now)) {
-                    // Transition to HALF_OPEN state
-                    state = State.HALF_OPEN;
-                    halfOpenCalls.set(0);
-                    return true; // Allow the first request in HALF_OPEN
-                }
-            }
-            return false; // Reject all requests in OPEN state
+        State current = state;
+
+        if (current == State.OPEN) {
+            // The first caller after the wait duration moves the breaker to HALF_OPEN and is let through
+            return clock.getAsLong() - openedAt >= waitDurationInOpenStateMillis
+                    && transition(State.OPEN, State.HALF_OPEN);
         }
 
-        if (state == State.HALF_OPEN) {
+        if (current == State.HALF_OPEN) {
             // Allow limited requests in HALF_OPEN state
-            long currentCalls = halfOpenCalls.incrementAndGet();
-            if (currentCalls > permittedNumberOfCallsInHalfOpenState) {
-                return false; // Reject requests exceeding the limit
-            }
-            return true;
+            return halfOpenCalls.incrementAndGet() <= permittedNumberOfCallsInHalfOpenState;
         }
 
         return true; // CLOSED state, always allow requests
@@ -103,19 +114,7 @@ public class CircuitBreaker implements ResilienceInterface {
      */
     @Override
     public void onSuccess(long duration, TimeUnit unit) {
-        long durationMillis = unit.toMillis(duration);
-
-        if (state == State.HALF_OPEN) {
-            // Evaluate success in HALF_OPEN state
-            evaluateHalfOpenState(true);
-        } else {
-            if (durationMillis > slowCallDurationThreshold.toMillis()) {
-                slowCalls.incrementAndGet(); // Record slow call
-            } else {
-                successCalls.incrementAndGet(); // Record successful call
-            }
-            evaluateState(); // Evaluate whether state transition is needed
-        }
+        record(false, unit.toNanos(duration) > slowCallDurationNanos);
     }
 
     /**
@@ -126,13 +125,7 @@ public class CircuitBreaker implements ResilienceInterface {
      */
     @Override
     public void onError(long duration, TimeUnit unit) {
-        if (state == State.HALF_OPEN) {
-            // Evaluate failure in HALF_OPEN state
-            evaluateHalfOpenState(false);
-        } else {
-            failureCalls.incrementAndGet(); // Record failed call
-            evaluateState(); // Evaluate whether state transition is needed
-        }
+        record(true, unit.toNanos(duration) > slowCallDurationNanos);
     }
 
     /**
@@ -151,62 +144,72 @@ public class CircuitBreaker implements ResilienceInterface {
     }
 
     /**
-     * Evaluates whether the Circuit Breaker should transition to OPEN state
-     * based on failure and slow call rates.
+     * Returns the failure rate, in percent, of the calls currently in the window.
      */
-    private void evaluateState() {
-        long totalCalls = successCalls.get() + failureCalls.get() + slowCalls.get();
-        if (totalCalls < minimumNumberOfCalls) return; // Insufficient data to evaluate
-
-        double failureRate = (double) failureCalls.get() / totalCalls * 100;
-        double slowCallRate = (double) slowCalls.get() / totalCalls * 100;
-
-        // Transition to OPEN if thresholds are exceeded
-        if (failureRate > failureRateThreshold || slowCallRate > slowCallRateThreshold) {
-            transitionToOpen();
-        }
+    public double getFailureRate() {
+        return window.snapshot().failureRate();
     }
 
     /**
-     * Evaluates the behavior in HALF_OPEN state and transitions to CLOSED or OPEN.
-     *
-     * @param isSuccess true if the call was successful, false otherwise.
+     * Returns the slow call rate, in percent, of the calls currently in the window.
      */
-    private void evaluateHalfOpenState(boolean isSuccess) {
-        if (!isSuccess) {
-            transitionToOpen(); // Failure transitions back to OPEN
-        } else {
-            long successfulCalls = successCalls.incrementAndGet();
-            if (successfulCalls >= permittedNumberOfCallsInHalfOpenState) {
-                transitionToClosed(); // Success threshold met, transition to CLOSED
-            }
+    public double getSlowCallRate() {
+        return window.snapshot().slowCallRate();
+    }
+
+    private void record(boolean failure, boolean slow) {
+        State current = state;
+        if (current == State.HALF_OPEN) {
+            evaluateHalfOpenState(!failure && !slow);
+        } else if (current == State.CLOSED) {
+            evaluateState(window.record(failure, slow));
         }
+        // Calls admitted before the breaker opened are ignored
     }
 
     /**
-     * Transitions the Circuit Breaker to OPEN state.
+     * Evaluates whether the Circuit Breaker should transition to OPEN state
+     * based on failure and slow call rates of the window.
      */
-    private void transitionToOpen() {
-        state = State.OPEN;
-        lastStateChangeTime.set(System.currentTimeMillis());
-        resetCounts(); // Reset counters for the next evaluation cycle
+    private void evaluateState(SlidingWindow.Snapshot snapshot) {
+        if (snapshot.total() < minimumNumberOfCalls) return; // Insufficient data to evaluate
+
+        // Transition to OPEN if thresholds are exceeded
+        if (snapshot.failureRate() > failureRateThreshold || snapshot.slowCallRate() > slowCallRateThreshold) {
+            transition(State.CLOSED, State.OPEN);
+        }
     }
 
     /**
-     * Transitions the Circuit Breaker to CLOSED state.
+     * Evaluates the behavior in HALF_OPEN state and transitions to CLOSED or OPEN.
+     *
+     * @param isSuccess true if the call succeeded and was not slow, false otherwise.
      */
-    private void transitionToClosed() {
-        state = State.CLOSED;
-        resetCounts(); // Reset counters for the next evaluation cycle
+    private void evaluateHalfOpenState(boolean isSuccess) {
+        if (!isSuccess) {
+            transition(State.HALF_OPEN, State.OPEN); // Failure transitions back to OPEN
+        } else if (halfOpenSuccesses.incrementAndGet() >= permittedNumberOfCallsInHalfOpenState) {
+            transition(State.HALF_OPEN, State.CLOSED); // Success threshold met, transition to CLOSED
+        }
     }
 
     /**
-     * Resets all call counters to their initial state.
+     * Moves the breaker from {@code from} to {@code to}, unless another thread changed the state first.
+     *
+     * @return whether this call performed the transition
      */
-    private void resetCounts() {
-        successCalls.set(0);
-        failureCalls.set(0);
-        slowCalls.set(0);
-        halfOpenCalls.set(0);
+    private synchronized boolean transition(State from, State to) {
+        if (state != from) {
+            return false;
+        }
+        if (to == State.OPEN) {
+            openedAt = clock.getAsLong();
+            halfOpenCalls.set(0);
+            halfOpenSuccesses.set(0);
+        } else if (to == State.CLOSED) {
+            window = windowFactory.get(); // Start over with no history
+        }
+        state = to;
+        return true;
     }
 }
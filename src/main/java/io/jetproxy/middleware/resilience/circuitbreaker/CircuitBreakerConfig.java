@@ -1,5 +1,6 @@
 package io.jetproxy.middleware.resilience.circuitbreaker;
 
+import io.jetproxy.util.Constants;
 import lombok.Getter;
 
 import java.time.Duration;
@@ -9,12 +10,31 @@ import java.time.Duration;
  */
 @Getter
 public class CircuitBreakerConfig {
+    /**
+     * How the calls a failure rate is computed over are selected.
+     */
+    public enum SlidingWindowType {
+        /** The last {@code slidingWindowSize} calls. */
+        COUNT_BASED,
+        /** The calls of the last {@code slidingWindowSize} seconds. */
+        TIME_BASED;
+
+        /**
+         * Maps the configured name, {@code count} or {@code time}, defaulting to count-based.
+         */
+        public static SlidingWindowType from(String name) {
+            return Constants.CIRCUIT_BREAKER_WINDOW_TIME.equalsIgnoreCase(name) ? TIME_BASED : COUNT_BASED;
+        }
+    }
+
     private final double failureRateThreshold;
     private final double slowCallRateThreshold;
     private final Duration slowCallDurationThreshold;
     private final Duration waitDurationInOpenState;
     private final int permittedNumberOfCallsInHalfOpenState;
     private final int minimumNumberOfCalls;
+    private final SlidingWindowType slidingWindowType;
+    private final int slidingWindowSize;
 
     private CircuitBreakerConfig(Builder builder) {
         this.failureRateThreshold = builder.failureRateThreshold;
@@ -23,6 +43,8 @@ public class CircuitBreakerConfig {
         this.waitDurationInOpenState = builder.waitDurationInOpenState;
         this.permittedNumberOfCallsInHalfOpenState = builder.permittedNumberOfCallsInHalfOpenState;
         this.minimumNumberOfCalls = builder.minimumNumberOfCalls;
+        this.slidingWindowType = builder.slidingWindowType;
+        this.slidingWindowSize = builder.slidingWindowSize;
     }
 
     public static Builder custom() {
@@ -39,6 +61,8 @@ public class CircuitBreakerConfig {
         private Duration waitDurationInOpenState = Duration.ofSeconds(2);
         private int permittedNumberOfCallsInHalfOpenState = 10;
         private int minimumNumberOfCalls = 100;
+        private SlidingWindowType slidingWindowType = SlidingWindowType.COUNT_BASED;
+        private int slidingWindowSize = 100;
 
         public Builder failureRateThreshold(double threshold) {
             this.failureRateThreshold = threshold;
@@ -70,6 +94,19 @@ public class CircuitBreakerConfig {
             return this;
         }
 
+        public Builder slidingWindowType(SlidingWindowType type) {
+            this.slidingWindowType = type;
+            return this;
+        }
+
+        /**
+         * @param size number of calls for a count-based window, number of seconds for a time-based one
+         */
+        public Builder slidingWindowSize(int size) {
+            this.slidingWindowSize = size;
+            return this;
+        }
+
         public CircuitBreakerConfig build() {
             return new CircuitBreakerConfig(this);
         }
@@ -0,0 +1,35 @@
+package io.jetproxy.middleware.resilience.circuitbreaker;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breakers sharing one configuration, created on first use per key. A route uses a single
+ * key for all its traffic, or one key per upstream endpoint so that one unhealthy service does not
+ * open the breaker for the others behind the same route.
+ */
+public class CircuitBreakerRegistry {
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(String name, CircuitBreakerConfig config) {
+        this.name = name;
+        this.config = config;
+    }
+
+    /**
+     * Returns the breaker of {@code key}. Keys must come from a bounded set, e.g. configured services.
+     */
+    public CircuitBreaker circuitBreaker(String key) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(key);
+        if (circuitBreaker != null) {
+            return circuitBreaker;
+        }
+        return circuitBreakers.computeIfAbsent(key, k -> new CircuitBreaker(name + "::" + k, config));
+    }
+
+    public Collection<CircuitBreaker> getCircuitBreakers() {
+        return circuitBreakers.values();
+    }
+}
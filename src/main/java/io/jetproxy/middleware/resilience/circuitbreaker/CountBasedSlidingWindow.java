@@ -0,0 +1,46 @@
+package io.jetproxy.middleware.resilience.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Window over the last {@code size} calls. Each call overwrites the oldest slot of a ring and the
+ * aggregates are adjusted by the difference between the new and the evicted outcome, so recording
+ * is a few atomic operations regardless of the window size.
+ */
+final class CountBasedSlidingWindow implements SlidingWindow {
+    private static final int EMPTY = 0;
+    private static final int CALL = 1;
+    private static final int FAILURE = 2;
+    private static final int SLOW = 4;
+
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong slow = new AtomicLong();
+
+    CountBasedSlidingWindow(int size) {
+        this.outcomes = new AtomicIntegerArray(Math.max(1, size));
+    }
+
+    @Override
+    public Snapshot record(boolean failure, boolean slowCall) {
+        int outcome = CALL | (failure ? FAILURE : 0) | (slowCall ? SLOW : 0);
+        int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+        int evicted = outcomes.getAndSet(slot, outcome);
+        long calls = evicted == EMPTY ? total.incrementAndGet() : total.get();
+        long failures = failed.addAndGet(bit(outcome, FAILURE) - bit(evicted, FAILURE));
+        long slowCalls = slow.addAndGet(bit(outcome, SLOW) - bit(evicted, SLOW));
+        return new Snapshot(calls, failures, slowCalls);
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return new Snapshot(total.get(), failed.get(), slow.get());
+    }
+
+    private static int bit(int outcome, int flag) {
+        return (outcome & flag) != 0 ? 1 : 0;
+    }
+}
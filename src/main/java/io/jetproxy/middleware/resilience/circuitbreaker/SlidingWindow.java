@@ -0,0 +1,27 @@
+package io.jetproxy.middleware.resilience.circuitbreaker;
+
+/**
+ * Outcomes of the most recent calls, used by the {@link CircuitBreaker} to compute failure and slow
+ * call rates over recent traffic only. Recording must not block.
+ */
+interface SlidingWindow {
+
+    /**
+     * Records one call and returns the aggregate of the window including it.
+     */
+    Snapshot record(boolean failure, boolean slow);
+
+    Snapshot snapshot();
+
+    record Snapshot(long total, long failed, long slow) {
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0);
+
+        double failureRate() {
+            return total == 0 ? 0 : failed * 100.0 / total;
+        }
+
+        double slowCallRate() {
+            return total == 0 ? 0 : slow * 100.0 / total;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.jetproxy.middleware.resilience.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Window over the calls of the last {@code seconds} seconds, kept as a ring of per-second buckets.
+ * A bucket is replaced once its second falls out of the window, so the memory is fixed and stale
+ * traffic stops counting without any background task.
+ */
+final class TimeBasedSlidingWindow implements SlidingWindow {
+    private static final int TOTAL = 0;
+    private static final int FAILED = 1;
+    private static final int SLOW = 2;
+
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final LongSupplier clock;
+
+    private record Bucket(long second, AtomicLongArray counts) {
+    }
+
+    TimeBasedSlidingWindow(int seconds, LongSupplier clock) {
+        this.buckets = new AtomicReferenceArray<>(Math.max(1, seconds));
+        this.clock = clock;
+    }
+
+    @Override
+    public Snapshot record(boolean failure, boolean slowCall) {
+        long second = clock.getAsLong() / 1000;
+        AtomicLongArray counts = bucket(second).counts();
+        counts.incrementAndGet(TOTAL);
+        if (failure) {
+            counts.incrementAndGet(FAILED);
+        }
+        if (slowCall) {
+            counts.incrementAndGet(SLOW);
+        }
+        return snapshot(second);
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return snapshot(clock.getAsLong() / 1000);
+    }
+
+    private Snapshot snapshot(long currentSecond) {
+        long total = 0;
+        long failed = 0;
+        long slow = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket == null || bucket.second() <= currentSecond - buckets.length() || bucket.second() > currentSecond) {
+                continue;
+            }
+            total += bucket.counts().get(TOTAL);
+            failed += bucket.counts().get(FAILED);
+            slow += bucket.counts().get(SLOW);
+        }
+        return new Snapshot(total, failed, slow);
+    }
+
+    private Bucket bucket(long second) {
+        int slot = (int) (second % buckets.length());
+        Bucket bucket = buckets.get(slot);
+        while (bucket == null || bucket.second() != second) {
+            if (bucket != null && bucket.second() > second) {
+                return bucket; // The clock went backwards, count into the newer bucket
+            }
+            Bucket fresh = new Bucket(second, new AtomicLongArray(3));
+            if (buckets.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = buckets.get(slot);
+        }
+        return bucket;
+    }
+}
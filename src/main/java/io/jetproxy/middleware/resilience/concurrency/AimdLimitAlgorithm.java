@@ -0,0 +1,24 @@
+package io.jetproxy.middleware.resilience.concurrency;
+
+/**
+ * Additive increase, multiplicative decrease: the limit grows by one per successful request while
+ * it is actually used and is cut by {@code backoffRatio} on a dropped request.
+ */
+public class AimdLimitAlgorithm implements LimitAlgorithm {
+    private final double backoffRatio;
+
+    public AimdLimitAlgorithm(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            return limit * backoffRatio;
+        }
+        if (inFlight * 2 >= limit) {
+            return limit + 1;
+        }
+        return limit; // Not using the limit, so no evidence that more is safe
+    }
+}
@@ -0,0 +1,138 @@
+package io.jetproxy.middleware.resilience.concurrency;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the requests in flight to an upstream to a limit that adapts to the upstream's measured
+ * latency and failures, instead of a hand-tuned static value.
+ * <p>
+ * Admission is a lock-free compare against the current limit, and a request over the limit is
+ * rejected right away rather than queued. Every upstream attempt feeds the {@link LimitAlgorithm}.
+ * A latency sample arriving while another thread is updating the limit is skipped, so recording
+ * rarely blocks, but a dropped request waits for the lock: overload must always reduce the limit.
+ * <p>
+ * The limit is decreased at most once per round trip, as TCP does: a drop only counts if its
+ * request was admitted after the last decrease. A burst of failures, or the retries of one failed
+ * request, all stem from the same overload and cut the limit once.
+ */
+public class ConcurrencyLimiter {
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final LimitAlgorithm algorithm;
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    private double estimatedLimit; // Guarded by updateLock
+    private volatile int limit;
+    private volatile long lastDecreaseAt = -1; // Admission number of the last request before the last decrease
+
+    public ConcurrencyLimiter(String name, ConcurrencyLimiterConfig config) {
+        this.name = name;
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.algorithm = config.newAlgorithm();
+        this.estimatedLimit = clamp(config.getInitialLimit());
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Admits a request if fewer than the current limit are in flight.
+     *
+     * @return the permit of the request, or null if it is rejected
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Permit(current + 1, admitted.incrementAndGet());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void onSample(long rttNanos, int inFlightAtStart, long admittedAt, boolean dropped) {
+        if (dropped) {
+            if (admittedAt <= lastDecreaseAt) {
+                return; // Sent before the last decrease took effect
+            }
+            updateLock.lock();
+        } else if (!updateLock.tryLock()) {
+            return;
+        }
+        try {
+            if (dropped) {
+                if (admittedAt <= lastDecreaseAt) {
+                    return;
+                }
+                lastDecreaseAt = admitted.get();
+            }
+            estimatedLimit = clamp(algorithm.update(estimatedLimit, rttNanos, inFlightAtStart, dropped));
+            limit = (int) estimatedLimit;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * The slot of one request. It is held until the request completes towards the client, across
+     * all of its retried or hedged attempts. Only the first {@link #release} has an effect, so every
+     * completion path of a request may call it.
+     */
+    public class Permit {
+        private final int inFlightAtStart;
+        private final long admittedAt;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart, long admittedAt) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.admittedAt = admittedAt;
+        }
+
+        /**
+         * Feeds the round trip time of one upstream attempt to the limit, the slot stays held.
+         *
+         * @param dropped whether the upstream failed in a way that signals overload
+         */
+        public void sample(long rttNanos, boolean dropped) {
+            onSample(rttNanos, inFlightAtStart, admittedAt, dropped);
+        }
+
+        /**
+         * Frees the slot once the request completed.
+         */
+        public void release() {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
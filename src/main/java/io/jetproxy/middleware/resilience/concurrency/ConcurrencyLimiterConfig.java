@@ -0,0 +1,122 @@
+package io.jetproxy.middleware.resilience.concurrency;
+
+import io.jetproxy.exception.JetProxyValidationException;
+import io.jetproxy.util.Constants;
+import lombok.Getter;
+
+/**
+ * Configuration class for the adaptive ConcurrencyLimiter.
+ */
+@Getter
+public class ConcurrencyLimiterConfig {
+    public enum Algorithm {
+        AIMD, GRADIENT;
+
+        public static Algorithm from(String name) {
+            return Constants.CONCURRENCY_LIMIT_ALGORITHM_AIMD.equalsIgnoreCase(name) ? AIMD : GRADIENT;
+        }
+    }
+
+    private final Algorithm algorithm;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final double smoothing;
+    private final int baselineWindow;
+
+    private ConcurrencyLimiterConfig(Builder builder) {
+        this.algorithm = builder.algorithm;
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.tolerance = builder.tolerance;
+        this.smoothing = builder.smoothing;
+        this.baselineWindow = builder.baselineWindow;
+    }
+
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Creates the algorithm instance of one limiter.
+     */
+    public LimitAlgorithm newAlgorithm() {
+        return algorithm == Algorithm.AIMD
+                ? new AimdLimitAlgorithm(backoffRatio)
+                : new GradientLimitAlgorithm(tolerance, smoothing, baselineWindow);
+    }
+
+    public static class Builder {
+        private Algorithm algorithm = Algorithm.GRADIENT;
+        private int initialLimit = Constants.DEFAULT_CONCURRENCY_INITIAL_LIMIT;
+        private int minLimit = Constants.DEFAULT_CONCURRENCY_MIN_LIMIT;
+        private int maxLimit = Constants.DEFAULT_CONCURRENCY_MAX_LIMIT;
+        private double backoffRatio = Constants.DEFAULT_CONCURRENCY_BACKOFF_RATIO;
+        private double tolerance = Constants.DEFAULT_CONCURRENCY_TOLERANCE;
+        private double smoothing = Constants.DEFAULT_CONCURRENCY_SMOOTHING;
+        private int baselineWindow = Constants.DEFAULT_CONCURRENCY_BASELINE_WINDOW;
+
+        public Builder algorithm(Algorithm algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public Builder minLimit(int minLimit) {
+            if (minLimit <= 0) {
+                throw new JetProxyValidationException("minLimit must be greater than 0");
+            }
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        public Builder backoffRatio(double backoffRatio) {
+            if (backoffRatio <= 0 || backoffRatio >= 1) {
+                throw new JetProxyValidationException("backoffRatio must be between 0 and 1");
+            }
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        public Builder tolerance(double tolerance) {
+            if (tolerance < 1) {
+                throw new JetProxyValidationException("tolerance must be at least 1");
+            }
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        public Builder smoothing(double smoothing) {
+            if (smoothing <= 0 || smoothing > 1) {
+                throw new JetProxyValidationException("smoothing must be greater than 0 and at most 1");
+            }
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        public Builder baselineWindow(int baselineWindow) {
+            this.baselineWindow = Math.max(1, baselineWindow);
+            return this;
+        }
+
+        public ConcurrencyLimiterConfig build() {
+            if (maxLimit < minLimit) {
+                throw new JetProxyValidationException("maxLimit must not be lower than minLimit");
+            }
+            return new ConcurrencyLimiterConfig(this);
+        }
+    }
+}
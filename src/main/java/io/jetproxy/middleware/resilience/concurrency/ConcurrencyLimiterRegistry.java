@@ -0,0 +1,42 @@
+package io.jetproxy.middleware.resilience.concurrency;
+
+import io.jetproxy.middleware.metric.MetricsRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adaptive concurrency limiters per upstream service, backed by a map shared by all routes so that
+ * every route sending to a service is admitted against the same limit. The first route reaching a
+ * service configures its limiter.
+ */
+public class ConcurrencyLimiterRegistry {
+    private final ConcurrencyLimiterConfig config;
+    private final ConcurrentHashMap<String, ConcurrencyLimiter> limiters;
+
+    public ConcurrencyLimiterRegistry(ConcurrencyLimiterConfig config, ConcurrentHashMap<String, ConcurrencyLimiter> limiters) {
+        this.config = config;
+        this.limiters = limiters;
+    }
+
+    /**
+     * Returns the limiter of {@code service}. Services come from the configuration, so the number of
+     * limiters is bounded.
+     */
+    public ConcurrencyLimiter limiter(String service) {
+        ConcurrencyLimiter limiter = limiters.get(service);
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.computeIfAbsent(service, this::create);
+    }
+
+    private ConcurrencyLimiter create(String service) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(service, config);
+        MetricsRegistry registry = MetricsRegistry.get();
+        registry.registerGauge("jetproxy_concurrency_limit", "Current adaptive concurrency limit",
+                "gauge", limiter::getLimit, "service", service);
+        registry.registerGauge("jetproxy_concurrency_in_flight", "Requests in flight counted by the adaptive concurrency limiter",
+                "gauge", limiter::getInFlight, "service", service);
+        return limiter;
+    }
+}
@@ -0,0 +1,65 @@
+package io.jetproxy.middleware.resilience.concurrency;
+
+/**
+ * Adjusts the limit by the ratio of the baseline round trip time to the measured one, in the spirit
+ * of TCP Vegas and Netflix' Gradient2.
+ * <p>
+ * The baseline is the minimum RTT, i.e. the latency of the upstream without queueing. While RTTs
+ * stay within {@code tolerance} times the baseline the gradient is 1 and the limit grows by a small
+ * queue allowance; when requests start to queue upstream the gradient drops below 1 and the limit
+ * shrinks proportionally, down to half per update. A dropped request halves the limit outright,
+ * without smoothing, as TCP does on a loss. The minimum is tracked over windows of
+ * {@code baselineWindow} samples, so a baseline measured before the upstream got slower for good
+ * (e.g. more data) is eventually forgotten.
+ */
+public class GradientLimitAlgorithm implements LimitAlgorithm {
+    private final double tolerance;
+    private final double smoothing;
+    private final int baselineWindow;
+
+    private long baselineRtt = Long.MAX_VALUE; // Minimum of the previous window
+    private long windowMinRtt = Long.MAX_VALUE; // Minimum of the current window
+    private int windowSamples;
+
+    public GradientLimitAlgorithm(double tolerance, double smoothing, int baselineWindow) {
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.baselineWindow = baselineWindow;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inFlight, boolean dropped) {
+        if (rttNanos > 0) {
+            trackBaseline(rttNanos);
+        }
+        long baseline = Math.min(baselineRtt, windowMinRtt);
+        if (dropped) {
+            // Overloaded upstreams often fail fast, so a drop is not a latency sample
+            return limit / 2;
+        }
+        if (rttNanos <= 0 || baseline == Long.MAX_VALUE) {
+            return limit;
+        }
+        if (inFlight * 2 < limit) {
+            return limit; // Not using the limit, so no evidence that more is safe
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseline / rttNanos));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        return limit * (1 - smoothing) + newLimit * smoothing;
+    }
+
+    long getBaselineRtt() {
+        return Math.min(baselineRtt, windowMinRtt);
+    }
+
+    private void trackBaseline(long rttNanos) {
+        windowMinRtt = Math.min(windowMinRtt, rttNanos);
+        if (++windowSamples >= baselineWindow) {
+            baselineRtt = windowMinRtt;
+            windowMinRtt = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+    }
+}
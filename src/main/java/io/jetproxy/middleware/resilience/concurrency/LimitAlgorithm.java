@@ -0,0 +1,17 @@
+package io.jetproxy.middleware.resilience.concurrency;
+
+/**
+ * Computes the next concurrency limit from one completed request. Implementations keep their own
+ * state and are only called by one thread at a time.
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * @param limit    the current limit
+     * @param rttNanos round trip time of the request
+     * @param inFlight requests in flight when the request was sent
+     * @param dropped  whether the request failed in a way that signals overload, e.g. a timeout or 503
+     * @return the new limit, before clamping to the configured bounds
+     */
+    double update(double limit, long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,181 @@
+package io.jetproxy.middleware.resilience.hedge;
+
+import io.jetproxy.middleware.metric.LatencyHistogram;
+import io.jetproxy.middleware.resilience.retry.RetryBudget;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Hedging policy of a route.
+ * <p>
+ * When the upstream has not answered a hedgeable request within the hedging delay, a second copy of
+ * the request is sent and whichever response begins first is forwarded; the other request is
+ * aborted. The delay is either fixed or the configured percentile of the upstream latencies the
+ * route observed over the last window, so that only the slowest few percent of requests are
+ * hedged. Until a window had enough requests to tell, nothing is hedged.
+ * <p>
+ * Hedges are taken from a {@link RetryBudget} of their own, which caps the extra load on the
+ * upstream at {@code budgetPercent} of the route's requests however slow it gets.
+ */
+public class Hedging {
+    private static final int MIN_SAMPLES = 20; // Latencies needed in a window before its percentile is used
+
+    private final long fixedDelayMillis;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long windowNanos;
+    private final Set<String> methods;
+    private final RetryBudget budget;
+    private final String name;
+    private final LongSupplier clock;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong windowStart;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+    private volatile long observedDelayMillis = -1;
+
+    /**
+     * Constructs a Hedging instance with the given configuration.
+     *
+     * @param config The HedgingConfig containing the delay, methods and budget.
+     */
+    public Hedging(String name, HedgingConfig config) {
+        this(name, config, System::nanoTime);
+    }
+
+    Hedging(String name, HedgingConfig config, LongSupplier clock) {
+        this.fixedDelayMillis = Math.max(0, config.getDelay().toMillis());
+        this.percentile = config.getPercentile();
+        this.minDelayMillis = Math.max(0, config.getMinDelay().toMillis());
+        this.windowNanos = Math.max(1, config.getWindow().toNanos());
+        this.methods = config.getMethods();
+        this.budget = new RetryBudget(config.getBudgetPercent(), config.getBudgetMinHedges());
+        this.name = name;
+        this.clock = clock;
+        this.windowStart = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Records a request of the route, which earns the route a fraction of a hedge.
+     */
+    public void onRequest() {
+        requests.increment();
+        budget.onRequest();
+    }
+
+    /**
+     * Determines whether requests with this method may be hedged at all.
+     */
+    public boolean isHedgeableMethod(String method) {
+        return method != null && methods.contains(method.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns how long to wait for the upstream before sending a hedge.
+     *
+     * @return the delay in milliseconds, or -1 if the route has not seen enough requests yet
+     */
+    public long delayMillis() {
+        if (fixedDelayMillis > 0) {
+            return fixedDelayMillis;
+        }
+        rotateIfDue();
+        return observedDelayMillis;
+    }
+
+    /**
+     * Records the time the upstream took to begin its response to the original request. Responses
+     * to hedges are not recorded, otherwise every hedge that wins would lower the delay.
+     */
+    public void recordLatency(long nanos) {
+        latencies.record(nanos, TimeUnit.NANOSECONDS);
+        if (fixedDelayMillis == 0) {
+            rotateIfDue();
+        }
+    }
+
+    private void rotateIfDue() {
+        long now = clock.getAsLong();
+        long start = windowStart.get();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        LatencyHistogram.Snapshot window = latencies.rotateInterval();
+        if (window.getCount() >= MIN_SAMPLES) {
+            long micros = window.getValueAtPercentile(percentile);
+            observedDelayMillis = Math.max(minDelayMillis, TimeUnit.MICROSECONDS.toMillis(micros));
+        }
+    }
+
+    /**
+     * Decides whether to send a hedge for a request still waiting for the upstream, and takes it
+     * from the budget if so.
+     *
+     * @return true if the hedge should be sent
+     */
+    public boolean tryHedge() {
+        if (!budget.tryAcquire()) {
+            budgetExhausted.increment();
+            return false;
+        }
+        hedged.increment();
+        return true;
+    }
+
+    /**
+     * Records that the response of a hedge was forwarded, i.e. that it beat the original request.
+     */
+    public void onHedgeWon() {
+        won.increment();
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    public long getHedgedCount() {
+        return hedged.sum();
+    }
+
+    public long getWonCount() {
+        return won.sum();
+    }
+
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * Returns the share of the route's requests that were sent twice.
+     */
+    public double getExtraLoad() {
+        long total = requests.sum();
+        return total == 0 ? 0 : (double) hedged.sum() / total;
+    }
+
+    /**
+     * Returns the share of hedges whose response was the one forwarded.
+     */
+    public double getWinRate() {
+        long total = hedged.sum();
+        return total == 0 ? 0 : (double) won.sum() / total;
+    }
+
+    /**
+     * Returns the current hedging delay, or -1 while the route has too few observations.
+     */
+    public long getDelayMillis() {
+        return fixedDelayMillis > 0 ? fixedDelayMillis : observedDelayMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,98 @@
+package io.jetproxy.middleware.resilience.hedge;
+
+import io.jetproxy.util.Constants;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Configuration class for request hedging.
+ */
+@Getter
+public class HedgingConfig {
+
+    private final Duration delay;
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration window;
+    private final Set<String> methods;
+    private final double budgetPercent;
+    private final int budgetMinHedges;
+
+    private HedgingConfig(Builder builder) {
+        this.delay = builder.delay;
+        this.percentile = builder.percentile;
+        this.minDelay = builder.minDelay;
+        this.window = builder.window;
+        this.methods = builder.methods;
+        this.budgetPercent = builder.budgetPercent;
+        this.budgetMinHedges = builder.budgetMinHedges;
+    }
+
+    /**
+     * Creates a new Builder instance for custom configuration.
+     *
+     * @return a new Builder instance.
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for HedgingConfig.
+     */
+    public static class Builder {
+        private Duration delay = Duration.ZERO; // Default: the observed percentile
+        private double percentile = Constants.DEFAULT_HEDGING_PERCENTILE;
+        private Duration minDelay = Duration.ofMillis(Constants.DEFAULT_HEDGING_MIN_DELAY);
+        private Duration window = Duration.ofMillis(Constants.DEFAULT_HEDGING_WINDOW);
+        private Set<String> methods = Set.copyOf(Constants.DEFAULT_HEDGING_METHODS);
+        private double budgetPercent = Constants.DEFAULT_HEDGING_BUDGET_PERCENT;
+        private int budgetMinHedges = Constants.DEFAULT_HEDGING_BUDGET_MIN_HEDGES;
+
+        public Builder delay(Duration delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        public Builder percentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Builder minDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public Builder window(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        public Builder methods(Collection<String> methods) {
+            this.methods = methods.stream()
+                    .map(method -> method.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            return this;
+        }
+
+        public Builder budgetPercent(double budgetPercent) {
+            this.budgetPercent = budgetPercent;
+            return this;
+        }
+
+        public Builder budgetMinHedges(int budgetMinHedges) {
+            this.budgetMinHedges = budgetMinHedges;
+            return this;
+        }
+
+        public HedgingConfig build() {
+            return new HedgingConfig(this);
+        }
+    }
+}
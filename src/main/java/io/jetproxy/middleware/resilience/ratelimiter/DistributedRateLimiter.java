@@ -0,0 +1,217 @@
+package io.jetproxy.middleware.resilience.ratelimiter;
+
+import io.jetproxy.middleware.cache.RedisCommandBatcher;
+import io.jetproxy.middleware.cache.RedisGuard;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter shared by all JetProxy nodes of a cluster through Redis.
+ * <p>
+ * The route's bucket lives in Redis as a generic cell rate algorithm arrival time, updated by an
+ * atomic Lua script. Nodes do not ask Redis for every request: they lease batches of
+ * {@code leaseSize} tokens and spend them locally, and start renewing in the background once half
+ * of a lease is spent. A request only waits for Redis when the node has run out, and after Redis
+ * answered that the cluster-wide limit is reached, the node rejects locally until the next token is
+ * due. Leased tokens not spent within one refresh period are dropped, so the cluster admits at
+ * most the configured limit, less whatever the nodes are holding.
+ * <p>
+ * While Redis is unhealthy, as reported by the {@link RedisGuard}, each node falls back to the
+ * in-process bucket of {@link RateLimiter} with the same configuration.
+ */
+public class DistributedRateLimiter extends RateLimiter {
+
+    /**
+     * Grants up to ARGV[3] tokens. ARGV[1] is the emission interval and ARGV[2] the burst tolerance,
+     * both in microseconds. Returns the tokens granted and, when none are, the microseconds until
+     * the next one is due. Redis' own clock is used so that nodes with skewed clocks agree.
+     */
+    static final String LEASE_SCRIPT = """
+            local interval = tonumber(ARGV[1])
+            local tolerance = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+            if tat < now then
+                tat = now
+            end
+            local granted = math.min(requested, math.floor((now + tolerance - tat) / interval) + 1)
+            if granted <= 0 then
+                return {0, tat - tolerance - now}
+            end
+            tat = tat + granted * interval
+            redis.call('SET', KEYS[1], string.format('%.0f', tat), 'PX', math.ceil((tat - now) / 1000) + 1)
+            return {granted, 0}
+            """;
+
+    private final RedisGuard guard;
+    private final IntFunction<CompletableFuture<long[]>> leaseSource;
+    private final int leaseSize;
+    private final long leaseTtlNanos;
+    private final LongSupplier clock;
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicReference<CompletableFuture<long[]>> pendingLease = new AtomicReference<>();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private volatile long leaseExpiry;
+    private volatile long deniedUntil;
+
+    /**
+     * @param key     the Redis key of the bucket, the same on every node
+     * @param config  the limits of the bucket and the number of tokens leased at once
+     * @param batcher the batcher the lease script is pipelined on
+     * @param guard   the guard bounding Redis calls and tracking Redis health
+     */
+    public DistributedRateLimiter(String key, RateLimiterConfig config, RedisCommandBatcher batcher, RedisGuard guard) {
+        this(config, guard, leaseFromRedis(key, config, batcher), System::nanoTime);
+    }
+
+    DistributedRateLimiter(RateLimiterConfig config, RedisGuard guard,
+                           IntFunction<CompletableFuture<long[]>> leaseSource, LongSupplier clock) {
+        super(config);
+        this.guard = guard;
+        this.leaseSource = leaseSource;
+        // Leasing a tenth of the period's tokens by default keeps Redis calls rare and idle tokens few
+        int size = config.getLeaseSize() > 0 ? config.getLeaseSize() : config.getLimitForPeriod() / 10;
+        this.leaseSize = Math.max(1, Math.min(size, config.getMaxBurstCapacity()));
+        this.leaseTtlNanos = config.getLimitRefreshPeriod().toNanos();
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.leaseExpiry = now;
+        this.deniedUntil = now;
+    }
+
+    /**
+     * Attempts to consume a token of the cluster-wide bucket.
+     *
+     * @return true if the request is allowed, false otherwise.
+     */
+    @Override
+    public boolean tryConsume() {
+        long now = clock.getAsLong();
+        long leased = tokens.get();
+        if (leased > 0 && now - leaseExpiry > 0) {
+            // The lease is stale. A lease granted since the read changed the count, so it is kept
+            tokens.compareAndSet(leased, 0);
+        }
+
+        long left = take();
+        if (left >= 0) {
+            if (left <= leaseSize / 2 && pendingLease.get() == null) {
+                guard.submit(this::renew);
+            }
+            return true;
+        }
+        if (now - deniedUntil < 0) {
+            return false; // Redis said no token is due before then
+        }
+
+        // Out of tokens, wait for a lease, shared with the other requests that ran out meanwhile
+        long[] lease = guard.call(this::renew, () -> null);
+        if (lease == null) {
+            fallbacks.increment();
+            return super.tryConsume();
+        }
+        return take() >= 0;
+    }
+
+    /**
+     * Takes a leased token.
+     *
+     * @return the tokens left, or -1 if there was none
+     */
+    private long take() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current <= 0) {
+                return -1;
+            }
+        } while (!tokens.compareAndSet(current, current - 1));
+        return current - 1;
+    }
+
+    /**
+     * Requests a lease from Redis, or joins the one already in flight.
+     */
+    private CompletableFuture<long[]> renew() {
+        while (true) {
+            CompletableFuture<long[]> pending = pendingLease.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<long[]> created = new CompletableFuture<>();
+            if (!pendingLease.compareAndSet(null, created)) {
+                continue;
+            }
+            CompletableFuture<long[]> request;
+            try {
+                request = leaseSource.apply(leaseSize);
+            } catch (RuntimeException e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            request.whenComplete((lease, error) -> {
+                if (error == null) {
+                    onLease(lease);
+                }
+                pendingLease.set(null);
+                if (error == null) {
+                    created.complete(lease);
+                } else {
+                    created.completeExceptionally(error);
+                }
+            });
+            return created;
+        }
+    }
+
+    private void onLease(long[] lease) {
+        long now = clock.getAsLong();
+        if (lease[0] > 0) {
+            leases.increment();
+            leaseExpiry = now + leaseTtlNanos; // Before the tokens, see tryConsume
+            tokens.addAndGet(lease[0]);
+        } else {
+            deniedUntil = now + TimeUnit.MICROSECONDS.toNanos(Math.max(1, lease[1]));
+        }
+    }
+
+    private static IntFunction<CompletableFuture<long[]>> leaseFromRedis(String key, RateLimiterConfig config,
+                                                                         RedisCommandBatcher batcher) {
+        long intervalMicros = Math.max(1, config.getLimitRefreshPeriod().toNanos() / 1000 / config.getLimitForPeriod());
+        long toleranceMicros = intervalMicros * (Math.max(1, config.getMaxBurstCapacity()) - 1);
+        List<String> keys = List.of(key);
+        String interval = Long.toString(intervalMicros);
+        String tolerance = Long.toString(toleranceMicros);
+        return size -> batcher.submit(pipeline -> pipeline.eval(LEASE_SCRIPT, keys, List.of(interval, tolerance, Integer.toString(size))))
+                .thenApply(DistributedRateLimiter::parseLease);
+    }
+
+    private static long[] parseLease(Object reply) {
+        List<?> values = (List<?>) reply;
+        return new long[]{((Number) values.get(0)).longValue(), ((Number) values.get(1)).longValue()};
+    }
+
+    /**
+     * Returns the leased tokens this node has not spent yet.
+     */
+    public long getLeasedTokens() {
+        return Math.max(0, tokens.get());
+    }
+
+    public long getLeaseCount() {
+        return leases.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+}
@@ -0,0 +1,208 @@
+package io.jetproxy.middleware.resilience.ratelimiter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter keeping one bucket per client key (IP, header, query parameter or JWT claim).
+ * <p>
+ * Buckets follow the generic cell rate algorithm: a bucket is a single theoretical arrival time,
+ * every allowed request pushes it one emission interval ({@code limitRefreshPeriod / limitForPeriod})
+ * ahead, and a request is rejected when it already runs further ahead of now than the burst allows.
+ * This admits the same rate and burst as the token bucket of {@link RateLimiter} with one long per
+ * key and a single compare-and-set per check.
+ * <p>
+ * Buckets are spread over shards of bounded size. A bucket whose arrival time has passed is full
+ * again, so it can be dropped without changing any decision; a full shard sweeps those at most once
+ * per burst window. When a shard is full of active buckets, keys it cannot hold share one overflow
+ * bucket rather than evicting an active one, which would hand a throttled client a fresh burst.
+ */
+public class KeyedRateLimiter {
+    private static final int SHARDS = 16; // Power of two
+    static final int MAX_KEY_LENGTH = 128; // Longer keys are stored as their SHA-256
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final long sweepIntervalNanos;
+    private final int shardCapacity;
+    private final Shard[] shards = new Shard[SHARDS];
+    private final AtomicLong overflow;
+    private final RateLimitKeyResolver keyResolver;
+    private final LongSupplier clock;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    public KeyedRateLimiter(RateLimiterConfig config, RateLimitKeyResolver keyResolver) {
+        this(config, keyResolver, System::nanoTime);
+    }
+
+    KeyedRateLimiter(RateLimiterConfig config, RateLimitKeyResolver keyResolver, LongSupplier clock) {
+        if (config.getLimitForPeriod() <= 0) {
+            throw new IllegalArgumentException("limitForPeriod must be greater than 0");
+        }
+        this.emissionIntervalNanos = Math.max(1, config.getLimitRefreshPeriod().toNanos() / config.getLimitForPeriod());
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(1, config.getMaxBurstCapacity()) - 1);
+        // An untouched bucket is full again at most one burst window after its last request
+        this.sweepIntervalNanos = burstToleranceNanos + emissionIntervalNanos;
+        this.shardCapacity = Math.max(1, (config.getMaxKeys() + SHARDS - 1) / SHARDS);
+        this.keyResolver = keyResolver;
+        this.clock = clock;
+
+        long now = clock.getAsLong();
+        this.overflow = new AtomicLong(now);
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(now);
+        }
+    }
+
+    /**
+     * Attempts to admit a request on the bucket of its client key.
+     *
+     * @param request the client request
+     * @return true if the request is allowed, false otherwise.
+     */
+    public boolean tryConsume(HttpServletRequest request) {
+        return tryConsume(keyResolver.resolve(request));
+    }
+
+    /**
+     * Attempts to admit a request on the bucket of the given key.
+     *
+     * @param key the client key
+     * @return true if the request is allowed, false otherwise.
+     */
+    public boolean tryConsume(String key) {
+        key = normalize(key);
+        long now = clock.getAsLong();
+        Shard shard = shards[spread(key.hashCode()) & (SHARDS - 1)];
+
+        AtomicLong bucket = shard.buckets.get(key);
+        if (bucket == null) {
+            if (reserve(shard, now)) {
+                // A new bucket starts full, so the request is allowed
+                AtomicLong created = new AtomicLong(now + emissionIntervalNanos);
+                AtomicLong existing = shard.buckets.putIfAbsent(key, created);
+                if (existing == null) {
+                    return true;
+                }
+                shard.size.decrementAndGet();
+                bucket = existing;
+            } else {
+                overflowed.increment();
+                bucket = overflow;
+            }
+        }
+        return consume(bucket, now);
+    }
+
+    private boolean consume(AtomicLong bucket, long now) {
+        long arrival;
+        long start;
+        do {
+            arrival = bucket.get();
+            start = arrival - now > 0 ? arrival : now;
+            if (start - now > burstToleranceNanos) {
+                rejected.increment();
+                return false;
+            }
+        } while (!bucket.compareAndSet(arrival, start + emissionIntervalNanos));
+        return true;
+    }
+
+    /**
+     * Reserves room for a new bucket in the shard, sweeping idle buckets once if it is full.
+     */
+    private boolean reserve(Shard shard, long now) {
+        if (shard.size.incrementAndGet() <= shardCapacity) {
+            return true;
+        }
+        shard.size.decrementAndGet();
+        if (!sweep(shard, now)) {
+            return false;
+        }
+        if (shard.size.incrementAndGet() <= shardCapacity) {
+            return true;
+        }
+        shard.size.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Drops the buckets of the shard that are full again. Only one caller sweeps a shard per
+     * interval, the others go to the overflow bucket meanwhile.
+     *
+     * @return true if any bucket was dropped
+     */
+    private boolean sweep(Shard shard, long now) {
+        long next = shard.nextSweep.get();
+        if (now - next < 0 || !shard.nextSweep.compareAndSet(next, now + sweepIntervalNanos)) {
+            return false;
+        }
+        boolean removed = false;
+        for (Map.Entry<String, AtomicLong> entry : shard.buckets.entrySet()) {
+            if (entry.getValue().get() - now <= 0 && shard.buckets.remove(entry.getKey(), entry.getValue())) {
+                shard.size.decrementAndGet();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    private static String normalize(String key) {
+        if (key == null) {
+            return "";
+        }
+        if (key.length() <= MAX_KEY_LENGTH) {
+            return key;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            return key.substring(0, MAX_KEY_LENGTH);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the number of buckets currently held.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size.get();
+        }
+        return size;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getOverflowCount() {
+        return overflowed.sum();
+    }
+
+    private static final class Shard {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong nextSweep;
+
+        private Shard(long now) {
+            this.nextSweep = new AtomicLong(now);
+        }
+    }
+}
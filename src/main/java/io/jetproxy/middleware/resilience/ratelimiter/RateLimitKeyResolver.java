@@ -0,0 +1,124 @@
+package io.jetproxy.middleware.resilience.ratelimiter;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.jetproxy.exception.JetProxyValidationException;
+import io.jetproxy.util.Constants;
+import jakarta.servlet.http.HttpServletRequest;
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.UrlEncoded;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Resolves the key a request is rate limited by, from the {@code keyBy} option of the rate limiter:
+ * {@code ip}, {@code header:<name>}, {@code query:<name>} or {@code jwt:<claim>}.
+ * <p>
+ * Requests that do not carry the configured header, parameter or claim are limited by their client
+ * IP, so leaving the key out does not get around the limit.
+ */
+public class RateLimitKeyResolver {
+
+    public enum Source {
+        IP, HEADER, QUERY, JWT
+    }
+
+    private final Source source;
+    private final String name;
+
+    private RateLimitKeyResolver(Source source, String name) {
+        this.source = source;
+        this.name = name;
+    }
+
+    /**
+     * Parses a {@code keyBy} option.
+     *
+     * @param keyBy the option, e.g. {@code header:X-Api-Key}
+     * @return the resolver
+     * @throws JetProxyValidationException if the option is not recognised
+     */
+    public static RateLimitKeyResolver from(String keyBy) {
+        if (keyBy == null || keyBy.isBlank()) {
+            throw new JetProxyValidationException("keyBy must not be empty");
+        }
+        String value = keyBy.trim();
+        if (value.equalsIgnoreCase(Constants.RATE_LIMIT_KEY_IP)) {
+            return new RateLimitKeyResolver(Source.IP, null);
+        }
+        int separator = value.indexOf(':');
+        String name = separator > 0 ? value.substring(separator + 1).trim() : "";
+        if (name.isEmpty()) {
+            throw new JetProxyValidationException("Invalid keyBy: " + keyBy);
+        }
+        return switch (value.substring(0, separator).trim().toLowerCase(Locale.ROOT)) {
+            case Constants.RATE_LIMIT_KEY_HEADER -> new RateLimitKeyResolver(Source.HEADER, name);
+            case Constants.RATE_LIMIT_KEY_QUERY -> new RateLimitKeyResolver(Source.QUERY, name);
+            case Constants.RATE_LIMIT_KEY_JWT -> new RateLimitKeyResolver(Source.JWT, name);
+            default -> throw new JetProxyValidationException("Invalid keyBy: " + keyBy);
+        };
+    }
+
+    /**
+     * Returns the rate limit key of the request.
+     *
+     * @param request the client request
+     * @return the key, never null
+     */
+    public String resolve(HttpServletRequest request) {
+        String key = switch (source) {
+            case IP -> null;
+            case HEADER -> request.getHeader(name);
+            case QUERY -> queryParameter(request);
+            case JWT -> jwtClaim(request);
+        };
+        if (key == null || key.isEmpty()) {
+            key = request.getRemoteAddr();
+        }
+        return key != null ? key : "";
+    }
+
+    /**
+     * Reads the parameter from the query string only. {@code getParameter} would also read a form
+     * body, which has to reach the upstream untouched.
+     */
+    private String queryParameter(HttpServletRequest request) {
+        String rawQuery = request.getQueryString();
+        if (rawQuery == null || !rawQuery.contains(name)) {
+            return null;
+        }
+        MultiMap<String> params = new MultiMap<>();
+        UrlEncoded.decodeTo(rawQuery, params, StandardCharsets.UTF_8);
+        return params.getString(name);
+    }
+
+    /**
+     * Reads the claim from the claims the JWT authenticator verified and stored on the request.
+     */
+    private String jwtClaim(HttpServletRequest request) {
+        Object claims = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_JWT_CLAIMS);
+        if (claims == null) {
+            return null;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(claims.toString()).getAsJsonObject();
+            JsonElement claim = json.get(name);
+            if (claim == null || claim.isJsonNull()) {
+                return null;
+            }
+            return claim.isJsonPrimitive() ? claim.getAsString() : claim.toString();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -1,6 +1,7 @@
 package io.jetproxy.middleware.resilience.ratelimiter;
 
 import io.jetproxy.exception.JetProxyValidationException;
+import io.jetproxy.util.Constants;
 import lombok.Getter;
 import java.time.Duration;
 
@@ -9,11 +10,15 @@ public class RateLimiterConfig {
     private final Duration limitRefreshPeriod;
     private final int limitForPeriod;
     private final int maxBurstCapacity;
+    private final int maxKeys; // Bucket cap of a keyed rate limiter
+    private final int leaseSize; // Tokens a distributed rate limiter leases at once, 0 to derive it
 
     private RateLimiterConfig(Builder builder) {
         this.limitRefreshPeriod = builder.limitRefreshPeriod;
         this.limitForPeriod = builder.limitForPeriod;
         this.maxBurstCapacity = builder.maxBurstCapacity;
+        this.maxKeys = builder.maxKeys;
+        this.leaseSize = builder.leaseSize;
     }
 
     public static Builder custom() {
@@ -23,6 +28,8 @@ public class RateLimiterConfig {
         private Duration limitRefreshPeriod = Duration.ofMillis(1000);
         private int limitForPeriod = 10;
         private int maxBurstCapacity = 20;
+        private int maxKeys = Constants.DEFAULT_RATE_LIMIT_MAX_KEYS;
+        private int leaseSize = Constants.DEFAULT_RATE_LIMIT_LEASE_SIZE;
 
         public Builder limitRefreshPeriod(Duration period) {
             if (period.isZero() || period.isNegative()) {
@@ -48,6 +55,22 @@ public class RateLimiterConfig {
             return this;
         }
 
+        public Builder maxKeys(int maxKeys) {
+            if (maxKeys <= 0) {
+                throw new JetProxyValidationException("maxKeys must be greater than 0");
+            }
+            this.maxKeys = maxKeys;
+            return this;
+        }
+
+        public Builder leaseSize(int leaseSize) {
+            if (leaseSize < 0) {
+                throw new JetProxyValidationException("leaseSize must be non-negative");
+            }
+            this.leaseSize = leaseSize;
+            return this;
+        }
+
         public RateLimiterConfig build() {
             if (maxBurstCapacity < limitForPeriod) {
                 throw new JetProxyValidationException("maxBurstCapacity must be >= limitForPeriod");
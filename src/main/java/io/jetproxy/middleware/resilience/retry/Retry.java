@@ -1,91 +1,115 @@
 package io.jetproxy.middleware.resilience.retry;
 
-
-import io.jetproxy.middleware.resilience.ResilienceInterface;
-
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * A Retry mechanism implementation using ResilienceInterface.
- * It retries a failed operation a limited number of times with configurable delays.
+ * Retry policy of a route.
+ * <p>
+ * The policy itself is stateless apart from the route's {@link RetryBudget}: attempts are counted
+ * per request by the caller, which resends the upstream request after {@link #backoffMillis} on a
+ * scheduler instead of sleeping on an I/O thread. Only methods configured as retryable (idempotent
+ * ones by default) are retried, on transport failures or on the configured status codes.
  */
-public class Retry implements ResilienceInterface {
-
-    private final int maxRetries; // Maximum number of retries
-    private final long delayBetweenRetriesMillis; // Delay between retries
-    private final AtomicInteger attemptCounter = new AtomicInteger(0); // Tracks current attempts
-    private volatile boolean shouldRetry = true; // Indicates if retries are allowed
+public class Retry {
+
+    private final int maxRetries; // Maximum number of retries per request
+    private final long waitDurationMillis; // Backoff before the first retry
+    private final long maxWaitDurationMillis; // Backoff cap
+    private final Set<Integer> retryOnStatus;
+    private final Set<String> methods;
+    private final RetryBudget budget;
     private final String name;
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
 
     /**
      * Constructs a Retry instance with the given configuration.
      *
-     * @param config The RetryConfig containing maxAttempts and waitDuration.
+     * @param config The RetryConfig containing maxAttempts, backoff, statuses, methods and budget.
      */
     public Retry(String name, RetryConfig config) {
         this.maxRetries = config.getMaxAttempts();
-        this.delayBetweenRetriesMillis = config.getWaitDuration().toMillis();
+        this.waitDurationMillis = Math.max(0, config.getWaitDuration().toMillis());
+        this.maxWaitDurationMillis = Math.max(waitDurationMillis, config.getMaxWaitDuration().toMillis());
+        this.retryOnStatus = config.getRetryOnStatus();
+        this.methods = config.getMethods();
+        this.budget = new RetryBudget(config.getBudgetPercent(), config.getBudgetMinRetries());
         this.name = name;
     }
 
     /**
-     * Determines if the current operation can be retried.
+     * Records a request of the route, which earns the route a fraction of a retry.
+     */
+    public void onRequest() {
+        budget.onRequest();
+    }
+
+    /**
+     * Determines whether requests with this method may be retried at all.
+     */
+    public boolean isRetryableMethod(String method) {
+        return method != null && methods.contains(method.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Determines whether an upstream response status asks for a retry.
+     */
+    public boolean isRetryableStatus(int status) {
+        return retryOnStatus.contains(status);
+    }
+
+    /**
+     * Decides whether to send retry number {@code retries + 1} of a request, and takes it from the
+     * budget if so.
      *
-     * @return true if retries are allowed, false otherwise.
+     * @param method  the request method
+     * @param retries retries already sent for this request
+     * @return true if the request should be sent again
      */
-    public boolean canRetry() {
-        if (!shouldRetry) {
-            return false; // Retries exhausted
+    public boolean tryRetry(String method, int retries) {
+        if (retries >= maxRetries || !isRetryableMethod(method)) {
+            return false;
         }
-
-        if (attemptCounter.incrementAndGet() > maxRetries) {
-            shouldRetry = false; // Disable further retries
+        if (!budget.tryAcquire()) {
+            budgetExhausted.increment();
             return false;
         }
-
-        return true; // Allow the retry
+        retried.increment();
+        return true;
     }
 
-    @Override
-    public boolean allowRequest() {
-        if (attemptCounter.get() == 0) {
-            return true;
+    /**
+     * Returns the delay before retry number {@code retry} (1-based): the base wait doubled per retry
+     * and capped, then jittered between half and all of it so that requests failing together do
+     * not come back together.
+     */
+    public long backoffMillis(int retry) {
+        long delay = waitDurationMillis << Math.min(Math.max(0, retry - 1), 20);
+        delay = Math.min(maxWaitDurationMillis, delay);
+        if (delay <= 1) {
+            return delay;
         }
-        return canRetry();
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
     }
 
-    @Override
-    public void onSuccess(long duration, TimeUnit unit) {
-        reset(); // Reset the retry mechanism on success
+    public int getMaxRetries() {
+        return maxRetries;
     }
 
-    @Override
-    public void onError(long duration, TimeUnit unit) {
-        if (canRetry()) {
-            try {
-                Thread.sleep(delayBetweenRetriesMillis); // Delay before the next retry
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+    public RetryBudget getBudget() {
+        return budget;
     }
 
-    @Override
-    public String getState() {
-        if (!shouldRetry) {
-            return "FAILED";
-        } else if (attemptCounter.get() == 0) {
-            return "SUCCESS"; // Indicate success when counter is reset
-        } else {
-            return "RETRYING";
-        }
+    public long getRetriedCount() {
+        return retried.sum();
     }
 
-
-    private void reset() {
-        attemptCounter.set(0);
-        shouldRetry = true;
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
     }
 
     public String getName() {
@@ -0,0 +1,78 @@
+package io.jetproxy.middleware.resilience.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries to a percentage of the requests of a route, so that an unhealthy upstream sees at
+ * most {@code 1 + percent/100} times its normal load instead of {@code 1 + maxAttempts} times.
+ * <p>
+ * Every request deposits {@code percent/100} of a token and every retry withdraws a whole one. A
+ * route starts with {@code minRetries} tokens, so occasional failures at low traffic can still be
+ * retried. The balance is capped at {@code minRetries} tokens, or one with {@code minRetries: 0} so
+ * that deposits can still add up to a retry.
+ */
+public class RetryBudget {
+    private static final long TOKEN = 1000; // Fixed point, a deposit of 20% is 200
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double percent, int minRetries) {
+        this.deposit = Math.round(TOKEN * percent / 100);
+        this.maxBalance = TOKEN * Math.max(1, minRetries);
+        this.balance = new AtomicLong(TOKEN * Math.max(0, minRetries));
+    }
+
+    /**
+     * Records a request of the route.
+     */
+    public void onRequest() {
+        if (deposit <= 0 || balance.get() >= maxBalance) {
+            return;
+        }
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    /**
+     * Withdraws one retry.
+     *
+     * @return false if the budget is exhausted and the request must not be retried
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * Gives back a retry withdrawn by {@link #tryAcquire()} that was not used.
+     */
+    public void release() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + TOKEN)));
+    }
+
+    /**
+     * Returns the number of retries currently available.
+     */
+    public long available() {
+        return balance.get() / TOKEN;
+    }
+}
@@ -1,8 +1,13 @@
 package io.jetproxy.middleware.resilience.retry;
 
+import io.jetproxy.util.Constants;
 import lombok.Getter;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Configuration class for the Retry mechanism.
@@ -12,10 +17,20 @@ public class RetryConfig {
 
     private final int maxAttempts;
     private final Duration waitDuration;
+    private final Duration maxWaitDuration;
+    private final Set<Integer> retryOnStatus;
+    private final Set<String> methods;
+    private final double budgetPercent;
+    private final int budgetMinRetries;
 
     private RetryConfig(Builder builder) {
         this.maxAttempts = builder.maxAttempts;
         this.waitDuration = builder.waitDuration;
+        this.maxWaitDuration = builder.maxWaitDuration;
+        this.retryOnStatus = builder.retryOnStatus;
+        this.methods = builder.methods;
+        this.budgetPercent = builder.budgetPercent;
+        this.budgetMinRetries = builder.budgetMinRetries;
     }
 
     /**
@@ -31,8 +46,13 @@ public class RetryConfig {
      * Builder for RetryConfig.
      */
     public static class Builder {
-        private int maxAttempts = 3; // Default: 3 attempts
-        private Duration waitDuration = Duration.ofMillis(500); // Default: 500ms wait
+        private int maxAttempts = 3; // Default: 3 retries
+        private Duration waitDuration = Duration.ofMillis(Constants.DEFAULT_RETRY_WAIT_DURATION);
+        private Duration maxWaitDuration = Duration.ofMillis(Constants.DEFAULT_RETRY_MAX_WAIT_DURATION);
+        private Set<Integer> retryOnStatus = Set.copyOf(Constants.DEFAULT_RETRY_ON_STATUS);
+        private Set<String> methods = Set.copyOf(Constants.DEFAULT_RETRY_METHODS);
+        private double budgetPercent = Constants.DEFAULT_RETRY_BUDGET_PERCENT;
+        private int budgetMinRetries = Constants.DEFAULT_RETRY_BUDGET_MIN_RETRIES;
 
         public Builder maxAttempts(int maxAttempts) {
             this.maxAttempts = maxAttempts;
@@ -44,6 +64,33 @@ public class RetryConfig {
             return this;
         }
 
+        public Builder maxWaitDuration(Duration maxWaitDuration) {
+            this.maxWaitDuration = maxWaitDuration;
+            return this;
+        }
+
+        public Builder retryOnStatus(Collection<Integer> retryOnStatus) {
+            this.retryOnStatus = Set.copyOf(retryOnStatus);
+            return this;
+        }
+
+        public Builder methods(Collection<String> methods) {
+            this.methods = methods.stream()
+                    .map(method -> method.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            return this;
+        }
+
+        public Builder budgetPercent(double budgetPercent) {
+            this.budgetPercent = budgetPercent;
+            return this;
+        }
+
+        public Builder budgetMinRetries(int budgetMinRetries) {
+            this.budgetMinRetries = budgetMinRetries;
+            return this;
+        }
+
         public RetryConfig build() {
             return new RetryConfig(this);
         }
@@ -5,6 +5,8 @@ import io.jetproxy.logger.DebugAwareLogger;
 import io.jetproxy.middleware.cache.RedisPoolManager;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
+import java.io.Closeable;
+import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +21,29 @@ public class AppShutdownListener implements ServletContextListener {
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
         if (AppContext.get().isGracefullyShutdownAllowed()) {
+            if (AppContext.get().getCache() instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close cache: {}", e.getMessage());
+                }
+            }
+            if (AppContext.get().getMetricsListener() instanceof Closeable closeable) {
+                try {
+                    // Flushes metrics aggregated since the last interval while Redis is still open
+                    closeable.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close metrics listener: {}", e.getMessage());
+                }
+            }
+            if (AppContext.get().getAccessLogger() != null) {
+                try {
+                    // Writes records still buffered for the access log writer
+                    AppContext.get().getAccessLogger().close();
+                } catch (IOException e) {
+                    logger.error("Failed to close access log: {}", e.getMessage());
+                }
+            }
             RedisPoolManager.closePool();
             logger.info("Shutting down gracefully...");
         }
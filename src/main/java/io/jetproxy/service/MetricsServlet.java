@@ -0,0 +1,31 @@
+package io.jetproxy.service;
+
+import io.jetproxy.middleware.metric.MetricsRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Exposes the {@link MetricsRegistry} for Prometheus scrapes, in the OpenMetrics format when the
+ * scraper asks for it and in the Prometheus text format otherwise.
+ */
+public class MetricsServlet extends HttpServlet {
+    private static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String CONTENT_TYPE_OPEN_METRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String accept = req.getHeader("Accept");
+        boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+
+        StringWriter body = new StringWriter(16 * 1024);
+        MetricsRegistry.get().writeTo(body, openMetrics);
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(openMetrics ? CONTENT_TYPE_OPEN_METRICS : CONTENT_TYPE_PROMETHEUS);
+        resp.getWriter().write(body.toString());
+    }
+}
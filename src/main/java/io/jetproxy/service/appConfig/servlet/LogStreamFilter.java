@@ -0,0 +1,101 @@
+package io.jetproxy.service.appConfig.servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Server-side selection of the log lines a stream client receives, read from the query string:
+ * <ul>
+ *     <li>{@code route}: only lines whose route starts with the value</li>
+ *     <li>{@code status}: comma separated codes or classes, e.g. {@code 404,5xx}</li>
+ *     <li>{@code minLatency}: only requests that took at least this many milliseconds</li>
+ *     <li>{@code sample}: fraction of the matching lines to send, between 0 and 1</li>
+ * </ul>
+ * Lines without request details (status 0, negative latency) only pass filters that do not
+ * constrain them.
+ */
+public class LogStreamFilter {
+    private final String routePrefix;
+    private final int[] statuses;
+    private final long minLatencyMillis;
+    private final double sampleRate;
+
+    LogStreamFilter(String routePrefix, int[] statuses, long minLatencyMillis, double sampleRate) {
+        this.routePrefix = routePrefix;
+        this.statuses = statuses;
+        this.minLatencyMillis = minLatencyMillis;
+        this.sampleRate = sampleRate;
+    }
+
+    public static LogStreamFilter from(HttpServletRequest request) {
+        String route = request.getParameter("route");
+        return new LogStreamFilter(
+                route == null || route.isBlank() ? null : route.trim(),
+                parseStatuses(request.getParameter("status")),
+                parseLong(request.getParameter("minLatency"), 0),
+                Math.min(1, Math.max(0, parseDouble(request.getParameter("sample"), 1))));
+    }
+
+    public boolean accepts(String route, int status, long durationMillis) {
+        if (routePrefix != null && (route == null || !route.startsWith(routePrefix))) {
+            return false;
+        }
+        if (statuses != null && !matchesStatus(status)) {
+            return false;
+        }
+        if (minLatencyMillis > 0 && durationMillis < minLatencyMillis) {
+            return false;
+        }
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private boolean matchesStatus(int status) {
+        for (int expected : statuses) {
+            // Classes are stored as 1..5, exact codes as themselves
+            if (expected < 10 ? status / 100 == expected : status == expected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] parseStatuses(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String[] parts = value.split(",");
+        int[] statuses = new int[parts.length];
+        int count = 0;
+        for (String part : parts) {
+            String status = part.trim().toLowerCase();
+            try {
+                if (status.length() == 3 && status.endsWith("xx")) {
+                    statuses[count++] = Integer.parseInt(status.substring(0, 1));
+                } else if (!status.isEmpty()) {
+                    statuses[count++] = Integer.parseInt(status);
+                }
+            } catch (NumberFormatException e) {
+                // Ignore malformed entries rather than rejecting the stream
+            }
+        }
+        return count == 0 ? null : Arrays.copyOf(statuses, count);
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double parseDouble(String value, double defaultValue) {
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
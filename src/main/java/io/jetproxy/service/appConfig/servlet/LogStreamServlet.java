@@ -1,47 +1,90 @@
 package io.jetproxy.service.appConfig.servlet;
 
+import io.jetproxy.middleware.metric.MetricsRegistry;
 import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import java.io.PrintWriter;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Server-sent event stream of access log lines.
+ * <p>
+ * Every client gets a {@link LogStreamSubscriber} with its own bounded queue, so a slow or stalled
+ * client only loses its own oldest lines. {@link #broadcast} is called from the access log writer
+ * thread and never touches a socket. Clients narrow the stream with the query parameters described
+ * in {@link LogStreamFilter}, e.g. {@code /_jetproxy/logs/stream?route=/orders&status=5xx&sample=0.1}.
+ */
 public class LogStreamServlet extends HttpServlet {
-    private static final List<PrintWriter> clients = new CopyOnWriteArrayList<>();
+    static final int QUEUE_CAPACITY = 1024;
+    static final int MAX_CLIENTS = 32;
 
+    private static final List<LogStreamSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private static final LongAdder dropped = new LongAdder();
+
+    @Override
+    public void init() throws ServletException {
+        MetricsRegistry registry = MetricsRegistry.get();
+        registry.registerGauge("jetproxy_log_stream_clients", "Connected live log stream clients", "gauge", subscribers::size);
+        registry.registerGauge("jetproxy_log_stream_dropped_total", "Log lines dropped because a stream client fell behind",
+                "counter", dropped::sum);
+    }
+
+    public static boolean hasClients() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Sends a line without request details; only clients without filters receive it.
+     */
     public static void broadcast(String log) {
-        for (PrintWriter writer : clients) {
-            try {
-                writer.write("data: " + log + "\n\n");
-                writer.flush();
-            } catch (Exception e) {
-                clients.remove(writer);
+        broadcast(null, 0, -1, log);
+    }
+
+    /**
+     * Queues a line for every client whose filter accepts it.
+     */
+    public static void broadcast(String route, int status, long durationMillis, CharSequence log) {
+        String line = null;
+        for (LogStreamSubscriber subscriber : subscribers) {
+            if (!subscriber.getFilter().accepts(route, status, durationMillis)) {
+                continue;
+            }
+            if (line == null) {
+                line = log.toString();
+            }
+            if (!subscriber.offer(line)) {
+                dropped.increment();
             }
         }
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (subscribers.size() >= MAX_CLIENTS) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many log stream clients");
+            return;
+        }
         resp.setContentType("text/event-stream");
         resp.setCharacterEncoding("UTF-8");
         resp.setHeader("Cache-Control", "no-cache");
         resp.setHeader("Connection", "keep-alive");
 
-        PrintWriter writer = resp.getWriter();
-        clients.add(writer);
-
-        // Send welcome message once
-        writer.write("data: Connected to JetProxy logs\n\n");
-        writer.flush();
-
-        // Keep connection open — do nothing else, let broadcast() send real logs
-        // Do not return or close the stream
-        // ✅ Keep the request alive using async context
-        final AsyncContext asyncContext = req.startAsync();
+        AsyncContext asyncContext = req.startAsync();
         asyncContext.setTimeout(0); // Never timeout
+        ServletOutputStream out = resp.getOutputStream();
+        LogStreamSubscriber subscriber = new LogStreamSubscriber(asyncContext, out, LogStreamFilter.from(req),
+                QUEUE_CAPACITY, subscribers::remove);
+        asyncContext.addListener(subscriber);
+        subscriber.offer("Connected to JetProxy logs");
+        subscribers.add(subscriber);
+        // The container calls onWritePossible once the listener is set, which sends the welcome line
+        out.setWriteListener(subscriber);
     }
 }
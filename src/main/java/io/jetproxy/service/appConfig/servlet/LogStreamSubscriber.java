@@ -0,0 +1,158 @@
+package io.jetproxy.service.appConfig.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * One live log stream client.
+ * <p>
+ * {@link #offer(String)} only appends to a bounded queue, dropping the oldest line when the client
+ * falls behind, so publishers never wait on a socket. Draining happens on container threads through
+ * a {@link WriteListener}: lines are written while the output is ready and writing resumes from
+ * {@link #onWritePossible()} once a slow client catches up.
+ */
+@Slf4j
+class LogStreamSubscriber implements WriteListener, AsyncListener {
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final LogStreamFilter filter;
+    private final int capacity;
+    private final Consumer<LogStreamSubscriber> onClose;
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean writing = new AtomicBoolean(true); // Until the listener is registered
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private boolean unflushed;
+
+    LogStreamSubscriber(AsyncContext asyncContext, ServletOutputStream out, LogStreamFilter filter,
+                        int capacity, Consumer<LogStreamSubscriber> onClose) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.filter = filter;
+        this.capacity = Math.max(1, capacity);
+        this.onClose = onClose;
+    }
+
+    LogStreamFilter getFilter() {
+        return filter;
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    int getQueueSize() {
+        return size.get();
+    }
+
+    /**
+     * Queues a line without blocking. Returns {@code false} if an older line was dropped to make room.
+     */
+    boolean offer(String line) {
+        if (closed.get()) {
+            return true;
+        }
+        queue.add(line);
+        boolean kept = true;
+        if (size.incrementAndGet() > capacity && queue.poll() != null) {
+            size.decrementAndGet();
+            dropped.increment();
+            kept = false;
+        }
+        if (writing.compareAndSet(false, true)) {
+            try {
+                asyncContext.start(this::writeAvailable);
+            } catch (IllegalStateException e) {
+                close();
+            }
+        }
+        return kept;
+    }
+
+    private void writeAvailable() {
+        try {
+            onWritePossible();
+        } catch (IOException e) {
+            onError(e);
+        }
+    }
+
+    /**
+     * Writes queued lines until the queue is empty or the client stops accepting data. In the latter
+     * case {@code writing} stays set and the container calls back once the client is ready again.
+     */
+    @Override
+    public void onWritePossible() throws IOException {
+        while (!closed.get() && out.isReady()) {
+            String line = queue.poll();
+            if (line != null) {
+                size.decrementAndGet();
+                out.write(("data: " + line + "\n\n").getBytes(StandardCharsets.UTF_8));
+                unflushed = true;
+                continue;
+            }
+            if (unflushed) {
+                unflushed = false;
+                out.flush();
+                continue;
+            }
+            writing.set(false);
+            // A line offered between poll() and clearing the flag did not schedule a write
+            if (queue.isEmpty() || !writing.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("Log stream client failed: {}", t.getMessage());
+        close();
+    }
+
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        onClose.accept(this);
+        queue.clear();
+        size.set(0);
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
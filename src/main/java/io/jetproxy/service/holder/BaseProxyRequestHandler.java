@@ -6,11 +6,16 @@ import io.grpc.ManagedChannel;
 import io.grpc.StatusRuntimeException;
 import io.jetproxy.context.AppConfig;
 import io.jetproxy.logger.DebugAwareLogger;
+import io.jetproxy.middleware.auth.ForwardAuthDecisionCache;
+import io.jetproxy.middleware.auth.SpeculativeAuth;
+import io.jetproxy.middleware.auth.SpeculativeDispatch;
 import io.jetproxy.middleware.cache.CacheFactory;
 import io.jetproxy.middleware.cache.ResponseCacheEntry;
 import io.jetproxy.middleware.grpc.GrpcChannelManager;
 import io.jetproxy.middleware.grpc.GrpcToHttpStatusMapper;
 import io.jetproxy.middleware.grpc.MockResponse;
+import io.jetproxy.middleware.resilience.hedge.Hedging;
+import io.jetproxy.middleware.resilience.retry.Retry;
 import io.jetproxy.middleware.rule.RuleContext;
 import io.jetproxy.util.BufferedHttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,19 +25,29 @@ import org.brotli.dec.BrotliInputStream;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.client.util.BytesContentProvider;
 import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.proxy.ProxyServlet;
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.Scheduler;
 import io.jetproxy.context.AppContext;
 import io.jetproxy.middleware.resilience.ResilienceUtil;
 import io.jetproxy.middleware.rule.header.HeaderAction;
+import io.jetproxy.util.Constants;
 import io.jetproxy.util.RequestUtils;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterInputStream;
@@ -108,6 +123,7 @@ public abstract class BaseProxyRequestHandler extends ProxyServlet.Transparent {
     protected Map<String, String> extractAttributesFromRequest(HttpServletRequest request) {
         return Collections.list(request.getAttributeNames())
                 .stream()
+                .filter(attributeName -> !attributeName.startsWith(Constants.REQUEST_ATTRIBUTE_JETPROXY_INTERNAL_PREFIX))
                 .collect(Collectors.toMap(
                         attributeName -> attributeName,
                         attributeName -> String.valueOf(request.getAttribute(attributeName)) // Convert to String
@@ -209,6 +225,539 @@ public abstract class BaseProxyRequestHandler extends ProxyServlet.Transparent {
 
 
     }
+    /**
+     * Gives an upstream request the time left of the client request's deadline as its timeout and,
+     * unless the route opted out, as the {@code X-JetProxy-Timeout-Ms} header. The request is
+     * aborted together with the others of the client request if the client disconnects.
+     *
+     * @return false if no time is left or the client is gone, the request must not be sent
+     */
+    protected boolean applyDeadline(HttpServletRequest clientRequest, Request proxyRequest) {
+        UpstreamDeadline deadline = UpstreamDeadline.get(clientRequest);
+        if (deadline == null) {
+            proxyRequest.timeout(getTimeout(), TimeUnit.MILLISECONDS);
+            return true;
+        }
+        long remaining = deadline.remainingMillis();
+        if (remaining <= 0 || deadline.isCancelled()) {
+            return false;
+        }
+        proxyRequest.timeout(remaining, TimeUnit.MILLISECONDS);
+        boolean propagate = proxyRule.getTimeout() == null || proxyRule.getTimeout().isPropagate();
+        proxyRequest.headers(headers -> {
+            if (propagate) {
+                headers.put(Constants.HEADER_X_JETPROXY_TIMEOUT_MS, Long.toString(remaining));
+            } else {
+                headers.remove(Constants.HEADER_X_JETPROXY_TIMEOUT_MS);
+            }
+        });
+        return deadline.track(proxyRequest);
+    }
+
+    /**
+     * Determines whether another upstream request may be sent for the client request.
+     */
+    protected boolean hasTimeLeft(HttpServletRequest clientRequest) {
+        UpstreamDeadline deadline = UpstreamDeadline.get(clientRequest);
+        return deadline == null || deadline.hasTimeLeft();
+    }
+
+    /**
+     * Adds the headers of the ForwardAuth check that allowed a speculative request to another
+     * upstream request for it. The first one got them when the check settled.
+     */
+    protected static void addForwardAuthHeaders(HttpServletRequest clientRequest, Request proxyRequest) {
+        SpeculativeAuth.decisionHeaders(clientRequest).forEach(proxyRequest::header);
+    }
+
+    /**
+     * Sends the proxy request and sends it again, as a fresh upstream request, when it fails with a
+     * transport error or a retryable status before anything was forwarded to the client. The body
+     * is buffered so that it can be replayed; requests with a larger or unknown-length body are
+     * sent once.
+     */
+    protected void sendProxyRequestWithRetry(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                             Request proxyRequest, Retry retry) throws IOException {
+        byte[] body = null;
+        long contentLength = clientRequest.getContentLengthLong();
+        if (contentLength > Constants.DEFAULT_RETRY_MAX_BUFFERED_BODY
+                || (contentLength < 0 && clientRequest.getHeader(HttpHeader.TRANSFER_ENCODING.asString()) != null)) {
+            super.sendProxyRequest(clientRequest, proxyResponse, proxyRequest);
+            return;
+        }
+        if (contentLength > 0) {
+            BufferedHttpServletRequestWrapper bufferedRequest = new BufferedHttpServletRequestWrapper(clientRequest);
+            body = bufferedRequest.getBodyAsByte();
+            proxyRequest.content(new BytesContentProvider(body), clientRequest.getContentType());
+        }
+        proxyRequest.send(new RetryingResponseListener(clientRequest, proxyResponse, proxyRequest, retry, body));
+    }
+
+    /**
+     * Per-request retry state. Each attempt's response is held back until its status is known: a
+     * retryable one is drained and discarded, anything else is handed to the regular proxy listener.
+     * Retries are scheduled on the HTTP client's scheduler, so no thread waits for the backoff.
+     */
+    protected class RetryingResponseListener extends Response.Listener.Adapter {
+        private final HttpServletRequest clientRequest;
+        private final HttpServletResponse proxyResponse;
+        private final String target;
+        private final Retry retry;
+        private final byte[] body;
+        private final Response.Listener delegate;
+        private int retries;
+        private boolean forwarding; // The response of this attempt goes to the client
+        private boolean discarding; // The response of this attempt is retried
+
+        protected RetryingResponseListener(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                           Request proxyRequest, Retry retry, byte[] body) {
+            this.clientRequest = clientRequest;
+            this.proxyResponse = proxyResponse;
+            this.target = proxyRequest.getURI().toString();
+            this.retry = retry;
+            this.body = body;
+            this.delegate = newProxyResponseListener(clientRequest, proxyResponse);
+        }
+
+        @Override
+        public void onBegin(Response response) {
+            if (retry.isRetryableStatus(response.getStatus()) && hasTimeLeft(clientRequest)
+                    && retry.tryRetry(clientRequest.getMethod(), retries)) {
+                discarding = true;
+                return;
+            }
+            forwarding = true;
+            delegate.onBegin(response);
+        }
+
+        @Override
+        public boolean onHeader(Response response, HttpField field) {
+            return discarding || delegate.onHeader(response, field);
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            if (!discarding) {
+                delegate.onHeaders(response);
+            }
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content, Callback callback) {
+            if (discarding) {
+                callback.succeeded();
+            } else {
+                delegate.onContent(response, content, callback);
+            }
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            if (!discarding) {
+                delegate.onSuccess(response);
+            }
+        }
+
+        @Override
+        public void onFailure(Response response, Throwable failure) {
+            // A failure before the response began may still be retried, onComplete decides
+            if (forwarding) {
+                delegate.onFailure(response, failure);
+            }
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            if (discarding) {
+                resilience.handleHttpResponse(clientRequest, result.getResponse().getStatus(), null);
+                scheduleRetry();
+            } else if (result.isFailed() && !forwarding && hasTimeLeft(clientRequest)
+                    && retry.tryRetry(clientRequest.getMethod(), retries)) {
+                // Nothing reached the client yet, e.g. the connection was refused or reset
+                resilience.handleHttpResponse(clientRequest, HttpStatus.BAD_GATEWAY_502, result.getFailure());
+                scheduleRetry();
+            } else {
+                if (result.isFailed() && !forwarding) {
+                    delegate.onFailure(result.getResponse(), result.getFailure());
+                }
+                delegate.onComplete(result);
+            }
+        }
+
+        private void scheduleRetry() {
+            retries++;
+            long delay = retry.backoffMillis(retries);
+            logger.debug("Retrying {} {} in {} ms, retry {}", clientRequest.getMethod(), target, delay, retries);
+            getHttpClient().getScheduler().schedule(this::send, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void send() {
+            forwarding = false;
+            discarding = false;
+            try {
+                Request proxyRequest = newProxyRequest(clientRequest, target);
+                copyRequestHeaders(clientRequest, proxyRequest);
+                addProxyHeaders(clientRequest, proxyRequest);
+                addForwardAuthHeaders(clientRequest, proxyRequest);
+                if (!applyDeadline(clientRequest, proxyRequest)) {
+                    throw new TimeoutException("Deadline exceeded before retry " + retries);
+                }
+                if (body != null) {
+                    proxyRequest.content(new BytesContentProvider(body), clientRequest.getContentType());
+                }
+                clientRequest.setAttribute("startTime", System.nanoTime());
+                proxyRequest.send(this);
+            } catch (Exception e) {
+                onProxyResponseFailure(clientRequest, proxyResponse, null, e);
+            }
+        }
+    }
+
+    /**
+     * Sends the proxy request and, if the upstream has not begun to answer within the route's
+     * hedging delay, the same request a second time. Requests with a body are sent once.
+     */
+    protected void sendProxyRequestWithHedging(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                               Request proxyRequest, Hedging hedging) {
+        if (clientRequest.getContentLengthLong() > 0
+                || clientRequest.getHeader(HttpHeader.TRANSFER_ENCODING.asString()) != null) {
+            super.sendProxyRequest(clientRequest, proxyResponse, proxyRequest);
+            return;
+        }
+        new HedgedExchange(clientRequest, proxyResponse, proxyRequest, hedging).start(proxyRequest);
+    }
+
+    /**
+     * Per-request hedging state. The first attempt whose response begins is forwarded to the client
+     * and the other one is aborted. An attempt failing before that is only forwarded once no other
+     * attempt is left that could still answer. The hedge is sent from the HTTP client's scheduler,
+     * so no thread waits for the delay.
+     */
+    protected class HedgedExchange {
+        private final HttpServletRequest clientRequest;
+        private final HttpServletResponse proxyResponse;
+        private final String target;
+        private final Hedging hedging;
+        private final Response.Listener delegate;
+        private final long startTime = System.nanoTime();
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+        private final AtomicInteger outstanding = new AtomicInteger(1); // Attempts sent and not failed yet
+        private volatile Attempt primary;
+        private volatile Attempt hedge;
+        private volatile Scheduler.Task hedgeTask;
+        private volatile Result lastFailure;
+
+        protected HedgedExchange(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                 Request proxyRequest, Hedging hedging) {
+            this.clientRequest = clientRequest;
+            this.proxyResponse = proxyResponse;
+            this.target = proxyRequest.getURI().toString();
+            this.hedging = hedging;
+            this.delegate = newProxyResponseListener(clientRequest, proxyResponse);
+        }
+
+        private void start(Request proxyRequest) {
+            primary = new Attempt(proxyRequest, false);
+            long delay = hedging.delayMillis();
+            if (delay >= 0) {
+                hedgeTask = getHttpClient().getScheduler().schedule(this::sendHedge, delay, TimeUnit.MILLISECONDS);
+            }
+            proxyRequest.send(primary);
+        }
+
+        private void sendHedge() {
+            if (winner.get() != null || outstanding.get() != 1 || !hasTimeLeft(clientRequest) || !hedging.tryHedge()) {
+                return;
+            }
+            if (!outstanding.compareAndSet(1, 2)) {
+                return; // The original request failed meanwhile and its failure was forwarded
+            }
+            try {
+                Request hedgeRequest = newProxyRequest(clientRequest, target);
+                copyRequestHeaders(clientRequest, hedgeRequest);
+                addProxyHeaders(clientRequest, hedgeRequest);
+                addForwardAuthHeaders(clientRequest, hedgeRequest);
+                if (!applyDeadline(clientRequest, hedgeRequest)) {
+                    throw new TimeoutException("Deadline exceeded before the hedge");
+                }
+                hedge = new Attempt(hedgeRequest, true);
+                logger.debug("Hedging {} {} after {} ms", clientRequest.getMethod(), target,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                hedgeRequest.send(hedge);
+                if (winner.get() != null && winner.get() != hedge) {
+                    hedgeRequest.abort(new CancellationException("Hedged request lost"));
+                }
+            } catch (Exception e) {
+                logger.debug("Failed to send hedge for {} {}: {}", clientRequest.getMethod(), target, e.getMessage());
+                Result failure = lastFailure;
+                if (outstanding.decrementAndGet() == 0 && failure != null) {
+                    forwardFailure(failure);
+                }
+            }
+        }
+
+        private void onWin(Attempt attempt) {
+            Scheduler.Task task = hedgeTask;
+            if (task != null) {
+                task.cancel();
+            }
+            Attempt other = attempt == primary ? hedge : primary;
+            if (other != null) {
+                other.request.abort(new CancellationException("Hedged request lost"));
+            }
+            if (attempt.isHedge) {
+                hedging.onHedgeWon();
+            }
+        }
+
+        private void onFailed(Result result) {
+            lastFailure = result;
+            if (outstanding.decrementAndGet() == 0) {
+                Scheduler.Task task = hedgeTask;
+                if (task != null) {
+                    task.cancel();
+                }
+                forwardFailure(result);
+            } else {
+                // The other attempt may still answer, the upstream is told about this one only
+                resilience.handleHttpResponse(clientRequest, HttpStatus.BAD_GATEWAY_502, result.getFailure());
+            }
+        }
+
+        private void forwardFailure(Result result) {
+            delegate.onFailure(result.getResponse(), result.getFailure());
+            delegate.onComplete(result);
+        }
+
+        private class Attempt extends Response.Listener.Adapter {
+            private final Request request;
+            private final boolean isHedge;
+            private boolean forwarding; // The response of this attempt goes to the client
+
+            private Attempt(Request request, boolean isHedge) {
+                this.request = request;
+                this.isHedge = isHedge;
+            }
+
+            @Override
+            public void onBegin(Response response) {
+                if (!isHedge) {
+                    // A hedge that answers first says nothing about how long the upstream takes for the original request
+                    hedging.recordLatency(System.nanoTime() - startTime);
+                }
+                if (winner.compareAndSet(null, this)) {
+                    forwarding = true;
+                    onWin(this);
+                    delegate.onBegin(response);
+                }
+            }
+
+            @Override
+            public boolean onHeader(Response response, HttpField field) {
+                return !forwarding || delegate.onHeader(response, field);
+            }
+
+            @Override
+            public void onHeaders(Response response) {
+                if (forwarding) {
+                    delegate.onHeaders(response);
+                }
+            }
+
+            @Override
+            public void onContent(Response response, ByteBuffer content, Callback callback) {
+                if (forwarding) {
+                    delegate.onContent(response, content, callback);
+                } else {
+                    callback.succeeded();
+                }
+            }
+
+            @Override
+            public void onSuccess(Response response) {
+                if (forwarding) {
+                    delegate.onSuccess(response);
+                }
+            }
+
+            @Override
+            public void onFailure(Response response, Throwable failure) {
+                if (forwarding) {
+                    delegate.onFailure(response, failure);
+                }
+            }
+
+            @Override
+            public void onComplete(Result result) {
+                if (forwarding) {
+                    delegate.onComplete(result);
+                } else if (winner.get() == null) {
+                    onFailed(result); // Failed before any response began
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the proxy request while the ForwardAuth check of the client request is still running.
+     * The upstream response is held back until the check allows it, and discarded when the check
+     * denies it or fails.
+     */
+    protected void sendProxyRequestWithSpeculativeAuth(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                                       Request proxyRequest, SpeculativeAuth speculativeAuth) {
+        SpeculativeExchange exchange = new SpeculativeExchange(clientRequest, proxyResponse, proxyRequest, speculativeAuth);
+        speculativeAuth.onDispatched();
+        proxyRequest.send(exchange);
+        speculativeAuth.whenDecided(exchange::onDecided);
+    }
+
+    /**
+     * Per-request state of a speculative upstream request. Its response events are queued until the
+     * check completes, then replayed to the regular proxy listener in order. Only the first content
+     * chunk is queued, the HTTP client reads no further until its callback completes, so the rest
+     * of the response waits upstream.
+     */
+    protected class SpeculativeExchange extends Response.Listener.Adapter {
+        private final HttpServletRequest clientRequest;
+        private final HttpServletResponse proxyResponse;
+        private final Request proxyRequest;
+        private final String target;
+        private final SpeculativeAuth speculativeAuth;
+        private final Response.Listener delegate;
+        private List<Runnable> held = new ArrayList<>(); // Null once the response is released
+        private boolean discarded;
+
+        protected SpeculativeExchange(HttpServletRequest clientRequest, HttpServletResponse proxyResponse,
+                                      Request proxyRequest, SpeculativeAuth speculativeAuth) {
+            this.clientRequest = clientRequest;
+            this.proxyResponse = proxyResponse;
+            this.proxyRequest = proxyRequest;
+            this.target = proxyRequest.getURI().toString();
+            this.speculativeAuth = speculativeAuth;
+            this.delegate = newProxyResponseListener(clientRequest, proxyResponse);
+        }
+
+        @Override
+        public void onBegin(Response response) {
+            hold(() -> delegate.onBegin(response));
+        }
+
+        @Override
+        public boolean onHeader(Response response, HttpField field) {
+            hold(() -> delegate.onHeader(response, field));
+            return true;
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            hold(() -> delegate.onHeaders(response));
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content, Callback callback) {
+            if (!hold(() -> delegate.onContent(response, content, callback))) {
+                callback.succeeded();
+            }
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            hold(() -> delegate.onSuccess(response));
+        }
+
+        @Override
+        public void onFailure(Response response, Throwable failure) {
+            hold(() -> delegate.onFailure(response, failure));
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            hold(() -> delegate.onComplete(result));
+        }
+
+        /**
+         * @return false if the response was discarded and the event dropped
+         */
+        private boolean hold(Runnable event) {
+            synchronized (this) {
+                if (discarded) {
+                    return false;
+                }
+                if (held != null) {
+                    held.add(event);
+                    return true;
+                }
+            }
+            event.run();
+            return true;
+        }
+
+        private void release() {
+            while (true) {
+                List<Runnable> events;
+                synchronized (this) {
+                    if (held.isEmpty()) {
+                        held = null;
+                        return;
+                    }
+                    events = held;
+                    held = new ArrayList<>();
+                }
+                // Events arriving meanwhile are queued behind these, so they reach the client in order
+                events.forEach(Runnable::run);
+            }
+        }
+
+        private void discard(String reason) {
+            synchronized (this) {
+                discarded = true;
+                held = null;
+            }
+            proxyRequest.abort(new CancellationException(reason));
+        }
+
+        private void onDecided(ForwardAuthDecisionCache.Decision decision, Throwable failure) {
+            SpeculativeDispatch dispatch = speculativeAuth.getDispatch();
+            if (failure == null && decision.isAllowed()) {
+                SpeculativeAuth.settle(clientRequest, decision);
+                if (decision.headers().isEmpty()) {
+                    dispatch.onAllowed();
+                    release();
+                } else {
+                    // The upstream must see the headers returned by the check, the speculative response is of no use
+                    dispatch.onResent();
+                    discard("Sent again with the ForwardAuth response headers");
+                    resend(decision);
+                }
+                return;
+            }
+            dispatch.onDenied();
+            discard("Denied by ForwardAuth");
+            SpeculativeAuth.settle(clientRequest, null);
+            if (failure != null) {
+                logger.error("ForwardAuth failed for {} {}: {}", clientRequest.getMethod(), target, failure.getMessage());
+            }
+            sendProxyResponseError(clientRequest, proxyResponse,
+                    failure == null ? HttpStatus.UNAUTHORIZED_401 : HttpStatus.SERVICE_UNAVAILABLE_503);
+        }
+
+        private void resend(ForwardAuthDecisionCache.Decision decision) {
+            try {
+                Request resentRequest = newProxyRequest(clientRequest, target);
+                copyRequestHeaders(clientRequest, resentRequest);
+                addProxyHeaders(clientRequest, resentRequest);
+                decision.headers().forEach(resentRequest::header);
+                if (!applyDeadline(clientRequest, resentRequest)) {
+                    throw new TimeoutException("Deadline exceeded before the request was sent again");
+                }
+                clientRequest.setAttribute("startTime", System.nanoTime());
+                resentRequest.send(delegate);
+            } catch (Exception e) {
+                onProxyResponseFailure(clientRequest, proxyResponse, null, e);
+            }
+        }
+    }
+
     protected void sendMirrorRequest(String mirrorServiceUrl, HttpServletRequest clientRequest,
                                      BufferedHttpServletRequestWrapper bufferedRequest) {
         // Get mirroring service details (e.g., from config)
@@ -270,7 +819,9 @@ public abstract class BaseProxyRequestHandler extends ProxyServlet.Transparent {
 
             // Build & Invoke gRPC Request
             DynamicMessage grpcRequest = manager.buildGrpcRequest(jsonRequest, methodDescriptor.getInputType());
-            DynamicMessage grpcResponse = manager.invokeGrpcMethod(fullMethodName, grpcRequest, channel, metadataMap);
+            UpstreamDeadline deadline = UpstreamDeadline.get(clientRequest);
+            long timeout = deadline == null ? getTimeout() : deadline.remainingMillis();
+            DynamicMessage grpcResponse = manager.invokeGrpcMethod(fullMethodName, grpcRequest, channel, metadataMap, timeout);
 
             // Convert gRPC Response to JSON
             String jsonResponse = manager.convertGrpcResponseToJson(grpcResponse);
@@ -2,6 +2,7 @@ package io.jetproxy.service.holder;
 
 import io.jetproxy.context.*;
 import io.jetproxy.exception.JetProxyValidationException;
+import io.jetproxy.middleware.admission.AdmissionControlHandler;
 import io.jetproxy.middleware.auth.*;
 import io.jetproxy.middleware.cors.CorsHandlerWrapper;
 import io.jetproxy.middleware.handler.*;
@@ -25,11 +26,13 @@ public class ProxyConfigurationManager {
     private static final String PROXY_TO = "proxyTo";
     private static final String PREFIX = "prefix";
     private static final String TIMEOUT = "timeout";
+    private static final String IDLE_TIMEOUT = "idleTimeout";
     private static final Logger logger = LoggerFactory.getLogger(ProxyConfigurationManager.class);
     private final AppConfig config;
     private final ServletContextHandler context;
     private final MultiLayerAuthenticator multiLayerAuthenticator;
     private HandlerCollection handlers;
+    private AdmissionControlHandler admissionControlHandler;
     ConstraintSecurityHandler proxyAndsecurityHandler;
     BasicAuthProvider basicAuthProvider;
     private final ConcurrentHashMap<String, ServletHolder> dynamicProxies = new ConcurrentHashMap<>();
@@ -86,7 +89,7 @@ public class ProxyConfigurationManager {
 
             // Set up authentication if needed
             if (basicAuthProvider.shouldEnableAuth(proxyRule)) {
-                authenticators.add(new CustomBasicAuthenticator());
+                authenticators.add(new CustomBasicAuthenticator(AppContext.get().getConfig().getCredentialCache()));
                 this.proxyAndsecurityHandler.addConstraintMapping(
                         basicAuthProvider
                                 .createConstraintMapping(whitelistPath,
@@ -96,10 +99,10 @@ public class ProxyConfigurationManager {
 
             // Set up forward authentication if needed
             if (shouldEnableForwardAuth(proxyRule)) {
-                authenticators.add(new ForwardAuthAuthenticator(proxyRule.getMiddleware()));
+                authenticators.add(new ForwardAuthAuthenticator(proxyRule.getMiddleware(), proxyRule.getPath()));
             }
             if (shouldEnableJwtAuth(proxyRule)) {
-                authenticators.add(new JWTAuthAuthenticator());
+                authenticators.add(new JWTAuthAuthenticator(proxyRule.getPath()));
             }
             multiLayerAuthenticator.registerAuthenticators(whitelistPath, authenticators);
         }
@@ -109,15 +112,23 @@ public class ProxyConfigurationManager {
 
         // Add handlers for security and logging
         RequestLogHandler requestLogHandler = new RequestLogHandler();
-        requestLogHandler.setRequestLog(new AccessLog());
+        requestLogHandler.setRequestLog(new AccessLog(AppContext.get().getAccessLogger()));
 
         CorsFilterHolderHandler corsFilterHolderHandler = new CorsFilterHolderHandler(this.config);
 
         CorsHandlerWrapper corsHandler = new CorsHandlerWrapper(corsFilterHolderHandler.createCorsFilter());
         corsHandler.setHandler(this.proxyAndsecurityHandler);
 
+        // Admission control sheds overload before CORS, authentication or proxying do any work
+        Handler frontHandler = corsHandler;
+        if (config.hasAdmissionControl()) {
+            admissionControlHandler = new AdmissionControlHandler(config);
+            admissionControlHandler.setHandler(corsHandler);
+            frontHandler = admissionControlHandler;
+        }
+
         handlers.setHandlers(new Handler[]{
-                corsHandler,
+                frontHandler,
                 requestLogHandler
         });
 
@@ -158,7 +169,7 @@ public class ProxyConfigurationManager {
             dynamicProxies.put(pathSpec, proxyServlet);
             // Set up authentication if needed
             if (basicAuthProvider.shouldEnableAuth(newProxy)) {
-                authenticators.add(new CustomBasicAuthenticator());
+                authenticators.add(new CustomBasicAuthenticator(AppContext.get().getConfig().getCredentialCache()));
                 this.proxyAndsecurityHandler.addConstraintMapping(
                         basicAuthProvider
                                 .createConstraintMapping(pathSpec,
@@ -167,7 +178,7 @@ public class ProxyConfigurationManager {
                 isRequiredRestart = true;
             }
             if (shouldEnableForwardAuth(newProxy)) {
-                authenticators.add(new ForwardAuthAuthenticator(newProxy.getMiddleware()));
+                authenticators.add(new ForwardAuthAuthenticator(newProxy.getMiddleware(), newProxy.getPath()));
                 isRequiredRestart = true;
             }
 
@@ -186,6 +197,10 @@ public class ProxyConfigurationManager {
                 }
             }
 
+            if (admissionControlHandler != null) {
+                admissionControlHandler.registerRoute(newProxy);
+            }
+
             // Update in config loader
             ConfigLoader.addOrUpdateProxies(List.of(newProxy));
             logger.info("Proxy dynamically added/updated: {} -> {}", newProxy.getPath(), service.getUrl());
@@ -242,6 +257,9 @@ public class ProxyConfigurationManager {
                 handler.setServletMappings(updatedMappings);
                 logger.debug("Updated mappings after removal: {}", Arrays.toString(updatedMappings));
 
+                if (admissionControlHandler != null) {
+                    admissionControlHandler.removeRoute(path);
+                }
                 logger.info("Proxy removed dynamically for path: {}", path);
             } catch (Exception e) {
                 logger.error("Failed to remove proxy dynamically for path: {}", path, e);
@@ -299,7 +317,9 @@ public class ProxyConfigurationManager {
         AppContext ctx = AppContext.get();
         String proxyTo = targetServiceUrl + proxyRule.getPath();
         String prefix = proxyRule.getPath();
-        String timeout = String.valueOf(config.getDefaultTimeout());
+        AppConfig.Timeout routeTimeout = proxyRule.getTimeout();
+        String timeout = String.valueOf(routeTimeout != null && routeTimeout.getTotal() > 0
+                ? routeTimeout.getTotal() : config.getDefaultTimeout());
 
         MiddlewareChain middlewareChain = new MiddlewareChain(List.of(
                 new RuleValidatorHandler(httpMethods, proxyRule),
@@ -316,6 +336,9 @@ public class ProxyConfigurationManager {
         proxyServlet.setInitParameter(PROXY_TO, proxyTo);
         proxyServlet.setInitParameter(PREFIX, prefix);
         proxyServlet.setInitParameter(TIMEOUT, timeout);
+        if (routeTimeout != null && routeTimeout.getIdle() > 0) {
+            proxyServlet.setInitParameter(IDLE_TIMEOUT, String.valueOf(routeTimeout.getIdle()));
+        }
 
         return proxyServlet;
     }
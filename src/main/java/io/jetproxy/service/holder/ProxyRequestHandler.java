@@ -1,21 +1,30 @@
 package io.jetproxy.service.holder;
 
+import io.jetproxy.exception.ResilienceBulkheadException;
 import io.jetproxy.exception.ResilienceCircuitBreakerException;
+import io.jetproxy.exception.ResilienceConcurrencyLimitException;
 import io.jetproxy.exception.ResilienceRateLimitException;
+import io.jetproxy.middleware.auth.ForwardAuthDecisionCache;
+import io.jetproxy.middleware.auth.SpeculativeAuth;
 import io.jetproxy.middleware.cache.CacheFactory;
 import io.jetproxy.middleware.handler.HttpCacheHandler;
 import io.jetproxy.middleware.handler.IdempotencyKeyHandler;
 import io.jetproxy.middleware.resilience.ResilienceFactory;
 import io.jetproxy.middleware.handler.MiddlewareChain;
+import io.jetproxy.middleware.metric.MetricsRegistry;
+import io.jetproxy.middleware.metric.RequestTimings;
 import io.jetproxy.util.Constants;
 import io.jetproxy.util.RequestUtils;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.SneakyThrows;
+import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.http.HttpHeader;
@@ -29,7 +38,12 @@ import org.slf4j.MDC;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
 
+import static io.jetproxy.util.Constants.HEADER_SERVER_TIMING;
+import static io.jetproxy.util.Constants.REQUEST_ATTRIBUTE_JETPROXY_RECEIVED_AT;
+import static io.jetproxy.util.Constants.REQUEST_ATTRIBUTE_JETPROXY_ROUTE;
+import static io.jetproxy.util.Constants.REQUEST_ATTRIBUTE_JETPROXY_SERVICE;
 import static io.jetproxy.util.Constants.REQUEST_ATTRIBUTE_JETPROXY_TRACE_ID;
 
 public class ProxyRequestHandler extends BaseProxyRequestHandler {
@@ -71,21 +85,39 @@ public class ProxyRequestHandler extends BaseProxyRequestHandler {
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
         try {
+            request.setAttribute(REQUEST_ATTRIBUTE_JETPROXY_RECEIVED_AT, System.nanoTime());
+            UpstreamDeadline.begin(request, getTimeout());
+            RequestTimings.begin(request);
+            RequestTimings.mark(request, RequestTimings.Mark.SERVICE_START);
+            request.setAttribute(REQUEST_ATTRIBUTE_JETPROXY_ROUTE, proxyRule.getPath());
+            request.setAttribute(REQUEST_ATTRIBUTE_JETPROXY_SERVICE, proxyRule.getService());
             Span span = Span.current();
             SpanContext ctx = span.getSpanContext();
             if (ctx.isValid()) {
                 request.setAttribute(REQUEST_ATTRIBUTE_JETPROXY_TRACE_ID, ctx.getTraceId());
                 MDC.put("traceId", ctx.getTraceId());
             }
+            SpeculativeAuth speculativeAuth = SpeculativeAuth.get(request);
+            if (speculativeAuth != null && (isProxyToGrpc || servesFromProxy())
+                    && awaitSpeculativeAuth(request, response, speculativeAuth) == null) {
+                // The middlewares below may answer from the proxy itself, so the check must pass first
+                captureMetrics(request, response.getStatus());
+                return;
+            }
             if (middlewareChain != null) {
                 middlewareChain.process(request, response);
                 if (response.isCommitted()) {
+                    // Answered by a middleware, e.g. served from cache or rejected by auth
+                    captureMetrics(request, response.getStatus());
                     return;
                 }
             }
-            this.resilience.execute(()-> {
+            RequestTimings.mark(request, RequestTimings.Mark.MIDDLEWARE_END);
+            this.resilience.execute(request, () -> {
                 try {
+                    RequestTimings.mark(request, RequestTimings.Mark.RESILIENCE_END);
                     HttpServletRequestWrapper httpServletRequestWrapper = this.modifyRequestHeaders(request);
+                    RequestTimings.mark(request, RequestTimings.Mark.HEADERS_END);
                     super.service(httpServletRequestWrapper, response);
                 } catch (ServletException | IOException e) {
                     throw new RuntimeException(e);
@@ -94,9 +126,23 @@ public class ProxyRequestHandler extends BaseProxyRequestHandler {
 
         } catch (Exception e) {
             logger.error("Error Occurred to process request {}", e.getMessage());
+            SpeculativeAuth speculativeAuth = SpeculativeAuth.get(request);
+            if (speculativeAuth != null && awaitSpeculativeAuth(request, response, speculativeAuth) == null) {
+                // A denied client learns nothing about the route's limits
+                captureMetrics(request, response.getStatus());
+                return;
+            }
             if (e instanceof ResilienceRateLimitException) {
+                MetricsRegistry.get().recordResilienceRejection(proxyRule.getPath(), Constants.TYPE_RATE_LIMITER);
                 RequestUtils.sendErrorRateLimiterResponse(response, e.getMessage());
+            } else if (e instanceof ResilienceBulkheadException) {
+                MetricsRegistry.get().recordResilienceRejection(proxyRule.getPath(), Constants.TYPE_BULKHEAD);
+                RequestUtils.sendErrorBulkheadResponse(response, e.getMessage());
+            } else if (e instanceof ResilienceConcurrencyLimitException) {
+                MetricsRegistry.get().recordResilienceRejection(proxyRule.getPath(), Constants.TYPE_CONCURRENCY_LIMIT);
+                RequestUtils.sendErrorConcurrencyLimitResponse(response, e.getMessage());
             } else if (e instanceof ResilienceCircuitBreakerException) {
+                MetricsRegistry.get().recordResilienceRejection(proxyRule.getPath(), Constants.TYPE_CIRCUIT_BREAKER);
                 AppConfig.CircuitBreaker circuitBreakerConfig = proxyRule.getMiddleware().getCircuitBreaker();
                 RequestUtils.sendErrorServiceUnavailableResponse(
                         response,
@@ -106,6 +152,7 @@ public class ProxyRequestHandler extends BaseProxyRequestHandler {
             } else {
                 response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
             }
+            captureMetrics(request, response.getStatus());
         }
     }
 
@@ -113,13 +160,43 @@ public class ProxyRequestHandler extends BaseProxyRequestHandler {
     @Override
     protected void sendProxyRequest(HttpServletRequest clientRequest, HttpServletResponse proxyResponse, Request proxyRequest) {
         clientRequest.setAttribute("startTime", System.nanoTime());
+        RequestTimings.mark(clientRequest, RequestTimings.Mark.UPSTREAM_START);
+        if (RequestTimings.get(clientRequest) != null) {
+            // Fired once a connection is acquired and the request starts being written
+            proxyRequest.onRequestBegin(request -> RequestTimings.mark(clientRequest, RequestTimings.Mark.UPSTREAM_CONNECTED));
+        }
+        if (!applyDeadline(clientRequest, proxyRequest)) {
+            onProxyResponseFailure(clientRequest, proxyResponse, null,
+                    new TimeoutException("Deadline exceeded before the upstream request was sent"));
+            return;
+        }
+        cancelOnClientDisconnect(clientRequest);
             // Check if mirroring is required
         Optional<AppConfig.Service> mirroringService = RequestUtils.getMirroringService(
                 clientRequest);
+        boolean hedged = resilience.getHedging() != null && resilience.getHedging().isHedgeableMethod(clientRequest.getMethod());
+        boolean retried = resilience.getRetry() != null && resilience.getRetry().isRetryableMethod(clientRequest.getMethod());
+        SpeculativeAuth speculativeAuth = SpeculativeAuth.get(clientRequest);
+        if (speculativeAuth != null) {
+            if (!speculativeAuth.isDecided() && mirroringService.isEmpty() && !hedged && !retried) {
+                super.sendProxyRequestWithSpeculativeAuth(clientRequest, proxyResponse, proxyRequest, speculativeAuth);
+                return;
+            }
+            // Mirrors, hedges and retries are only sent for requests the check allowed
+            ForwardAuthDecisionCache.Decision decision = awaitSpeculativeAuth(clientRequest, proxyResponse, speculativeAuth);
+            if (decision == null) {
+                return;
+            }
+            decision.headers().forEach(proxyRequest::header);
+        }
         if (RequestUtils.isProxyToGrpc(clientRequest)) {
             super.sendProxyGrpcRequest(clientRequest, proxyResponse, proxyRequest);
         } else if (mirroringService.isPresent()) {
             super.sendProxyRequestWithMirroring(clientRequest, proxyResponse, proxyRequest, mirroringService.get());
+        } else if (hedged) {
+            super.sendProxyRequestWithHedging(clientRequest, proxyResponse, proxyRequest, resilience.getHedging());
+        } else if (retried) {
+            super.sendProxyRequestWithRetry(clientRequest, proxyResponse, proxyRequest, resilience.getRetry());
         } else {
             // No mirroring required, proceed as normal
             super.sendProxyRequest(clientRequest, proxyResponse, proxyRequest);
@@ -127,22 +204,106 @@ public class ProxyRequestHandler extends BaseProxyRequestHandler {
 
     }
 
+    /**
+     * Whether the route may answer a request without the upstream, from its HTTP cache or idempotency store.
+     */
+    private boolean servesFromProxy() {
+        return proxyRule.hasHttpCache()
+                || (proxyRule.hasMiddleware() && proxyRule.getMiddleware().hasIdempotency());
+    }
+
+    /**
+     * Waits for the ForwardAuth check of a request that was let through speculatively, when the
+     * request cannot be sent upstream before it completes.
+     *
+     * @return the decision if the check allowed the request, otherwise {@code null} and the client
+     * got the error
+     */
+    private ForwardAuthDecisionCache.Decision awaitSpeculativeAuth(HttpServletRequest clientRequest,
+                                                                   HttpServletResponse proxyResponse,
+                                                                   SpeculativeAuth speculativeAuth) {
+        speculativeAuth.onCheckedFirst();
+        try {
+            ForwardAuthDecisionCache.Decision decision = speculativeAuth.await();
+            if (decision.isAllowed()) {
+                SpeculativeAuth.settle(clientRequest, decision);
+                return decision;
+            }
+            SpeculativeAuth.settle(clientRequest, null);
+            sendProxyResponseError(clientRequest, proxyResponse, HttpStatus.UNAUTHORIZED_401);
+        } catch (IOException | RuntimeException e) {
+            logger.error("ForwardAuth failed: {}", e.getMessage());
+            SpeculativeAuth.settle(clientRequest, null);
+            sendProxyResponseError(clientRequest, proxyResponse, HttpStatus.SERVICE_UNAVAILABLE_503);
+        }
+        return null;
+    }
+
+    /**
+     * Aborts the upstream requests of a client request as soon as Jetty reports that its connection
+     * failed, e.g. on an HTTP/2 stream reset, rather than when the response is written to it.
+     */
+    private void cancelOnClientDisconnect(HttpServletRequest clientRequest) {
+        UpstreamDeadline deadline = UpstreamDeadline.get(clientRequest);
+        if (deadline == null || !clientRequest.isAsyncStarted()) {
+            return;
+        }
+        clientRequest.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onError(AsyncEvent event) {
+                Throwable cause = event.getThrowable();
+                deadline.cancel(cause != null ? cause : new IOException("Client disconnected"));
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    @Override
+    protected HttpClient createHttpClient() throws ServletException {
+        HttpClient client = super.createHttpClient();
+        AppConfig.Timeout timeout = proxyRule.getTimeout();
+        if (timeout != null && timeout.getConnect() > 0) {
+            client.setConnectTimeout(timeout.getConnect());
+        }
+        return client;
+    }
+
     @Override
     protected void onServerResponseHeaders(HttpServletRequest clientRequest, HttpServletResponse proxyResponse, Response serverResponse) {
+        RequestTimings.mark(clientRequest, RequestTimings.Mark.UPSTREAM_HEADERS);
         super.onServerResponseHeaders(clientRequest, proxyResponse, serverResponse);
         this.modifyResponseHeaders(clientRequest, proxyResponse, serverResponse);
+        RequestTimings timings = RequestTimings.get(clientRequest);
+        if (timings != null && RequestTimings.isServerTimingHeaderEnabled()) {
+            proxyResponse.addHeader(HEADER_SERVER_TIMING, timings.toServerTiming());
+        }
     }
 
     @Override
     protected void onProxyResponseSuccess(HttpServletRequest clientRequest, HttpServletResponse proxyResponse, Response serverResponse) {
+        RequestTimings.mark(clientRequest, RequestTimings.Mark.UPSTREAM_END);
         resilience.handleHttpResponse(clientRequest, serverResponse.getStatus(), null);
+        captureMetrics(clientRequest, proxyResponse.getStatus());
         super.onProxyResponseSuccess(clientRequest, proxyResponse, serverResponse);
     }
 
     @Override
     protected void onProxyResponseFailure(HttpServletRequest clientRequest, HttpServletResponse proxyResponse, Response serverResponse, Throwable failure) {
+        RequestTimings.mark(clientRequest, RequestTimings.Mark.UPSTREAM_END);
         int status = this.proxyResponseStatus(failure);
         resilience.handleHttpResponse(clientRequest, status, failure);
+        captureMetrics(clientRequest, status);
         logger.error("Proxy response failure. Client request URI: {}, Server response status: {}, Error: {}",
                 clientRequest.getRequestURI(),
                 status,
@@ -195,4 +356,9 @@ public class ProxyRequestHandler extends BaseProxyRequestHandler {
             }
         }
     }
+
+    private void captureMetrics(HttpServletRequest request, int statusCode) {
+        AppContext.get().getMetricsListener().captureMetricProxyResponse(request, statusCode);
+        RequestTimings.finish(request, MetricsRegistry.get());
+    }
 }
@@ -0,0 +1,117 @@
+package io.jetproxy.service.holder;
+
+import io.jetproxy.util.Constants;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.eclipse.jetty.client.api.Request;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Time budget of a proxied request, shared by the upstream requests sent on its behalf.
+ * <p>
+ * The deadline is set once, when the route starts handling the request, to the route's total
+ * timeout or to the {@code X-JetProxy-Timeout-Ms} of a caller with less time left. Each upstream
+ * attempt, first, retried or hedged, only gets the time that remains. When the client disconnects,
+ * the attempts in flight are aborted and no further one is sent.
+ */
+public final class UpstreamDeadline {
+    private final long deadline;
+    private final LongSupplier clock;
+    private final Queue<Request> inFlight = new ConcurrentLinkedQueue<>();
+    private volatile Throwable cancelled;
+
+    UpstreamDeadline(long timeoutMillis, LongSupplier clock) {
+        this.clock = clock;
+        this.deadline = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Starts the deadline of a request. Later calls return the deadline already started.
+     *
+     * @param timeoutMillis the total timeout of the route
+     */
+    public static UpstreamDeadline begin(HttpServletRequest request, long timeoutMillis) {
+        UpstreamDeadline current = get(request);
+        if (current != null) {
+            return current;
+        }
+        long budget = budgetMillis(request.getHeader(Constants.HEADER_X_JETPROXY_TIMEOUT_MS), timeoutMillis);
+        UpstreamDeadline deadline = new UpstreamDeadline(budget, System::nanoTime);
+        request.setAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_DEADLINE, deadline);
+        return deadline;
+    }
+
+    /**
+     * Returns the deadline of a request, or {@code null} if none was started.
+     */
+    public static UpstreamDeadline get(ServletRequest request) {
+        return request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_DEADLINE) instanceof UpstreamDeadline deadline
+                ? deadline : null;
+    }
+
+    /**
+     * Returns the time budget of a request: the route's timeout, shortened by the caller's header.
+     * A header that is not a positive number is ignored.
+     */
+    static long budgetMillis(String header, long timeoutMillis) {
+        if (header == null || header.isBlank()) {
+            return timeoutMillis;
+        }
+        try {
+            long callerBudget = Long.parseLong(header.trim());
+            return callerBudget > 0 ? Math.min(timeoutMillis, callerBudget) : timeoutMillis;
+        } catch (NumberFormatException e) {
+            return timeoutMillis;
+        }
+    }
+
+    /**
+     * Returns the milliseconds left, rounded up, or 0 once the deadline passed.
+     */
+    public long remainingMillis() {
+        long nanos = deadline - clock.getAsLong();
+        return nanos <= 0 ? 0 : (nanos + 999_999) / 1_000_000;
+    }
+
+    /**
+     * Determines whether another upstream request may still be sent.
+     */
+    public boolean hasTimeLeft() {
+        return cancelled == null && deadline - clock.getAsLong() > 0;
+    }
+
+    /**
+     * Registers an upstream request to abort if the client disconnects.
+     *
+     * @return false if the client is already gone and the request was aborted
+     */
+    public boolean track(Request upstream) {
+        inFlight.add(upstream);
+        upstream.onComplete(result -> inFlight.remove(upstream));
+        Throwable cause = cancelled;
+        if (cause != null) {
+            upstream.abort(cause);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Aborts the upstream requests in flight, since nobody waits for their response anymore.
+     */
+    public void cancel(Throwable cause) {
+        cancelled = cause;
+        Request upstream;
+        while ((upstream = inFlight.poll()) != null) {
+            upstream.abort(cause);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled != null;
+    }
+}
@@ -27,12 +27,69 @@ public class Constants {
     public static final int DEFAULT_WAIT_DURATION_OPEN_STATE = 1000;
     public static final int DEFAULT_PERMITTED_CALLS_HALF_OPEN = 10;
     public static final int DEFAULT_MINIMUM_CALLS = 5;
+    public static final int DEFAULT_SLIDING_WINDOW_SIZE = 100;
+    public static final String CIRCUIT_BREAKER_WINDOW_COUNT = "count";
+    public static final String CIRCUIT_BREAKER_WINDOW_TIME = "time";
+    public static final String CIRCUIT_BREAKER_SCOPE_ROUTE = "route";
+    public static final String CIRCUIT_BREAKER_SCOPE_ENDPOINT = "endpoint";
     // Rate Limiter Defaults
     public static final boolean DEFAULT_RATE_LIMITER_ENABLED = false;
     public static final long DEFAULT_RATE_LIMIT_REFRESH_PERIOD = 1000;  // 1 second
     public static final int DEFAULT_RATE_LIMIT_FOR_PERIOD = 10;         // 10 requests per period
     public static final Duration DEFAULT_RATE_LIMIT_TIMEOUT = Duration.ZERO;
     public static final int DEFAULT_RATE_LIMIT_MAX_BURST_CAPACITY = 20; // Burst capacity of 20
+    public static final int DEFAULT_RATE_LIMIT_MAX_KEYS = 100_000;      // Buckets per route when limiting per key
+    public static final int DEFAULT_RATE_LIMIT_LEASE_SIZE = 0;          // Derived from limitForPeriod
+    public static final String RATE_LIMIT_KEY_IP = "ip";
+    public static final String RATE_LIMIT_KEY_HEADER = "header";
+    public static final String RATE_LIMIT_KEY_QUERY = "query";
+    public static final String RATE_LIMIT_KEY_JWT = "jwt";
+
+    // Bulkhead Defaults
+    public static final int DEFAULT_BULKHEAD_MAX_CONCURRENT_CALLS = 10;
+    public static final long DEFAULT_BULKHEAD_MAX_WAIT_DURATION = 500;
+    public static final int DEFAULT_BULKHEAD_MAX_WAITING_CALLS = 10;
+    public static final String BULKHEAD_SCOPE_ROUTE = "route";
+    public static final String BULKHEAD_SCOPE_SERVICE = "service";
+
+    // Adaptive Concurrency Defaults
+    public static final String CONCURRENCY_LIMIT_ALGORITHM_GRADIENT = "gradient";
+    public static final String CONCURRENCY_LIMIT_ALGORITHM_AIMD = "aimd";
+    public static final int DEFAULT_CONCURRENCY_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_CONCURRENCY_MIN_LIMIT = 2;
+    public static final int DEFAULT_CONCURRENCY_MAX_LIMIT = 500;
+    public static final double DEFAULT_CONCURRENCY_BACKOFF_RATIO = 0.9;  // AIMD decrease per dropped request
+    public static final double DEFAULT_CONCURRENCY_TOLERANCE = 1.5;      // RTT growth over the baseline that is not queueing
+    public static final double DEFAULT_CONCURRENCY_SMOOTHING = 0.2;
+    public static final int DEFAULT_CONCURRENCY_BASELINE_WINDOW = 1000;  // Samples per minimum RTT window
+
+    // Admission Control Defaults
+    public static final int DEFAULT_ADMISSION_MAX_CONCURRENT_REQUESTS = 1000;
+    public static final long DEFAULT_ADMISSION_TARGET_QUEUE_DELAY = 20;  // ms of standing queue before normal routes are shed
+    public static final long DEFAULT_ADMISSION_INTERVAL = 100;           // ms window of the minimum queue delay
+    public static final int DEFAULT_ADMISSION_RETRY_AFTER = 1;           // seconds
+    public static final String PRIORITY_CRITICAL = "critical";
+    public static final String PRIORITY_HIGH = "high";
+    public static final String PRIORITY_NORMAL = "normal";
+    public static final String PRIORITY_LOW = "low";
+
+    // Retry Defaults
+    public static final int DEFAULT_RETRY_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_RETRY_WAIT_DURATION = 100;       // Base backoff, doubled per retry
+    public static final long DEFAULT_RETRY_MAX_WAIT_DURATION = 2000;  // Backoff cap
+    public static final List<Integer> DEFAULT_RETRY_ON_STATUS = List.of(502, 503, 504);
+    public static final List<String> DEFAULT_RETRY_METHODS = List.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+    public static final double DEFAULT_RETRY_BUDGET_PERCENT = 20;      // Retries per 100 requests
+    public static final int DEFAULT_RETRY_BUDGET_MIN_RETRIES = 10;     // Retries always available at low traffic
+    public static final int DEFAULT_RETRY_MAX_BUFFERED_BODY = 1024 * 1024;
+
+    // Hedging Defaults
+    public static final double DEFAULT_HEDGING_PERCENTILE = 95;        // Observed latency after which a hedge is sent
+    public static final long DEFAULT_HEDGING_MIN_DELAY = 10;           // ms, floor of the observed delay
+    public static final long DEFAULT_HEDGING_WINDOW = 10_000;          // ms of latencies the observed delay is taken from
+    public static final List<String> DEFAULT_HEDGING_METHODS = List.of("GET", "HEAD");
+    public static final double DEFAULT_HEDGING_BUDGET_PERCENT = 10;    // Hedges per 100 requests
+    public static final int DEFAULT_HEDGING_BUDGET_MIN_HEDGES = 10;    // Hedges always available at low traffic
 
     // gRPC Defaults
     public static final int DEFAULT_GRPC_PORT = 80;
@@ -40,6 +97,26 @@ public class Constants {
             "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "TRACE", "CONNECT"
     );
 
+    // JWT Auth Defaults
+    public static final long DEFAULT_JWT_VERIFIED_CACHE_TTL = 60_000;  // ms, capped by the token's exp
+    public static final int DEFAULT_JWT_VERIFIED_CACHE_SIZE = 10_000;
+    public static final long DEFAULT_JWKS_REFRESH_INTERVAL = 300_000;      // ms, when neither max-age nor jwksTtl is set
+    public static final long DEFAULT_JWKS_MIN_REFETCH_INTERVAL = 10_000;   // ms between fetches caused by unknown kids
+
+    // BasicAuth Defaults
+    public static final long DEFAULT_CREDENTIAL_CACHE_TTL = 30_000;    // ms
+    public static final int DEFAULT_CREDENTIAL_CACHE_SIZE = 10_000;
+    public static final int DEFAULT_PBKDF2_ITERATIONS = 600_000;      // PBKDF2-HMAC-SHA256 rounds of a new password hash
+
+    // ForwardAuth Defaults
+    public static final long DEFAULT_FORWARD_AUTH_TIMEOUT = 2000;            // ms
+    public static final long DEFAULT_FORWARD_AUTH_CONNECT_TIMEOUT = 1000;    // ms
+    public static final long DEFAULT_FORWARD_AUTH_IDLE_TIMEOUT = 30_000;     // ms a pooled connection stays open unused
+    public static final int DEFAULT_FORWARD_AUTH_CACHE_SIZE = 10_000;
+    public static final List<String> DEFAULT_SPECULATIVE_METHODS = List.of("GET", "HEAD");
+    public static final double DEFAULT_SPECULATIVE_BUDGET_PERCENT = 10;       // Denied speculative requests per 100 requests
+    public static final int DEFAULT_SPECULATIVE_BUDGET_MIN_DISPATCHES = 10;   // Denied speculative requests always allowed at low traffic
+
     // Middleware Idempotency Key
     public static final String DEFAULT_IDEMPOTENCY_KEY_HEADER_NAME = "Idempotency-Key";
     public static final long DEFAULT_IDEMPOTENCY_TTL = 5000;
@@ -49,13 +126,18 @@ public class Constants {
     public static final String HEADER_X_PROXY_TYPE = "X-Proxy-Type";
     public static final String HEADER_X_JETPROXY_CACHE = "X-JetProxy-Cache";
     public static final String HEADER_X_JETPROXY_IDEMPOTENCY_CACHE = "X-JetProxy-Idempotency-Cache";
+    public static final String HEADER_SERVER_TIMING = "Server-Timing";
+    public static final String HEADER_X_JETPROXY_TIMEOUT_MS = "X-JetProxy-Timeout-Ms";
     public static final String HEADER_X_RATE_LIMIT_LIMIT = "X-RateLimit-Limit";
     public static final String HEADER_X_RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
     public static final String HEADER_X_RATE_LIMIT_RESET = "X-RateLimit-Reset";
     public static final String TYPE_RATE_LIMITER = "rate-limiter";
     public static final String TYPE_CIRCUIT_BREAKER = "circuit-breaker";
+    public static final String TYPE_RETRY = "retry";
 
     public static final String TYPE_BULKHEAD = "bulkhead";
+    public static final String TYPE_CONCURRENCY_LIMIT = "concurrency-limit";
+    public static final String TYPE_ADMISSION_CONTROL = "admission-control";
     public static final String TYPE_METHOD_NOT_ALLOWED = "method-not-allowed";
     public static final String TYPE_GRPC_SERV0CE_METHOD_NOT_FOUND = "grpc-service-or-method-not-found";
     public static final String TYPE_RULE_NOT_ALLOWED = "rule-not-allowed";
@@ -69,6 +151,16 @@ public class Constants {
     public static final String REQUEST_ATTRIBUTE_JETPROXY_GRPC_SERVICE_NAME = "jetproxy-grpc-service-name";
     public static final String REQUEST_ATTRIBUTE_JETPROXY_GRPC_METHOD_NAME = "jetproxy-grpc-method-name";
     public static final String REQUEST_ATTRIBUTE_JETPROXY_TRACE_ID = "jetproxy-trace-id";
+    // Attributes with this prefix are proxy bookkeeping and never forwarded upstream as headers
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_INTERNAL_PREFIX = "jetproxy-internal-";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_ROUTE = "jetproxy-internal-route";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_CONCURRENCY_PERMIT = "jetproxy-internal-concurrency-permit";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_SERVICE = "jetproxy-internal-service";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_RECEIVED_AT = "jetproxy-internal-received-at";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_TIMINGS = "jetproxy-internal-timings";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_DEADLINE = "jetproxy-internal-deadline";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_SPECULATIVE_AUTH = "jetproxy-internal-speculative-auth";
+    public static final String REQUEST_ATTRIBUTE_JETPROXY_FORWARD_AUTH_DECISION = "jetproxy-internal-forward-auth-decision";
     public static final String REQUEST_HEADER_USER_ID = "X-User-ID";
     public static final String REQUEST_HEADER_GRPC_SERVICE_NAME = "X-Grpc-Service-Name";
     public static final String REQUEST_HEADER_GRPC_METHOD_NAME = "X-Grpc-Method-Name";
@@ -120,7 +120,7 @@ public class FatalValidationHints {
         final String msg = "User " + userRef + ": password is missing.";
         JetProxyExit.fatal(
                 JetProxyErrorBuilder.error(msg)
-                        .hint("Define a plaintext password or use secure storage.")
+                        .hint("Define a plaintext password, or a passwordHash instead.")
                         .example("password: secret123")
                         .doc("middleware/basic-auth")
                         .build()
@@ -128,6 +128,18 @@ public class FatalValidationHints {
         throw new JetProxyValidationException(msg);
     }
 
+    public static void invalidPasswordHash(String userRef, String reason) {
+        final String msg = "User " + userRef + ": passwordHash is invalid. " + reason;
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Generate the hash with: java -cp jetproxy.jar io.jetproxy.middleware.auth.Pbkdf2Credential <password>")
+                        .example("passwordHash: PBKDF2:600000:<base64 salt>:<base64 hash>")
+                        .doc("middleware/basic-auth")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
     public static void missingRole(String userRef) {
         final String msg = "User " + userRef + ": role is missing.";
         JetProxyExit.fatal(
@@ -295,6 +307,66 @@ public class FatalValidationHints {
         throw new JetProxyValidationException(msg);
     }
 
+    public static void proxyInvalidPriority(String path, String priority) {
+        final String msg = "Proxy '" + path + "' has an invalid priority: " + priority;
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Use 'critical', 'high', 'normal' or 'low'. Lower priorities are shed first under overload.")
+                        .example("priority: critical")
+                        .doc("operations/admission-control")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void proxyInvalidTimeout(String path) {
+        final String msg = "Proxy '" + path + "' has a negative connect, idle or total timeout.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Timeouts are in milliseconds. Use 0 to keep the default.")
+                        .example("timeout:\n  connect: 1000\n  idle: 5000\n  total: 3000")
+                        .doc("operations/timeouts")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void admissionControlInvalidMaxConcurrentRequests() {
+        final String msg = "Admission control is enabled but maxConcurrentRequests is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how many requests the server handles at once before shedding critical routes.")
+                        .example("maxConcurrentRequests: 1000")
+                        .doc("operations/admission-control")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void admissionControlInvalidQueueDelay() {
+        final String msg = "Admission control is enabled but targetQueueDelay or interval is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Both are in milliseconds and must be greater than 0.")
+                        .example("targetQueueDelay: 20\ninterval: 100")
+                        .doc("operations/admission-control")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void admissionControlInvalidRetryAfter() {
+        final String msg = "Admission control is enabled but retryAfter is negative.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify the seconds clients are asked to wait before retrying a shed request.")
+                        .example("retryAfter: 1")
+                        .doc("operations/admission-control")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
     public static void matchRuleMissing(String proxyPath) {
         final String msg = "Match rule cannot be null or empty in proxy: " + proxyPath;
         JetProxyExit.fatal(
@@ -443,6 +515,42 @@ public class FatalValidationHints {
         throw new JetProxyValidationException(msg);
     }
 
+    public static void forwardAuthInvalidTimeoutOrCache() {
+        final String msg = "ForwardAuth middleware has a negative timeout, cacheTtl or cacheSize.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("The timeout and cacheTtl are in milliseconds. Use cacheTtl: 0 to check every request.")
+                        .example("timeout: 2000\ncacheTtl: 30000\ncacheKeyHeaders: [Authorization]")
+                        .doc("middleware/forward-auth")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void forwardAuthInvalidSpeculativeBudget() {
+        final String msg = "ForwardAuth speculative dispatch has a negative budgetPercent or budgetMinDispatches.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("The budget limits requests sent upstream and then denied, per 100 requests of the route.")
+                        .example("speculative:\n  enabled: true\n  budgetPercent: 10\n  budgetMinDispatches: 10")
+                        .doc("middleware/forward-auth")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void forwardAuthSpeculativeWithRetryOrHedging() {
+        final String msg = "ForwardAuth speculative dispatch cannot be combined with retry or hedging.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Retried and hedged requests wait for the ForwardAuth check, so nothing is sent speculatively.")
+                        .example("middleware:\n  forwardAuth:\n    speculative:\n      enabled: true\n  retry:\n    enabled: false\n  hedging:\n    enabled: false")
+                        .doc("middleware/forward-auth")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
     public static void rateLimiterInvalidRefreshPeriod() {
         final String msg = "RateLimiter is enabled but limitRefreshPeriod is invalid.";
         JetProxyExit.fatal(
@@ -478,6 +586,66 @@ public class FatalValidationHints {
         );
         throw new JetProxyValidationException(msg);
     }
+
+    public static void rateLimiterInvalidKeyBy() {
+        final String msg = "RateLimiter is enabled but keyBy is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Use 'ip', 'header:<name>', 'query:<name>' or 'jwt:<claim>' to pick the key requests are limited by.")
+                        .example("keyBy: header:X-Api-Key")
+                        .doc("middleware/rate-limiter")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void rateLimiterDistributedWithoutRedis(String path) {
+        final String msg = "RateLimiter of proxy '" + path + "' is distributed but Redis storage is not enabled.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("A distributed rate limiter keeps its bucket in Redis, enable storage.redis or set distributed to false.")
+                        .example("storage:\n  redis:\n    enabled: true\n    host: localhost\n    port: 6379")
+                        .doc("middleware/rate-limiter")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void rateLimiterDistributedKeyed() {
+        final String msg = "RateLimiter cannot be both distributed and keyed.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Keyed buckets are kept by each node, remove keyBy to share the route's limit through Redis.")
+                        .example("distributed: true")
+                        .doc("middleware/rate-limiter")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void rateLimiterInvalidLeaseSize() {
+        final String msg = "RateLimiter is enabled but leaseSize is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how many tokens a node leases from Redis at once, or 0 to derive it from limitForPeriod.")
+                        .example("leaseSize: 10")
+                        .doc("middleware/rate-limiter")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void rateLimiterInvalidMaxKeys() {
+        final String msg = "RateLimiter is enabled but maxKeys is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how many client keys may hold a bucket at once, it must be greater than 0.")
+                        .example("maxKeys: 100000")
+                        .doc("middleware/rate-limiter")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
     public static void circuitBreakerInvalidFailureThreshold() {
         final String msg = "CircuitBreaker is enabled but failureThreshold is invalid.";
         JetProxyExit.fatal(
@@ -562,6 +730,151 @@ public class FatalValidationHints {
         throw new JetProxyValidationException(msg);
     }
 
+    public static void circuitBreakerInvalidSlidingWindowSize() {
+        final String msg = "CircuitBreaker is enabled but slidingWindowSize is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how many calls, or seconds for a time window, the failure rate is computed over.")
+                        .example("slidingWindowSize: 100")
+                        .doc("middleware/circuit-breaker")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void circuitBreakerInvalidScope() {
+        final String msg = "CircuitBreaker is enabled but scope is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Use 'route' for one breaker per route or 'endpoint' for one breaker per upstream service.")
+                        .example("scope: endpoint")
+                        .doc("middleware/circuit-breaker")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void bulkheadInvalidMaxConcurrentCalls() {
+        final String msg = "Bulkhead is enabled but maxConcurrentCalls is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how many requests may be in flight to the upstream at the same time.")
+                        .example("maxConcurrentCalls: 10")
+                        .doc("middleware/bulkhead")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void bulkheadInvalidWait() {
+        final String msg = "Bulkhead is enabled but maxWaitDuration or maxWaitingCalls is negative.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how long, in milliseconds, and how many requests may wait for a free slot. Use 0 to reject immediately.")
+                        .example("maxWaitDuration: 500\nmaxWaitingCalls: 10")
+                        .doc("middleware/bulkhead")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void bulkheadInvalidScope() {
+        final String msg = "Bulkhead is enabled but scope is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Use 'route' for one bulkhead per route or 'service' for one bulkhead per upstream service shared by all routes.")
+                        .example("scope: service")
+                        .doc("middleware/bulkhead")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void adaptiveConcurrencyInvalidLimits() {
+        final String msg = "AdaptiveConcurrency is enabled but minLimit or maxLimit is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("minLimit must be greater than 0 and maxLimit must not be lower than minLimit.")
+                        .example("minLimit: 2\nmaxLimit: 500")
+                        .doc("middleware/adaptive-concurrency")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void adaptiveConcurrencyInvalidAlgorithm() {
+        final String msg = "AdaptiveConcurrency is enabled but algorithm is invalid.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Use 'gradient' to follow latency or 'aimd' to follow failures.")
+                        .example("algorithm: gradient")
+                        .doc("middleware/adaptive-concurrency")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void retryInvalidAttempts() {
+        final String msg = "Retry is enabled but maxAttempts, waitDuration or maxWaitDuration is negative.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify how many times a request may be sent again and the backoff between attempts in milliseconds.")
+                        .example("maxAttempts: 3\nwaitDuration: 100\nmaxWaitDuration: 2000")
+                        .doc("middleware/retry")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void retryInvalidBudget() {
+        final String msg = "Retry is enabled but budgetPercent or budgetMinRetries is negative.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify the share of requests that may be retried, in percent.")
+                        .example("budgetPercent: 20")
+                        .doc("middleware/retry")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void hedgingInvalidDelay() {
+        final String msg = "Hedging is enabled but delay or minDelay is negative, or percentile is not between 0 and 100.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Set a fixed delay in ms, or leave it at 0 to hedge after the observed percentile.")
+                        .example("delay: 0\npercentile: 95")
+                        .doc("middleware/hedging")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void hedgingInvalidBudget() {
+        final String msg = "Hedging is enabled but budgetPercent or budgetMinHedges is negative.";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("Specify the share of requests that may be hedged, in percent.")
+                        .example("budgetPercent: 10")
+                        .doc("middleware/hedging")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+    public static void hedgingWithRetry(String methods) {
+        final String msg = "Hedging and retry are both enabled for " + methods + ".";
+        JetProxyExit.fatal(
+                JetProxyErrorBuilder.error(msg)
+                        .hint("A request is either hedged or retried. Give retry and hedging disjoint methods, or disable one of them.")
+                        .example("hedging:\n  enabled: true\n  methods: [GET, HEAD]\nretry:\n  enabled: true\n  methods: [PUT]")
+                        .doc("middleware/hedging")
+                        .build()
+        );
+        throw new JetProxyValidationException(msg);
+    }
+
+
     public static void headerRequestHeadersMissing() {
         final String msg = "Header middleware is enabled but requestHeaders are missing.";
         JetProxyExit.fatal(
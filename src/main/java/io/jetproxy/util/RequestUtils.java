@@ -32,6 +32,24 @@ public class RequestUtils {
             return uri;                               // If there is no query string, just return the URI
         }
     }
+    /**
+     * Returns the proxy route path that matched the request, falling back to the request URI
+     * without its query string, so metrics stay bounded by the number of routes.
+     */
+    public static String getRoute(HttpServletRequest request) {
+        Object route = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_ROUTE);
+        return route != null ? route.toString() : request.getRequestURI();
+    }
+    /**
+     * Returns the name of the service the request is proxied to, taking service match rules into account.
+     */
+    public static String getServiceName(HttpServletRequest request) {
+        Object service = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_REWRITE_SERVICE);
+        if (service == null || service.toString().isEmpty()) {
+            service = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_SERVICE);
+        }
+        return service != null ? service.toString() : "unknown";
+    }
     public static int parseMaxAge(String cacheControl) {
         if (cacheControl == null || cacheControl.isEmpty()) {
             return -1; // Default value when max-age is not provided
@@ -123,6 +141,12 @@ public class RequestUtils {
         response.setHeader(Constants.HEADER_X_PROXY_ERROR, errorMessage);
         response.setHeader(Constants.HEADER_X_PROXY_TYPE, errorType);
     }
+    public static void sendErrorBulkheadResponse(HttpServletResponse response, String errorMessage) {
+        sendErrorServiceUnavailableResponse(response, 1, errorMessage, Constants.TYPE_BULKHEAD);
+    }
+    public static void sendErrorConcurrencyLimitResponse(HttpServletResponse response, String errorMessage) {
+        sendErrorServiceUnavailableResponse(response, 1, errorMessage, Constants.TYPE_CONCURRENCY_LIMIT);
+    }
     public static void sendErrorRateLimiterResponse(HttpServletResponse response, String errorMessage) {
         response.setStatus(429);
         response.setHeader(Constants.HEADER_X_PROXY_ERROR, errorMessage);
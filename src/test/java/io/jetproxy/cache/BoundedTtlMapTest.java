@@ -0,0 +1,69 @@
+package io.jetproxy.cache;
+
+import io.jetproxy.middleware.cache.BoundedTtlMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlMapTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    void testValueIsReturnedUntilItExpires() {
+        BoundedTtlMap<String> map = new BoundedTtlMap<>(10, now::get);
+        map.put("key", "value", now.get() + 5_000);
+
+        now.addAndGet(4_999);
+        assertEquals("value", map.get("key"));
+        now.addAndGet(1);
+        assertNull(map.get("key"));
+        assertEquals(0, map.size(), "An expired value is dropped when it is read");
+    }
+
+    @Test
+    void testExpiredValueIsNotStored() {
+        BoundedTtlMap<String> map = new BoundedTtlMap<>(10, now::get);
+        map.put("key", "value", now.get());
+
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testFullMapDropsExpiredValuesFirst() {
+        BoundedTtlMap<String> map = new BoundedTtlMap<>(3, now::get);
+        map.put("expiring", "a", now.get() + 1_000);
+        map.put("kept-1", "b", now.get() + 60_000);
+        map.put("kept-2", "c", now.get() + 60_000);
+
+        now.addAndGet(1_000);
+        map.put("new", "d", now.get() + 60_000);
+
+        assertEquals(3, map.size());
+        assertEquals("b", map.get("kept-1"));
+        assertEquals("c", map.get("kept-2"));
+        assertEquals("d", map.get("new"));
+    }
+
+    @Test
+    void testMapIsBounded() {
+        BoundedTtlMap<String> map = new BoundedTtlMap<>(10, now::get);
+
+        for (int i = 0; i < 100; i++) {
+            map.put("key-" + i, "value-" + i, now.get() + 60_000);
+        }
+
+        assertEquals(10, map.size());
+        assertEquals("value-99", map.get("key-99"), "The latest value is kept");
+    }
+
+    @Test
+    void testZeroSizeHoldsNothing() {
+        BoundedTtlMap<String> map = new BoundedTtlMap<>(0, now::get);
+        map.put("key", "value", now.get() + 60_000);
+
+        assertNull(map.get("key"));
+    }
+}
@@ -0,0 +1,106 @@
+package io.jetproxy.cache;
+
+import io.jetproxy.middleware.cache.DiskCache;
+import io.jetproxy.middleware.cache.LRUCacheWithTTL;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskCacheTest {
+
+    private static final int SEGMENT_SIZE = 4 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPutAndGet() {
+        DiskCache cache = new DiskCache(directory, SEGMENT_SIZE * 4L, SEGMENT_SIZE);
+        cache.put("key1", "value1", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        cache.put("key1", "value2", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+
+        assertEquals("value2", cache.get("key1"), "Latest write should win");
+        assertNull(cache.get("missing"));
+        cache.close();
+    }
+
+    @Test
+    void testExpiredEntry() throws InterruptedException {
+        DiskCache cache = new DiskCache(directory, SEGMENT_SIZE * 4L, SEGMENT_SIZE);
+        cache.put("key1", "value1", 100);
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertNull(cache.get("key1"), "Expired entry should return null");
+        cache.close();
+    }
+
+    @Test
+    void testIndexIsRebuiltAfterRestart() {
+        DiskCache cache = new DiskCache(directory, SEGMENT_SIZE * 4L, SEGMENT_SIZE);
+        cache.put("key1", "value1", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        cache.put("key2", "value2", 60000);
+        cache.put("key3", "value3", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        cache.remove("key3");
+        cache.close();
+
+        DiskCache reopened = new DiskCache(directory, SEGMENT_SIZE * 4L, SEGMENT_SIZE);
+        assertEquals("value1", reopened.get("key1"));
+        assertEquals("value2", reopened.get("key2"));
+        assertNull(reopened.get("key3"), "Removed entry should stay removed after restart");
+        assertTrue(reopened.getRemainingTtl("key2") > 0);
+        reopened.close();
+    }
+
+    @Test
+    void testOldestSegmentIsReclaimedWhenFull() {
+        DiskCache cache = new DiskCache(directory, SEGMENT_SIZE * 2L, SEGMENT_SIZE);
+        String value = "x".repeat(200);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, value, LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        }
+
+        assertEquals(value, cache.get("key99"), "Most recent entry should survive");
+        assertNull(cache.get("key0"), "Oldest entry should be evicted");
+        assertTrue(cache.size() < 100);
+        cache.close();
+    }
+
+    @Test
+    void testLiveEntriesAreCompactedForward() {
+        DiskCache cache = new DiskCache(directory, SEGMENT_SIZE * 2L, SEGMENT_SIZE);
+        cache.put("sticky", "value", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        String value = "x".repeat(200);
+        for (int i = 0; i < 100; i++) {
+            // Rewriting the same key leaves mostly dead records behind
+            cache.put("churn", value + i, LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        }
+
+        assertEquals("value", cache.get("sticky"), "Live entry in a mostly dead segment should be copied forward");
+        assertEquals(value + 99, cache.get("churn"));
+        cache.close();
+    }
+
+    @Test
+    void testLargeRecordFitsAfterSurvivorsAreCopiedForward() {
+        DiskCache cache = new DiskCache(directory, SEGMENT_SIZE * 2L, SEGMENT_SIZE);
+        for (int i = 0; i < 6; i++) {
+            cache.put("sticky" + i, "s".repeat(270), LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        }
+        String value = "x".repeat(200);
+        for (int i = 0; i < 20; i++) {
+            cache.put("churn", value + i, LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+        }
+
+        // The survivors alone take almost half of the new segment
+        String large = "l".repeat(SEGMENT_SIZE - 100);
+        cache.put("large", large, LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+
+        assertEquals(large, cache.get("large"));
+        assertEquals(value + 19, cache.get("churn"));
+        cache.close();
+    }
+}
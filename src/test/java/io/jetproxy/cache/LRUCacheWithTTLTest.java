@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import io.jetproxy.middleware.cache.LRUCacheWithTTL;
 
+import java.lang.ref.WeakReference;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -67,4 +68,42 @@ class LRUCacheWithTTLTest {
         assertEquals("value4", cache.get("key4"), "key4 should be in the cache");
     }
 
+    @Test
+    void testExpiredEntriesAreReclaimedInBackground() throws InterruptedException {
+        cache.put("key1", "value1", 100);
+        cache.put("key2", "value2", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        assertEquals(1, cache.size(), "Expired entry should be removed without a get");
+        assertEquals(1, cache.getExpiredCount());
+        assertTrue(cache.getAverageExpirationLagMillis() < 400, "Expiration lag should stay within a few ticks");
+        assertEquals("value2", cache.get("key2"));
+    }
+
+    @Test
+    void testReplacedEntryIsNotExpiredByStaleTimer() throws InterruptedException {
+        cache.put("key1", "value1", 100);
+        cache.put("key1", "value2", LRUCacheWithTTL.CacheEntry.NO_EXPIRED);
+
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        assertEquals("value2", cache.get("key1"));
+        assertEquals(0, cache.getExpiredCount());
+    }
+
+    @Test
+    void testUnclosedCacheIsNotPinnedByItsExpirySweep() throws InterruptedException {
+        LRUCacheWithTTL abandoned = new LRUCacheWithTTL(3, MAX_HEAP_MEMORY);
+        abandoned.put("key1", "value1", 60000);
+        WeakReference<LRUCacheWithTTL> reference = new WeakReference<>(abandoned);
+        abandoned = null;
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+
+        assertNull(reference.get(), "A cache that is never closed must still be collected");
+    }
 }
@@ -0,0 +1,115 @@
+package io.jetproxy.cache;
+
+import io.jetproxy.middleware.cache.RedisCommandBatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RedisCommandBatcherTest {
+
+    private JedisPool jedisPool;
+    private Jedis jedis;
+    private Pipeline pipeline;
+    private RedisCommandBatcher batcher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jedisPool = mock(JedisPool.class);
+        jedis = mock(Jedis.class);
+        pipeline = mock(Pipeline.class);
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pipeline.mget(any(String[].class))).thenAnswer(invocation -> {
+            String[] keys = (String[]) invocation.getRawArguments()[0];
+            Response<List<String>> response = mock(Response.class);
+            when(response.get()).thenReturn(Arrays.stream(keys).map(key -> "value-of-" + key).toList());
+            return response;
+        });
+        // A long flush interval makes sure concurrent commands end up in the same batch
+        batcher = new RedisCommandBatcher(jedisPool, 3, 200_000, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.close();
+    }
+
+    @Test
+    void testConcurrentGetsAreCoalescedIntoOneMget() {
+        CompletableFuture<String> first = batcher.get("key1");
+        CompletableFuture<String> second = batcher.get("key2");
+        CompletableFuture<String> duplicate = batcher.get("key1");
+
+        assertEquals("value-of-key1", first.join());
+        assertEquals("value-of-key2", second.join());
+        assertEquals("value-of-key1", duplicate.join());
+
+        verify(pipeline, times(1)).mget("key1", "key2");
+        verify(jedisPool, times(1)).getResource();
+        verify(jedis, times(1)).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWritesArePipelinedWithReads() {
+        Response<Long> incrResponse = mock(Response.class);
+        when(incrResponse.get()).thenReturn(1L);
+        when(pipeline.hincrBy(anyString(), anyString(), anyLong())).thenReturn(incrResponse);
+
+        CompletableFuture<Long> incr = batcher.hincrBy("metrics", "hitCount", 1);
+        CompletableFuture<String> get = batcher.get("key1");
+
+        assertEquals(1L, incr.join());
+        assertEquals("value-of-key1", get.join());
+        verify(pipeline, times(1)).sync();
+    }
+
+    @Test
+    void testPipelineFailureFailsEveryCommandOfTheBatch() {
+        doThrow(new RuntimeException("connection reset")).when(pipeline).sync();
+
+        CompletableFuture<String> first = batcher.get("key1");
+        CompletableFuture<String> second = batcher.get("key2");
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetsAreNotMovedPastWrites() {
+        Response<String> setResponse = mock(Response.class);
+        when(setResponse.get()).thenReturn("OK");
+        when(pipeline.setex(anyString(), anyLong(), anyString())).thenReturn(setResponse);
+
+        CompletableFuture<String> before = batcher.get("key1");
+        CompletableFuture<String> write = batcher.setex("key1", 60, "new");
+        CompletableFuture<String> after = batcher.get("key1");
+
+        assertEquals("value-of-key1", before.join());
+        assertEquals("OK", write.join());
+        assertEquals("value-of-key1", after.join());
+        InOrder order = inOrder(pipeline);
+        order.verify(pipeline).mget("key1");
+        order.verify(pipeline).setex("key1", 60, "new");
+        order.verify(pipeline).mget("key1");
+        order.verify(pipeline).sync();
+    }
+}
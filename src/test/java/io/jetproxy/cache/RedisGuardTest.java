@@ -0,0 +1,71 @@
+package io.jetproxy.cache;
+
+import io.jetproxy.middleware.cache.RedisGuard;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreakerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisGuardTest {
+
+    private RedisGuard guard;
+    private final AtomicInteger redisCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(50)
+                .minimumNumberOfCalls(3)
+                .waitDurationInOpenState(Duration.ofMillis(200))
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .build();
+        guard = new RedisGuard(new CircuitBreaker("redis", config), 50);
+    }
+
+    private CompletableFuture<String> hangingRedis() {
+        redisCalls.incrementAndGet();
+        return new CompletableFuture<>();
+    }
+
+    private CompletableFuture<String> healthyRedis() {
+        redisCalls.incrementAndGet();
+        return CompletableFuture.completedFuture("from-redis");
+    }
+
+    @Test
+    void testSlowRedisFallsBackAfterCommandTimeout() {
+        long start = System.nanoTime();
+        assertEquals("local", guard.call(this::hangingRedis, () -> "local"));
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(500).toNanos(), "Caller must not wait beyond the timeout");
+    }
+
+    @Test
+    void testOpenBreakerSkipsRedisAndRecoversAutomatically() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            guard.call(this::hangingRedis, () -> "local");
+        }
+        assertFalse(guard.isHealthy());
+
+        int callsWhileOpen = redisCalls.get();
+        assertEquals("local", guard.call(this::healthyRedis, () -> "local"));
+        assertEquals(callsWhileOpen, redisCalls.get(), "Redis must not be called while the breaker is open");
+
+        Thread.sleep(250);
+        assertEquals("from-redis", guard.call(this::healthyRedis, () -> "local"));
+        assertTrue(guard.isHealthy());
+    }
+
+    @Test
+    void testSubmitIsDroppedWhileOpen() {
+        for (int i = 0; i < 3; i++) {
+            guard.call(this::hangingRedis, () -> "local");
+        }
+        assertFalse(guard.submit(this::healthyRedis));
+    }
+}
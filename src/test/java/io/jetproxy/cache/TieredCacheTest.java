@@ -0,0 +1,91 @@
+package io.jetproxy.cache;
+
+import io.jetproxy.middleware.cache.Cache;
+import io.jetproxy.middleware.cache.LRUCacheWithTTL;
+import io.jetproxy.middleware.cache.TieredCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TieredCacheTest {
+
+    private LRUCacheWithTTL l1;
+    private Cache l2;
+    private TieredCache cache;
+
+    @BeforeEach
+    void setUp() {
+        l1 = new LRUCacheWithTTL(100, 1024 * 1024);
+        l2 = mock(Cache.class);
+        cache = new TieredCache(l1, l2, 100, "node-a");
+    }
+
+    @Test
+    void testL2HitIsPromotedToL1() {
+        when(l2.get("key1")).thenReturn("value1");
+
+        assertEquals("value1", cache.get("key1"));
+        assertEquals("value1", cache.get("key1"));
+
+        verify(l2, times(1)).get("key1");
+        assertEquals(1, cache.getL1Stats().getHits());
+        assertEquals(1, cache.getL1Stats().getMisses());
+        assertEquals(1, cache.getL2Stats().getHits());
+    }
+
+    @Test
+    void testLocalCopyExpiresAfterL1Ttl() throws InterruptedException {
+        when(l2.get("key1")).thenReturn("value1");
+        cache.get("key1");
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        cache.get("key1");
+
+        verify(l2, times(2)).get("key1");
+    }
+
+    @Test
+    void testPutWritesBothTiersWithCappedLocalTtl() {
+        cache.put("key1", "value1", 60000);
+
+        verify(l2).put("key1", "value1", 60000);
+        assertEquals("value1", l1.get("key1"));
+    }
+
+    @Test
+    void testInvalidationFromOtherNodeEvictsLocalCopy() {
+        cache.put("key1", "value1", 60000);
+
+        cache.onInvalidation("node-a|key1");
+        assertEquals("value1", l1.get("key1"), "Own invalidation should be ignored");
+
+        cache.onInvalidation("node-b|key1");
+        assertNull(l1.get("key1"), "Invalidation from another node should evict L1");
+    }
+
+    @Test
+    void testGetAsideStrategyFetchesOnceOnMiss() {
+        assertEquals("fetched", cache.getAsideStrategy("key1", 60000, () -> "fetched"));
+        assertEquals("fetched", cache.getAsideStrategy("key1", 60000, () -> "other"));
+
+        verify(l2).put("key1", "fetched", 60000);
+    }
+
+    @Test
+    void testL2IsClosedWhenL1FailsToClose() throws IOException {
+        Cache failingL1 = mock(Cache.class, withSettings().extraInterfaces(Closeable.class));
+        Cache closeableL2 = mock(Cache.class, withSettings().extraInterfaces(Closeable.class));
+        doThrow(new IOException("Disk full")).when((Closeable) failingL1).close();
+
+        TieredCache tiered = new TieredCache(failingL1, closeableL2, 100, "node-a");
+
+        assertThrows(IOException.class, tiered::close);
+        verify((Closeable) closeableL2).close();
+    }
+}
@@ -0,0 +1,45 @@
+package io.jetproxy.cache;
+
+import io.jetproxy.middleware.cache.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testTimersAreNeverReportedBeforeDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.schedule("a", 25);
+
+        assertTrue(wheel.advance(20).isEmpty());
+        assertEquals("a", wheel.advance(30).getFirst().item());
+    }
+
+    @Test
+    void testTimersBeyondInnerWheelAreCascaded() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.schedule("outer", 500);
+        wheel.schedule("far", 5000);
+
+        assertTrue(wheel.advance(499).isEmpty());
+        assertEquals("outer", wheel.advance(510).getFirst().item());
+        assertTrue(wheel.advance(4990).isEmpty());
+        assertEquals("far", wheel.advance(5000).getFirst().item());
+    }
+
+    @Test
+    void testCancelledTimersDropTheirItem() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        TimingWheel.Timer<String> cancelled = wheel.schedule("cancelled", 25);
+        TimingWheel.Timer<String> farCancelled = wheel.schedule("far", 5000);
+        wheel.schedule("kept", 25);
+
+        cancelled.cancel();
+        farCancelled.cancel();
+
+        assertNull(cancelled.item(), "The wheel must not keep a cancelled item alive");
+        assertEquals(1, wheel.advance(30).size());
+        assertTrue(wheel.advance(5000).isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package io.jetproxy.middleware.admission;
+
+import io.jetproxy.exception.JetProxyValidationException;
+import io.jetproxy.middleware.admission.AdmissionController.Decision;
+import io.jetproxy.middleware.admission.AdmissionController.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private AdmissionController controller(int maxConcurrentRequests) {
+        return new AdmissionController(maxConcurrentRequests, 20, 100, now::get);
+    }
+
+    @Test
+    void testLowPriorityIsShedFirstOnConcurrency() {
+        AdmissionController controller = controller(10);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.LOW, 0));
+        }
+        assertEquals(Decision.SHED_CONCURRENCY, controller.tryAdmit(Priority.LOW, 0), "Low routes get half of the slots");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.NORMAL, 0));
+        }
+        assertEquals(Decision.SHED_CONCURRENCY, controller.tryAdmit(Priority.NORMAL, 0));
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.CRITICAL, 0));
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.CRITICAL, 0));
+        assertEquals(Decision.SHED_CONCURRENCY, controller.tryAdmit(Priority.CRITICAL, 0), "The hard limit applies to all");
+        assertEquals(10, controller.getInFlight());
+
+        controller.release();
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.CRITICAL, 0));
+    }
+
+    @Test
+    void testShortDelaySpikeDoesNotShed() {
+        AdmissionController controller = controller(100);
+
+        admitAndRelease(controller, Priority.LOW, 500);
+        admitAndRelease(controller, Priority.LOW, 0);
+        now.addAndGet(100);
+
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.LOW, 0));
+        assertEquals(0, controller.getStandingQueueDelay());
+    }
+
+    @Test
+    void testStandingQueueShedsByPriority() {
+        AdmissionController controller = controller(100);
+
+        for (int i = 0; i < 10; i++) {
+            admitAndRelease(controller, Priority.NORMAL, 50);
+        }
+        now.addAndGet(100);
+
+        assertEquals(Decision.SHED_QUEUE_DELAY, controller.tryAdmit(Priority.LOW, 50));
+        assertEquals(Decision.SHED_QUEUE_DELAY, controller.tryAdmit(Priority.NORMAL, 50), "50ms is over twice the target");
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.HIGH, 50));
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.CRITICAL, 50));
+        assertEquals(50, controller.getStandingQueueDelay());
+    }
+
+    @Test
+    void testSheddingStopsOnceTheQueueDrains() {
+        AdmissionController controller = controller(100);
+        admitAndRelease(controller, Priority.NORMAL, 200);
+        now.addAndGet(100);
+        assertEquals(Decision.SHED_QUEUE_DELAY, controller.tryAdmit(Priority.NORMAL, 5));
+
+        now.addAndGet(100);
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.NORMAL, 5));
+    }
+
+    @Test
+    void testIdleServerForgetsOldDelays() {
+        AdmissionController controller = controller(100);
+        admitAndRelease(controller, Priority.NORMAL, 200);
+
+        now.addAndGet(10_000);
+
+        assertEquals(Decision.ADMIT, controller.tryAdmit(Priority.LOW, 0));
+    }
+
+    @Test
+    void testPriorityParsing() {
+        assertEquals(Priority.NORMAL, Priority.from(null));
+        assertEquals(Priority.CRITICAL, Priority.from("Critical"));
+        assertEquals("low", Priority.LOW.label());
+        assertThrows(JetProxyValidationException.class, () -> Priority.from("urgent"));
+    }
+
+    private static void admitAndRelease(AdmissionController controller, Priority priority, long delay) {
+        if (controller.tryAdmit(priority, delay).isAdmitted()) {
+            controller.release();
+        }
+    }
+}
@@ -129,4 +129,26 @@ class CustomBasicAuthenticatorTest {
 
         assertEquals(Authentication.SEND_CONTINUE, result);
     }
+
+    @Test
+    void shouldCheckRepeatedCredentialsOnce() throws Exception {
+        String token = "Basic " + Base64.getEncoder().encodeToString("admin:secret".getBytes(StandardCharsets.UTF_8));
+
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        HttpServletResponse res = mock(HttpServletResponse.class);
+
+        when(req.getHeader("Authorization")).thenReturn(token);
+        when(req.getQueryString()).thenReturn(null);
+
+        CustomBasicAuthenticator authenticator = spy(new CustomBasicAuthenticator());
+        UserIdentity mockUser = mock(UserIdentity.class);
+        doReturn(mockUser).when(authenticator).login(eq("admin"), eq("secret"), eq(req));
+
+        authenticator.validateRequest(req, res, true);
+        Authentication result = authenticator.validateRequest(req, res, true);
+
+        assertInstanceOf(UserAuthentication.class, result);
+        assertSame(mockUser, ((UserAuthentication) result).getUserIdentity());
+        verify(authenticator, times(1)).login(any(), any(), any());
+    }
 }
@@ -6,6 +6,9 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.server.Authentication;
 import org.eclipse.jetty.server.Request;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.HttpURLConnection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,7 +35,7 @@ class ForwardAuthAuthenticatorTest {
     private HttpServletResponse mockResponse;
 
     @Mock
-    private HttpURLConnection mockConnection;
+    private ContentResponse mockAuthResponse;
 
     @Mock
     private ServletRequest servletRequest;
@@ -39,13 +43,15 @@ class ForwardAuthAuthenticatorTest {
     @Mock
     private ServletResponse servletResponse;
 
+    private AppConfig.Middleware middleware;
+
     private TestForwardAuthAuthenticator authenticator;
 
     @BeforeEach
     void setUp() throws IOException {
         MockitoAnnotations.openMocks(this);
 
-        AppConfig.Middleware middleware = new AppConfig.Middleware();
+        middleware = new AppConfig.Middleware();
         AppConfig.ForwardAuth forwardAuth = new AppConfig.ForwardAuth();
         forwardAuth.setService("authService");
         forwardAuth.setPath("/validate");
@@ -60,7 +66,7 @@ class ForwardAuthAuthenticatorTest {
 
         ConfigLoader.getServiceMap().put("authService", service);
 
-        authenticator = new TestForwardAuthAuthenticator(middleware, mockConnection);
+        authenticator = new TestForwardAuthAuthenticator(middleware, mockAuthResponse);
     }
 
     @Test
@@ -76,9 +82,9 @@ class ForwardAuthAuthenticatorTest {
         when(request.getHeaderNames()).thenReturn(Collections.enumeration(mockHeaders.keySet()));
         when(request.getHeader("Authorization")).thenReturn("Bearer abc123");
 
-        // Mock HTTP Connection response
-        when(mockConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_OK);
-        when(mockConnection.getHeaderFields()).thenReturn(Collections.emptyMap());
+        // Mock auth service response
+        when(mockAuthResponse.getStatus()).thenReturn(HttpURLConnection.HTTP_OK);
+        when(mockAuthResponse.getHeaders()).thenReturn(HttpFields.EMPTY);
 
         Authentication result = authenticator.validateRequest(request, mockResponse, true);
 
@@ -95,8 +101,8 @@ class ForwardAuthAuthenticatorTest {
         when(request.getHeaderNames()).thenReturn(Collections.enumeration(headers.keySet()));
 
         when(mockResponse.getStatus()).thenReturn(HttpURLConnection.HTTP_UNAUTHORIZED);
-        when(mockConnection.getResponseCode()).thenReturn(HttpURLConnection.HTTP_UNAUTHORIZED);
-        when(mockConnection.getHeaderFields()).thenReturn(Collections.emptyMap());
+        when(mockAuthResponse.getStatus()).thenReturn(HttpURLConnection.HTTP_UNAUTHORIZED);
+        when(mockAuthResponse.getHeaders()).thenReturn(HttpFields.EMPTY);
 
         Authentication result = authenticator.validateRequest(request, mockResponse, true);
 
@@ -115,7 +121,6 @@ class ForwardAuthAuthenticatorTest {
 
         when(request.getAttribute(Request.class.getName())).thenReturn(request);
         when(request.getHeaderNames()).thenReturn(Collections.enumeration(headers.keySet()));
-        doThrow(new IOException("Connection failed")).when(mockConnection).connect();
         // Trigger the IOException in the override
         authenticator.setThrowException(true);
         Authentication result = authenticator.validateRequest(request, mockResponse, true);
@@ -123,4 +128,60 @@ class ForwardAuthAuthenticatorTest {
         assertEquals(Authentication.SEND_FAILURE, result);
         verify(mockResponse).sendError(HttpURLConnection.HTTP_UNAVAILABLE, "Service Unavailable");
     }
+
+    @Test
+    void testValidateRequest_DecisionIsCachedPerKeyHeaders() throws Exception {
+        middleware.getForwardAuth().setCacheTtl(60_000);
+        middleware.getForwardAuth().setCacheKeyHeaders(List.of("Authorization"));
+        TestForwardAuthAuthenticator cachingAuthenticator = new TestForwardAuthAuthenticator(middleware, mockAuthResponse);
+
+        when(mockAuthResponse.getStatus()).thenReturn(HttpURLConnection.HTTP_OK);
+        when(mockAuthResponse.getHeaders()).thenReturn(HttpFields.build().put("X-Auth-User", "alice"));
+
+        for (int i = 0; i < 3; i++) {
+            Request request = mock(Request.class);
+            when(request.getHeaderNames()).thenReturn(Collections.enumeration(List.of("Authorization")));
+            when(request.getHeader("Authorization")).thenReturn("Bearer abc123");
+
+            Authentication result = cachingAuthenticator.validateRequest(request, mockResponse, true);
+
+            assertTrue(result instanceof Authentication.User);
+            verify(request).setAttribute("X-Auth-User", "alice");
+        }
+        assertEquals(1, cachingAuthenticator.getAuthRequestCount());
+    }
+
+    @Test
+    void testValidateRequest_RedirectsOfTheAuthServiceAreFollowed() throws Exception {
+        HttpServer authServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        authServer.createContext("/validate", exchange -> {
+            exchange.getResponseHeaders().add("Location", "/v2/validate");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_MOVED_TEMP, -1);
+            exchange.close();
+        });
+        authServer.createContext("/v2/validate", exchange -> {
+            exchange.getResponseHeaders().add("X-Auth-User", "alice");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+            exchange.close();
+        });
+        authServer.start();
+        try {
+            AppConfig.Service service = new AppConfig.Service();
+            service.setUrl("http://127.0.0.1:" + authServer.getAddress().getPort());
+            service.setMethods(List.of("GET"));
+            ConfigLoader.getServiceMap().put("redirectingAuthService", service);
+            middleware.getForwardAuth().setService("redirectingAuthService");
+
+            Request request = mock(Request.class);
+            when(request.getHeaderNames()).thenReturn(Collections.enumeration(List.of("Authorization")));
+            when(request.getHeader("Authorization")).thenReturn("Bearer abc123");
+
+            Authentication result = new ForwardAuthAuthenticator(middleware).validateRequest(request, mockResponse, true);
+
+            assertTrue(result instanceof Authentication.User);
+            verify(request).setAttribute("X-Auth-User", "alice");
+        } finally {
+            authServer.stop(0);
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package io.jetproxy.middleware.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForwardAuthDecisionCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private static ForwardAuthDecisionCache.Decision decision(int status) {
+        return new ForwardAuthDecisionCache.Decision(status, Map.of("X-Auth-User", "alice"));
+    }
+
+    @Test
+    void testAllowAndDenyAreCachedForTtl() throws IOException {
+        ForwardAuthDecisionCache cache = new ForwardAuthDecisionCache(100, 30_000, now::get);
+        AtomicInteger checks = new AtomicInteger();
+
+        cache.resolve("allowed", () -> { checks.incrementAndGet(); return decision(200); });
+        cache.resolve("denied", () -> { checks.incrementAndGet(); return decision(403); });
+        ForwardAuthDecisionCache.Decision cached = cache.resolve("allowed", () -> { checks.incrementAndGet(); return decision(200); });
+        cache.resolve("denied", () -> { checks.incrementAndGet(); return decision(403); });
+
+        assertEquals(2, checks.get());
+        assertTrue(cached.isAllowed());
+        assertEquals("alice", cached.headers().get("X-Auth-User"));
+
+        now.addAndGet(30_000);
+        cache.resolve("allowed", () -> { checks.incrementAndGet(); return decision(200); });
+        assertEquals(3, checks.get(), "Checked again once the TTL passed");
+    }
+
+    @Test
+    void testEveryCachedSuccessAllows() throws IOException {
+        ForwardAuthDecisionCache cache = new ForwardAuthDecisionCache(100, 30_000, now::get);
+        AtomicInteger checks = new AtomicInteger();
+
+        cache.resolve("key", () -> { checks.incrementAndGet(); return decision(204); });
+        ForwardAuthDecisionCache.Decision cached = cache.resolve("key", () -> { checks.incrementAndGet(); return decision(204); });
+
+        assertEquals(1, checks.get());
+        assertTrue(cached.isAllowed(), "A cached 204 allows the request like the check that returned it");
+        assertFalse(decision(302).isAllowed());
+    }
+
+    @Test
+    void testAuthServiceFailuresAreNotCached() throws IOException {
+        ForwardAuthDecisionCache cache = new ForwardAuthDecisionCache(100, 30_000, now::get);
+        AtomicInteger checks = new AtomicInteger();
+
+        cache.resolve("key", () -> { checks.incrementAndGet(); return decision(503); });
+        cache.resolve("key", () -> { checks.incrementAndGet(); return decision(429); });
+        cache.resolve("key", () -> { checks.incrementAndGet(); return decision(408); });
+        assertThrows(IOException.class, () -> cache.resolve("key", () -> { throw new IOException("Connection refused"); }));
+        cache.resolve("key", () -> { checks.incrementAndGet(); return decision(200); });
+
+        assertEquals(4, checks.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testConcurrentIdenticalChecksShareOneCall() throws Exception {
+        ForwardAuthDecisionCache cache = new ForwardAuthDecisionCache(100, 0, now::get);
+        AtomicInteger checks = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<ForwardAuthDecisionCache.Decision> leader = executor.submit(() -> cache.resolve("key", () -> {
+                checks.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return decision(200);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ForwardAuthDecisionCache.Decision> follower = executor.submit(() -> cache.resolve("key", () -> {
+                checks.incrementAndGet();
+                return decision(200);
+            }));
+            while (cache.getSharedCount() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertTrue(leader.get(5, TimeUnit.SECONDS).isAllowed());
+            assertTrue(follower.get(5, TimeUnit.SECONDS).isAllowed());
+            assertEquals(1, checks.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testKeyDependsOnlyOnKeyHeaders() {
+        List<String> keyHeaders = List.of("authorization");
+        String key = ForwardAuthDecisionCache.key(Map.of("Authorization", "Bearer a", "X-Request-Id", "1"), keyHeaders);
+
+        assertEquals(key, ForwardAuthDecisionCache.key(Map.of("Authorization", "Bearer a", "X-Request-Id", "2"), keyHeaders));
+        assertNotEquals(key, ForwardAuthDecisionCache.key(Map.of("Authorization", "Bearer b"), keyHeaders));
+        // Without key headers every forwarded header counts
+        assertNotEquals(ForwardAuthDecisionCache.key(Map.of("Authorization", "Bearer a", "X-Request-Id", "1"), List.of()),
+                ForwardAuthDecisionCache.key(Map.of("Authorization", "Bearer a", "X-Request-Id", "2"), List.of()));
+    }
+
+    @Test
+    void testAsyncCheckIsSharedAndCachedOnceComplete() throws Exception {
+        ForwardAuthDecisionCache cache = new ForwardAuthDecisionCache(100, 30_000, now::get);
+        CompletableFuture<ForwardAuthDecisionCache.Decision> call = new CompletableFuture<>();
+        AtomicInteger checks = new AtomicInteger();
+
+        CompletableFuture<ForwardAuthDecisionCache.Decision> first = cache.resolveAsync("key", () -> { checks.incrementAndGet(); return call; });
+        CompletableFuture<ForwardAuthDecisionCache.Decision> second = cache.resolveAsync("key", () -> { checks.incrementAndGet(); return call; });
+        assertFalse(first.isDone());
+        assertSame(first, second);
+
+        call.complete(decision(200));
+        assertTrue(first.get().isAllowed());
+        CompletableFuture<ForwardAuthDecisionCache.Decision> cached = cache.resolveAsync("key", () -> { checks.incrementAndGet(); return call; });
+        assertTrue(cached.isDone());
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    void testAsyncCheckFailureReachesTheCaller() {
+        ForwardAuthDecisionCache cache = new ForwardAuthDecisionCache(100, 30_000, now::get);
+
+        CompletableFuture<ForwardAuthDecisionCache.Decision> failed = cache.resolveAsync("key",
+                () -> CompletableFuture.failedFuture(new IOException("Connection refused")));
+
+        assertThrows(IOException.class, () -> ForwardAuthDecisionCache.await(failed));
+        assertEquals(0, cache.size());
+    }
+}
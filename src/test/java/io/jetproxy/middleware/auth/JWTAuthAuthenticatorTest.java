@@ -104,6 +104,32 @@ public class JWTAuthAuthenticatorTest {
             verify(request).setAttribute(eq(REQUEST_ATTRIBUTE_JETPROXY_JWT_CLAIMS), eq("{\"role\":\"admin\"}"));
         }
     }
+    @Test
+    void testRepeatedTokenIsVerifiedOnce() throws Exception {
+        HttpServletRequest first = mock(HttpServletRequest.class);
+        HttpServletRequest second = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        String jwt = generateJwt(Map.of("role", "admin"), 60000);
+        when(first.getHeader(HEADER_NAME)).thenReturn(PREFIX + jwt);
+        when(second.getHeader(HEADER_NAME)).thenReturn(PREFIX + jwt);
+
+        try (MockedStatic<AppContext> appContextMock = mockStatic(AppContext.class)) {
+            AppContext mockAppContext = mock(AppContext.class);
+            Gson mockGson = mock(Gson.class);
+
+            appContextMock.when(AppContext::get).thenReturn(mockAppContext);
+            when(mockAppContext.getGson()).thenReturn(mockGson);
+            when(mockGson.toJson(any(Claims.class))).thenReturn("{\"role\":\"admin\"}");
+
+            assertTrue(authenticator.validateRequest(first, response, true) instanceof Authentication.User);
+            assertTrue(authenticator.validateRequest(second, response, true) instanceof Authentication.User);
+
+            verify(mockGson, times(1)).toJson(any(Claims.class));
+            verify(second).setAttribute(eq(REQUEST_ATTRIBUTE_JETPROXY_JWT_CLAIMS), eq("{\"role\":\"admin\"}"));
+        }
+    }
+
     @Test
     void testMissingToken() throws Exception {
         HttpServletRequest request = mock(HttpServletRequest.class);
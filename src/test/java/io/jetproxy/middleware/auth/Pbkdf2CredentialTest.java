@@ -0,0 +1,34 @@
+package io.jetproxy.middleware.auth;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Pbkdf2CredentialTest {
+
+    @Test
+    void testHashedPasswordChecksOnlyTheOriginal() {
+        String stored = Pbkdf2Credential.hash("s3cret", 1000);
+        Pbkdf2Credential credential = Pbkdf2Credential.parse(stored);
+
+        assertTrue(stored.startsWith("PBKDF2:1000:"));
+        assertTrue(credential.check("s3cret"));
+        assertTrue(credential.check("s3cret".toCharArray()));
+        assertFalse(credential.check("s3cret "));
+        assertFalse(credential.check(null));
+    }
+
+    @Test
+    void testSamePasswordGetsDifferentSalts() {
+        assertNotEquals(Pbkdf2Credential.hash("s3cret", 1000), Pbkdf2Credential.hash("s3cret", 1000));
+    }
+
+    @Test
+    void testMalformedHashIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Pbkdf2Credential.parse("MD5:abc"));
+        assertThrows(IllegalArgumentException.class, () -> Pbkdf2Credential.parse("PBKDF2:1000:c2FsdA=="));
+        assertThrows(IllegalArgumentException.class, () -> Pbkdf2Credential.parse("PBKDF2:0:c2FsdA==:aGFzaA=="));
+        assertThrows(IllegalArgumentException.class, () -> Pbkdf2Credential.parse("PBKDF2:many:c2FsdA==:aGFzaA=="));
+        assertThrows(IllegalArgumentException.class, () -> Pbkdf2Credential.parse("PBKDF2:1000:not base64:aGFzaA=="));
+    }
+}
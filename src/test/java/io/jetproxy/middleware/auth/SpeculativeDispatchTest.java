@@ -0,0 +1,75 @@
+package io.jetproxy.middleware.auth;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeculativeDispatchTest {
+
+    @Test
+    void testOnlySafeMethodsAreSpeculative() {
+        SpeculativeDispatch dispatch = new SpeculativeDispatch(10, 10);
+
+        assertTrue(dispatch.tryBegin("GET"));
+        assertTrue(dispatch.tryBegin("HEAD"));
+        assertFalse(dispatch.tryBegin("POST"));
+        assertFalse(dispatch.tryBegin("DELETE"));
+        assertEquals(0, dispatch.getBudgetExhaustedCount());
+    }
+
+    @Test
+    void testDeniedRequestsExhaustTheBudget() {
+        SpeculativeDispatch dispatch = new SpeculativeDispatch(10, 2);
+
+        assertTrue(dispatch.tryBegin("GET"));
+        dispatch.onDenied();
+        assertTrue(dispatch.tryBegin("GET"));
+        dispatch.onResent();
+        assertFalse(dispatch.tryBegin("GET"), "Checked first once two requests were wasted");
+        assertEquals(1, dispatch.getBudgetExhaustedCount());
+
+        // Every request earns back a tenth of a speculative request
+        int checkedFirst = 1;
+        while (!dispatch.tryBegin("GET")) {
+            checkedFirst++;
+        }
+        assertEquals(8, checkedFirst);
+    }
+
+    @Test
+    void testAllowedRequestsCostNothing() {
+        SpeculativeDispatch dispatch = new SpeculativeDispatch(10, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(dispatch.tryBegin("GET"));
+            dispatch.onDispatched();
+            dispatch.onAllowed();
+        }
+        assertEquals(100, dispatch.getDispatchedCount());
+        assertEquals(100, dispatch.getAllowedCount());
+        assertEquals(0, dispatch.getDeniedCount());
+    }
+
+    @Test
+    void testUndecidedRequestsCannotOverdrawTheBudget() {
+        SpeculativeDispatch dispatch = new SpeculativeDispatch(0, 2);
+
+        assertTrue(dispatch.tryBegin("GET"));
+        assertTrue(dispatch.tryBegin("GET"));
+        assertFalse(dispatch.tryBegin("GET"), "Both wasted requests are reserved before any check completes");
+
+        dispatch.onAllowed();
+        assertTrue(dispatch.tryBegin("GET"));
+    }
+
+    @Test
+    void testRequestsCheckedFirstCostNothing() {
+        SpeculativeDispatch dispatch = new SpeculativeDispatch(0, 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dispatch.tryBegin("GET"));
+            dispatch.onCheckedFirst();
+        }
+        assertEquals(0, dispatch.getBudgetExhaustedCount());
+    }
+}
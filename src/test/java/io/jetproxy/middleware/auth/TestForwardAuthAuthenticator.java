@@ -1,29 +1,35 @@
 package io.jetproxy.middleware.auth;
 
 import io.jetproxy.context.AppConfig;
+import org.eclipse.jetty.client.api.ContentResponse;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.util.Map;
 
 class TestForwardAuthAuthenticator extends ForwardAuthAuthenticator {
-    private final HttpURLConnection mockConnection;
+    private final ContentResponse mockAuthResponse;
     private boolean throwException = false;
+    private int authRequestCount = 0;
 
-    public TestForwardAuthAuthenticator(AppConfig.Middleware appMiddleware, HttpURLConnection mockConnection) {
+    public TestForwardAuthAuthenticator(AppConfig.Middleware appMiddleware, ContentResponse mockAuthResponse) {
         super(appMiddleware);
-        this.mockConnection = mockConnection;
+        this.mockAuthResponse = mockAuthResponse;
     }
 
     public void setThrowException(boolean throwException) {
         this.throwException = throwException;
     }
 
+    public int getAuthRequestCount() {
+        return authRequestCount;
+    }
+
     @Override
-    protected HttpURLConnection performForwardAuthRequest(String authUrl, Map<String, String> headers) throws IOException {
+    protected ContentResponse performForwardAuthRequest(String authUrl, Map<String, String> headers) throws IOException {
+        authRequestCount++;
         if (throwException) {
             throw new IOException("Connection failed");
         }
-        return mockConnection;
+        return mockAuthResponse;
     }
 }
@@ -0,0 +1,75 @@
+package io.jetproxy.middleware.auth;
+
+import org.eclipse.jetty.server.UserIdentity;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class VerifiedCredentialCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    void testVerifiedCredentialIsReturnedUntilTtl() {
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(100, 30_000, now::get);
+        UserIdentity user = mock(UserIdentity.class);
+
+        assertNull(cache.get("Basic YWRtaW46c2VjcmV0"));
+        cache.put("Basic YWRtaW46c2VjcmV0", user);
+
+        assertSame(user, cache.get("Basic YWRtaW46c2VjcmV0"));
+        assertNull(cache.get("Basic YWRtaW46c2VjcmV1"), "Another header is checked again");
+
+        now.addAndGet(30_000);
+        assertNull(cache.get("Basic YWRtaW46c2VjcmV0"), "Trusted for the TTL only");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(2, 30_000, now::get);
+        UserIdentity user = mock(UserIdentity.class);
+
+        cache.put("Basic a", user);
+        cache.put("Basic b", user);
+        cache.put("Basic c", user);
+
+        assertEquals(2, cache.size());
+        assertSame(user, cache.get("Basic c"));
+    }
+
+    @Test
+    void testKeysDependOnThePerInstanceSecret() {
+        VerifiedCredentialCache first = new VerifiedCredentialCache(100, 30_000, now::get);
+        VerifiedCredentialCache second = new VerifiedCredentialCache(100, 30_000, now::get);
+
+        assertEquals(first.key("Basic YWRtaW46c2VjcmV0"), first.key("Basic YWRtaW46c2VjcmV0"));
+        assertNotEquals(first.key("Basic YWRtaW46c2VjcmV0"), second.key("Basic YWRtaW46c2VjcmV0"));
+    }
+
+    @Test
+    void testZeroTtlDisablesTheCache() {
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(100, 0, now::get);
+
+        cache.put("Basic YWRtaW46c2VjcmV0", mock(UserIdentity.class));
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("Basic YWRtaW46c2VjcmV0"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testClearedCredentialIsCheckedAgain() {
+        VerifiedCredentialCache cache = new VerifiedCredentialCache(100, 30_000, now::get);
+        cache.put("Basic YWRtaW46c2VjcmV0", mock(UserIdentity.class));
+
+        cache.clear();
+
+        assertNull(cache.get("Basic YWRtaW46c2VjcmV0"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -1,99 +1,168 @@
 package io.jetproxy.middleware.auth.jwk.source;
 
-import io.jetproxy.context.AppContext;
-import io.jetproxy.middleware.cache.Cache;
 import org.junit.jupiter.api.*;
-import org.mockito.MockedStatic;
 
+import java.security.KeyPairGenerator;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
 class BaseJwkSourceTest {
 
-    private Cache mockCache;
-    private MockedStatic<AppContext> appContextMock;
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private ScheduledExecutorService scheduler;
 
     @BeforeEach
     void setup() {
-        mockCache = mock(Cache.class);
-        appContextMock = mockStatic(AppContext.class);
-
-        AppContext mockAppContext = mock(AppContext.class);
-        when(mockAppContext.getCache()).thenReturn(mockCache);
-        when(mockAppContext.getInstanceId()).thenReturn("test-instance");
-
-        appContextMock.when(AppContext::get).thenReturn(mockAppContext);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
     }
 
     @AfterEach
     void tearDown() {
-        appContextMock.close();
+        scheduler.shutdownNow();
+    }
+
+    private static RSAPublicKey newKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return (RSAPublicKey) generator.generateKeyPair().getPublic();
     }
 
     @Test
-    void shouldReturnKeyFromCacheIfExists() throws Exception {
-        // Arrange
-        String kid = "test-kid";
-        String fakeJwksJson = "{fake-jwks-json}";
-        RSAPublicKey expectedKey = mock(RSAPublicKey.class);
+    void shouldServeKeysFromTheRingWithoutRefetching() throws Exception {
+        RSAPublicKey expectedKey = newKey();
+        DummyJwkSource source = new DummyJwkSource(300_000, Map.of("kid-1", expectedKey));
 
-        when(mockCache.get("HTTP:JWT:AUTH:SRC:test-instance:" + kid)).thenReturn(fakeJwksJson);
+        assertSame(expectedKey, source.getPublicKey("kid-1"));
+        assertSame(expectedKey, source.getPublicKey("kid-1"));
+        assertEquals(1, source.getFetchCount());
+    }
 
-        BaseJwkSource source = new DummyJwkSource(
-                "http://localhost:8080/jwks", 300, fakeJwksJson, Map.of(kid, expectedKey)
-        );
+    @Test
+    void shouldFindRotatedKeyOnKidMiss() throws Exception {
+        RSAPublicKey oldKey = newKey();
+        RSAPublicKey newKey = newKey();
+        DummyJwkSource source = new DummyJwkSource(300_000, Map.of("old", oldKey), Map.of("old", oldKey, "new", newKey));
+
+        assertSame(oldKey, source.getPublicKey("old"));
+        now.addAndGet(10_000);
+        assertSame(newKey, source.getPublicKey("new"));
+        assertEquals(2, source.getFetchCount());
+    }
 
-        // Act
-        RSAPublicKey result = source.getPublicKey(kid);
+    @Test
+    void shouldThrottleRefetchesForUnknownKids() throws Exception {
+        DummyJwkSource source = new DummyJwkSource(300_000, Map.of("kid-1", newKey()));
+        source.getPublicKey("kid-1");
+
+        now.addAndGet(10_000);
+        assertThrows(IllegalArgumentException.class, () -> source.getPublicKey("forged-1"));
+        assertThrows(IllegalArgumentException.class, () -> source.getPublicKey("forged-2"));
+        assertThrows(IllegalArgumentException.class, () -> source.getPublicKey("forged-3"));
+        assertEquals(2, source.getFetchCount(), "One refetch per interval");
+
+        now.addAndGet(10_000);
+        assertThrows(IllegalArgumentException.class, () -> source.getPublicKey("forged-4"));
+        assertEquals(3, source.getFetchCount());
+    }
+
+    @Test
+    void shouldKeepKeysWhenRefreshFails() throws Exception {
+        RSAPublicKey expectedKey = newKey();
+        DummyJwkSource source = new DummyJwkSource(300_000, Map.of("kid-1", expectedKey));
+        source.getPublicKey("kid-1");
+
+        source.failing = true;
+        assertThrows(IllegalStateException.class, () -> source.refreshKeys("kid-1"));
+        assertSame(expectedKey, source.getPublicKey("kid-1"));
+    }
 
-        // Assert
-        assertEquals(expectedKey, result);
+    @Test
+    void shouldRetryAFailedFirstFetch() throws Exception {
+        RecordingScheduler recording = new RecordingScheduler();
+        scheduler.shutdownNow();
+        scheduler = recording;
+        RSAPublicKey expectedKey = newKey();
+        DummyJwkSource source = new DummyJwkSource(300_000, Map.of("kid-1", expectedKey));
+
+        source.failing = true;
+        assertThrows(IllegalStateException.class, () -> source.getPublicKey("kid-1"));
+        assertEquals(List.of(8_000L), recording.delays, "Retried at 80% of the refetch interval");
+
+        source.failing = false;
+        recording.tasks.get(0).call();
+        assertSame(expectedKey, source.getPublicKey("kid-1"));
+        assertEquals(2, source.getFetchCount());
     }
 
     @Test
-    void shouldFetchAndCacheIfNotInCache() throws Exception {
-        // Arrange
-        String kid = "key123";
-        String fakeJwksJson = "{fake-jwks}";
-        RSAPublicKey expectedKey = mock(RSAPublicKey.class);
-
-        when(mockCache.get(any())).thenReturn(null);
-
-        BaseJwkSource source = new DummyJwkSource(
-                "http://localhost:8080/jwks", 120, fakeJwksJson, Map.of(kid, expectedKey)
-        );
-
-        // Act
-        RSAPublicKey result = source.getPublicKey(kid);
-
-        // Assert
-        assertNotNull(result);
-        assertEquals(expectedKey, result);
-
-        verify(mockCache).put(
-                eq("http_jwt_auth_source::test-instance::" + kid),
-                eq(fakeJwksJson),
-                eq(120L)
-        );
+    void shouldRejectMissingKidWithoutFetching() throws Exception {
+        DummyJwkSource source = new DummyJwkSource(300_000, Map.of("kid-1", newKey()));
+
+        assertThrows(IllegalArgumentException.class, () -> source.getPublicKey(null));
+        assertEquals(0, source.getFetchCount());
+    }
+
+    @Test
+    void shouldPreferMaxAgeOverConfiguredTtl() throws Exception {
+        DummyJwkSource source = new DummyJwkSource(120_000, Map.of());
+
+        assertEquals(600_000, source.lifetimeMillis("public, max-age=600"));
+        assertEquals(120_000, source.lifetimeMillis(null));
+        assertEquals(10_000, source.lifetimeMillis("max-age=0"), "Never refreshed faster than a kid miss");
+        assertEquals(300_000, new DummyJwkSource(-1, Map.of()).lifetimeMillis("no-cache"));
+    }
+
+    // Records scheduled refreshes instead of running them, tests run them by hand
+    static class RecordingScheduler extends ScheduledThreadPoolExecutor {
+        private final List<Callable<?>> tasks = new ArrayList<>();
+        private final List<Long> delays = new ArrayList<>();
+
+        RecordingScheduler() {
+            super(1);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> task, long delay, TimeUnit unit) {
+            tasks.add(task);
+            delays.add(unit.toMillis(delay));
+            return super.schedule(() -> null, 1, TimeUnit.DAYS);
+        }
     }
 
     // Custom subclass that overrides fetchJwks + parseJwks
-    static class DummyJwkSource extends BaseJwkSource {
-        private final String mockResponse;
-        private final Map<String, RSAPublicKey> keys;
-
-        DummyJwkSource(String jwksUri, long ttl, String mockResponse, Map<String, RSAPublicKey> keys) {
-            super(jwksUri, ttl);
-            this.mockResponse = mockResponse;
-            this.keys = keys;
+    class DummyJwkSource extends BaseJwkSource {
+        private final Deque<Map<String, RSAPublicKey>> responses = new ArrayDeque<>();
+        private Map<String, RSAPublicKey> keys;
+        private boolean failing;
+
+        @SafeVarargs
+        DummyJwkSource(long ttl, Map<String, RSAPublicKey>... responses) {
+            super("http://localhost:8080/jwks", ttl, 10_000, now::get, scheduler);
+            this.responses.addAll(List.of(responses));
         }
 
         @Override
-        protected String fetchJwks() {
-            return mockResponse;
+        protected JwksResponse fetchJwks() {
+            if (failing) {
+                throw new IllegalStateException("Failed to fetch JWKS: HTTP 503");
+            }
+            if (!responses.isEmpty()) {
+                keys = responses.poll();
+            }
+            return new JwksResponse("{fake-jwks}", null);
         }
 
         @Override
@@ -0,0 +1,77 @@
+package io.jetproxy.middleware.auth.jwk.validator;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private Claims claimsExpiringIn(long millis) {
+        return Jwts.claims().setSubject("user").setExpiration(new Date(now.get() + millis));
+    }
+
+    @Test
+    void testVerifiedTokenIsReturnedUntilTtl() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 60_000, now::get);
+        Claims claims = claimsExpiringIn(3_600_000);
+
+        assertNull(cache.get("token"));
+        cache.put("token", claims, "{\"sub\":\"user\"}");
+
+        VerifiedTokenCache.Entry entry = cache.get("token");
+        assertNotNull(entry);
+        assertSame(claims, entry.getClaims());
+        assertEquals("{\"sub\":\"user\"}", entry.getClaimsJson());
+
+        now.addAndGet(60_000);
+        assertNull(cache.get("token"), "Trusted for the TTL only");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testTokenIsNotTrustedPastItsExpiry() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 60_000, now::get);
+        cache.put("token", claimsExpiringIn(5_000), "{}");
+
+        now.addAndGet(4_999);
+        assertNotNull(cache.get("token"));
+        now.addAndGet(1);
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60_000, now::get);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, claimsExpiringIn(3_600_000), "{}");
+        }
+
+        assertTrue(cache.size() <= 10, "Got " + cache.size());
+        assertNotNull(cache.get("token-99"), "The latest token is kept");
+    }
+
+    @Test
+    void testDisabledCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 0, now::get);
+        cache.put("token", claimsExpiringIn(3_600_000), "{}");
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testTokensAreHeldByHash() {
+        assertEquals(64, VerifiedTokenCache.hash("header.payload.signature").length());
+        assertNotEquals(VerifiedTokenCache.hash("a.b.c"), VerifiedTokenCache.hash("a.b.d"));
+    }
+}
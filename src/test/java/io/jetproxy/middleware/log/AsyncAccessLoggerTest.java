@@ -0,0 +1,174 @@
+package io.jetproxy.middleware.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncAccessLoggerTest {
+
+    // 2024-11-30T06:23:25.042Z
+    private static final long TIMESTAMP = 1732947805042L;
+
+    private static class CollectingSink implements AccessLogSink {
+        private final List<String> lines = new ArrayList<>();
+        private int flushes;
+
+        @Override
+        public synchronized void write(CharSequence line) {
+            lines.add(line.toString());
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<String> lines() {
+            return new ArrayList<>(lines);
+        }
+    }
+
+    private static AsyncAccessLogger logger(AccessLogFormat format, AccessLogSink sink, int bufferSize,
+                                            AsyncAccessLogger.OverflowPolicy policy) {
+        return new AsyncAccessLogger(bufferSize, format, sink, policy, 64, ZoneOffset.UTC);
+    }
+
+    private static boolean log(AsyncAccessLogger logger, String uri, int status) {
+        long sequence = logger.claim();
+        if (sequence < 0) {
+            return false;
+        }
+        AccessLogRecord record = logger.record(sequence);
+        record.timestampMillis = TIMESTAMP;
+        record.remoteAddr = "10.0.0.1";
+        record.method = "GET";
+        record.uri = uri;
+        record.protocol = "HTTP/1.1";
+        record.status = status;
+        record.bytes = 70;
+        record.userAgent = "Mozilla";
+        record.durationMillis = 7;
+        record.route = "/user";
+        logger.publish(sequence);
+        return true;
+    }
+
+    @Test
+    void testWritesRecordsInOrderAsCombinedLogFormat() {
+        CollectingSink sink = new CollectingSink();
+        AsyncAccessLogger logger = logger(AccessLogFormat.COMBINED, sink, 16, AsyncAccessLogger.OverflowPolicy.DROP);
+
+        log(logger, "/user", 200);
+        log(logger, "/user/1", 404);
+        assertEquals(2, logger.drain());
+
+        assertEquals(List.of(
+                "10.0.0.1 - - [30/Nov/2024:06:23:25 +0000] \"GET /user HTTP/1.1\" 200 70 \"-\" \"Mozilla\"",
+                "10.0.0.1 - - [30/Nov/2024:06:23:25 +0000] \"GET /user/1 HTTP/1.1\" 404 70 \"-\" \"Mozilla\""
+        ), sink.lines());
+        assertEquals(2, logger.getWrittenCount());
+        assertEquals(0, logger.getQueueSize());
+    }
+
+    @Test
+    void testJsonFormatEscapesValuesAndOmitsMissingFields() {
+        CollectingSink sink = new CollectingSink();
+        AsyncAccessLogger logger = logger(AccessLogFormat.JSON, sink, 16, AsyncAccessLogger.OverflowPolicy.DROP);
+
+        log(logger, "/search \"quoted\"", 200);
+        logger.drain();
+
+        assertEquals("{\"time\":\"2024-11-30T06:23:25.042Z\",\"remoteAddr\":\"10.0.0.1\",\"method\":\"GET\","
+                + "\"path\":\"/search \\\"quoted\\\"\",\"protocol\":\"HTTP/1.1\",\"status\":200,\"bytes\":70,"
+                + "\"durationMs\":7,\"userAgent\":\"Mozilla\",\"route\":\"/user\",\"cache\":false}", sink.lines().get(0));
+    }
+
+    @Test
+    void testDropPolicyCountsRecordsThatDoNotFit() {
+        CollectingSink sink = new CollectingSink();
+        AsyncAccessLogger logger = logger(AccessLogFormat.DEFAULT, sink, 4, AsyncAccessLogger.OverflowPolicy.DROP);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(log(logger, "/user", 200));
+        }
+        assertFalse(log(logger, "/user", 200));
+        assertEquals(1, logger.getDroppedCount());
+        assertEquals(4, logger.getQueueSize());
+
+        logger.drain();
+        assertTrue(log(logger, "/user", 200), "Drained slots are reused");
+        assertEquals(4, sink.lines().size());
+    }
+
+    @Test
+    void testBlockPolicyLosesNothingUnderConcurrentProducers() throws Exception {
+        CollectingSink sink = new CollectingSink();
+        AsyncAccessLogger logger = logger(AccessLogFormat.DEFAULT, sink, 64, AsyncAccessLogger.OverflowPolicy.BLOCK);
+        logger.start();
+
+        int threads = 4;
+        int perThread = 5_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log(logger, "/t" + id + "/" + i, 200);
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        logger.close();
+
+        List<String> lines = sink.lines();
+        assertEquals(threads * perThread, lines.size());
+        assertEquals(threads * perThread, logger.getWrittenCount());
+        assertEquals(0, logger.getDroppedCount());
+        for (int t = 0; t < threads; t++) {
+            int previous = -1;
+            for (String line : lines) {
+                String prefix = "GET /t" + t + "/";
+                int start = line.indexOf(prefix);
+                if (start < 0) {
+                    continue;
+                }
+                int index = Integer.parseInt(line.substring(start + prefix.length(), line.indexOf(' ', start + prefix.length())));
+                assertTrue(index > previous, "Records of one producer keep their order");
+                previous = index;
+            }
+        }
+    }
+
+    @Test
+    void testRollingFileKeepsConfiguredNumberOfFiles() throws IOException {
+        Path dir = Files.createTempDirectory("access-log");
+        Path file = dir.resolve("access.log");
+        AccessLogSink.RollingFile sink = new AccessLogSink.RollingFile(file, 100, 2);
+
+        for (int i = 0; i < 10; i++) {
+            sink.write("line " + i + " " + "x".repeat(40));
+        }
+        sink.close();
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("access.log.1")));
+        assertTrue(Files.exists(dir.resolve("access.log.2")));
+        assertFalse(Files.exists(dir.resolve("access.log.3")));
+        assertTrue(Files.size(file) <= 100);
+        assertTrue(Files.readString(file).startsWith("line 8"));
+    }
+}
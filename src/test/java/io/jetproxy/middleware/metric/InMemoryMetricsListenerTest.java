@@ -0,0 +1,71 @@
+package io.jetproxy.middleware.metric;
+
+import io.jetproxy.util.Constants;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InMemoryMetricsListenerTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(20_000));
+
+    private HttpServletRequest request(String route) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_ROUTE)).thenReturn(route);
+        return request;
+    }
+
+    @Test
+    void testCountsPerMinuteAndStatusClass() {
+        InMemoryMetricsListener listener = new InMemoryMetricsListener(60, 10, now::get);
+        HttpServletRequest request = request("/orders");
+
+        listener.captureMetricProxyResponse(request, 200);
+        listener.captureMetricProxyResponse(request, 201);
+        listener.captureMetricProxyResponse(request, 503);
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        listener.captureMetricProxyResponse(request, 404);
+
+        List<InMemoryMetricsListener.MetricData> metrics = listener.getMetrics("/orders", Duration.ofMinutes(5));
+        assertEquals(2, metrics.size());
+        assertEquals(3, metrics.get(0).getTotal());
+        assertEquals(2, metrics.get(0).getStatusClassCount(200));
+        assertEquals(1, metrics.get(0).getStatusClassCount(500));
+        assertEquals(1, metrics.get(1).getStatusClassCount(404));
+    }
+
+    @Test
+    void testBucketsOutsideTheRetentionWindowAreReused() {
+        InMemoryMetricsListener listener = new InMemoryMetricsListener(5, 10, now::get);
+        HttpServletRequest request = request("/orders");
+
+        listener.captureMetricProxyResponse(request, 200);
+        now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+        listener.captureMetricProxyResponse(request, 500);
+
+        List<InMemoryMetricsListener.MetricData> metrics = listener.getMetrics("/orders", Duration.ofHours(1));
+        assertEquals(1, metrics.size(), "The old minute shares the slot and must be gone");
+        assertEquals(0, metrics.get(0).getStatusClassCount(200));
+        assertEquals(1, metrics.get(0).getStatusClassCount(500));
+    }
+
+    @Test
+    void testRoutesBeyondTheCardinalityCapShareTheOverflowSeries() {
+        InMemoryMetricsListener listener = new InMemoryMetricsListener(60, 2, now::get);
+
+        for (int i = 0; i < 1000; i++) {
+            listener.captureMetricProxyResponse(request("/crawler/" + i), 200);
+        }
+
+        assertEquals(3, listener.getRoutes().size());
+        assertTrue(listener.getRoutes().contains(InMemoryMetricsListener.OVERFLOW_ROUTE));
+        assertEquals(998, listener.getMetrics(InMemoryMetricsListener.OVERFLOW_ROUTE, Duration.ofMinutes(1)).get(0).getTotal());
+    }
+}
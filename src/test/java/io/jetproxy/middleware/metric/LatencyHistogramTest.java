@@ -0,0 +1,72 @@
+package io.jetproxy.middleware.metric;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverValuesWithBoundedRelativeError() {
+        for (long micros = 1; micros < TimeUnit.MINUTES.toMicros(10); micros = micros * 3 / 2 + 1) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(upperBound >= micros, "Bucket must contain the value " + micros);
+            assertTrue(upperBound - micros <= Math.max(1, micros / 15), "Relative error too large for " + micros);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < micros, "Value must not fit a lower bucket " + micros);
+            }
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5050_000, snapshot.getSumMicros());
+        assertEquals(50_000, snapshot.getValueAtPercentile(50), 50_000 * 0.07);
+        assertEquals(99_000, snapshot.getValueAtPercentile(99), 99_000 * 0.07);
+        assertEquals(10, snapshot.getCountAtOrBelow(TimeUnit.MILLISECONDS.toMicros(10)), 1);
+    }
+
+    @Test
+    void testIntervalSnapshotOnlyContainsRecentValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1, TimeUnit.SECONDS);
+        histogram.rotateInterval();
+        histogram.record(5, TimeUnit.MILLISECONDS);
+        histogram.record(5, TimeUnit.MILLISECONDS);
+
+        LatencyHistogram.Snapshot recent = histogram.rotateInterval();
+
+        assertEquals(2, recent.getCount());
+        assertTrue(recent.getValueAtPercentile(100) < 6_000);
+        assertSame(recent, histogram.getRecent());
+        assertEquals(3, histogram.snapshot().getCount());
+    }
+
+    @Test
+    void testConcurrentRecordingIsNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i % 500, TimeUnit.MICROSECONDS);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, histogram.snapshot().getCount());
+    }
+}
@@ -0,0 +1,66 @@
+package io.jetproxy.middleware.metric;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private String scrape(MetricsRegistry registry, boolean openMetrics) throws IOException {
+        StringWriter writer = new StringWriter();
+        registry.writeTo(writer, openMetrics);
+        return writer.toString();
+    }
+
+    @Test
+    void testRequestsAreExposedPerRouteServiceAndStatus() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        RequestMetrics metrics = registry.requestMetrics("/orders", "order-service");
+        metrics.record(200, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.record(200, TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.record(503, -1);
+
+        String body = scrape(registry, false);
+
+        assertTrue(body.contains("# TYPE jetproxy_http_requests counter"));
+        assertTrue(body.contains("jetproxy_http_requests_total{route=\"/orders\",service=\"order-service\",code=\"200\"} 2"));
+        assertTrue(body.contains("jetproxy_http_requests_total{route=\"/orders\",service=\"order-service\",code=\"503\"} 1"));
+        assertTrue(body.contains("jetproxy_http_request_duration_seconds_bucket{route=\"/orders\",service=\"order-service\",le=\"0.005\"} 1"));
+        assertTrue(body.contains("jetproxy_http_request_duration_seconds_bucket{route=\"/orders\",service=\"order-service\",le=\"+Inf\"} 2"));
+        assertTrue(body.contains("jetproxy_http_request_duration_seconds_count{route=\"/orders\",service=\"order-service\"} 2"));
+        assertFalse(body.contains("# EOF"));
+    }
+
+    @Test
+    void testOutcomeCountersAndGauges() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.recordCacheLookup("/products", "http", true);
+        registry.recordCacheLookup("/products", "http", false);
+        registry.recordCacheLookup("/products", "http", true);
+        registry.recordResilienceRejection("/products", "rate-limiter");
+        registry.registerGauge("jetproxy_test_queue_size", "Test gauge", "gauge", () -> 42, "queue", "a\"b");
+
+        String body = scrape(registry, true);
+
+        assertTrue(body.contains("jetproxy_cache_lookups_total{route=\"/products\",cache=\"http\",result=\"hit\"} 2"));
+        assertTrue(body.contains("jetproxy_cache_lookups_total{route=\"/products\",cache=\"http\",result=\"miss\"} 1"));
+        assertTrue(body.contains("jetproxy_resilience_rejections_total{route=\"/products\",type=\"rate-limiter\"} 1"));
+        assertTrue(body.contains("jetproxy_test_queue_size{queue=\"a\\\"b\"} 42"));
+        assertTrue(body.endsWith("# EOF\n"));
+    }
+
+    @Test
+    void testRecentPercentilesFollowSnapshots() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.requestMetrics("/slow", "svc").record(200, TimeUnit.SECONDS.toNanos(2));
+        registry.rotateSnapshots();
+
+        String body = scrape(registry, false);
+
+        assertTrue(body.contains("jetproxy_http_request_duration_recent_seconds{route=\"/slow\",service=\"svc\",quantile=\"0.99\"} 2."));
+    }
+}
@@ -0,0 +1,104 @@
+package io.jetproxy.middleware.metric;
+
+import io.jetproxy.middleware.cache.RedisCommandBatcher;
+import io.jetproxy.middleware.cache.RedisGuard;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreaker;
+import io.jetproxy.middleware.resilience.circuitbreaker.CircuitBreakerConfig;
+import io.jetproxy.util.Constants;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RedisMetricsListenerTest {
+
+    private RedisCommandBatcher batcher;
+    private RedisMetricsListener listener;
+    private HttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        batcher = mock(RedisCommandBatcher.class);
+        when(batcher.hincrBy(anyString(), anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(1L));
+        request = mock(HttpServletRequest.class);
+        when(request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_ROUTE)).thenReturn("/orders");
+        // Interval 0 disables the background flush so the test drives it
+        listener = new RedisMetricsListener(batcher, new RedisGuard(null, 50), 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.close();
+    }
+
+    @Test
+    void testRequestsAreAggregatedIntoOneIncrementPerField() {
+        for (int i = 0; i < 100; i++) {
+            listener.captureMetricProxyResponse(request, i % 4 == 0 ? 500 : 200);
+        }
+        verifyNoInteractions(batcher);
+
+        assertEquals(3, listener.flush());
+
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(batcher).hincrBy(key.capture(), eq("hitCount"), eq(100L));
+        verify(batcher).hincrBy(anyString(), eq("status:200"), eq(75L));
+        verify(batcher).hincrBy(anyString(), eq("status:500"), eq(25L));
+        assertTrue(key.getValue().startsWith("metrics:/orders:"), "Keys are per route, not per URL");
+    }
+
+    @Test
+    void testOnlyDeltasAreSentOnSubsequentFlushes() {
+        listener.captureMetricProxyResponse(request, 200);
+        listener.flush();
+        listener.captureMetricProxyResponse(request, 200);
+        listener.flush();
+
+        verify(batcher, times(2)).hincrBy(anyString(), eq("hitCount"), eq(1L));
+        assertEquals(0, listener.flush());
+        assertEquals(0, listener.getPendingCount());
+    }
+
+    @Test
+    void testDeltasAreKeptWhileRedisIsUnhealthy() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("redis", CircuitBreakerConfig.custom()
+                .failureRateThreshold(50)
+                .minimumNumberOfCalls(1)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        circuitBreaker.onError(0, TimeUnit.MILLISECONDS);
+        RedisMetricsListener unhealthy = new RedisMetricsListener(batcher, new RedisGuard(circuitBreaker, 50), 0);
+
+        unhealthy.captureMetricProxyResponse(request, 200);
+        assertEquals(0, unhealthy.flush());
+
+        verifyNoInteractions(batcher);
+        assertEquals(2, unhealthy.getPendingCount(), "Hit and status increments wait for the next flush");
+        unhealthy.close();
+    }
+
+    @Test
+    void testDeltasOfFailedCommandsAreSentWithTheNextFlush() {
+        CompletableFuture<Long> failed = CompletableFuture.failedFuture(new IllegalStateException("connection reset"));
+        when(batcher.hincrBy(anyString(), anyString(), anyLong()))
+                .thenReturn(failed, failed, CompletableFuture.completedFuture(1L));
+
+        listener.captureMetricProxyResponse(request, 200);
+        listener.flush();
+        assertEquals(2, listener.getPendingCount(), "Failed increments are kept");
+
+        listener.flush();
+        verify(batcher, times(2)).hincrBy(anyString(), eq("hitCount"), eq(1L));
+        assertEquals(0, listener.getPendingCount());
+    }
+}
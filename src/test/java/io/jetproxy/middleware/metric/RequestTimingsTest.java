@@ -0,0 +1,82 @@
+package io.jetproxy.middleware.metric;
+
+import io.jetproxy.util.Constants;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RequestTimingsTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTimings.configure(false, 0, false);
+    }
+
+    private ServletRequest request() {
+        Map<String, Object> attributes = new HashMap<>();
+        ServletRequest request = mock(ServletRequest.class);
+        when(request.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        return request;
+    }
+
+    @Test
+    void testStagesAreDerivedFromMarks() throws InterruptedException {
+        RequestTimings.configure(true, 1.0, true);
+        ServletRequest request = request();
+
+        RequestTimings.begin(request);
+        RequestTimings.mark(request, RequestTimings.Mark.AUTH_START);
+        Thread.sleep(2);
+        RequestTimings.mark(request, RequestTimings.Mark.AUTH_END);
+        RequestTimings.mark(request, RequestTimings.Mark.SERVICE_START);
+        RequestTimings.mark(request, RequestTimings.Mark.MIDDLEWARE_END);
+
+        RequestTimings timings = RequestTimings.get(request);
+        assertNotNull(timings);
+        assertTrue(timings.getNanos(RequestTimings.Stage.AUTH) >= 2_000_000);
+        assertTrue(timings.getNanos(RequestTimings.Stage.MIDDLEWARE) >= 0);
+        assertEquals(-1, timings.getNanos(RequestTimings.Stage.UPSTREAM_TTFB), "Stages not reached are absent");
+        assertTrue(timings.toServerTiming().startsWith("auth;dur="));
+        assertFalse(timings.toServerTiming().contains("upstream"));
+    }
+
+    @Test
+    void testFinishRecordsStagesOnce() {
+        RequestTimings.configure(true, 1.0, false);
+        MetricsRegistry registry = new MetricsRegistry();
+        ServletRequest request = request();
+
+        RequestTimings.begin(request);
+        RequestTimings.mark(request, RequestTimings.Mark.AUTH_START);
+        RequestTimings.mark(request, RequestTimings.Mark.AUTH_END);
+        RequestTimings.finish(request, registry);
+        RequestTimings.finish(request, registry);
+
+        assertEquals(1, registry.stageLatency(RequestTimings.Stage.AUTH).snapshot().getCount());
+        assertEquals(0, registry.stageLatency(RequestTimings.Stage.RESPONSE).snapshot().getCount());
+    }
+
+    @Test
+    void testUnsampledRequestsAreNotTimed() {
+        RequestTimings.configure(true, 0.0000001, false);
+        ServletRequest request = request();
+        // The decision is made once and kept for the rest of the request
+        RequestTimings.begin(request);
+        Object decision = request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_TIMINGS);
+        RequestTimings.begin(request);
+
+        assertSame(decision, request.getAttribute(Constants.REQUEST_ATTRIBUTE_JETPROXY_TIMINGS));
+        RequestTimings.mark(request, RequestTimings.Mark.AUTH_START);
+        assertNull(RequestTimings.get(request));
+    }
+}
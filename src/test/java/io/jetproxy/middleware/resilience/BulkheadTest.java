@@ -0,0 +1,122 @@
+package io.jetproxy.middleware.resilience;
+
+import io.jetproxy.middleware.resilience.bulkhead.Bulkhead;
+import io.jetproxy.middleware.resilience.bulkhead.BulkheadConfig;
+import io.jetproxy.middleware.resilience.bulkhead.BulkheadRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+
+    private static BulkheadConfig config(int maxConcurrentCalls, long maxWaitMillis, int maxWaitingCalls) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMillis))
+                .maxWaitingCalls(maxWaitingCalls)
+                .build();
+    }
+
+    @Test
+    public void testRejectsBeyondMaxConcurrentCalls() {
+        Bulkhead bulkhead = new Bulkhead("bulkhead", config(2, 0, 0));
+
+        Bulkhead.Permit first = bulkhead.tryAcquire();
+        Bulkhead.Permit second = bulkhead.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(bulkhead.tryAcquire(), "Third concurrent call should be rejected");
+        assertEquals(2, bulkhead.getConcurrentCalls());
+        assertEquals(1, bulkhead.getRejectedCalls());
+
+        first.release();
+        assertNotNull(bulkhead.tryAcquire(), "A released permit can be reused");
+    }
+
+    @Test
+    public void testReleaseIsIdempotent() {
+        Bulkhead bulkhead = new Bulkhead("bulkhead", config(1, 0, 0));
+
+        Bulkhead.Permit permit = bulkhead.tryAcquire();
+        permit.release();
+        permit.release();
+
+        assertEquals(0, bulkhead.getConcurrentCalls());
+        assertNotNull(bulkhead.tryAcquire());
+        assertNull(bulkhead.tryAcquire(), "Releasing twice must not create an extra permit");
+    }
+
+    @Test
+    public void testWaitIsBoundedInTime() {
+        Bulkhead bulkhead = new Bulkhead("bulkhead", config(1, 50, 1));
+        bulkhead.tryAcquire();
+
+        long start = System.nanoTime();
+        assertNull(bulkhead.tryAcquire());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMillis >= 40 && waitedMillis < 1000, "Waited " + waitedMillis + " ms");
+        assertEquals(0, bulkhead.getWaitingCalls());
+    }
+
+    @Test
+    public void testWaiterGetsReleasedPermit() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("bulkhead", config(1, 5000, 1));
+        Bulkhead.Permit held = bulkhead.tryAcquire();
+        AtomicReference<Bulkhead.Permit> acquired = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        Thread waiter = new Thread(() -> {
+            acquired.set(bulkhead.tryAcquire());
+            done.countDown();
+        });
+        waiter.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bulkhead.getWaitingCalls() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, bulkhead.getWaitingCalls());
+
+        held.release();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotNull(acquired.get());
+    }
+
+    @Test
+    public void testWaitingCallsAreBounded() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("bulkhead", config(1, 5000, 1));
+        Bulkhead.Permit held = bulkhead.tryAcquire();
+        Thread waiter = new Thread(bulkhead::tryAcquire);
+        waiter.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bulkhead.getWaitingCalls() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        long start = System.nanoTime();
+        assertNull(bulkhead.tryAcquire(), "The wait queue is full");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000, "Rejected without waiting");
+
+        held.release();
+        waiter.join(5000);
+    }
+
+    @Test
+    public void testServiceScopedBulkheadsAreShared() {
+        ConcurrentHashMap<String, Bulkhead> shared = new ConcurrentHashMap<>();
+        BulkheadRegistry users = new BulkheadRegistry("service", config(1, 0, 0), shared);
+        BulkheadRegistry admin = new BulkheadRegistry("service", config(5, 0, 0), shared);
+
+        assertSame(users.bulkhead("userApi"), admin.bulkhead("userApi"));
+        assertEquals(1, admin.bulkhead("userApi").getMaxConcurrentCalls(), "The first route sizes the bulkhead");
+        assertNotSame(users.bulkhead("userApi"), users.bulkhead("orderApi"));
+        assertEquals("service:userApi", users.bulkhead("userApi").getName());
+    }
+}
@@ -0,0 +1,220 @@
+package io.jetproxy.middleware.resilience;
+
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiter;
+import io.jetproxy.middleware.resilience.concurrency.ConcurrencyLimiterConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimiterTest {
+
+    private static final long BASELINE_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static ConcurrencyLimiter limiter(ConcurrencyLimiterConfig.Algorithm algorithm, int initialLimit) {
+        return new ConcurrencyLimiter("userApi", ConcurrencyLimiterConfig.custom()
+                .algorithm(algorithm)
+                .initialLimit(initialLimit)
+                .minLimit(2)
+                .maxLimit(100)
+                .baselineWindow(1000)
+                .build());
+    }
+
+    /**
+     * Sends as many requests as the limit allows and completes them all with the given RTT.
+     */
+    private static void round(ConcurrencyLimiter limiter, long rttNanos, boolean dropped) {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        ConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        permits.forEach(p -> {
+            p.sample(rttNanos, dropped);
+            p.release();
+        });
+    }
+
+    @Test
+    public void testRejectsBeyondLimit() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 3);
+
+        assertNotNull(limiter.tryAcquire());
+        assertNotNull(limiter.tryAcquire());
+        ConcurrencyLimiter.Permit third = limiter.tryAcquire();
+        assertNotNull(third);
+        assertNull(limiter.tryAcquire(), "Fourth request exceeds the limit");
+        assertEquals(1, limiter.getRejectedCount());
+
+        third.release();
+        assertEquals(2, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testPermitIsFreedOnlyOnce() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 3);
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        permit.release();
+        permit.release();
+
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testSampleKeepsTheSlotUntilRelease() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 3);
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        permit.sample(BASELINE_RTT, true);
+        assertEquals(1, limiter.getInFlight(), "A retry of the request may still be pending");
+
+        permit.release();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testGradientHalvesOnDrop() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 40);
+
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        permit.sample(BASELINE_RTT, true);
+        permit.release();
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    public void testConcurrentDropsDecreaseTheLimitOnce() throws Exception {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 40);
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> drops = new ArrayList<>();
+            for (ConcurrencyLimiter.Permit permit : permits) {
+                drops.add(executor.submit(() -> {
+                    start.await();
+                    permit.sample(BASELINE_RTT, true);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> drop : drops) {
+                drop.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20, limiter.getLimit(), "All 40 requests were sent before the first decrease");
+    }
+
+    @Test
+    public void testRetriesOfOneRequestDecreaseTheLimitOnce() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 40);
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        permit.sample(BASELINE_RTT, true);
+        permit.sample(BASELINE_RTT, true);
+        permit.sample(BASELINE_RTT, true);
+        permit.release();
+        assertEquals(20, limiter.getLimit());
+
+        ConcurrencyLimiter.Permit later = limiter.tryAcquire();
+        later.sample(BASELINE_RTT, true);
+        assertEquals(10, limiter.getLimit(), "A request admitted after the decrease may cut again");
+    }
+
+    @Test
+    public void testGradientGrowsWhileLatencyStaysAtBaseline() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 10);
+
+        for (int i = 0; i < 20; i++) {
+            round(limiter, BASELINE_RTT, false);
+        }
+
+        assertTrue(limiter.getLimit() > 10, "Limit " + limiter.getLimit());
+    }
+
+    @Test
+    public void testGradientShrinksWhenRequestsQueue() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 40);
+        round(limiter, BASELINE_RTT, false);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            round(limiter, BASELINE_RTT * 5, false);
+        }
+
+        assertTrue(limiter.getLimit() < before / 2, "Limit " + limiter.getLimit() + " was " + before);
+    }
+
+    @Test
+    public void testGradientToleratesSmallLatencyIncrease() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.GRADIENT, 20);
+        round(limiter, BASELINE_RTT, false);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            round(limiter, BASELINE_RTT * 14 / 10, false);
+        }
+
+        assertTrue(limiter.getLimit() >= before, "Within tolerance the limit must not shrink");
+    }
+
+    @Test
+    public void testIdleLimiterDoesNotGrow() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.AIMD, 20);
+
+        for (int i = 0; i < 50; i++) {
+            ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            permit.sample(BASELINE_RTT, false);
+            permit.release();
+        }
+
+        assertEquals(20, limiter.getLimit(), "One request at a time says nothing about 21");
+    }
+
+    @Test
+    public void testAimdIncreasesAdditivelyAndDecreasesMultiplicatively() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.AIMD, 10);
+
+        round(limiter, BASELINE_RTT, false);
+        assertTrue(limiter.getLimit() > 10 && limiter.getLimit() <= 20, "Limit " + limiter.getLimit());
+
+        int before = limiter.getLimit();
+        round(limiter, BASELINE_RTT, true);
+        assertTrue(limiter.getLimit() < before && limiter.getLimit() >= before * 0.9 - 1,
+                "One decrease per round, limit " + limiter.getLimit() + " was " + before);
+    }
+
+    @Test
+    public void testLimitStaysWithinBounds() {
+        ConcurrencyLimiter limiter = limiter(ConcurrencyLimiterConfig.Algorithm.AIMD, 10);
+
+        for (int i = 0; i < 100; i++) {
+            round(limiter, BASELINE_RTT, true);
+        }
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 200; i++) {
+            round(limiter, BASELINE_RTT, false);
+        }
+        assertEquals(100, limiter.getLimit());
+    }
+}
@@ -3,10 +3,11 @@ package io.jetproxy.middleware.resilience;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import io.jetproxy.middleware.resilience.retry.Retry;
+import io.jetproxy.middleware.resilience.retry.RetryBudget;
 import io.jetproxy.middleware.resilience.retry.RetryConfig;
 
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,68 +19,119 @@ public class RetryTest {
     public void setup() {
         RetryConfig config = RetryConfig.custom()
                 .maxAttempts(3) // Maximum 3 retries
-                .waitDuration(Duration.ofMillis(100)) // 100ms delay between retries
+                .waitDuration(Duration.ofMillis(100)) // 100ms base backoff
+                .maxWaitDuration(Duration.ofMillis(300))
+                .budgetPercent(50)
+                .budgetMinRetries(100)
                 .build();
         retry = new Retry("retry-name", config);
     }
 
     @Test
-    public void testCanRetryWithinMaxAttempts() {
-        // Retry should allow up to 3 attempts
-        assertTrue(retry.canRetry(), "First attempt should be allowed");
-        assertTrue(retry.canRetry(), "Second attempt should be allowed");
-        assertTrue(retry.canRetry(), "Third attempt should be allowed");
-        assertFalse(retry.canRetry(), "Fourth attempt should not be allowed");
+    public void testRetriesAreCountedPerRequest() {
+        // Each request carries its own retry count, so one request exhausting its retries
+        // does not affect another
+        assertTrue(retry.tryRetry("GET", 0), "First retry should be allowed");
+        assertTrue(retry.tryRetry("GET", 1), "Second retry should be allowed");
+        assertTrue(retry.tryRetry("GET", 2), "Third retry should be allowed");
+        assertFalse(retry.tryRetry("GET", 3), "Fourth retry should not be allowed");
+
+        assertTrue(retry.tryRetry("GET", 0), "Another request starts from zero");
+        assertEquals(4, retry.getRetriedCount());
     }
 
     @Test
-    public void testStateAfterExhaustingRetries() {
-        // Exhaust retries
-        retry.canRetry(); // Attempt 1
-        retry.canRetry(); // Attempt 2
-        retry.canRetry(); // Attempt 3
-        retry.canRetry(); // Attempt 4 (should fail)
-
-        assertEquals("FAILED", retry.getState(), "State should be FAILED after exhausting retries");
+    public void testOnlyIdempotentMethodsAreRetriedByDefault() {
+        assertTrue(retry.isRetryableMethod("GET"));
+        assertTrue(retry.isRetryableMethod("put"));
+        assertFalse(retry.isRetryableMethod("POST"));
+        assertFalse(retry.isRetryableMethod("PATCH"));
+        assertFalse(retry.tryRetry("POST", 0));
     }
 
     @Test
-    public void testStateAfterSuccess() {
-        // Simulate success after some retries
-        retry.canRetry(); // Attempt 1
-        retry.canRetry(); // Attempt 2
-        retry.onSuccess(0, TimeUnit.MILLISECONDS); // Mark as success
-
-        assertEquals("SUCCESS", retry.getState(), "State should be SUCCESS after successful operation");
-        assertTrue(retry.canRetry(), "Retry mechanism should reset after success");
+    public void testConfiguredMethodsAndStatuses() {
+        Retry custom = new Retry("custom", RetryConfig.custom()
+                .methods(List.of("get", "post"))
+                .retryOnStatus(List.of(429, 503))
+                .build());
+
+        assertTrue(custom.isRetryableMethod("POST"));
+        assertFalse(custom.isRetryableMethod("DELETE"));
+        assertTrue(custom.isRetryableStatus(429));
+        assertFalse(custom.isRetryableStatus(502));
     }
 
     @Test
-    public void testDelayBetweenRetries() {
-        long startTime = System.currentTimeMillis();
+    public void testDefaultStatuses() {
+        assertTrue(retry.isRetryableStatus(502));
+        assertTrue(retry.isRetryableStatus(503));
+        assertTrue(retry.isRetryableStatus(504));
+        assertFalse(retry.isRetryableStatus(500), "A 500 may have had side effects");
+        assertFalse(retry.isRetryableStatus(404));
+    }
+
+    @Test
+    public void testBackoffGrowsExponentiallyWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            long first = retry.backoffMillis(1);
+            long second = retry.backoffMillis(2);
+            long fourth = retry.backoffMillis(4);
+
+            assertTrue(first >= 50 && first <= 100, "First backoff " + first);
+            assertTrue(second >= 100 && second <= 200, "Second backoff " + second);
+            assertTrue(fourth >= 150 && fourth <= 300, "Backoff is capped, got " + fourth);
+        }
+    }
+
+    @Test
+    public void testBudgetLimitsRetriesToShareOfRequests() {
+        RetryBudget budget = new RetryBudget(20, 2);
+
+        assertTrue(budget.tryAcquire(), "A quiet route starts with its minimum retries");
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire(), "The budget is spent");
+
+        for (int i = 0; i < 4; i++) {
+            budget.onRequest();
+        }
+        assertFalse(budget.tryAcquire(), "4 requests earn 0.8 retries");
+        budget.onRequest();
+        assertTrue(budget.tryAcquire(), "5 requests earn 1 retry at 20%");
+        assertFalse(budget.tryAcquire());
+    }
 
-        // Perform a retry with delay
-        retry.onError(0, TimeUnit.MILLISECONDS);
+    @Test
+    public void testZeroMinRetriesStartsWithEmptyBudget() {
+        RetryBudget budget = new RetryBudget(50, 0);
+
+        assertFalse(budget.tryAcquire(), "No retry before the route earned one");
+        budget.onRequest();
+        budget.onRequest();
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
 
-        long elapsedTime = System.currentTimeMillis() - startTime;
+    @Test
+    public void testBudgetBalanceIsCapped() {
+        RetryBudget budget = new RetryBudget(50, 3);
+        for (int i = 0; i < 1000; i++) {
+            budget.onRequest();
+        }
 
-        // Assert that the delay is at least 100ms
-        assertTrue(elapsedTime >= 100, "Retry should delay for at least 100ms before next attempt");
+        assertEquals(3, budget.available());
     }
 
     @Test
-    public void testResetAfterSuccess() {
-        // Perform some retries
-        retry.canRetry(); // Attempt 1
-        retry.canRetry(); // Attempt 2
-
-        // Reset on success
-        retry.onSuccess(0, TimeUnit.MILLISECONDS);
-
-        // Retry should reset and allow up to 3 attempts again
-        assertTrue(retry.canRetry(), "First attempt after reset should be allowed");
-        assertTrue(retry.canRetry(), "Second attempt after reset should be allowed");
-        assertTrue(retry.canRetry(), "Third attempt after reset should be allowed");
-        assertFalse(retry.canRetry(), "Fourth attempt after reset should not be allowed");
+    public void testExhaustedBudgetStopsRetries() {
+        Retry limited = new Retry("limited", RetryConfig.custom()
+                .maxAttempts(3)
+                .budgetPercent(0)
+                .budgetMinRetries(1)
+                .build());
+
+        assertTrue(limited.tryRetry("GET", 0));
+        assertFalse(limited.tryRetry("GET", 0), "No request earned a new retry");
+        assertEquals(1, limited.getBudgetExhaustedCount());
     }
 }
@@ -0,0 +1,178 @@
+package io.jetproxy.middleware.resilience.circuitbreaker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerSlidingWindowTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private static CircuitBreakerConfig config(CircuitBreakerConfig.SlidingWindowType type, int size, int minimumCalls) {
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(50)
+                .slowCallRateThreshold(50)
+                .slowCallDurationThreshold(Duration.ofMillis(500))
+                .waitDurationInOpenState(Duration.ofMillis(1000))
+                .permittedNumberOfCallsInHalfOpenState(2)
+                .minimumNumberOfCalls(minimumCalls)
+                .slidingWindowType(type)
+                .slidingWindowSize(size)
+                .build();
+    }
+
+    @Test
+    void testCountBasedWindowForgetsOldFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 10, 10), now::get);
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < 16; i++) {
+            breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(0.0, breaker.getFailureRate(), "Failures older than the last 10 calls no longer count");
+
+        for (int i = 0; i < 5; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+        assertEquals("CLOSED", breaker.getState(), "50% does not exceed the threshold");
+
+        breaker.onError(10, TimeUnit.MILLISECONDS);
+        assertEquals("OPEN", breaker.getState(), "60% of the last 10 calls failed");
+    }
+
+    @Test
+    void testMinimumCallsIsCappedByCountWindowSize() {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 4, 100), now::get);
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals("OPEN", breaker.getState());
+    }
+
+    @Test
+    void testTimeBasedWindowOnlyCountsRecentSeconds() {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.TIME_BASED, 10, 4), now::get);
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toMillis(11));
+        breaker.onError(10, TimeUnit.MILLISECONDS);
+        breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+        breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+        breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+        assertEquals("CLOSED", breaker.getState(), "The earlier failures fell out of the window");
+        assertEquals(25.0, breaker.getFailureRate());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(1));
+        breaker.onError(10, TimeUnit.MILLISECONDS);
+        breaker.onError(10, TimeUnit.MILLISECONDS);
+        assertEquals("CLOSED", breaker.getState(), "3 of the 6 calls in the last 10 seconds failed");
+        breaker.onError(10, TimeUnit.MILLISECONDS);
+        assertEquals("OPEN", breaker.getState(), "4 of the 7 calls in the last 10 seconds failed");
+    }
+
+    @Test
+    void testSlowFailuresCountAsSlowCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 10, 4), now::get);
+
+        breaker.onError(800, TimeUnit.MILLISECONDS);
+        breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+
+        assertEquals(50.0, breaker.getSlowCallRate());
+        assertEquals(50.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void testRecoversThroughHalfOpenWithFreshWindow() {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 10, 4), now::get);
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+        assertEquals("OPEN", breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(1000);
+        assertTrue(breaker.allowRequest());
+        assertEquals("HALF_OPEN", breaker.getState());
+        breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+        breaker.onSuccess(10, TimeUnit.MILLISECONDS);
+
+        assertEquals("CLOSED", breaker.getState());
+        assertEquals(0.0, breaker.getFailureRate(), "History from before opening is discarded");
+    }
+
+    @Test
+    void testSlowCallInHalfOpenReopens() {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 10, 4), now::get);
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+        now.addAndGet(1000);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onSuccess(800, TimeUnit.MILLISECONDS);
+
+        assertEquals("OPEN", breaker.getState());
+    }
+
+    @Test
+    void testOnlyOneCallerMovesOpenToHalfOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("cb", config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 10, 4), now::get);
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(10, TimeUnit.MILLISECONDS);
+        }
+        now.addAndGet(1000);
+
+        int threads = 8;
+        AtomicLong allowed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (breaker.allowRequest()) {
+                        allowed.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // The transitioning caller plus the permitted half-open calls
+        assertTrue(allowed.get() <= 3, "Allowed " + allowed.get());
+        assertEquals("HALF_OPEN", breaker.getState());
+    }
+
+    @Test
+    void testRegistryKeepsOneBreakerPerKey() {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry("route",
+                config(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED, 10, 4));
+
+        CircuitBreaker users = registry.circuitBreaker("userApi");
+        for (int i = 0; i < 4; i++) {
+            users.onError(10, TimeUnit.MILLISECONDS);
+        }
+
+        assertSame(users, registry.circuitBreaker("userApi"));
+        assertEquals("OPEN", users.getState());
+        assertEquals("CLOSED", registry.circuitBreaker("orderApi").getState(), "Other endpoints are unaffected");
+        assertEquals("route::userApi", users.getName());
+        assertEquals(2, registry.getCircuitBreakers().size());
+    }
+}
@@ -0,0 +1,95 @@
+package io.jetproxy.middleware.resilience.hedge;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    private Hedging hedging(HedgingConfig.Builder builder) {
+        return new Hedging("test", builder.window(Duration.ofSeconds(10)).build(), now::get);
+    }
+
+    @Test
+    void testNothingIsHedgedBeforeLatencyIsObserved() {
+        Hedging hedging = hedging(HedgingConfig.custom());
+
+        assertEquals(-1, hedging.delayMillis());
+        for (int i = 0; i < 10; i++) {
+            hedging.recordLatency(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(-1, hedging.delayMillis(), "Ten requests are too few for a percentile");
+    }
+
+    @Test
+    void testDelayFollowsObservedPercentile() {
+        Hedging hedging = hedging(HedgingConfig.custom().percentile(95));
+
+        for (int i = 0; i < 95; i++) {
+            hedging.recordLatency(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        for (int i = 0; i < 5; i++) {
+            hedging.recordLatency(TimeUnit.MILLISECONDS.toNanos(900));
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        long delay = hedging.delayMillis();
+        assertTrue(delay >= 20 && delay < 25, "p95 is about 20ms, got " + delay);
+    }
+
+    @Test
+    void testObservedDelayHasFloor() {
+        Hedging hedging = hedging(HedgingConfig.custom().minDelay(Duration.ofMillis(10)));
+
+        for (int i = 0; i < 100; i++) {
+            hedging.recordLatency(TimeUnit.MICROSECONDS.toNanos(300));
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(10, hedging.delayMillis());
+    }
+
+    @Test
+    void testFixedDelay() {
+        Hedging hedging = hedging(HedgingConfig.custom().delay(Duration.ofMillis(75)));
+
+        assertEquals(75, hedging.delayMillis());
+    }
+
+    @Test
+    void testBudgetCapsExtraLoad() {
+        Hedging hedging = hedging(HedgingConfig.custom().budgetPercent(10).budgetMinHedges(1));
+
+        int hedged = 0;
+        for (int i = 0; i < 1000; i++) {
+            hedging.onRequest();
+            hedged += hedging.tryHedge() ? 1 : 0;
+        }
+
+        assertTrue(hedged <= 101, "At most 10% of requests are hedged, got " + hedged);
+        assertEquals(hedged, hedging.getHedgedCount());
+        assertEquals(1000 - hedged, hedging.getBudgetExhaustedCount());
+        assertEquals(hedged / 1000.0, hedging.getExtraLoad(), 1e-9);
+    }
+
+    @Test
+    void testWinRateAndMethods() {
+        Hedging hedging = hedging(HedgingConfig.custom().methods(List.of("get")));
+
+        assertTrue(hedging.tryHedge());
+        assertTrue(hedging.tryHedge());
+        hedging.onHedgeWon();
+
+        assertEquals(0.5, hedging.getWinRate(), 1e-9);
+        assertTrue(hedging.isHedgeableMethod("GET"));
+        assertFalse(hedging.isHedgeableMethod("POST"));
+    }
+}
@@ -0,0 +1,115 @@
+package io.jetproxy.middleware.resilience.ratelimiter;
+
+import io.jetproxy.middleware.cache.RedisGuard;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    private final AtomicInteger redisCalls = new AtomicInteger();
+
+    private static RateLimiterConfig config(int leaseSize) {
+        return RateLimiterConfig.custom()
+                .limitRefreshPeriod(Duration.ofMillis(1000))
+                .limitForPeriod(100)
+                .maxBurstCapacity(100)
+                .leaseSize(leaseSize)
+                .build();
+    }
+
+    private DistributedRateLimiter limiter(int leaseSize, IntFunction<CompletableFuture<long[]>> redis) {
+        IntFunction<CompletableFuture<long[]>> counted = size -> {
+            redisCalls.incrementAndGet();
+            return redis.apply(size);
+        };
+        return new DistributedRateLimiter(config(leaseSize), new RedisGuard(null, 50), counted, now::get);
+    }
+
+    /**
+     * Stands in for the Lua script: a cluster-wide pool of tokens that is not refilled.
+     */
+    private static IntFunction<CompletableFuture<long[]>> pool(AtomicLong remaining) {
+        return size -> {
+            long granted = Math.min(size, Math.max(0, remaining.get()));
+            remaining.addAndGet(-granted);
+            return CompletableFuture.completedFuture(new long[]{granted, granted > 0 ? 0 : 10_000});
+        };
+    }
+
+    @Test
+    void testTokensAreSpentLocallyBetweenLeases() {
+        DistributedRateLimiter limiter = limiter(10, pool(new AtomicLong(1000)));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryConsume());
+        }
+
+        assertTrue(redisCalls.get() <= 11, "Redis is asked once per lease, got " + redisCalls.get());
+        assertTrue(limiter.getLeasedTokens() > 0, "The next lease is fetched before the current one runs out");
+    }
+
+    @Test
+    void testNodesShareTheClusterLimit() {
+        AtomicLong cluster = new AtomicLong(25);
+        DistributedRateLimiter first = limiter(10, pool(cluster));
+        DistributedRateLimiter second = limiter(10, pool(cluster));
+
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            allowed += first.tryConsume() ? 1 : 0;
+            allowed += second.tryConsume() ? 1 : 0;
+        }
+
+        assertEquals(25, allowed);
+    }
+
+    @Test
+    void testDeniedNodeWaitsBeforeAskingAgain() {
+        DistributedRateLimiter limiter = limiter(10, pool(new AtomicLong(0)));
+
+        assertFalse(limiter.tryConsume());
+        int calls = redisCalls.get();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(limiter.tryConsume());
+        }
+        assertEquals(calls, redisCalls.get(), "Rejected locally until the next token is due");
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(11));
+        assertFalse(limiter.tryConsume());
+        assertEquals(calls + 1, redisCalls.get());
+    }
+
+    @Test
+    void testStaleLeaseIsDropped() {
+        AtomicLong cluster = new AtomicLong(20);
+        DistributedRateLimiter limiter = limiter(10, pool(cluster));
+        assertTrue(limiter.tryConsume());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cluster.set(0);
+        assertFalse(limiter.tryConsume(), "Tokens leased a period ago are not spent");
+    }
+
+    @Test
+    void testFallsBackToLocalBucketWhenRedisFails() {
+        DistributedRateLimiter limiter = limiter(10,
+                size -> CompletableFuture.failedFuture(new IllegalStateException("connection refused")));
+
+        int allowed = 0;
+        for (int i = 0; i < 200; i++) {
+            allowed += limiter.tryConsume() ? 1 : 0;
+        }
+
+        assertEquals(100, allowed, "The local bucket enforces the limits per node");
+        assertEquals(200, limiter.getFallbackCount());
+    }
+}
@@ -0,0 +1,113 @@
+package io.jetproxy.middleware.resilience.ratelimiter;
+
+import io.jetproxy.exception.JetProxyValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    private KeyedRateLimiter limiter(int limitForPeriod, int maxBurstCapacity, int maxKeys) {
+        RateLimiterConfig config = RateLimiterConfig.custom()
+                .limitRefreshPeriod(Duration.ofMillis(1000))
+                .limitForPeriod(limitForPeriod)
+                .maxBurstCapacity(maxBurstCapacity)
+                .maxKeys(maxKeys)
+                .build();
+        return new KeyedRateLimiter(config, RateLimitKeyResolver.from("ip"), now::get);
+    }
+
+    @Test
+    void testEachKeyHasItsOwnBurst() {
+        KeyedRateLimiter limiter = limiter(5, 10, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryConsume("10.0.0.1"), "Request " + i + " is within the burst");
+        }
+        assertFalse(limiter.tryConsume("10.0.0.1"), "The burst is spent");
+        assertTrue(limiter.tryConsume("10.0.0.2"), "Another client is unaffected");
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testKeysRefillAtTheConfiguredRate() {
+        KeyedRateLimiter limiter = limiter(5, 10, 1000);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryConsume("client");
+        }
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(199));
+        assertFalse(limiter.tryConsume("client"), "5 per second is one every 200ms");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(limiter.tryConsume("client"));
+        assertFalse(limiter.tryConsume("client"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryConsume("client"), "A second earns 5 requests");
+        }
+        assertFalse(limiter.tryConsume("client"));
+    }
+
+    @Test
+    void testIdleKeysAreEvictedWhenTheCapIsReached() {
+        KeyedRateLimiter limiter = limiter(1, 1, 16);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryConsume("client-" + i);
+        }
+        assertTrue(limiter.size() <= 16, "Buckets are capped, got " + limiter.size());
+        assertTrue(limiter.getOverflowCount() > 0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        for (int i = 1000; i < 2000; i++) {
+            limiter.tryConsume("client-" + i);
+        }
+        assertTrue(limiter.size() <= 16, "Buckets are capped, got " + limiter.size());
+    }
+
+    @Test
+    void testActiveKeysAreNotEvictedForNewOnes() {
+        KeyedRateLimiter limiter = limiter(1, 1, 16);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryConsume("client-" + i);
+        }
+        int held = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (!limiter.tryConsume("client-" + i)) {
+                held++;
+            }
+        }
+        // Every key is rejected: either its own bucket or the shared overflow bucket is spent
+        assertEquals(1000, held);
+    }
+
+    @Test
+    void testLongKeysAreBounded() {
+        KeyedRateLimiter limiter = limiter(1, 1, 1000);
+        String longKey = "k".repeat(10_000);
+
+        assertTrue(limiter.tryConsume(longKey));
+        assertFalse(limiter.tryConsume(longKey), "The same long key maps to the same bucket");
+        assertTrue(limiter.tryConsume(longKey + "x"));
+    }
+
+    @Test
+    void testKeyByParsing() {
+        assertEquals(RateLimitKeyResolver.Source.IP, RateLimitKeyResolver.from("ip").getSource());
+        RateLimitKeyResolver header = RateLimitKeyResolver.from("header:X-Api-Key");
+        assertEquals(RateLimitKeyResolver.Source.HEADER, header.getSource());
+        assertEquals("X-Api-Key", header.getName());
+        assertEquals(RateLimitKeyResolver.Source.QUERY, RateLimitKeyResolver.from("query:api_key").getSource());
+        assertEquals("sub", RateLimitKeyResolver.from("JWT:sub").getName());
+
+        assertThrows(JetProxyValidationException.class, () -> RateLimitKeyResolver.from("header:"));
+        assertThrows(JetProxyValidationException.class, () -> RateLimitKeyResolver.from("cookie:session"));
+        assertThrows(JetProxyValidationException.class, () -> RateLimitKeyResolver.from(""));
+    }
+}
@@ -0,0 +1,131 @@
+package io.jetproxy.service.appConfig.servlet;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LogStreamServletTest {
+
+    private AsyncContext asyncContext;
+    private ServletOutputStream out;
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final AtomicBoolean ready = new AtomicBoolean(true);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        asyncContext = mock(AsyncContext.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(asyncContext).start(any(Runnable.class));
+
+        out = mock(ServletOutputStream.class);
+        when(out.isReady()).thenAnswer(invocation -> ready.get());
+        doAnswer(invocation -> {
+            written.write((byte[]) invocation.getArgument(0));
+            return null;
+        }).when(out).write(any(byte[].class));
+    }
+
+    private LogStreamSubscriber subscriber(LogStreamFilter filter, int capacity) throws Exception {
+        LogStreamSubscriber subscriber = new LogStreamSubscriber(asyncContext, out, filter, capacity, s -> { });
+        subscriber.onWritePossible(); // What the container does once the write listener is set
+        return subscriber;
+    }
+
+    private static LogStreamFilter filter(String route, String status, String minLatency, String sample) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("route")).thenReturn(route);
+        when(request.getParameter("status")).thenReturn(status);
+        when(request.getParameter("minLatency")).thenReturn(minLatency);
+        when(request.getParameter("sample")).thenReturn(sample);
+        return LogStreamFilter.from(request);
+    }
+
+    private String output() {
+        return written.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testFilterByRouteStatusAndLatency() {
+        LogStreamFilter filter = filter("/orders", "404,5xx", "100", null);
+
+        assertTrue(filter.accepts("/orders/1", 503, 250));
+        assertTrue(filter.accepts("/orders", 404, 100));
+        assertFalse(filter.accepts("/users", 503, 250), "Other routes are filtered out");
+        assertFalse(filter.accepts("/orders", 200, 250), "Other statuses are filtered out");
+        assertFalse(filter.accepts("/orders", 500, 99), "Faster requests are filtered out");
+        assertFalse(filter.accepts(null, 0, -1), "Lines without details fail constraining filters");
+    }
+
+    @Test
+    void testFilterWithoutParametersAcceptsEverything() {
+        LogStreamFilter filter = filter(null, null, null, null);
+
+        assertTrue(filter.accepts(null, 0, -1));
+        assertTrue(filter.accepts("/orders", 200, 3));
+    }
+
+    @Test
+    void testSampleZeroSendsNothing() {
+        LogStreamFilter filter = filter(null, "bogus", null, "0");
+
+        assertFalse(filter.accepts("/orders", 200, 3));
+    }
+
+    @Test
+    void testWritesQueuedLinesAsServerSentEvents() throws Exception {
+        LogStreamSubscriber subscriber = subscriber(filter(null, null, null, null), 8);
+
+        subscriber.offer("first");
+        subscriber.offer("second");
+
+        assertEquals("data: first\n\ndata: second\n\n", output());
+        assertEquals(0, subscriber.getQueueSize());
+        verify(out, atLeastOnce()).flush();
+    }
+
+    @Test
+    void testSlowClientDropsOldestLinesWithoutBlocking() throws Exception {
+        LogStreamSubscriber subscriber = subscriber(filter(null, null, null, null), 2);
+        ready.set(false);
+
+        assertTrue(subscriber.offer("one"));
+        assertTrue(subscriber.offer("two"));
+        assertFalse(subscriber.offer("three"));
+        assertEquals(1, subscriber.getDroppedCount());
+        assertEquals(2, subscriber.getQueueSize());
+        assertEquals("", output());
+
+        // The container calls back once the client is ready again
+        ready.set(true);
+        subscriber.onWritePossible();
+
+        assertEquals("data: two\n\ndata: three\n\n", output());
+    }
+
+    @Test
+    void testFailedClientIsClosed() throws Exception {
+        AtomicBoolean removed = new AtomicBoolean();
+        LogStreamSubscriber subscriber = new LogStreamSubscriber(asyncContext, out, filter(null, null, null, null), 8,
+                s -> removed.set(true));
+
+        subscriber.onError(new IOException("broken pipe"));
+
+        assertTrue(removed.get());
+        verify(asyncContext).complete();
+        subscriber.offer("ignored");
+        assertEquals(0, subscriber.getQueueSize());
+    }
+}
@@ -0,0 +1,54 @@
+package io.jetproxy.service.holder;
+
+import io.jetproxy.middleware.auth.ForwardAuthDecisionCache;
+import io.jetproxy.middleware.auth.SpeculativeAuth;
+import jakarta.servlet.http.HttpServletRequest;
+import org.eclipse.jetty.client.api.Request;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+class BaseProxyRequestHandlerTest {
+
+    private HttpServletRequest clientRequest;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> attributes = new HashMap<>();
+        clientRequest = mock(HttpServletRequest.class);
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(clientRequest).setAttribute(anyString(), any());
+        doAnswer(invocation -> attributes.remove(invocation.<String>getArgument(0)))
+                .when(clientRequest).removeAttribute(anyString());
+        when(clientRequest.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    void testRetriesOfASpeculativeRequestCarryTheForwardAuthHeaders() {
+        SpeculativeAuth.settle(clientRequest, new ForwardAuthDecisionCache.Decision(200, Map.of("X-Auth-User", "alice")));
+
+        Request firstRetry = mock(Request.class);
+        Request secondRetry = mock(Request.class);
+        BaseProxyRequestHandler.addForwardAuthHeaders(clientRequest, firstRetry);
+        BaseProxyRequestHandler.addForwardAuthHeaders(clientRequest, secondRetry);
+
+        verify(firstRetry).header("X-Auth-User", "alice");
+        verify(secondRetry).header("X-Auth-User", "alice");
+    }
+
+    @Test
+    void testDeniedOrUncheckedRequestsGetNoForwardAuthHeaders() {
+        Request unchecked = mock(Request.class);
+        BaseProxyRequestHandler.addForwardAuthHeaders(clientRequest, unchecked);
+
+        SpeculativeAuth.settle(clientRequest, null);
+        Request denied = mock(Request.class);
+        BaseProxyRequestHandler.addForwardAuthHeaders(clientRequest, denied);
+
+        verifyNoInteractions(unchecked, denied);
+    }
+}
@@ -0,0 +1,171 @@
+package io.jetproxy.service.holder;
+
+import io.jetproxy.middleware.auth.ForwardAuthDecisionCache;
+import io.jetproxy.middleware.auth.SpeculativeAuth;
+import io.jetproxy.middleware.auth.SpeculativeDispatch;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SpeculativeExchangeTest {
+
+    private final List<String> forwarded = new ArrayList<>();
+    private final List<Integer> errors = new ArrayList<>();
+    private final Response.Listener delegate = new Response.Listener.Adapter() {
+        @Override
+        public void onBegin(Response response) {
+            forwarded.add("begin");
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            forwarded.add("headers");
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content, Callback callback) {
+            forwarded.add("content");
+            callback.succeeded();
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            forwarded.add("complete");
+        }
+    };
+
+    private HttpServletRequest clientRequest;
+    private Request proxyRequest;
+    private Request resentRequest;
+    private Response response;
+    private CompletableFuture<ForwardAuthDecisionCache.Decision> decision;
+    private SpeculativeDispatch dispatch;
+    private Response.Listener exchange;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> attributes = new HashMap<>();
+        clientRequest = mock(HttpServletRequest.class);
+        when(clientRequest.getMethod()).thenReturn("GET");
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(clientRequest).setAttribute(anyString(), any());
+        doAnswer(invocation -> attributes.remove(invocation.<String>getArgument(0)))
+                .when(clientRequest).removeAttribute(anyString());
+        when(clientRequest.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+
+        proxyRequest = mock(Request.class);
+        when(proxyRequest.getURI()).thenReturn(URI.create("http://orders.internal/orders"));
+        resentRequest = mock(Request.class);
+        response = mock(Response.class);
+
+        decision = new CompletableFuture<>();
+        dispatch = new SpeculativeDispatch(10, 1);
+        assertTrue(dispatch.tryBegin("GET"));
+        SpeculativeAuth.begin(clientRequest, decision, dispatch);
+
+        new SpeculativeHandler().sendProxyRequestWithSpeculativeAuth(
+                clientRequest, mock(HttpServletResponse.class), proxyRequest, SpeculativeAuth.get(clientRequest));
+        ArgumentCaptor<Response.Listener> listener = ArgumentCaptor.forClass(Response.Listener.class);
+        verify(proxyRequest).send(listener.capture());
+        exchange = listener.getValue();
+    }
+
+    @Test
+    void testResponseIsHeldUntilTheCheckAllowsIt() {
+        exchange.onBegin(response);
+        exchange.onHeaders(response);
+        assertTrue(forwarded.isEmpty(), "Nothing reaches the client before the check completes");
+
+        decision.complete(new ForwardAuthDecisionCache.Decision(200, Map.of()));
+        exchange.onComplete(null);
+
+        assertEquals(List.of("begin", "headers", "complete"), forwarded);
+        verify(proxyRequest, never()).abort(any());
+        assertEquals(1, dispatch.getDispatchedCount());
+        assertEquals(1, dispatch.getAllowedCount());
+        assertTrue(dispatch.tryBegin("GET"), "An allowed request gives its budget back");
+    }
+
+    @Test
+    void testDeniedRequestIsAbortedAndItsResponseDiscarded() {
+        exchange.onBegin(response);
+
+        decision.complete(new ForwardAuthDecisionCache.Decision(401, Map.of()));
+        Callback callback = mock(Callback.class);
+        exchange.onContent(response, ByteBuffer.allocate(8), callback);
+
+        assertTrue(forwarded.isEmpty());
+        verify(proxyRequest).abort(any(CancellationException.class));
+        verify(callback).succeeded();
+        assertEquals(List.of(HttpStatus.UNAUTHORIZED_401), errors);
+        assertEquals(1, dispatch.getDeniedCount());
+        assertFalse(dispatch.tryBegin("GET"), "A denied request keeps its budget");
+    }
+
+    @Test
+    void testFailedCheckAbortsTheRequest() {
+        decision.completeExceptionally(new IOException("Connection refused"));
+
+        verify(proxyRequest).abort(any(CancellationException.class));
+        assertEquals(List.of(HttpStatus.SERVICE_UNAVAILABLE_503), errors);
+        assertEquals(1, dispatch.getDeniedCount());
+    }
+
+    @Test
+    void testRequestIsSentAgainWithTheHeadersOfTheCheck() {
+        exchange.onBegin(response);
+
+        decision.complete(new ForwardAuthDecisionCache.Decision(200, Map.of("X-Auth-User", "alice")));
+
+        verify(proxyRequest).abort(any(CancellationException.class));
+        verify(resentRequest).header("X-Auth-User", "alice");
+        verify(resentRequest).send(delegate);
+        assertTrue(forwarded.isEmpty(), "The speculative response is discarded");
+        assertEquals(1, dispatch.getResentCount());
+    }
+
+    private class SpeculativeHandler extends BaseProxyRequestHandler {
+        @Override
+        protected Response.Listener newProxyResponseListener(HttpServletRequest request, HttpServletResponse response) {
+            return delegate;
+        }
+
+        @Override
+        protected Request newProxyRequest(HttpServletRequest request, String rewrittenTarget) {
+            return resentRequest;
+        }
+
+        @Override
+        protected void copyRequestHeaders(HttpServletRequest clientRequest, Request proxyRequest) {
+        }
+
+        @Override
+        protected void addProxyHeaders(HttpServletRequest clientRequest, Request proxyRequest) {
+        }
+
+        @Override
+        protected void sendProxyResponseError(HttpServletRequest clientRequest, HttpServletResponse proxyResponse, int status) {
+            errors.add(status);
+        }
+    }
+}
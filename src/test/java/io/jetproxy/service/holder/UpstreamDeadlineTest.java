@@ -0,0 +1,52 @@
+package io.jetproxy.service.holder;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamDeadlineTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    void testCallerCanOnlyShortenTheBudget() {
+        assertEquals(3000, UpstreamDeadline.budgetMillis(null, 3000));
+        assertEquals(1200, UpstreamDeadline.budgetMillis("1200", 3000));
+        assertEquals(3000, UpstreamDeadline.budgetMillis("60000", 3000));
+    }
+
+    @Test
+    void testInvalidCallerBudgetIsIgnored() {
+        assertEquals(3000, UpstreamDeadline.budgetMillis("soon", 3000));
+        assertEquals(3000, UpstreamDeadline.budgetMillis("0", 3000));
+        assertEquals(3000, UpstreamDeadline.budgetMillis("-5", 3000));
+    }
+
+    @Test
+    void testRemainingTimeShrinks() {
+        UpstreamDeadline deadline = new UpstreamDeadline(1000, now::get);
+        assertEquals(1000, deadline.remainingMillis());
+
+        now.addAndGet(TimeUnit.MICROSECONDS.toNanos(400_500));
+        assertEquals(600, deadline.remainingMillis(), "Rounded up to the next millisecond");
+        assertTrue(deadline.hasTimeLeft());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        assertEquals(0, deadline.remainingMillis());
+        assertFalse(deadline.hasTimeLeft());
+    }
+
+    @Test
+    void testCancelledDeadlineHasNoTimeLeft() {
+        UpstreamDeadline deadline = new UpstreamDeadline(1000, now::get);
+
+        deadline.cancel(new IOException("Client disconnected"));
+
+        assertTrue(deadline.isCancelled());
+        assertFalse(deadline.hasTimeLeft());
+    }
+}